@@ -51,7 +51,7 @@ exit_on_err() {
 # display usage
 function usage() {
   echo "
-usage: ${0} [h] [<p:> [vlRFfu:a:A:d:m:I:P:C:X]]
+usage: ${0} [h] [<p:> [vlLRFfu:a:A:d:m:I:P:C:X]]
 
     -h : help
          Prints the ${0} help
@@ -71,6 +71,11 @@ usage: ${0} [h] [<p:> [vlRFfu:a:A:d:m:I:P:C:X]]
          Prints loaded module list
 
 
+    -L : list leaked module class loader
+         Prints module class loaders which are still reachable after unload.
+         a full GC will be triggered before checking.
+
+
     -F : force flush
          Force flush the sandbox\`s user module library.
 
@@ -295,7 +300,7 @@ function sandbox_debug_curl() {
 # the sandbox main function
 function main() {
 
-  while getopts "hp:vFfRu:a:A:d:m:I:P:ClSn:X" ARG; do
+  while getopts "hp:vFfRu:a:A:d:m:I:P:ClLSn:X" ARG; do
     case ${ARG} in
     h)
       usage
@@ -304,6 +309,7 @@ function main() {
     p) TARGET_JVM_PID=${OPTARG} ;;
     v) OP_VERSION=1 ;;
     l) OP_MODULE_LIST=1 ;;
+    L) OP_MODULE_LEAK=1 ;;
     R) OP_MODULE_RESET=1 ;;
     F) OP_MODULE_FORCE_FLUSH=1 ;;
     f) OP_MODULE_FLUSH=1 ;;
@@ -377,6 +383,10 @@ function main() {
   [[ -n ${OP_MODULE_LIST} ]] &&
     sandbox_curl_with_exit "sandbox-module-mgr/list"
 
+  # -L list leaked module class loaders
+  [[ -n ${OP_MODULE_LEAK} ]] &&
+    sandbox_curl_with_exit "sandbox-module-mgr/leak" "&gc=true"
+
   # -F force flush module
   [[ -n ${OP_MODULE_FORCE_FLUSH} ]] &&
     sandbox_curl_with_exit "sandbox-module-mgr/flush" "&force=true"
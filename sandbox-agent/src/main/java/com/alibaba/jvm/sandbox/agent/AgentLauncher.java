@@ -5,19 +5,25 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.instrument.Instrumentation;
 import java.net.InetSocketAddress;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static com.alibaba.jvm.sandbox.api.resource.ConfigInfo.READINESS_FAILED;
+import static com.alibaba.jvm.sandbox.api.resource.ConfigInfo.READINESS_LOADING;
+import static com.alibaba.jvm.sandbox.api.resource.ConfigInfo.READINESS_READY;
 import static java.lang.String.format;
 
 /**
  * SandboxAgent启动器
  * <ul>
  * <li>这个类的所有静态属性都必须和版本、环境无关</li>
+ * <li>这个类只能引用sandbox-common-api中的编译期常量(如就绪状态)，运行时不能依赖sandbox-agent之外的类</li>
  * <li>这个类删除、修改方法时必须考虑多版本情况下，兼容性问题!</li>
  * </ul>
  *
@@ -99,6 +105,9 @@ public class AgentLauncher {
      */
     private static final Map<String/*NAMESPACE*/, SandboxClassLoader> sandboxClassLoaderMap = new ConcurrentHashMap<>();
 
+    // 已经注入到BootstrapClassLoader的sandbox-spy.jar，同一个Jar只需要注入一次
+    private static final Set<String> appendedSpyJarPaths = new HashSet<>();
+
     private static final String CLASS_OF_CORE_CONFIGURE = "com.alibaba.jvm.sandbox.core.CoreConfigure";
     private static final String CLASS_OF_PROXY_CORE_SERVER = "com.alibaba.jvm.sandbox.core.server.ProxyCoreServer";
 
@@ -109,14 +118,105 @@ public class AgentLauncher {
      * 当我们使用javaagent启动jvm-sandbox时，会调用这个方法
      * </p>
      *
+     * <p>
+     * 启动参数中指定{@code bootstrap=async}时，premain中只注入Spy、启动内核(持久化观察在这里完成注册)，
+     * 启动HTTP服务和加载模块交给后台线程完成，不再阻塞应用的main方法；启动的进度会以就绪状态写入结果文件
+     * </p>
+     *
      * @param featureString 启动参数
-     *                      [namespace,prop]
+     *                      [namespace,prop,bootstrap]
      * @param inst          inst
      */
     public static void premain(String featureString, Instrumentation inst) {
         LAUNCH_MODE = LAUNCH_MODE_AGENT;
+        final Map<String, String> featureMap = toFeatureMap(featureString);
+        if (isAsyncBootstrap(featureMap)) {
+            installInBackground(featureMap, inst);
+            return;
+        }
         // 在当前JVM上安装（启动）jvm-sandbox
-        install(toFeatureMap(featureString), inst);
+        install(featureMap, inst);
+    }
+
+    /**
+     * 在后台线程上安装jvm-sandbox
+     * <p>
+     * Spy必须在应用类加载之前注入到BootstrapClassLoader，持久化观察的类转换器也必须在应用类加载之前注册，
+     * 所以这两步仍然在premain中同步完成；启动HTTP服务和加载模块可以延后：
+     * 沙箱观察类时会重新渲染已经加载的类，所以后台启动期间加载的类同样能被观察到
+     * </p>
+     * <p>
+     * 启动失败时就绪状态为FAILED，失败原因写在结果文件的第六列，异常交给线程的UncaughtExceptionHandler处理
+     * </p>
+     *
+     * @param featureMap 启动参数配置
+     * @param inst       inst
+     */
+    private static void installInBackground(final Map<String, String> featureMap, final Instrumentation inst) {
+        final String namespace = getNamespace(featureMap);
+        final String token = getToken(featureMap);
+
+        try {
+            appendSpyToBootstrapClassLoaderSearchIfNecessary(getSandboxHome(featureMap), inst);
+        } catch (Throwable cause) {
+            throw new RuntimeException("sandbox attach failed.", cause);
+        }
+        writeAttachResultQuietly(namespace, token, null, READINESS_LOADING, null);
+
+        // 提前启动内核，持久化观察的类转换器必须赶在应用类加载之前注册
+        try {
+            prepare(featureMap, inst);
+        } catch (Throwable cause) {
+            reportBootstrapFailed(namespace, token, cause);
+            return;
+        }
+
+        final Thread bootstrapThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final InetSocketAddress local = install(featureMap, inst);
+                    writeAttachResultQuietly(namespace, token, local, READINESS_READY, null);
+                } catch (Throwable cause) {
+                    // 后台启动失败不能影响应用，只记录下失败的原因和状态
+                    reportBootstrapFailed(namespace, token, cause);
+                }
+            }
+        }, "sandbox-bootstrap-" + namespace);
+        bootstrapThread.setDaemon(true);
+        bootstrapThread.start();
+    }
+
+    /**
+     * 汇报后台启动失败
+     * <p>
+     * 就绪状态写为FAILED并带上失败原因，异常本身交给当前线程的UncaughtExceptionHandler，
+     * 和同步启动失败时抛出的异常走同一条路径
+     * </p>
+     *
+     * @param namespace 命名空间
+     * @param token     操作TOKEN
+     * @param cause     失败原因
+     */
+    private static void reportBootstrapFailed(final String namespace,
+                                              final String token,
+                                              final Throwable cause) {
+        writeAttachResultQuietly(namespace, token, null, READINESS_FAILED, toFailedReason(cause));
+        final Thread thread = Thread.currentThread();
+        final Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+        if (null != handler) {
+            handler.uncaughtException(thread, cause);
+        }
+    }
+
+    // 失败原因取根因，结果文件以分号和换行分隔，原因中不能出现这些字符
+    private static String toFailedReason(final Throwable cause) {
+        Throwable root = cause;
+        while (null != root.getCause() && root != root.getCause()) {
+            root = root.getCause();
+        }
+        return format("%s: %s", root.getClass().getName(), root.getMessage())
+                .replaceAll("[;\\r\\n]", " ");
     }
 
     /**
@@ -137,22 +237,26 @@ public class AgentLauncher {
         // 在当前JVM上安装（启动）jvm-sandbox
         InetSocketAddress install = install(featureMap, inst);
         // 写入本次attach的结果
-        writeAttachResult(namespace, token, install);
+        writeAttachResult(namespace, token, install, READINESS_READY, null);
     }
 
     /**
      * 写入本次attach的结果
      * <p>
-     * NAMESPACE;TOKEN;IP;PORT
+     * NAMESPACE;TOKEN;IP;PORT;READINESS[;REASON]
      * </p>
      *
      * @param namespace 命名空间
      * @param token     操作TOKEN
-     * @param local     服务器监听[IP:PORT]
+     * @param local     服务器监听[IP:PORT]，服务器尚未启动时为null，此时IP和PORT为空
+     * @param readiness 就绪状态
+     * @param reason    失败原因，只有启动失败时才有，为null时不写
      */
     private static synchronized void writeAttachResult(final String namespace,
                                                        final String token,
-                                                       final InetSocketAddress local) {
+                                                       final InetSocketAddress local,
+                                                       final String readiness,
+                                                       final String reason) {
         final File file = new File(RESULT_FILE_PATH);
         if (file.exists()
                 && (!file.isFile()
@@ -161,11 +265,13 @@ public class AgentLauncher {
         } else {
             try (final FileWriter fw = new FileWriter(file, true)) {
                 fw.append(
-                        format("%s;%s;%s;%s\n",
+                        format("%s;%s;%s;%s;%s%s\n",
                                 namespace,
                                 token,
-                                local.getHostName(),
-                                local.getPort()
+                                null == local ? EMPTY_STRING : local.getHostName(),
+                                null == local ? EMPTY_STRING : local.getPort(),
+                                readiness,
+                                null == reason ? EMPTY_STRING : ";" + reason
                         )
                 );
                 fw.flush();
@@ -176,6 +282,45 @@ public class AgentLauncher {
         }
     }
 
+    // 后台启动时结果文件只用于汇报进度，写入失败不影响启动
+    private static void writeAttachResultQuietly(final String namespace,
+                                                 final String token,
+                                                 final InetSocketAddress local,
+                                                 final String readiness,
+                                                 final String reason) {
+        try {
+            writeAttachResult(namespace, token, local, readiness, reason);
+        } catch (Throwable cause) {
+            // ignore
+        }
+    }
+
+    /**
+     * 将Spy注入到BootstrapClassLoader，同一个sandbox-spy.jar只注入一次
+     *
+     * @param home 沙箱主目录
+     * @param inst inst
+     * @throws IOException 打开sandbox-spy.jar失败
+     */
+    private static synchronized void appendSpyToBootstrapClassLoaderSearchIfNecessary(final String home,
+                                                                                      final Instrumentation inst) throws IOException {
+        final String spyJarPath = getSandboxSpyJarPath(home);
+        if (appendedSpyJarPaths.contains(spyJarPath)) {
+            return;
+        }
+        // 将Spy注入到BootstrapClassLoader，也就是说通过启动类加载器去加载sandbox-spy.jar中的相关类
+        // 在这里会将sandbox-spy.jar添加到BootstrapClassLoader的搜索路径中，
+        // 当BootstrapClassLoader类加载器搜索类失败时，会尝试去搜索给定的Jar文件
+        // ai解释：将Spy注入到BootstrapClassLoader中，是为了让Spy能够被所有类加载器访问，
+        // 尤其是被应用程序类加载器和自定义类加载器加载的业务代码也能访问到这些Spy。
+        // 这样可以实现对JVM中所有类的无侵入和字节码增强，避免类加载器隔离带来的ClassNotFoundException等问题，保证探针功能的全局可用性和兼容性。
+        inst.appendToBootstrapClassLoaderSearch(new JarFile(new File(
+                // SANDBOX_SPY_JAR_PATH
+                spyJarPath
+        )));
+        appendedSpyJarPaths.add(spyJarPath);
+    }
+
 
     /**
      * 加载或定义一个SandboxClassLoader
@@ -230,6 +375,47 @@ public class AgentLauncher {
         sandboxClassLoaderMap.remove(namespace);
     }
 
+    /**
+     * 在当前JVM上提前启动jvm-sandbox内核
+     * <p>
+     * 只启动内核，不启动HTTP服务也不加载模块，之后的{@link #install(Map, Instrumentation)}会沿用这里启动的内核
+     * </p>
+     *
+     * @param featureMap 启动参数配置
+     * @param inst       inst
+     */
+    private static synchronized void prepare(final Map<String, String> featureMap, final Instrumentation inst) {
+        final String namespace = getNamespace(featureMap);
+        final String propertiesFilePath = getPropertiesFilePath(featureMap);
+        final String coreFeatureString = toFeatureString(featureMap);
+
+        try {
+            final String home = getSandboxHome(featureMap);
+            appendSpyToBootstrapClassLoaderSearchIfNecessary(home, inst);
+            final ClassLoader sandboxClassLoader = loadOrDefineClassLoader(
+                    namespace,
+                    getSandboxCoreJarPath(home)
+            );
+
+            final Class<?> classOfConfigure = sandboxClassLoader.loadClass(CLASS_OF_CORE_CONFIGURE);
+            final Object objectOfCoreConfigure = classOfConfigure.getMethod("toConfigure", String.class, String.class)
+                    .invoke(null, coreFeatureString, propertiesFilePath);
+
+            final Class<?> classOfProxyServer = sandboxClassLoader.loadClass(CLASS_OF_PROXY_CORE_SERVER);
+            final Object objectOfProxyServer = classOfProxyServer
+                    .getMethod("getInstance")
+                    .invoke(null);
+
+            // CoreServer.prepare()
+            classOfProxyServer
+                    .getMethod("prepare", classOfConfigure, Instrumentation.class)
+                    .invoke(objectOfProxyServer, objectOfCoreConfigure, inst);
+
+        } catch (Throwable cause) {
+            throw new RuntimeException("sandbox attach failed.", cause);
+        }
+    }
+
     /**
      * 在当前JVM安装jvm-sandbox
      *
@@ -247,16 +433,8 @@ public class AgentLauncher {
 
         try {
             final String home = getSandboxHome(featureMap);
-            // 将Spy注入到BootstrapClassLoader，也就是说通过启动类加载器去加载sandbox-spy.jar中的相关类
-            // 在这里会将sandbox-spy.jar添加到BootstrapClassLoader的搜索路径中，
-            // 当BootstrapClassLoader类加载器搜索类失败时，会尝试去搜索给定的Jar文件
-            // ai解释：将Spy注入到BootstrapClassLoader中，是为了让Spy能够被所有类加载器访问，
-            // 尤其是被应用程序类加载器和自定义类加载器加载的业务代码也能访问到这些Spy。
-            // 这样可以实现对JVM中所有类的无侵入和字节码增强，避免类加载器隔离带来的ClassNotFoundException等问题，保证探针功能的全局可用性和兼容性。
-            inst.appendToBootstrapClassLoaderSearch(new JarFile(new File(
-                    // SANDBOX_SPY_JAR_PATH
-                    getSandboxSpyJarPath(home)
-            )));
+            // 将Spy注入到BootstrapClassLoader
+            appendSpyToBootstrapClassLoaderSearchIfNecessary(home, inst);
 
             // 构造自定义的类加载器SandboxClassLoader，尽量减少Sandbox对现有工程的侵蚀
             // 这里的SandboxClassLoader类加载器会加载sandbox-core.jar、sandbox-api中的类库
@@ -327,6 +505,9 @@ public class AgentLauncher {
 
     private static final String KEY_PROPERTIES_FILE_PATH = "prop";
 
+    private static final String KEY_BOOTSTRAP = "bootstrap";
+    private static final String VALUE_BOOTSTRAP_ASYNC = "async";
+
     private static boolean isNotBlankString(final String string) {
         return null != string
                 && string.length() > 0
@@ -408,6 +589,11 @@ public class AgentLauncher {
         return getDefault(featureMap, KEY_TOKEN, DEFAULT_TOKEN);
     }
 
+    // 是否在后台线程上异步启动
+    private static boolean isAsyncBootstrap(final Map<String, String> featureMap) {
+        return VALUE_BOOTSTRAP_ASYNC.equalsIgnoreCase(getDefault(featureMap, KEY_BOOTSTRAP, EMPTY_STRING));
+    }
+
     // 获取容器配置文件路径
     private static String getPropertiesFilePath(final Map<String, String> featureMap) {
         return getDefault(
@@ -0,0 +1,31 @@
+package com.alibaba.jvm.sandbox.core;
+
+/**
+ * 测试用的内核配置
+ * <p>
+ * 测试时sandbox-core.jar并不存在，SandboxClassLoader会委托父类加载器加载到这个类，
+ * 只保留AgentLauncher通过反射调用的方法
+ * </p>
+ */
+public class CoreConfigure {
+
+    private final String featureString;
+
+    private CoreConfigure(final String featureString) {
+        this.featureString = featureString;
+    }
+
+    public static CoreConfigure toConfigure(final String featureString, final String propertiesFilePath) {
+        return new CoreConfigure(featureString);
+    }
+
+    public String getNamespace() {
+        for (final String kv : featureString.split(";")) {
+            if (kv.startsWith("namespace=")) {
+                return kv.substring("namespace=".length());
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.alibaba.jvm.sandbox.core.server;
+
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.net.InetSocketAddress;
+
+/**
+ * 测试用的内核服务器
+ * <p>
+ * 只保留AgentLauncher通过反射调用的方法，命名空间以{@link #FAILED_NAMESPACE_PREFIX}开头时绑定失败
+ * </p>
+ */
+public class ProxyCoreServer {
+
+    public static final String FAILED_NAMESPACE_PREFIX = "failed";
+
+    public static final String FAILED_MESSAGE = "port 8820 in use;\nretry later";
+
+    public static final InetSocketAddress LOCAL = InetSocketAddress.createUnresolved("127.0.0.1", 8820);
+
+    private static final ProxyCoreServer instance = new ProxyCoreServer();
+
+    public static ProxyCoreServer getInstance() {
+        return instance;
+    }
+
+    public void prepare(final CoreConfigure cfg, final Instrumentation inst) {
+
+    }
+
+    // 每个命名空间都需要走一遍bind()，这里不记录绑定状态
+    public boolean isBind() {
+        return false;
+    }
+
+    public void bind(final CoreConfigure cfg, final Instrumentation inst) throws IOException {
+        if (cfg.getNamespace().startsWith(FAILED_NAMESPACE_PREFIX)) {
+            throw new IOException(FAILED_MESSAGE);
+        }
+    }
+
+    public InetSocketAddress getLocal() {
+        return LOCAL;
+    }
+
+    public void destroy() {
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.alibaba.jvm.sandbox.qatest.agent;
+
+import com.alibaba.jvm.sandbox.agent.AgentLauncher;
+import com.alibaba.jvm.sandbox.core.server.ProxyCoreServer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarOutputStream;
+
+import static java.lang.String.format;
+
+/**
+ * {@code bootstrap=async}启动时结果文件的测试
+ * <p>
+ * 结果文件每行格式为NAMESPACE;TOKEN;IP;PORT;READINESS[;REASON]，
+ * 内核由测试用的{@link com.alibaba.jvm.sandbox.core.CoreConfigure}和{@link ProxyCoreServer}代替
+ * </p>
+ */
+public class AsyncBootstrapTestCase {
+
+    private static final long TIMEOUT_MS = 10000L;
+
+    private static String originalUserHome;
+    private static File sandboxHome;
+    private static File resultFile;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // 结果文件路径在AgentLauncher初始化时由user.home决定，必须在第一次调用AgentLauncher之前替换
+        final File userHome = Files.createTempDirectory("sandbox-user-home").toFile();
+        originalUserHome = System.getProperty("user.home");
+        System.setProperty("user.home", userHome.getAbsolutePath());
+        resultFile = new File(userHome, ".sandbox.token");
+
+        // premain中只会把sandbox-spy.jar交给Instrumentation，这里只需要一个合法的空Jar
+        sandboxHome = Files.createTempDirectory("sandbox-home").toFile();
+        final File lib = new File(sandboxHome, "lib");
+        Assert.assertTrue(lib.mkdirs());
+        new JarOutputStream(new FileOutputStream(new File(lib, "sandbox-spy.jar"))).close();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        System.setProperty("user.home", originalUserHome);
+    }
+
+    private static Instrumentation newEmptyInstrumentation() {
+        return (Instrumentation) Proxy.newProxyInstance(
+                AsyncBootstrapTestCase.class.getClassLoader(),
+                new Class<?>[]{Instrumentation.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                }
+        );
+    }
+
+    private static void premain(final String namespace, final String token) {
+        AgentLauncher.premain(
+                format("namespace=%s;token=%s;home=%s;bootstrap=async;", namespace, token, sandboxHome.getAbsolutePath()),
+                newEmptyInstrumentation()
+        );
+    }
+
+    private static List<String> readResultLines(final String namespace) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        if (!resultFile.exists()) {
+            return lines;
+        }
+        for (final String line : Files.readAllLines(resultFile.toPath(), StandardCharsets.UTF_8)) {
+            if (line.startsWith(namespace + ";")) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    // 等待后台启动结束，返回该命名空间写入的所有结果行
+    private static List<String> awaitResultLines(final String namespace) throws Exception {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            final List<String> lines = readResultLines(namespace);
+            if (lines.size() >= 2) {
+                return lines;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("bootstrap not finished in " + TIMEOUT_MS + "ms, lines=" + readResultLines(namespace));
+    }
+
+    @Test
+    public void test$$asyncBootstrap$$success() throws Exception {
+        premain("ready", "token-ready");
+        Assert.assertEquals(
+                Arrays.asList(
+                        "ready;token-ready;;;LOADING",
+                        format("ready;token-ready;%s;%s;READY",
+                                ProxyCoreServer.LOCAL.getHostName(), ProxyCoreServer.LOCAL.getPort())
+                ),
+                awaitResultLines("ready")
+        );
+    }
+
+    @Test
+    public void test$$asyncBootstrap$$failed() throws Exception {
+        final List<Throwable> uncaught = new ArrayList<>();
+        final Thread.UncaughtExceptionHandler originalHandler = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                synchronized (uncaught) {
+                    uncaught.add(e);
+                }
+            }
+        });
+        try {
+            premain(ProxyCoreServer.FAILED_NAMESPACE_PREFIX, "token-failed");
+
+            // 失败原因取根因，分号和换行会被替换为空格，保证结果行仍然只有六列
+            Assert.assertEquals(
+                    Arrays.asList(
+                            "failed;token-failed;;;LOADING",
+                            "failed;token-failed;;;FAILED;java.io.IOException: port 8820 in use  retry later"
+                    ),
+                    awaitResultLines(ProxyCoreServer.FAILED_NAMESPACE_PREFIX)
+            );
+
+            // 失败的结果行写入后异常才交给UncaughtExceptionHandler
+            final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+            while (System.currentTimeMillis() < deadline) {
+                synchronized (uncaught) {
+                    if (!uncaught.isEmpty()) {
+                        break;
+                    }
+                }
+                Thread.sleep(10);
+            }
+            synchronized (uncaught) {
+                Assert.assertEquals(1, uncaught.size());
+                Assert.assertEquals("sandbox attach failed.", uncaught.get(0).getMessage());
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(originalHandler);
+        }
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.alibaba.jvm.sandbox.api;
+
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.*;
+
+/**
+ * 流程控制决定
+ * <p>
+ * 和{@link ProcessController}表达的流程控制完全一致，但不再通过抛出{@link ProcessControlException}来传递，
+ * 而是作为{@link com.alibaba.jvm.sandbox.api.listener.ControllableEventListener}的返回值直接交给容器，
+ * 省去了每次流程控制时创建、抛出和捕获异常的开销
+ * </p>
+ *
+ * @see com.alibaba.jvm.sandbox.api.listener.ControllableEventListener
+ * @since {@code sandbox-api:1.4.0}
+ */
+public final class ProcessDecision {
+
+    private static final ProcessDecision none
+            = new ProcessDecision(false, NONE_IMMEDIATELY, null);
+
+    private static final ProcessDecision noneWithIgnoreProcessEvent
+            = new ProcessDecision(true, NONE_IMMEDIATELY, null);
+
+    // 是否忽略后续所有事件处理
+    private final boolean isIgnoreProcessEvent;
+
+    // 流程控制状态
+    private final ProcessControlException.State state;
+
+    // 回应结果对象(直接返回或者抛出异常)
+    private final Object respond;
+
+    private ProcessDecision(final boolean isIgnoreProcessEvent,
+                            final ProcessControlException.State state,
+                            final Object respond) {
+        this.isIgnoreProcessEvent = isIgnoreProcessEvent;
+        this.state = state;
+        this.respond = respond;
+    }
+
+    /**
+     * 不干预当前处理流程
+     *
+     * @return 流程控制决定
+     */
+    public static ProcessDecision none() {
+        return none;
+    }
+
+    /**
+     * 不干预当前处理流程,但忽略后续所有事件处理
+     *
+     * @return 流程控制决定
+     */
+    public static ProcessDecision noneWithIgnoreProcessEvent() {
+        return noneWithIgnoreProcessEvent;
+    }
+
+    /**
+     * 中断当前代码处理流程,并立即返回指定对象
+     *
+     * @param object 返回对象
+     * @return 流程控制决定
+     */
+    public static ProcessDecision returnImmediately(final Object object) {
+        return new ProcessDecision(false, RETURN_IMMEDIATELY, object);
+    }
+
+    /**
+     * 中断当前代码处理流程,并抛出指定异常
+     *
+     * @param throwable 指定异常
+     * @return 流程控制决定
+     */
+    public static ProcessDecision throwsImmediately(final Throwable throwable) {
+        return new ProcessDecision(false, THROWS_IMMEDIATELY, throwable);
+    }
+
+    /**
+     * 中断当前代码处理流程,并立即返回指定对象,且忽略后续所有事件处理
+     *
+     * @param object 返回对象
+     * @return 流程控制决定
+     */
+    public static ProcessDecision returnImmediatelyWithIgnoreProcessEvent(final Object object) {
+        return new ProcessDecision(true, RETURN_IMMEDIATELY, object);
+    }
+
+    /**
+     * 中断当前代码处理流程,并抛出指定异常,且忽略后续所有事件处理
+     *
+     * @param throwable 指定异常
+     * @return 流程控制决定
+     */
+    public static ProcessDecision throwsImmediatelyWithIgnoreProcessEvent(final Throwable throwable) {
+        return new ProcessDecision(true, THROWS_IMMEDIATELY, throwable);
+    }
+
+    /**
+     * 判断是否需要主动忽略处理后续所有事件流
+     *
+     * @return 是否需要主动忽略处理后续所有事件流
+     */
+    public boolean isIgnoreProcessEvent() {
+        return isIgnoreProcessEvent;
+    }
+
+    public ProcessControlException.State getState() {
+        return state;
+    }
+
+    public Object getRespond() {
+        return respond;
+    }
+
+    /**
+     * 按照{@link ProcessController}的方式执行流程控制
+     * <p>
+     * 用于兼容只认识{@link com.alibaba.jvm.sandbox.api.listener.EventListener#onEvent}的调用方，
+     * 不干预流程且不忽略后续事件时直接返回
+     * </p>
+     *
+     * @throws ProcessControlException 需要变更流程时抛出
+     */
+    public void throwIfNecessary() throws ProcessControlException {
+        if (this == none) {
+            return;
+        }
+        throw new ProcessControlException(isIgnoreProcessEvent, state, respond);
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.alibaba.jvm.sandbox.api.annotation;
+
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+
+import java.lang.annotation.*;
+
+/**
+ * 拥有此标记的{@link Filter}，
+ * 声明自己是线程安全的，容器可以在多个线程中并发调用它来并行匹配已加载的类；
+ * 没有此标记的过滤器一律只在单个线程中调用
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface ThreadSafe {
+}
@@ -12,6 +12,16 @@ public class ReturnEvent extends InvokeEvent {
      */
     public final Object object;
 
+    /**
+     * 方法耗时(纳秒)
+     * <p>
+     * 只有观察时开启了计时({@code withTiming()})才会在织入代码中测量，否则为-1
+     * </p>
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public final long costNanoTime;
+
     /**
      * 构造调用RETURN事件
      *
@@ -22,8 +32,25 @@ public class ReturnEvent extends InvokeEvent {
     public ReturnEvent(final int processId,
                        final int invokeId,
                        final Object object) {
+        this(processId, invokeId, object, -1L);
+    }
+
+    /**
+     * 构造带方法耗时的调用RETURN事件
+     *
+     * @param processId    调用过程ID
+     * @param invokeId     调用ID
+     * @param object       调用返回值(void方法返回值为null)
+     * @param costNanoTime 方法耗时(纳秒)，未计时为-1
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public ReturnEvent(final int processId,
+                       final int invokeId,
+                       final Object object,
+                       final long costNanoTime) {
         super(processId, invokeId, Type.RETURN);
         this.object = object;
+        this.costNanoTime = costNanoTime;
     }
 
     /**
@@ -41,6 +68,7 @@ public class ReturnEvent extends InvokeEvent {
                 final Object object) {
         super(processId, invokeId, type);
         this.object = object;
+        this.costNanoTime = -1L;
 
         // 对入参进行校验
         if (type != Type.IMMEDIATELY_RETURN
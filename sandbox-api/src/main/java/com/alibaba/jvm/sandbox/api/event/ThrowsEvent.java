@@ -12,6 +12,16 @@ public class ThrowsEvent extends InvokeEvent {
      */
     public final Throwable throwable;
 
+    /**
+     * 方法耗时(纳秒)
+     * <p>
+     * 只有观察时开启了计时({@code withTiming()})才会在织入代码中测量，否则为-1
+     * </p>
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public final long costNanoTime;
+
     /**
      * 构造异常/错误抛出调用事件
      *
@@ -22,8 +32,25 @@ public class ThrowsEvent extends InvokeEvent {
     public ThrowsEvent(final int processId,
                        final int invokeId,
                        final Throwable throwable) {
+        this(processId, invokeId, throwable, -1L);
+    }
+
+    /**
+     * 构造带方法耗时的异常/错误抛出调用事件
+     *
+     * @param processId    调用过程ID
+     * @param invokeId     调用ID
+     * @param throwable    抛出的异常/错误信息
+     * @param costNanoTime 方法耗时(纳秒)，未计时为-1
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public ThrowsEvent(final int processId,
+                       final int invokeId,
+                       final Throwable throwable,
+                       final long costNanoTime) {
         super(processId, invokeId, Type.THROWS);
         this.throwable = throwable;
+        this.costNanoTime = costNanoTime;
     }
 
     /**
@@ -41,6 +68,7 @@ public class ThrowsEvent extends InvokeEvent {
                 final Throwable throwable) {
         super(processId, invokeId, type);
         this.throwable = throwable;
+        this.costNanoTime = -1L;
 
         // 对入参进行校验
         if (type != Type.THROWS
@@ -0,0 +1,24 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+/**
+ * 方法调用过滤器
+ * <p>
+ * 观察CALL系列事件时，被观察的方法内部每一处方法调用都会被增强。
+ * 调用过滤器在增强时对每一处方法调用进行过滤，只有通过过滤的调用才会被织入CALL系列事件
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface CallFilter {
+
+    /**
+     * 对方法调用进行过滤
+     *
+     * @param ownerJavaClassName 被调用方法的声明类(全路径名称)
+     * @param methodName         被调用方法的方法名
+     * @param methodDesc         被调用方法的方法描述，如：{@code (Ljava/lang/String;)I}
+     * @return TRUE:织入CALL系列事件;FALSE:忽略这处调用
+     */
+    boolean doCallFilter(String ownerJavaClassName, String methodName, String methodDesc);
+
+}
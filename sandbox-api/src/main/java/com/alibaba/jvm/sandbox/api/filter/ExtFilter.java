@@ -2,6 +2,7 @@ package com.alibaba.jvm.sandbox.api.filter;
 
 import com.alibaba.jvm.sandbox.api.annotation.IncludeBootstrap;
 import com.alibaba.jvm.sandbox.api.annotation.IncludeSubClasses;
+import com.alibaba.jvm.sandbox.api.annotation.ThreadSafe;
 
 /**
  * 增强过滤器
@@ -41,6 +42,9 @@ public interface ExtFilter extends Filter {
 
         /**
          * 生产增强过滤器
+         * <p>
+         * 原生过滤器标记了{@link ThreadSafe}时，生产的增强过滤器同样标记{@link ThreadSafe}
+         * </p>
          *
          * @param filter              原生过滤器
          * @param isIncludeSubClasses 是否包含子类
@@ -50,48 +54,9 @@ public interface ExtFilter extends Filter {
         public static ExtFilter make(final Filter filter,
                                      final boolean isIncludeSubClasses,
                                      final boolean isIncludeBootstrap) {
-            return new ExtFilter() {
-
-                @Override
-                public boolean isIncludeSubClasses() {
-                    return isIncludeSubClasses;
-                }
-
-                @Override
-                public boolean isIncludeBootstrap() {
-                    return isIncludeBootstrap;
-                }
-
-                @Override
-                public boolean doClassFilter(final int access,
-                                             final String javaClassName,
-                                             final String superClassTypeJavaClassName,
-                                             final String[] interfaceTypeJavaClassNameArray,
-                                             final String[] annotationTypeJavaClassNameArray) {
-                    return filter.doClassFilter(
-                            access,
-                            javaClassName,
-                            superClassTypeJavaClassName,
-                            interfaceTypeJavaClassNameArray,
-                            annotationTypeJavaClassNameArray
-                    );
-                }
-
-                @Override
-                public boolean doMethodFilter(final int access,
-                                              final String javaMethodName,
-                                              final String[] parameterTypeJavaClassNameArray,
-                                              final String[] throwsTypeJavaClassNameArray,
-                                              final String[] annotationTypeJavaClassNameArray) {
-                    return filter.doMethodFilter(
-                            access,
-                            javaMethodName,
-                            parameterTypeJavaClassNameArray,
-                            throwsTypeJavaClassNameArray,
-                            annotationTypeJavaClassNameArray
-                    );
-                }
-            };
+            return filter.getClass().isAnnotationPresent(ThreadSafe.class)
+                    ? new ThreadSafeFilterAdapter(filter, isIncludeSubClasses, isIncludeBootstrap)
+                    : new FilterAdapter(filter, isIncludeSubClasses, isIncludeBootstrap);
         }
 
         /**
@@ -108,6 +73,79 @@ public interface ExtFilter extends Filter {
             );
         }
 
+        /**
+         * 将原生过滤器适配为增强过滤器
+         */
+        private static class FilterAdapter implements ExtFilter {
+
+            private final Filter filter;
+            private final boolean isIncludeSubClasses;
+            private final boolean isIncludeBootstrap;
+
+            FilterAdapter(final Filter filter,
+                          final boolean isIncludeSubClasses,
+                          final boolean isIncludeBootstrap) {
+                this.filter = filter;
+                this.isIncludeSubClasses = isIncludeSubClasses;
+                this.isIncludeBootstrap = isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean isIncludeSubClasses() {
+                return isIncludeSubClasses;
+            }
+
+            @Override
+            public boolean isIncludeBootstrap() {
+                return isIncludeBootstrap;
+            }
+
+            @Override
+            public boolean doClassFilter(final int access,
+                                         final String javaClassName,
+                                         final String superClassTypeJavaClassName,
+                                         final String[] interfaceTypeJavaClassNameArray,
+                                         final String[] annotationTypeJavaClassNameArray) {
+                return filter.doClassFilter(
+                        access,
+                        javaClassName,
+                        superClassTypeJavaClassName,
+                        interfaceTypeJavaClassNameArray,
+                        annotationTypeJavaClassNameArray
+                );
+            }
+
+            @Override
+            public boolean doMethodFilter(final int access,
+                                          final String javaMethodName,
+                                          final String[] parameterTypeJavaClassNameArray,
+                                          final String[] throwsTypeJavaClassNameArray,
+                                          final String[] annotationTypeJavaClassNameArray) {
+                return filter.doMethodFilter(
+                        access,
+                        javaMethodName,
+                        parameterTypeJavaClassNameArray,
+                        throwsTypeJavaClassNameArray,
+                        annotationTypeJavaClassNameArray
+                );
+            }
+
+        }
+
+        /**
+         * 适配标记了{@link ThreadSafe}的原生过滤器
+         */
+        @ThreadSafe
+        private static class ThreadSafeFilterAdapter extends FilterAdapter {
+
+            ThreadSafeFilterAdapter(final Filter filter,
+                                    final boolean isIncludeSubClasses,
+                                    final boolean isIncludeBootstrap) {
+                super(filter, isIncludeSubClasses, isIncludeBootstrap);
+            }
+
+        }
+
     }
 
 }
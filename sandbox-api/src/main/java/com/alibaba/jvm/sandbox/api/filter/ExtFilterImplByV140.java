@@ -1,5 +1,8 @@
 package com.alibaba.jvm.sandbox.api.filter;
 
+import com.alibaba.jvm.sandbox.api.annotation.ThreadSafe;
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+
 /**
  * 增强过滤器V140实现，根据#292实现
  *
@@ -52,6 +55,23 @@ public class ExtFilterImplByV140 implements ExtFilter {
      */
     private final boolean isBehaviorHasAnnotationTypes;
 
+    /**
+     * 类名匹配模版，为null表示未知
+     * <p>
+     *     能通过{@link #doClassFilter(int, String, String, String[], String[])}的类，其类名必定能匹配该模版，
+     *     内核可以据此从已加载类索引中直接检索候选类，而不必逐个匹配所有已加载的类
+     * </p>
+     */
+    private final GaPattern classNamePattern;
+
+    /**
+     * 注解类型匹配模版，为null表示没有注解约束
+     * <p>
+     *     能通过{@link #doClassFilter(int, String, String, String[], String[])}的类，其家族注解中至少有一个能匹配其中某个模版
+     * </p>
+     */
+    private final GaPattern[] annotationTypePatterns;
+
     /**
      * 增强过滤器V140实现
      *
@@ -65,12 +85,37 @@ public class ExtFilterImplByV140 implements ExtFilter {
     public ExtFilterImplByV140(ExtFilter target,
                                boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
                                boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes) {
+        this(target,
+                isHasInterfaceTypes, isHasAnnotationTypes,
+                isBehaviorHasWithParameterTypes, isBehaviorHasExceptionTypes, isBehaviorHasAnnotationTypes,
+                null, null);
+    }
+
+    /**
+     * 增强过滤器V140实现
+     *
+     * @param target                          代理增强过滤器目标
+     * @param isHasInterfaceTypes             是否需要过滤接口类型
+     * @param isHasAnnotationTypes            是否需要过滤注解类型
+     * @param isBehaviorHasWithParameterTypes 是否需要方法参数类型
+     * @param isBehaviorHasExceptionTypes     是否需要方法异常类型
+     * @param isBehaviorHasAnnotationTypes    是否需要方法注解类型
+     * @param classNamePattern                类名匹配模版，为null表示未知
+     * @param annotationTypePatterns          注解类型匹配模版，为null表示没有注解约束
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public ExtFilterImplByV140(ExtFilter target,
+                               boolean isHasInterfaceTypes, boolean isHasAnnotationTypes,
+                               boolean isBehaviorHasWithParameterTypes, boolean isBehaviorHasExceptionTypes, boolean isBehaviorHasAnnotationTypes,
+                               GaPattern classNamePattern, GaPattern[] annotationTypePatterns) {
         this.target = target;
         this.isHasInterfaceTypes = isHasInterfaceTypes;
         this.isHasAnnotationTypes = isHasAnnotationTypes;
         this.isBehaviorHasWithParameterTypes = isBehaviorHasWithParameterTypes;
         this.isBehaviorHasExceptionTypes = isBehaviorHasExceptionTypes;
         this.isBehaviorHasAnnotationTypes = isBehaviorHasAnnotationTypes;
+        this.classNamePattern = classNamePattern;
+        this.annotationTypePatterns = annotationTypePatterns;
     }
 
     /**
@@ -118,6 +163,34 @@ public class ExtFilterImplByV140 implements ExtFilter {
         return isBehaviorHasAnnotationTypes;
     }
 
+    /**
+     * 获取类名匹配模版
+     *
+     * @return 类名匹配模版，为null表示未知
+     */
+    public GaPattern getClassNamePattern() {
+        return classNamePattern;
+    }
+
+    /**
+     * 获取注解类型匹配模版
+     *
+     * @return 注解类型匹配模版，为null表示没有注解约束
+     */
+    public GaPattern[] getAnnotationTypePatterns() {
+        return annotationTypePatterns;
+    }
+
+    /**
+     * 被代理的目标过滤器是否声明了线程安全
+     *
+     * @return TRUE | FALSE
+     * @see ThreadSafe
+     */
+    public boolean isThreadSafe() {
+        return target.getClass().isAnnotationPresent(ThreadSafe.class);
+    }
+
     @Override
     public boolean isIncludeSubClasses() {
         return target.isIncludeSubClasses();
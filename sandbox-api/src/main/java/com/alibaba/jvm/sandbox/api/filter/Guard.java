@@ -0,0 +1,562 @@
+package com.alibaba.jvm.sandbox.api.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 守卫条件
+ * <p>
+ * 声明式的调用条件，在增强时被编译成字节码织入到BEFORE事件之前。
+ * 不满足条件的调用不会装箱参数，也不会进入Spy，整个调用过程中都不会产生任何事件
+ * </p>
+ * <p>
+ * 支持的表达式：
+ * <ul>
+ * <li>参数比较：{@code arg0 == "tenant-a"}、{@code arg1 >= 100}、{@code arg2 != 'c'}，
+ * 参数可以是基本类型、基本类型的包装类型或者String，String只支持{@code ==}和{@code !=}</li>
+ * <li>空值判断：{@code arg0 == null}、{@code arg0 != null}</li>
+ * <li>类型判断：{@code target instanceof com.foo.Impl}，静态方法的target为null，判断不成立</li>
+ * <li>逻辑组合：{@code &&}、{@code ||}、{@code !}以及括号</li>
+ * </ul>
+ * 参数不存在、或参数类型和常量无法比较时，该比较不成立
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public final class Guard {
+
+    /**
+     * 条件类型
+     */
+    public enum Kind {
+
+        /**
+         * 参数比较(包括空值判断)
+         */
+        COMPARE,
+
+        /**
+         * target类型判断
+         */
+        INSTANCE_OF,
+
+        /**
+         * 与
+         */
+        AND,
+
+        /**
+         * 或
+         */
+        OR,
+
+        /**
+         * 非
+         */
+        NOT
+
+    }
+
+    /**
+     * 比较操作符
+     */
+    public enum Operator {
+
+        EQ("=="),
+        NE("!="),
+        LT("<"),
+        LE("<="),
+        GT(">"),
+        GE(">=");
+
+        private final String symbol;
+
+        Operator(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        public String getSymbol() {
+            return symbol;
+        }
+
+    }
+
+    private final Kind kind;
+    private final int index;
+    private final Operator operator;
+    private final Object value;
+    private final String javaClassName;
+    private final Guard[] children;
+
+    private Guard(final Kind kind,
+                  final int index,
+                  final Operator operator,
+                  final Object value,
+                  final String javaClassName,
+                  final Guard[] children) {
+        this.kind = kind;
+        this.index = index;
+        this.operator = operator;
+        this.value = value;
+        this.javaClassName = javaClassName;
+        this.children = children;
+    }
+
+    /**
+     * 参数比较
+     *
+     * @param index    参数下标，从0开始
+     * @param operator 比较操作符
+     * @param value    比较常量，只能是null、Boolean、Character、String或Number；
+     *                 null、Boolean和String只支持{@link Operator#EQ}和{@link Operator#NE}
+     * @return 守卫条件
+     */
+    public static Guard arg(final int index, final Operator operator, final Object value) {
+        if (index < 0 || null == operator) {
+            throw new IllegalArgumentException("illegal guard arg" + index + " " + operator);
+        }
+        if (null != value
+                && !(value instanceof Boolean)
+                && !(value instanceof Character)
+                && !(value instanceof String)
+                && !(value instanceof Number)) {
+            throw new IllegalArgumentException("unsupported guard value type: " + value.getClass().getName());
+        }
+        if ((null == value || value instanceof Boolean || value instanceof String)
+                && operator != Operator.EQ
+                && operator != Operator.NE) {
+            throw new IllegalArgumentException("guard value " + value + " only support == and !=");
+        }
+        return new Guard(Kind.COMPARE, index, operator, value, null, null);
+    }
+
+    /**
+     * 参数等于常量
+     *
+     * @param index 参数下标
+     * @param value 比较常量
+     * @return 守卫条件
+     */
+    public static Guard argEquals(final int index, final Object value) {
+        return arg(index, Operator.EQ, value);
+    }
+
+    /**
+     * 参数为null
+     *
+     * @param index 参数下标
+     * @return 守卫条件
+     */
+    public static Guard argIsNull(final int index) {
+        return arg(index, Operator.EQ, null);
+    }
+
+    /**
+     * 参数不为null
+     *
+     * @param index 参数下标
+     * @return 守卫条件
+     */
+    public static Guard argIsNotNull(final int index) {
+        return arg(index, Operator.NE, null);
+    }
+
+    /**
+     * target是指定类型的实例
+     * <p>
+     * 类型需要能被目标类的类加载器加载，无法加载时判断不成立
+     * </p>
+     *
+     * @param javaClassName 类型(全路径名称)
+     * @return 守卫条件
+     */
+    public static Guard targetInstanceOf(final String javaClassName) {
+        if (null == javaClassName || javaClassName.isEmpty()) {
+            throw new IllegalArgumentException("illegal guard instanceof class name");
+        }
+        return new Guard(Kind.INSTANCE_OF, -1, null, null, javaClassName, null);
+    }
+
+    /**
+     * 所有条件都成立
+     *
+     * @param guards 守卫条件
+     * @return 守卫条件
+     */
+    public static Guard and(final Guard... guards) {
+        return combine(Kind.AND, guards);
+    }
+
+    /**
+     * 任意一个条件成立
+     *
+     * @param guards 守卫条件
+     * @return 守卫条件
+     */
+    public static Guard or(final Guard... guards) {
+        return combine(Kind.OR, guards);
+    }
+
+    /**
+     * 条件不成立
+     *
+     * @param guard 守卫条件
+     * @return 守卫条件
+     */
+    public static Guard not(final Guard guard) {
+        if (null == guard) {
+            throw new IllegalArgumentException("illegal guard: null");
+        }
+        return new Guard(Kind.NOT, -1, null, null, null, new Guard[]{guard});
+    }
+
+    private static Guard combine(final Kind kind, final Guard[] guards) {
+        if (null == guards || guards.length == 0) {
+            throw new IllegalArgumentException("illegal guard: empty " + kind);
+        }
+        for (final Guard guard : guards) {
+            if (null == guard) {
+                throw new IllegalArgumentException("illegal guard: null");
+            }
+        }
+        return guards.length == 1
+                ? guards[0]
+                : new Guard(kind, -1, null, null, null, guards.clone());
+    }
+
+    /**
+     * 解析守卫表达式
+     * <p>
+     * 例子：{@code arg0 == "tenant-a" && (arg1 > 10 || target instanceof com.foo.Impl)}
+     * </p>
+     *
+     * @param expression 守卫表达式
+     * @return 守卫条件
+     * @throws IllegalArgumentException 表达式不合法
+     */
+    public static Guard parse(final String expression) {
+        if (null == expression) {
+            throw new IllegalArgumentException("illegal guard expression: null");
+        }
+        return new Parser(expression).parse();
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return 参数下标，只在{@link Kind#COMPARE}时有效
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return 比较操作符，只在{@link Kind#COMPARE}时有效
+     */
+    public Operator getOperator() {
+        return operator;
+    }
+
+    /**
+     * @return 比较常量，只在{@link Kind#COMPARE}时有效，为null时代表空值判断
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * @return 类型(全路径名称)，只在{@link Kind#INSTANCE_OF}时有效
+     */
+    public String getJavaClassName() {
+        return javaClassName;
+    }
+
+    /**
+     * @return 子条件，只在{@link Kind#AND}、{@link Kind#OR}、{@link Kind#NOT}时有效
+     */
+    public Guard[] getChildren() {
+        return null == children ? new Guard[0] : children.clone();
+    }
+
+    /**
+     * 规范化的守卫表达式，可以被{@link #parse(String)}重新解析
+     *
+     * @return 守卫表达式
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case COMPARE:
+                return "arg" + index + " " + operator.getSymbol() + " " + toLiteral(value);
+            case INSTANCE_OF:
+                return "target instanceof " + javaClassName;
+            case NOT:
+                return "!(" + children[0] + ")";
+            default: {
+                final StringBuilder sb = new StringBuilder("(");
+                for (int i = 0; i < children.length; i++) {
+                    if (i > 0) {
+                        sb.append(kind == Kind.AND ? " && " : " || ");
+                    }
+                    sb.append(children[i]);
+                }
+                return sb.append(")").toString();
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(final Object object) {
+        return object instanceof Guard && toString().equals(object.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+
+    private static String toLiteral(final Object value) {
+        if (value instanceof String) {
+            return "\"" + escape((String) value, '"') + "\"";
+        }
+        if (value instanceof Character) {
+            return "'" + escape(String.valueOf(value), '\'') + "'";
+        }
+        if (value instanceof Long) {
+            return value + "L";
+        }
+        if (value instanceof Float) {
+            return value + "F";
+        }
+        if (value instanceof Double) {
+            return value + "D";
+        }
+        return String.valueOf(value);
+    }
+
+    private static String escape(final String string, final char quote) {
+        final StringBuilder sb = new StringBuilder();
+        for (final char c : string.toCharArray()) {
+            if (c == quote || c == '\\') {
+                sb.append('\\');
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 守卫表达式解析器
+     * <pre>
+     * or      := and ( '||' and )*
+     * and     := unary ( '&&' unary )*
+     * unary   := '!' unary | '(' or ')' | compare | instanceof
+     * compare := 'arg'N ( '==' | '!=' | '<' | '<=' | '>' | '>=' ) literal
+     * </pre>
+     */
+    private static class Parser {
+
+        private final String expression;
+        private int position = 0;
+
+        Parser(final String expression) {
+            this.expression = expression;
+        }
+
+        Guard parse() {
+            final Guard guard = parseOr();
+            skipWhitespace();
+            if (position != expression.length()) {
+                throw error("unexpected character");
+            }
+            return guard;
+        }
+
+        private Guard parseOr() {
+            final List<Guard> guards = new ArrayList<>();
+            guards.add(parseAnd());
+            while (accept("||")) {
+                guards.add(parseAnd());
+            }
+            return or(guards.toArray(new Guard[0]));
+        }
+
+        private Guard parseAnd() {
+            final List<Guard> guards = new ArrayList<>();
+            guards.add(parseUnary());
+            while (accept("&&")) {
+                guards.add(parseUnary());
+            }
+            return and(guards.toArray(new Guard[0]));
+        }
+
+        private Guard parseUnary() {
+            if (accept("!")) {
+                return not(parseUnary());
+            }
+            if (accept("(")) {
+                final Guard guard = parseOr();
+                expect(")");
+                return guard;
+            }
+            final String identifier = parseIdentifier();
+            if ("target".equals(identifier)) {
+                if (!"instanceof".equals(parseIdentifier())) {
+                    throw error("expect instanceof");
+                }
+                return targetInstanceOf(parseIdentifier());
+            }
+            if (!identifier.matches("arg\\d+")) {
+                throw error("unknown identifier " + identifier);
+            }
+            final int index = Integer.parseInt(identifier.substring(3));
+            final Operator operator = parseOperator();
+            try {
+                return arg(index, operator, parseLiteral());
+            } catch (IllegalArgumentException cause) {
+                throw error(cause.getMessage());
+            }
+        }
+
+        private Operator parseOperator() {
+            // 两个字符的操作符需要先于一个字符的操作符判断
+            for (final Operator operator : new Operator[]{Operator.EQ, Operator.NE, Operator.LE, Operator.GE, Operator.LT, Operator.GT}) {
+                if (accept(operator.getSymbol())) {
+                    return operator;
+                }
+            }
+            throw error("expect operator");
+        }
+
+        private Object parseLiteral() {
+            skipWhitespace();
+            if (position >= expression.length()) {
+                throw error("expect literal");
+            }
+            final char c = expression.charAt(position);
+            if (c == '"') {
+                return parseQuoted('"');
+            }
+            if (c == '\'') {
+                final String string = parseQuoted('\'');
+                if (string.length() != 1) {
+                    throw error("illegal char literal");
+                }
+                return string.charAt(0);
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                return parseNumber();
+            }
+            final String identifier = parseIdentifier();
+            switch (identifier) {
+                case "null":
+                    return null;
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+                default:
+                    throw error("illegal literal " + identifier);
+            }
+        }
+
+        private String parseQuoted(final char quote) {
+            final StringBuilder sb = new StringBuilder();
+            position++;
+            while (position < expression.length()) {
+                final char c = expression.charAt(position++);
+                if (c == quote) {
+                    return sb.toString();
+                }
+                if (c == '\\' && position < expression.length()) {
+                    sb.append(expression.charAt(position++));
+                } else {
+                    sb.append(c);
+                }
+            }
+            throw error("unclosed literal");
+        }
+
+        private Number parseNumber() {
+            final int begin = position;
+            if (expression.charAt(position) == '-') {
+                position++;
+            }
+            while (position < expression.length()
+                    && (Character.isDigit(expression.charAt(position)) || ".eE".indexOf(expression.charAt(position)) >= 0
+                    || (position > begin && "eE".indexOf(expression.charAt(position - 1)) >= 0 && "+-".indexOf(expression.charAt(position)) >= 0))) {
+                position++;
+            }
+            final String number = expression.substring(begin, position);
+            final char suffix = position < expression.length() ? Character.toUpperCase(expression.charAt(position)) : 0;
+            try {
+                switch (suffix) {
+                    case 'L':
+                        position++;
+                        return Long.valueOf(number);
+                    case 'F':
+                        position++;
+                        return Float.valueOf(number);
+                    case 'D':
+                        position++;
+                        return Double.valueOf(number);
+                    default: {
+                        if (number.matches("-?\\d+")) {
+                            // 不能使用三元表达式，否则Integer会被提升为Long
+                            final long longValue = Long.parseLong(number);
+                            if (longValue == (int) longValue) {
+                                return (int) longValue;
+                            }
+                            return longValue;
+                        }
+                        return Double.valueOf(number);
+                    }
+                }
+            } catch (NumberFormatException cause) {
+                throw error("illegal number " + number);
+            }
+        }
+
+        private String parseIdentifier() {
+            skipWhitespace();
+            final int begin = position;
+            while (position < expression.length()
+                    && (Character.isJavaIdentifierPart(expression.charAt(position)) || expression.charAt(position) == '.')) {
+                position++;
+            }
+            if (begin == position) {
+                throw error("expect identifier");
+            }
+            return expression.substring(begin, position);
+        }
+
+        private boolean accept(final String token) {
+            skipWhitespace();
+            if (expression.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(final String token) {
+            if (!accept(token)) {
+                throw error("expect " + token);
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException error(final String message) {
+            return new IllegalArgumentException(String.format("illegal guard expression: %s, %s at %d", expression, message, position));
+        }
+
+    }
+
+}
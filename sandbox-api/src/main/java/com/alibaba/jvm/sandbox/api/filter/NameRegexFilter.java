@@ -1,17 +1,21 @@
 package com.alibaba.jvm.sandbox.api.filter;
 
+import com.alibaba.jvm.sandbox.api.annotation.ThreadSafe;
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+
 /**
  * 基于正则表达式的类名和方法名的匹配过滤器
  *
  * @author luanjia@taobao.com
  */
+@ThreadSafe
 public class NameRegexFilter implements Filter {
 
     // 类名正则表达式
-    private final String javaNameRegex;
+    private final GaPattern javaNameRegex;
 
     // 方法名正则表达式
-    private final String javaMethodRegex;
+    private final GaPattern javaMethodRegex;
 
     /**
      * 构造名称正则表达式过滤器
@@ -20,8 +24,8 @@ public class NameRegexFilter implements Filter {
      * @param javaMethodRegex 方法名正则表达式
      */
     public NameRegexFilter(String javaNameRegex, String javaMethodRegex) {
-        this.javaNameRegex = javaNameRegex;
-        this.javaMethodRegex = javaMethodRegex;
+        this.javaNameRegex = GaPattern.compileRegex(javaNameRegex);
+        this.javaMethodRegex = GaPattern.compileRegex(javaMethodRegex);
     }
 
     @Override
@@ -30,7 +34,7 @@ public class NameRegexFilter implements Filter {
                                  final String superClassTypeJavaClassName,
                                  final String[] interfaceTypeJavaClassNameArray,
                                  final String[] annotationTypeJavaClassNameArray) {
-        return javaClassName.matches(javaNameRegex);
+        return javaNameRegex.matching(javaClassName);
     }
 
     @Override
@@ -39,7 +43,27 @@ public class NameRegexFilter implements Filter {
                                   final String[] parameterTypeJavaClassNameArray,
                                   final String[] throwsTypeJavaClassNameArray,
                                   final String[] annotationTypeJavaClassNameArray) {
-        return javaMethodName.matches(javaMethodRegex);
+        return javaMethodRegex.matching(javaMethodName);
+    }
+
+    /**
+     * 获取类名正则表达式
+     *
+     * @return 类名正则表达式
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public String getJavaNameRegex() {
+        return javaNameRegex.getPattern();
+    }
+
+    /**
+     * 获取方法名正则表达式
+     *
+     * @return 方法名正则表达式
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public String getJavaMethodRegex() {
+        return javaMethodRegex.getPattern();
     }
 
 }
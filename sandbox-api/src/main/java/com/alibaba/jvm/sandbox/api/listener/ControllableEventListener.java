@@ -0,0 +1,41 @@
+package com.alibaba.jvm.sandbox.api.listener;
+
+import com.alibaba.jvm.sandbox.api.ProcessControlException;
+import com.alibaba.jvm.sandbox.api.ProcessController;
+import com.alibaba.jvm.sandbox.api.ProcessDecision;
+import com.alibaba.jvm.sandbox.api.event.Event;
+
+/**
+ * 可通过返回值控制流程的事件监听器
+ * <p>
+ * {@link ProcessController}通过抛出{@link ProcessControlException}来变更流程，每次都要创建异常并穿过监听器的调用栈。
+ * 需要频繁变更流程的监听器(如Mock、故障注入)可以实现本接口，将{@link ProcessDecision}作为返回值交给容器，
+ * 容器直接据此决定方法的走向，不再经过异常。在本接口中调用{@link ProcessController}依然有效
+ * </p>
+ * <p>
+ * 和{@link com.alibaba.jvm.sandbox.api.filter.ExtFilter}一样，容器内部会判断监听器是否为ControllableEventListener，
+ * 不认识本接口的容器会调用{@link #onEvent(Event)}，由它将返回值转换为流程控制异常，行为保持一致
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface ControllableEventListener extends EventListener {
+
+    /**
+     * 触发事件处理并返回流程控制决定
+     *
+     * @param event 触发事件
+     * @return 流程控制决定，返回null等同于{@link ProcessDecision#none()}
+     * @throws Throwable 处理异常
+     */
+    ProcessDecision onControllableEvent(Event event) throws Throwable;
+
+    @Override
+    default void onEvent(Event event) throws Throwable {
+        final ProcessDecision decision = onControllableEvent(event);
+        if (null != decision) {
+            decision.throwIfNecessary();
+        }
+    }
+
+}
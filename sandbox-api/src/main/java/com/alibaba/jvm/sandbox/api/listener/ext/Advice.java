@@ -67,6 +67,11 @@ public class Advice implements Attachment {
      */
     private Throwable throwable;
 
+    /**
+     * 行为耗时(纳秒)，未开启计时时为-1
+     */
+    private long costNanoTime = -1L;
+
     /**
      * 附件
      * <p>
@@ -143,11 +148,13 @@ public class Advice implements Attachment {
     /**
      * 应用返回结果，应用返回结果之后，通知将变为返回通知
      *
-     * @param returnObj 行为返回的对象
+     * @param returnObj    行为返回的对象
+     * @param costNanoTime 行为耗时(纳秒)
      * @return this
      */
-    Advice applyReturn(final Object returnObj) {
+    Advice applyReturn(final Object returnObj, final long costNanoTime) {
         this.returnObj = returnObj;
+        this.costNanoTime = costNanoTime;
         this.state = Event.Type.RETURN;
         return this;
     }
@@ -155,11 +162,13 @@ public class Advice implements Attachment {
     /**
      * 应用行为抛出的异常，应用异常之后，通知将变为异常通知
      *
-     * @param throwable 行为抛出的异常
+     * @param throwable    行为抛出的异常
+     * @param costNanoTime 行为耗时(纳秒)
      * @return this
      */
-    Advice applyThrows(final Throwable throwable) {
+    Advice applyThrows(final Throwable throwable, final long costNanoTime) {
         this.throwable = throwable;
+        this.costNanoTime = costNanoTime;
         this.state = Event.Type.THROWS;
         return this;
     }
@@ -261,6 +270,19 @@ public class Advice implements Attachment {
         return throwable;
     }
 
+    /**
+     * 获取行为耗时
+     * <p>
+     * 由织入代码在方法入口和出口处测量，只有观察时开启了计时({@code withTiming()})才有效
+     * </p>
+     *
+     * @return 行为耗时(纳秒)，未开启计时或行为尚未结束时返回-1
+     * @since {@code sandbox-api:1.4.0}
+     */
+    public long getCostNanoTime() {
+        return costNanoTime;
+    }
+
     @Override
     public void attach(final Object attachment) {
         this.attachment = attachment;
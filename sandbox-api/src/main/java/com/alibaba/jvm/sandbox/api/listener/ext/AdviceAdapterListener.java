@@ -107,7 +107,7 @@ public class AdviceAdapterListener implements EventListener {
                 final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(rEvent.invokeId);
                 if (null != wrapAdvice) {
                     // 将方法的返回值设置到Advice中
-                    Advice advice = wrapAdvice.advice.applyReturn(rEvent.object);
+                    Advice advice = wrapAdvice.advice.applyReturn(rEvent.object, rEvent.costNanoTime);
                     try {
                         // 将Event转换为Advice后, 就可以直接调用AdviceListener的afterReturning方法来让AdviceListener感知到事件的触发
                         adviceListener.afterReturning(advice);
@@ -122,7 +122,7 @@ public class AdviceAdapterListener implements EventListener {
                 final ThrowsEvent tEvent = (ThrowsEvent) event;
                 final WrapAdvice wrapAdvice = opStack.popByExpectInvokeId(tEvent.invokeId);
                 if (null != wrapAdvice) {
-                    Advice advice = wrapAdvice.advice.applyThrows(tEvent.throwable);
+                    Advice advice = wrapAdvice.advice.applyThrows(tEvent.throwable, tEvent.costNanoTime);
                     try {
                         // 将Event转换为Advice后, 就可以直接调用AdviceListener的afterThrowing方法来让AdviceListener感知到事件的触发
                         adviceListener.afterThrowing(advice);
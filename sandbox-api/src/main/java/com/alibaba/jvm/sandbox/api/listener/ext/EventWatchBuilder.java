@@ -1,15 +1,18 @@
 package com.alibaba.jvm.sandbox.api.listener.ext;
 
+import com.alibaba.jvm.sandbox.api.annotation.ThreadSafe;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher.Progress;
 import com.alibaba.jvm.sandbox.api.util.GaArrayUtils;
-import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
 
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -125,23 +128,21 @@ public class EventWatchBuilder {
     }
 
     /**
-     * 模式匹配
+     * 按照当前的匹配模式预编译匹配模版
+     * <p>
+     * 匹配发生在类加载和扫描已加载类的热路径上，所以模版只在构建时编译一次
+     * </p>
      *
-     * @param string      目标字符串
-     * @param pattern     模式字符串
-     * @param patternType 匹配模式
-     * @return TRUE:匹配成功 / FALSE:匹配失败
+     * @param pattern 模式字符串
+     * @return 预编译的匹配模版
      */
-    private static boolean patternMatching(final String string,
-                                           final String pattern,
-                                           final PatternType patternType) {
+    private GaPattern compilePattern(final String pattern) {
         switch (patternType) {
-            case WILDCARD:
-                return GaStringUtils.matching(string, pattern);
             case REGEX:
-                return string.matches(pattern);
+                return GaPattern.compileRegex(pattern);
+            case WILDCARD:
             default:
-                return false;
+                return GaPattern.compileWildcard(pattern);
         }
     }
 
@@ -171,7 +172,7 @@ public class EventWatchBuilder {
         /**
          * 用于匹配类的Pattern，例如: "com.alibaba.*" 或 "java.util.ArrayList"
          */
-        private final String pattern;
+        private final GaPattern pattern;
 
         /**
          *
@@ -189,7 +190,7 @@ public class EventWatchBuilder {
          * @param pattern 类名匹配模版
          */
         BuildingForClass(final String pattern) {
-            this.pattern = pattern;
+            this.pattern = compilePattern(pattern);
         }
 
         @Override
@@ -284,7 +285,7 @@ public class EventWatchBuilder {
     private class BuildingForBehavior implements IBuildingForBehavior {
 
         private final BuildingForClass bfClass;
-        private final String pattern;
+        private final GaPattern pattern;
         private int withAccess = 0;
         private final PatternGroupList withParameterTypes = new PatternGroupList();
         private final PatternGroupList hasExceptionTypes = new PatternGroupList();
@@ -293,7 +294,7 @@ public class EventWatchBuilder {
         BuildingForBehavior(final BuildingForClass bfClass,
                             final String pattern) {
             this.bfClass = bfClass;
-            this.pattern = pattern;
+            this.pattern = compilePattern(pattern);
         }
 
         @Override
@@ -386,7 +387,7 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(AdviceListener adviceListener) {
-            return build(new AdviceAdapterListener(adviceListener), null, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
+            return build(new AdviceAdapterListener(adviceListener), null, null, null, false, BEFORE, RETURN, THROWS, IMMEDIATELY_RETURN, IMMEDIATELY_THROWS);
         }
 
         /**
@@ -404,7 +405,7 @@ public class EventWatchBuilder {
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, null, eventTypeArray);
+            return build(eventListener, null, null, null, false, eventTypeArray);
         }
 
     }
@@ -423,6 +424,26 @@ public class EventWatchBuilder {
          */
         private final List<Progress> progresses = new ArrayList<>();
 
+        /**
+         * 是否观察所有的方法调用
+         */
+        private boolean isWithAllCall = false;
+
+        /**
+         * 方法调用过滤器，任意一个通过即织入
+         */
+        private final List<CallFilter> callFilters = new ArrayList<>();
+
+        /**
+         * 守卫条件，全部成立才产生事件
+         */
+        private final List<Guard> guards = new ArrayList<>();
+
+        /**
+         * 是否开启计时
+         */
+        private boolean isTimingEnable = false;
+
         @Override
         public IBuildingForWatching withProgress(Progress progress) {
             if (null != progress) {
@@ -433,12 +454,90 @@ public class EventWatchBuilder {
 
         @Override
         public IBuildingForWatching withCall() {
+            isWithAllCall = true;
             eventTypeSet.add(CALL_BEFORE);
             eventTypeSet.add(CALL_RETURN);
             eventTypeSet.add(CALL_THROWS);
             return this;
         }
 
+        @Override
+        public IBuildingForWatching withCall(final String ownerPattern,
+                                             final String methodNamePattern,
+                                             final String methodDescPattern) {
+            final GaPattern owner = compilePattern(ownerPattern);
+            final GaPattern name = compilePattern(methodNamePattern);
+            final GaPattern desc = compilePattern(methodDescPattern);
+            return withCall(new CallFilter() {
+                @Override
+                public boolean doCallFilter(String ownerJavaClassName, String methodName, String methodDesc) {
+                    return owner.matching(ownerJavaClassName)
+                            && name.matching(methodName)
+                            && desc.matching(methodDesc);
+                }
+            });
+        }
+
+        @Override
+        public IBuildingForWatching withCall(final CallFilter callFilter) {
+            if (null != callFilter) {
+                callFilters.add(callFilter);
+            }
+            eventTypeSet.add(CALL_BEFORE);
+            eventTypeSet.add(CALL_RETURN);
+            eventTypeSet.add(CALL_THROWS);
+            return this;
+        }
+
+        /*
+         * 合并方法调用过滤器，观察所有方法调用时返回null
+         */
+        private CallFilter toCallFilter() {
+            if (isWithAllCall || callFilters.isEmpty()) {
+                return null;
+            }
+            final CallFilter[] callFilterArray = callFilters.toArray(new CallFilter[0]);
+            return new CallFilter() {
+                @Override
+                public boolean doCallFilter(String ownerJavaClassName, String methodName, String methodDesc) {
+                    for (final CallFilter callFilter : callFilterArray) {
+                        if (callFilter.doCallFilter(ownerJavaClassName, methodName, methodDesc)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public IBuildingForWatching withGuard(final String expression) {
+            return withGuard(Guard.parse(expression));
+        }
+
+        @Override
+        public IBuildingForWatching withGuard(final Guard guard) {
+            if (null != guard) {
+                guards.add(guard);
+            }
+            return this;
+        }
+
+        /*
+         * 合并守卫条件，没有守卫条件时返回null
+         */
+        private Guard toGuard() {
+            return guards.isEmpty()
+                    ? null
+                    : Guard.and(guards.toArray(new Guard[0]));
+        }
+
+        @Override
+        public IBuildingForWatching withTiming() {
+            isTimingEnable = true;
+            return this;
+        }
+
         @Override
         public IBuildingForWatching withLine() {
             eventTypeSet.add(LINE);
@@ -456,83 +555,124 @@ public class EventWatchBuilder {
             return build(
                     new AdviceAdapterListener(adviceListener),
                     toProgressGroup(progresses),
+                    toCallFilter(),
+                    toGuard(),
+                    isTimingEnable,
                     eventTypeSet.toArray(EMPTY)
             );
         }
 
         @Override
         public EventWatcher onWatch(EventListener eventListener, Event.Type... eventTypeArray) {
-            return build(eventListener, toProgressGroup(progresses), eventTypeArray);
+            return build(eventListener, toProgressGroup(progresses), toCallFilter(), toGuard(), isTimingEnable, eventTypeArray);
         }
 
     }
 
-    private EventWatchCondition toEventWatchCondition() {
+    /**
+     * 按类和行为的构建条件匹配的过滤器，只读取构建完成的条件，可以并发调用
+     */
+    @ThreadSafe
+    private static class BuildingForClassFilter implements Filter {
+
+        private final BuildingForClass bfClass;
+
+        BuildingForClassFilter(final BuildingForClass bfClass) {
+            this.bfClass = bfClass;
+        }
+
+        /**
+         * 类过滤器
+         * @param access                           access flag
+         * @param javaClassName                    类名(全路径名称)
+         * @param superClassTypeJavaClassName      父类(全路径名称)
+         * @param interfaceTypeJavaClassNameArray  接口类型名称数组
+         * @param annotationTypeJavaClassNameArray 标注原数据类型名称数组（注意，此参数尚未支持，只是预留一个API占位）
+         * @return
+         */
+        @Override
+        public boolean doClassFilter(final int access,
+                                     final String javaClassName,
+                                     final String superClassTypeJavaClassName,
+                                     final String[] interfaceTypeJavaClassNameArray,
+                                     final String[] annotationTypeJavaClassNameArray) {
+            return (access & bfClass.withAccess) == bfClass.withAccess
+                    && bfClass.pattern.matching(javaClassName)
+                    && bfClass.hasInterfaceTypes.patternHas(interfaceTypeJavaClassNameArray)
+                    && bfClass.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray);
+        }
+
+        /**
+         * 方法过滤器
+         * @param access                           access flag
+         * @param javaMethodName                   方法名称(包括类名称,静态方法名,普通方法名和构造函数)
+         * @param parameterTypeJavaClassNameArray  参数类型名称数组
+         * @param throwsTypeJavaClassNameArray     声明异常类型名称数组
+         * @param annotationTypeJavaClassNameArray 标注原数据类型名称数组（注意，此参数尚未支持，只是预留一个API占位）
+         * @return
+         */
+        @Override
+        public boolean doMethodFilter(final int access,
+                                      final String javaMethodName,
+                                      final String[] parameterTypeJavaClassNameArray,
+                                      final String[] throwsTypeJavaClassNameArray,
+                                      final String[] annotationTypeJavaClassNameArray) {
+            // nothing to matching
+            if (bfClass.bfBehaviors.isEmpty()) {
+                return false;
+            }
+
+            // matching any behavior
+            for (final BuildingForBehavior bfBehavior : bfClass.bfBehaviors) {
+                if ((access & bfBehavior.withAccess) == bfBehavior.withAccess
+                        && bfBehavior.pattern.matching(javaMethodName)
+                        && bfBehavior.withParameterTypes.patternWith(parameterTypeJavaClassNameArray)
+                        && bfBehavior.hasExceptionTypes.patternHas(throwsTypeJavaClassNameArray)
+                        && bfBehavior.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray)) {
+                    return true;
+                }
+            }
+
+            // non matched
+            return false;
+        }
+
+    }
+
+    private EventWatchCondition toEventWatchCondition(final CallFilter callFilter, final Guard guard, final boolean isTimingEnable) {
         final List<Filter> filters = new ArrayList<>();
         // bfClasses: 需要进行匹配的类列表
         for (final BuildingForClass bfClass : bfClasses) {
             // 构建Filter
-            final Filter filter = new Filter() {
-                /**
-                 * 类过滤器
-                 * @param access                           access flag
-                 * @param javaClassName                    类名(全路径名称)
-                 * @param superClassTypeJavaClassName      父类(全路径名称)
-                 * @param interfaceTypeJavaClassNameArray  接口类型名称数组
-                 * @param annotationTypeJavaClassNameArray 标注原数据类型名称数组（注意，此参数尚未支持，只是预留一个API占位）
-                 * @return
-                 */
-                @Override
-                public boolean doClassFilter(final int access,
-                                             final String javaClassName,
-                                             final String superClassTypeJavaClassName,
-                                             final String[] interfaceTypeJavaClassNameArray,
-                                             final String[] annotationTypeJavaClassNameArray) {
-                    return (access & bfClass.withAccess) == bfClass.withAccess
-                            && patternMatching(javaClassName, bfClass.pattern, patternType)
-                            && bfClass.hasInterfaceTypes.patternHas(interfaceTypeJavaClassNameArray)
-                            && bfClass.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray);
-                }
+            final Filter filter = new BuildingForClassFilter(bfClass);
+            filters.add(makeExtFilter(filter, bfClass));
+        }
+        if (null == callFilter && null == guard && !isTimingEnable) {
+            return () -> filters.toArray(new Filter[0]);
+        }
+        return new ExtEventWatchCondition() {
 
-                /**
-                 * 方法过滤器
-                 * @param access                           access flag
-                 * @param javaMethodName                   方法名称(包括类名称,静态方法名,普通方法名和构造函数)
-                 * @param parameterTypeJavaClassNameArray  参数类型名称数组
-                 * @param throwsTypeJavaClassNameArray     声明异常类型名称数组
-                 * @param annotationTypeJavaClassNameArray 标注原数据类型名称数组（注意，此参数尚未支持，只是预留一个API占位）
-                 * @return
-                 */
-                @Override
-                public boolean doMethodFilter(final int access,
-                                              final String javaMethodName,
-                                              final String[] parameterTypeJavaClassNameArray,
-                                              final String[] throwsTypeJavaClassNameArray,
-                                              final String[] annotationTypeJavaClassNameArray) {
-                    // nothing to matching
-                    if (bfClass.bfBehaviors.isEmpty()) {
-                        return false;
-                    }
+            @Override
+            public Filter[] getOrFilterArray() {
+                return filters.toArray(new Filter[0]);
+            }
 
-                    // matching any behavior
-                    for (final BuildingForBehavior bfBehavior : bfClass.bfBehaviors) {
-                        if ((access & bfBehavior.withAccess) == bfBehavior.withAccess
-                                && patternMatching(javaMethodName, bfBehavior.pattern, patternType)
-                                && bfBehavior.withParameterTypes.patternWith(parameterTypeJavaClassNameArray)
-                                && bfBehavior.hasExceptionTypes.patternHas(throwsTypeJavaClassNameArray)
-                                && bfBehavior.hasAnnotationTypes.patternHas(annotationTypeJavaClassNameArray)) {
-                            return true;
-                        }
-                    }
+            @Override
+            public CallFilter getCallFilter() {
+                return callFilter;
+            }
 
-                    // non matched
-                    return false;
-                }
-            };//filter
+            @Override
+            public Guard getGuard() {
+                return guard;
+            }
 
-            filters.add(makeExtFilter(filter, bfClass));
-        }
-        return () -> filters.toArray(new Filter[0]);
+            @Override
+            public boolean isTimingEnable() {
+                return isTimingEnable;
+            }
+
+        };
     }
 
     private Filter makeExtFilter(final Filter filter, final BuildingForClass bfClass) {
@@ -563,7 +703,9 @@ public class EventWatchBuilder {
                 !bfClass.hasAnnotationTypes.isEmpty(),
                 isBehaviorHasWithParameterTypes,
                 isBehaviorHasExceptionTypes,
-                isBehaviorHasAnnotationTypes
+                isBehaviorHasAnnotationTypes,
+                bfClass.pattern,
+                bfClass.hasAnnotationTypes.toFirstPatterns()
         );
     }
 
@@ -582,12 +724,15 @@ public class EventWatchBuilder {
      *
      * @param listener   事件监听器 EventListener
      * @param progress   进度报告器。观察类是需要对类进行增强，有时候需要对大量的类进行渲染，耗时比较长。 通过这样的报告方式可以让外部感知到当前渲染的进度
+     * @param callFilter 方法调用过滤器，为null时观察所有方法调用
+     * @param guard      守卫条件，为null时观察所有调用
+     * @param isTimingEnable 是否开启计时
      * @param eventTypes
      * @return
      */
-    private EventWatcher build(final EventListener listener, final Progress progress, final Event.Type... eventTypes) {
+    private EventWatcher build(final EventListener listener, final Progress progress, final CallFilter callFilter, final Guard guard, final boolean isTimingEnable, final Event.Type... eventTypes) {
         final int watchId = moduleEventWatcher.watch(
-                toEventWatchCondition(), // 构建事件观察条件, 也就是构造Filter
+                toEventWatchCondition(callFilter, guard, isTimingEnable), // 构建事件观察条件, 也就是构造Filter
                 listener,  // 事件监听器
                 progress, // 进度报告器
                 eventTypes  // 需要监听的事件类型
@@ -683,6 +828,25 @@ public class EventWatchBuilder {
             return groups.isEmpty();
         }
 
+        /*
+         * 每个组的第一个模版，满足patternHas()的数组必定至少能匹配其中一个
+         * 为空或存在空组时不构成约束，返回null
+         */
+        GaPattern[] toFirstPatterns() {
+            if (groups.isEmpty()) {
+                return null;
+            }
+            final GaPattern[] firstPatterns = new GaPattern[groups.size()];
+            for (int index = 0; index < firstPatterns.length; index++) {
+                final GaPattern[] patternArray = groups.get(index).patternArray;
+                if (patternArray.length == 0) {
+                    return null;
+                }
+                firstPatterns[index] = patternArray[0];
+            }
+            return firstPatterns;
+        }
+
         /*
          * 模式匹配With
          */
@@ -726,24 +890,26 @@ public class EventWatchBuilder {
      */
     private class Group {
 
-        final String[] patternArray;
+        final GaPattern[] patternArray;
 
         Group(String[] patternArray) {
-            this.patternArray = GaArrayUtils.isEmpty(patternArray)
-                    ? new String[0]
-                    : patternArray;
+            final int length = GaArrayUtils.getLength(patternArray);
+            this.patternArray = new GaPattern[length];
+            for (int index = 0; index < length; index++) {
+                this.patternArray[index] = compilePattern(patternArray[index]);
+            }
         }
 
         /*
          * stringArray中任意字符串能匹配上匹配模式
          */
         boolean anyMatching(final String[] stringArray,
-                            final String pattern) {
+                            final GaPattern pattern) {
             if (GaArrayUtils.isEmpty(stringArray)) {
                 return false;
             }
             for (final String string : stringArray) {
-                if (patternMatching(string, pattern, patternType)) {
+                if (pattern.matching(string)) {
                     return true;
                 }
             }
@@ -756,7 +922,7 @@ public class EventWatchBuilder {
          */
         boolean matchingHas(final String[] stringArray) {
 
-            for (final String pattern : patternArray) {
+            for (final GaPattern pattern : patternArray) {
                 if (anyMatching(stringArray, pattern)) {
                     continue;
                 }
@@ -783,7 +949,7 @@ public class EventWatchBuilder {
             }
             // 长度相同则逐个位置比较，只要有一个位置不符，则判定不通过
             for (int index = 0; index < length; index++) {
-                if (!patternMatching(stringArray[index], patternArray[index], patternType)) {
+                if (!patternArray[index].matching(stringArray[index])) {
                     return false;
                 }
             }
@@ -1004,6 +1170,74 @@ public class EventWatchBuilder {
          */
         IBuildingForWatching withCall();
 
+        /**
+         * 观察行为内部符合条件的方法调用
+         * <p>
+         * 和{@link #withCall()}不同的是，只有被调用方法的声明类、方法名、方法描述都匹配的调用才会被增强，
+         * 其余的调用不织入任何代码。多次调用时任意一组匹配即可，和{@link #withCall()}同时使用时观察所有方法调用
+         * </p>
+         * <p>
+         * 例子：{@code withCall("java.sql.*", "execute*", "*")}
+         * </p>
+         *
+         * @param ownerPattern      被调用方法的声明类匹配模版
+         * @param methodNamePattern 被调用方法的方法名匹配模版
+         * @param methodDescPattern 被调用方法的方法描述匹配模版，如：{@code (Ljava/lang/String;)*}
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withCall(String ownerPattern, String methodNamePattern, String methodDescPattern);
+
+        /**
+         * 观察行为内部通过过滤器的方法调用
+         *
+         * @param callFilter 方法调用过滤器
+         * @return IBuildingForWatching
+         * @see #withCall(String, String, String)
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withCall(CallFilter callFilter);
+
+        /**
+         * 只观察满足守卫条件的调用
+         * <p>
+         * 守卫条件在增强时被编译进目标方法，在方法进入时求值一次：不满足条件的调用不会装箱参数、不会进入Spy，
+         * 整个调用过程中的BEFORE、RETURN、THROWS、LINE、CALL系列事件都不会产生。多次调用时需要全部满足
+         * </p>
+         * <p>
+         * 例子：{@code withGuard("arg0 == \"tenant-a\" && target instanceof com.foo.Impl")}
+         * </p>
+         *
+         * @param expression 守卫表达式，语法见{@link Guard}
+         * @return IBuildingForWatching
+         * @throws IllegalArgumentException 守卫表达式不合法
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withGuard(String expression);
+
+        /**
+         * 只观察满足守卫条件的调用
+         *
+         * @param guard 守卫条件
+         * @return IBuildingForWatching
+         * @see #withGuard(String)
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withGuard(Guard guard);
+
+        /**
+         * 统计行为的耗时
+         * <p>
+         * 开启后容器在方法入口(BEFORE事件处理完成后)和出口织入{@link System#nanoTime()}，
+         * 耗时通过{@code ReturnEvent#costNanoTime}、{@code ThrowsEvent#costNanoTime}和{@link Advice#getCostNanoTime()}获取，
+         * 监听器不再需要在BEFORE和RETURN之间自行维护计时状态
+         * </p>
+         *
+         * @return IBuildingForWatching
+         * @since {@code sandbox-api:1.4.0}
+         */
+        IBuildingForWatching withTiming();
+
         /**
          * 观察行为内部的行调用
          * 调用之后，
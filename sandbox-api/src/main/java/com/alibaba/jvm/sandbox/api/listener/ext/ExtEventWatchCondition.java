@@ -0,0 +1,40 @@
+package com.alibaba.jvm.sandbox.api.listener.ext;
+
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+
+/**
+ * 增强事件观察条件
+ * <p>
+ * 和{@link EventWatchCondition}一样需要保持向下兼容，容器内部会判断观察条件是否为ExtEventWatchCondition
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public interface ExtEventWatchCondition extends EventWatchCondition {
+
+    /**
+     * 获取方法调用过滤器
+     *
+     * @return 方法调用过滤器，为null时观察所有方法调用
+     */
+    CallFilter getCallFilter();
+
+    /**
+     * 获取守卫条件
+     *
+     * @return 守卫条件，为null时观察所有调用
+     */
+    Guard getGuard();
+
+    /**
+     * 是否开启计时
+     * <p>
+     * 开启后容器在方法入口和出口织入计时代码，耗时通过{@code ReturnEvent#costNanoTime}和{@code ThrowsEvent#costNanoTime}传递
+     * </p>
+     *
+     * @return TRUE:开启计时
+     */
+    boolean isTimingEnable();
+
+}
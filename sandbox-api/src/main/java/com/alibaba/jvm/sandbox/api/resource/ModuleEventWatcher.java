@@ -2,9 +2,12 @@ package com.alibaba.jvm.sandbox.api.resource;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
 
+import java.util.Map;
+
 /**
  * 事件观察者
  *
@@ -68,6 +71,27 @@ public interface ModuleEventWatcher {
      */
     void delete(int watcherId);
 
+    /**
+     * 替换观察的事件监听器
+     * <p>
+     * 只修改事件处理逻辑时不需要先{@link #delete(int)}再重新观察：已织入的代码只认事件监听器ID，
+     * 这里直接替换该ID对应的事件处理器，不会扫描和重新渲染任何类。
+     * 模块处于冻结状态时只替换监听器，模块激活后生效
+     * </p>
+     * <p>
+     * BEFORE/RETURN/THROWS总是会织入，{@link Event.Type#LINE}和CALL_*事件只有在观察时声明过才有织入点，
+     * 新的事件类型需要新的织入点时无法直接替换，仍然需要删除后重新观察
+     * </p>
+     *
+     * @param watchId   {@code watchId}观察唯一编号
+     *                  在{@link #watch(Filter, EventListener, Progress, Event.Type...)}方法返回值获得
+     * @param listener  新的事件监听器
+     * @param eventType 新的观察事件类型
+     * @return TRUE:替换成功;FALSE:观察不存在、为行覆盖观察或需要新的织入点
+     * @since {@code sandbox-api:1.4.0}
+     */
+    boolean replaceListener(int watchId, EventListener listener, Event.Type... eventType);
+
     /**
      * 观察事件
      * <p>
@@ -111,6 +135,58 @@ public interface ModuleEventWatcher {
     ) throws Throwable;
 
 
+    /**
+     * 观察行覆盖
+     * <p>
+     * 和{@link #watch(Filter, EventListener, Progress, Event.Type...)}不一样的地方是，这里不会产生任何事件。
+     * 被增强的方法每次调用只获取一次探针数组，之后每执行到一行只写一次数组，没有方法调用，适合在线上流量中采集覆盖。
+     * 采集结果通过{@link #getCoverage(int, boolean)}读取，通过{@link #delete(int)}删除观察
+     * </p>
+     * <p>
+     * 只采集行覆盖，不织入分支探针：同一行上的多个分支(如三元表达式、短路的{@code &&}/{@code ||})
+     * 只要执行过其中一个就算覆盖，无法区分哪些分支没有走到
+     * </p>
+     *
+     * @param filter   观察类和方法过滤器
+     * @param progress 观察渲染进度报告
+     * @return {@code watchId}，本次观察的唯一编号
+     * @since {@code sandbox-api:1.4.0}
+     */
+    int watchCoverage(Filter filter, Progress progress);
+
+    /**
+     * 读取行覆盖
+     *
+     * @param watchId {@code watchId}观察唯一编号
+     *                在{@link #watchCoverage(Filter, Progress)}方法返回值获得
+     * @param isReset 是否在读取的同时清空已采集的覆盖
+     * @return 行为签名 -> 已覆盖的行号(升序)，{@code watchId}不存在或不是行覆盖观察时返回空集合
+     * @since {@code sandbox-api:1.4.0}
+     */
+    Map<String, int[]> getCoverage(int watchId, boolean isReset);
+
+    /**
+     * 持久化观察事件
+     * <p>
+     * 观察条件会以{@code key}为名保存到沙箱安装目录下，沙箱以AGENT模式重启时，在应用加载类之前就按保存的条件提前织入，
+     * 模块加载后用相同的{@code key}和条件再次观察时，直接接管提前织入的类，不需要再重新形变。
+     * 条件发生变化时会覆盖保存的条件，并按普通观察重新形变
+     * </p>
+     * <p>
+     * 只有能够被描述的条件才能持久化，所以这里只支持{@link NameRegexFilter}，且不增强native方法。
+     * 通过{@link #delete(int)}删除观察时同时删除保存的条件，模块卸载时保留
+     * </p>
+     *
+     * @param key       持久化观察的名称，模块内唯一
+     * @param filter    观察类和方法过滤器
+     * @param listener  事件监听器
+     * @param progress  观察渲染进度报告
+     * @param eventType 观察事件类型
+     * @return {@code watchId}，本次观察的唯一编号
+     * @since {@code sandbox-api:1.4.0}
+     */
+    int watchPersistent(String key, NameRegexFilter filter, EventListener listener, Progress progress, Event.Type... eventType);
+
     /**
      * 观察回调
      * <p>
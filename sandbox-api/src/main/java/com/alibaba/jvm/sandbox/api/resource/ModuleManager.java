@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.api.resource;
 
+import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.ModuleException;
 
@@ -70,16 +71,29 @@ public interface ModuleManager {
 
     /**
      * 列出所有的模块
+     * <p>
+     * 延迟加载({@link Information#isLazy()})且尚未实例化的模块没有模块实例，不在此列
+     * </p>
      *
      * @return 模块集合
      */
     Collection<Module> list();
 
+    /**
+     * 列出所有模块的信息
+     * <p>
+     * 包括延迟加载且尚未实例化的模块，列出信息不会触发模块的实例化
+     * </p>
+     *
+     * @return 模块信息集合
+     */
+    Collection<Information> listInformation();
+
     /**
      * 获取模块
      *
      * @param uniqueId 模块ID
-     * @return 模块
+     * @return 模块，模块不存在或延迟加载且尚未实例化时返回null
      */
     Module get(String uniqueId);
 
@@ -128,4 +142,82 @@ public interface ModuleManager {
      */
     File getJarFile(String uniqueId) throws ModuleException;
 
+    /**
+     * 获取模块的资源占用
+     * <p>
+     * 同一个模块Jar中的多个模块共用一个ClassLoader，类个数和Metaspace是这个ClassLoader的统计
+     * </p>
+     *
+     * @param uniqueId 模块ID
+     * @return 模块的资源占用
+     * @throws ModuleException 模块不存在
+     * @since {@code sandbox-api:1.4.0}
+     */
+    Footprint getFootprint(String uniqueId) throws ModuleException;
+
+    /**
+     * 列出已经关闭但仍未被回收的模块ClassLoader
+     * <p>
+     * 模块卸载后ClassLoader仍然可达，通常是模块的类或对象被模块之外的地方引用，
+     * 多次刷新后会不断占用Metaspace
+     * </p>
+     *
+     * @param isGcFirst 是否先触发一次GC，否则尚未来得及回收的ClassLoader也会被列出
+     * @return 仍未被回收的模块ClassLoader描述
+     * @since {@code sandbox-api:1.4.0}
+     */
+    Collection<String> listUncollectedLoaders(boolean isGcFirst);
+
+    /**
+     * 模块资源占用
+     *
+     * @since {@code sandbox-api:1.4.0}
+     */
+    class Footprint {
+
+        private final int definedClassCnt;
+        private final long metaspaceBytes;
+        private final int transformerCnt;
+        private final int listenerCnt;
+
+        public Footprint(final int definedClassCnt,
+                         final long metaspaceBytes,
+                         final int transformerCnt,
+                         final int listenerCnt) {
+            this.definedClassCnt = definedClassCnt;
+            this.metaspaceBytes = metaspaceBytes;
+            this.transformerCnt = transformerCnt;
+            this.listenerCnt = listenerCnt;
+        }
+
+        /**
+         * @return 模块ClassLoader定义的类个数
+         */
+        public int getDefinedClassCnt() {
+            return definedClassCnt;
+        }
+
+        /**
+         * @return 模块ClassLoader定义的类占用的Metaspace，按类文件大小估算
+         */
+        public long getMetaspaceBytes() {
+            return metaspaceBytes;
+        }
+
+        /**
+         * @return 模块仍然持有的类转换器个数，每次观察对应一个
+         */
+        public int getTransformerCnt() {
+            return transformerCnt;
+        }
+
+        /**
+         * @return 模块当前处于激活状态的事件监听器个数
+         */
+        public int getListenerCnt() {
+            return listenerCnt;
+        }
+
+    }
+
 }
@@ -0,0 +1,536 @@
+package com.alibaba.jvm.sandbox.api.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的匹配模版
+ * <p>
+ * {@link String#matches(String)}每次调用都会重新编译一次正则表达式，而类名、方法名的匹配发生在类加载和全量扫描已加载类的热路径上。
+ * 所以这里在构造时就完成一次性的分析与编译：
+ * </p>
+ * <ul>
+ * <li>能退化为"全匹配/等值/前缀/后缀/包含"的模版，直接走字符串比较的快速路径</li>
+ * <li>其余的正则表达式只编译一次{@link Pattern}</li>
+ * <li>其余的通配符表达式编译为非递归的通配符自动机，语义与{@link GaStringUtils#matching(String, String)}保持一致</li>
+ * </ul>
+ * <p>
+ * 编译后的匹配模版是无状态的，可以被多线程共享
+ * </p>
+ *
+ * @since {@code sandbox-api:1.4.0}
+ */
+public abstract class GaPattern {
+
+    /**
+     * 原始匹配模版
+     */
+    private final String pattern;
+
+    private GaPattern(final String pattern) {
+        this.pattern = pattern;
+    }
+
+    /**
+     * 目标字符串是否匹配当前模版
+     * <ul>
+     * <li>(null) matching (ANY) == false</li>
+     * </ul>
+     *
+     * @param string 目标字符串
+     * @return TRUE:匹配成功 / FALSE:匹配失败
+     */
+    public boolean matching(final String string) {
+        return null != string
+                && _matching(string);
+    }
+
+    abstract boolean _matching(String string);
+
+    /**
+     * 获取匹配成功的字符串必须具备的前缀
+     * <p>
+     * 不能匹配以该前缀开头之外的任何字符串，可以用来在大量模版中预先筛选；
+     * 无法确定前缀时返回空字符串
+     * </p>
+     *
+     * @return 必须具备的前缀
+     */
+    public String getRequiredPrefix() {
+        return "";
+    }
+
+    /**
+     * 获取原始匹配模版
+     *
+     * @return 原始匹配模版
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+    /**
+     * 编译通配符表达式
+     * <p>
+     * 语义与{@link GaStringUtils#matching(String, String)}一致：星号(*)匹配任意字符序列，问号(?)匹配任意单个字符，反斜杠(\)转义下一个字符
+     * </p>
+     *
+     * @param wildcard 通配符表达式，为null时任何字符串都不能匹配
+     * @return 预编译的匹配模版
+     */
+    public static GaPattern compileWildcard(final String wildcard) {
+        if (null == wildcard) {
+            return new Never(null);
+        }
+
+        // 将通配符表达式拆解为字符序列，用负数标记通配符
+        final int[] tokens = new int[wildcard.length()];
+        int length = 0;
+        for (int index = 0; index < wildcard.length(); index++) {
+            final char c = wildcard.charAt(index);
+            if (c == '\\') {
+                // 末尾孤立的反斜杠在GaStringUtils#matching中永远不能匹配成功
+                if (++index >= wildcard.length()) {
+                    return new Never(wildcard);
+                }
+                tokens[length++] = wildcard.charAt(index);
+            } else if (c == '*') {
+                // 连续的星号和单个星号效果一样
+                if (length == 0 || tokens[length - 1] != ANY_SEQUENCE) {
+                    tokens[length++] = ANY_SEQUENCE;
+                }
+            } else if (c == '?') {
+                tokens[length++] = ANY_CHAR;
+            } else {
+                tokens[length++] = c;
+            }
+        }
+
+        final GaPattern fastPath = toFastPath(wildcard, tokens, length, false);
+        return null != fastPath
+                ? fastPath
+                : new WildcardAutomaton(wildcard, tokens, length);
+    }
+
+    /**
+     * 编译正则表达式
+     * <p>
+     * 语义与{@link String#matches(String)}一致，即要求整个字符串匹配
+     * </p>
+     *
+     * @param regex 正则表达式，为null时任何字符串都不能匹配
+     * @return 预编译的匹配模版
+     * @throws java.util.regex.PatternSyntaxException 正则表达式语法错误
+     */
+    public static GaPattern compileRegex(final String regex) {
+        if (null == regex) {
+            return new Never(null);
+        }
+        final int[] tokens = toRegexTokens(regex);
+        final GaPattern fastPath = null == tokens
+                ? null
+                : toFastPath(regex, tokens, tokens.length, true);
+        return null != fastPath
+                ? fastPath
+                : new Regex(regex);
+    }
+
+    // 匹配任意字符序列：通配符(*)或正则(.*)
+    private static final int ANY_SEQUENCE = -1;
+
+    // 匹配任意单个字符：通配符(?)
+    private static final int ANY_CHAR = -2;
+
+    /*
+     * 尝试将正则表达式拆解为字符序列，只接受形如 ^?(.*)?LITERAL(.*)?$? 的正则表达式
+     * 无法拆解时返回null，由Pattern完成匹配
+     */
+    private static int[] toRegexTokens(final String regex) {
+        final int[] tokens = new int[regex.length()];
+        int length = 0;
+        int index = 0;
+        final int end = regex.length();
+
+        // 对于String#matches()来说，首尾的锚点没有意义
+        if (index < end && regex.charAt(index) == '^') {
+            index++;
+        }
+
+        while (index < end) {
+            final char c = regex.charAt(index);
+            if (c == '\\') {
+                if (index + 1 >= end) {
+                    return null;
+                }
+                final char next = regex.charAt(index + 1);
+
+                // \Q...\E 引用段
+                if (next == 'Q') {
+                    final int quoteEnd = regex.indexOf("\\E", index + 2);
+                    final int literalEnd = quoteEnd < 0 ? end : quoteEnd;
+                    for (int i = index + 2; i < literalEnd; i++) {
+                        tokens[length++] = regex.charAt(i);
+                    }
+                    index = quoteEnd < 0 ? end : quoteEnd + 2;
+                    continue;
+                }
+
+                // 只有转义的非字母数字字符才是字面量，\d \w \1 之类的都交给Pattern
+                if (Character.isLetterOrDigit(next)) {
+                    return null;
+                }
+                tokens[length++] = next;
+                index += 2;
+            } else if (c == '.') {
+                // 只接受贪婪的 .*
+                if (index + 1 >= end
+                        || regex.charAt(index + 1) != '*'
+                        || (index + 2 < end && isRegexQuantifierSuffix(regex.charAt(index + 2)))) {
+                    return null;
+                }
+                if (length == 0 || tokens[length - 1] != ANY_SEQUENCE) {
+                    tokens[length++] = ANY_SEQUENCE;
+                }
+                index += 2;
+            } else if (c == '$' && index == end - 1) {
+                index++;
+            } else if ("[](){}*+?^$|".indexOf(c) >= 0) {
+                return null;
+            } else {
+                tokens[length++] = c;
+                index++;
+            }
+        }
+
+        final int[] result = new int[length];
+        System.arraycopy(tokens, 0, result, 0, length);
+        return result;
+    }
+
+    private static boolean isRegexQuantifierSuffix(final char c) {
+        return c == '?' || c == '+';
+    }
+
+    /*
+     * 尝试将字符序列归约为快速路径：ANY_SEQUENCE? LITERAL ANY_SEQUENCE?
+     * 无法归约时返回null
+     */
+    private static GaPattern toFastPath(final String pattern,
+                                        final int[] tokens,
+                                        final int length,
+                                        final boolean isRegex) {
+        int from = 0, to = length;
+        final boolean isAnyPrefix = from < to && tokens[from] == ANY_SEQUENCE;
+        if (isAnyPrefix) {
+            from++;
+        }
+        final boolean isAnySuffix = from < to && tokens[to - 1] == ANY_SEQUENCE;
+        if (isAnySuffix) {
+            to--;
+        }
+
+        final StringBuilder literal = new StringBuilder(to - from);
+        for (int index = from; index < to; index++) {
+            if (tokens[index] < 0) {
+                return null;
+            }
+            literal.append((char) tokens[index]);
+        }
+
+        final String string = literal.toString();
+        if (isAnyPrefix && isAnySuffix) {
+            return string.isEmpty()
+                    ? new Any(pattern, isRegex)
+                    : new Contains(pattern, isRegex, string);
+        } else if (isAnyPrefix) {
+            return string.isEmpty()
+                    ? new Any(pattern, isRegex)
+                    : new Suffix(pattern, isRegex, string);
+        } else if (isAnySuffix) {
+            return new Prefix(pattern, isRegex, string);
+        } else {
+            return new Literal(pattern, string);
+        }
+    }
+
+    /*
+     * 正则表达式中的(.)默认不匹配行终止符，这里需要保持和String#matches()一致
+     */
+    private static boolean isAnyChars(final boolean isRegex,
+                                      final String string,
+                                      final int from,
+                                      final int to) {
+        if (!isRegex) {
+            return true;
+        }
+        for (int index = from; index < to; index++) {
+            switch (string.charAt(index)) {
+                case '\n':
+                case '\r':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 不能匹配任何字符串
+     */
+    private static final class Never extends GaPattern {
+
+        Never(final String pattern) {
+            super(pattern);
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return false;
+        }
+
+    }
+
+    /**
+     * 匹配任意字符串："*" / ".*"
+     */
+    private static final class Any extends GaPattern {
+
+        private final boolean isRegex;
+
+        Any(final String pattern, final boolean isRegex) {
+            super(pattern);
+            this.isRegex = isRegex;
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return isAnyChars(isRegex, string, 0, string.length());
+        }
+
+    }
+
+    /**
+     * 等值匹配："java.lang.String"
+     */
+    private static final class Literal extends GaPattern {
+
+        private final String literal;
+
+        Literal(final String pattern, final String literal) {
+            super(pattern);
+            this.literal = literal;
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return literal.equals(string);
+        }
+
+        @Override
+        public String getRequiredPrefix() {
+            return literal;
+        }
+
+    }
+
+    /**
+     * 前缀匹配："com.alibaba.*"
+     */
+    private static final class Prefix extends GaPattern {
+
+        private final boolean isRegex;
+        private final String prefix;
+
+        Prefix(final String pattern, final boolean isRegex, final String prefix) {
+            super(pattern);
+            this.isRegex = isRegex;
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return string.startsWith(prefix)
+                    && isAnyChars(isRegex, string, prefix.length(), string.length());
+        }
+
+        @Override
+        public String getRequiredPrefix() {
+            return prefix;
+        }
+
+    }
+
+    /**
+     * 后缀匹配："*Service"
+     */
+    private static final class Suffix extends GaPattern {
+
+        private final boolean isRegex;
+        private final String suffix;
+
+        Suffix(final String pattern, final boolean isRegex, final String suffix) {
+            super(pattern);
+            this.isRegex = isRegex;
+            this.suffix = suffix;
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return string.endsWith(suffix)
+                    && isAnyChars(isRegex, string, 0, string.length() - suffix.length());
+        }
+
+    }
+
+    /**
+     * 包含匹配："*Service*"
+     */
+    private static final class Contains extends GaPattern {
+
+        private final boolean isRegex;
+        private final String infix;
+
+        Contains(final String pattern, final boolean isRegex, final String infix) {
+            super(pattern);
+            this.isRegex = isRegex;
+            this.infix = infix;
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            if (!isRegex) {
+                return string.contains(infix);
+            }
+            final int index = string.indexOf(infix);
+            return index >= 0
+                    && isAnyChars(true, string, 0, index)
+                    && isAnyChars(true, string, index + infix.length(), string.length());
+        }
+
+    }
+
+    /**
+     * 预编译的正则表达式
+     */
+    private static final class Regex extends GaPattern {
+
+        private final Pattern compiled;
+        private final String requiredPrefix;
+
+        Regex(final String regex) {
+            super(regex);
+            this.compiled = Pattern.compile(regex);
+            this.requiredPrefix = toRegexRequiredPrefix(regex);
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            return compiled.matcher(string).matches();
+        }
+
+        @Override
+        public String getRequiredPrefix() {
+            return requiredPrefix;
+        }
+
+        /*
+         * 正则表达式开头的字面量，遇到第一个元字符为止；
+         * 字面量后面紧跟量词时这个字面量是可选的，不能计入前缀；含有分支(|)的正则表达式没有确定的前缀
+         */
+        private static String toRegexRequiredPrefix(final String regex) {
+            if (regex.indexOf('|') >= 0) {
+                return "";
+            }
+            final StringBuilder prefix = new StringBuilder();
+            int index = regex.startsWith("^") ? 1 : 0;
+            while (index < regex.length()) {
+                final char c = regex.charAt(index);
+                final char literal;
+                final int next;
+                if (c == '\\'
+                        && index + 1 < regex.length()
+                        && !Character.isLetterOrDigit(regex.charAt(index + 1))) {
+                    literal = regex.charAt(index + 1);
+                    next = index + 2;
+                } else if ("\\[](){}.*+?^$|".indexOf(c) < 0) {
+                    literal = c;
+                    next = index + 1;
+                } else {
+                    break;
+                }
+                if (next < regex.length() && "*+?{".indexOf(regex.charAt(next)) >= 0) {
+                    break;
+                }
+                prefix.append(literal);
+                index = next;
+            }
+            return prefix.toString();
+        }
+
+    }
+
+    /**
+     * 通配符自动机
+     * <p>
+     * 以回溯到最近一个星号的方式完成匹配，避免{@link GaStringUtils#matching(String, String)}的递归调用
+     * </p>
+     */
+    private static final class WildcardAutomaton extends GaPattern {
+
+        private final int[] tokens;
+
+        WildcardAutomaton(final String wildcard, final int[] tokens, final int length) {
+            super(wildcard);
+            this.tokens = new int[length];
+            System.arraycopy(tokens, 0, this.tokens, 0, length);
+        }
+
+        @Override
+        public String getRequiredPrefix() {
+            final StringBuilder prefix = new StringBuilder();
+            for (final int token : tokens) {
+                if (token < 0) {
+                    break;
+                }
+                prefix.append((char) token);
+            }
+            return prefix.toString();
+        }
+
+        @Override
+        boolean _matching(final String string) {
+            final int sLen = string.length();
+            final int pLen = tokens.length;
+            int sNdx = 0, pNdx = 0;
+            int starPNdx = -1, starSNdx = 0;
+            while (sNdx < sLen) {
+                if (pNdx < pLen
+                        && (tokens[pNdx] == ANY_CHAR || tokens[pNdx] == string.charAt(sNdx))) {
+                    sNdx++;
+                    pNdx++;
+                } else if (pNdx < pLen && tokens[pNdx] == ANY_SEQUENCE) {
+                    starPNdx = pNdx++;
+                    starSNdx = sNdx;
+                } else if (starPNdx >= 0) {
+                    // 回溯：让最近一个星号多吞一个字符
+                    pNdx = starPNdx + 1;
+                    sNdx = ++starSNdx;
+                } else {
+                    return false;
+                }
+            }
+            while (pNdx < pLen && tokens[pNdx] == ANY_SEQUENCE) {
+                pNdx++;
+            }
+            return pNdx == pLen;
+        }
+
+    }
+
+}
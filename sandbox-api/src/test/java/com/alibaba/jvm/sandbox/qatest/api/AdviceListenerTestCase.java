@@ -6,6 +6,7 @@ import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
 import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.ExtEventWatchCondition;
 import com.alibaba.jvm.sandbox.qatest.api.mock.MockForBuilderModuleEventWatcher;
 import org.junit.Assert;
 import org.junit.Test;
@@ -96,4 +97,63 @@ public class AdviceListenerTestCase {
 
     }
 
+    @Test
+    public void test$$AdviceListener$$costNanoTime() throws Throwable {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+
+        final StringBuilder traceSB = new StringBuilder();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withTiming()
+                .onWatch(new AdviceListener() {
+                    @Override
+                    protected void before(Advice advice) throws Throwable {
+                        traceSB.append("before:").append(advice.getCostNanoTime()).append(";");
+                    }
+
+                    @Override
+                    protected void afterReturning(Advice advice) throws Throwable {
+                        traceSB.append("afterReturning:").append(advice.getCostNanoTime()).append(";");
+                    }
+
+                    @Override
+                    protected void afterThrowing(Advice advice) throws Throwable {
+                        traceSB.append("afterThrowing:").append(advice.getCostNanoTime()).append(";");
+                    }
+                });
+
+        Assert.assertTrue(mockForBuilderModuleEventWatcher.getEventWatchCondition() instanceof ExtEventWatchCondition);
+        Assert.assertTrue(((ExtEventWatchCondition) mockForBuilderModuleEventWatcher.getEventWatchCondition()).isTimingEnable());
+
+        final BeforeEvent beforeEvent = new BeforeEvent(
+                10001,
+                10001,
+                getClass().getClassLoader(),
+                "java.lang.String",
+                "toString",
+                "()Ljava/lang/String;",
+                this,
+                new Object[]{}
+        );
+
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(beforeEvent);
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(new ReturnEvent(10001, 10001, this, 1500L));
+        Assert.assertEquals("before:-1;afterReturning:1500;", traceSB.toString());
+        traceSB.delete(0, traceSB.length());
+
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(beforeEvent);
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(new ThrowsEvent(10001, 10001, new RuntimeException(), 2500L));
+        Assert.assertEquals("before:-1;afterThrowing:2500;", traceSB.toString());
+        traceSB.delete(0, traceSB.length());
+
+        // 未计时的事件耗时为-1
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(beforeEvent);
+        mockForBuilderModuleEventWatcher.getEventListener().onEvent(new ReturnEvent(10001, 10001, this));
+        Assert.assertEquals("before:-1;afterReturning:-1;", traceSB.toString());
+    }
+
 }
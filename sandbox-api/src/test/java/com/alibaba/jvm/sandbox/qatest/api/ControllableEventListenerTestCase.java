@@ -0,0 +1,60 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.ProcessControlException;
+import com.alibaba.jvm.sandbox.api.ProcessDecision;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.listener.ControllableEventListener;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static com.alibaba.jvm.sandbox.api.ProcessControlException.State.*;
+
+public class ControllableEventListenerTestCase {
+
+    private static ControllableEventListener decide(final ProcessDecision decision) {
+        return new ControllableEventListener() {
+            @Override
+            public ProcessDecision onControllableEvent(Event event) {
+                return decision;
+            }
+        };
+    }
+
+    private static ProcessControlException onEvent(final ControllableEventListener listener) throws Throwable {
+        try {
+            listener.onEvent(new ReturnEvent(10001, 10001, null));
+            return null;
+        } catch (ProcessControlException pce) {
+            return pce;
+        }
+    }
+
+    @Test
+    public void test$$ControllableEventListener$$onEvent() throws Throwable {
+
+        // 不干预流程时不抛出异常
+        Assert.assertNull(onEvent(decide(null)));
+        Assert.assertNull(onEvent(decide(ProcessDecision.none())));
+
+        // 不认识ControllableEventListener的调用方，通过onEvent()得到等价的流程控制异常
+        final ProcessControlException returnPce = onEvent(decide(ProcessDecision.returnImmediately(100)));
+        Assert.assertNotNull(returnPce);
+        Assert.assertEquals(RETURN_IMMEDIATELY, returnPce.getState());
+        Assert.assertEquals(100, returnPce.getRespond());
+        Assert.assertFalse(returnPce.isIgnoreProcessEvent());
+
+        final RuntimeException cause = new RuntimeException();
+        final ProcessControlException throwsPce = onEvent(decide(ProcessDecision.throwsImmediatelyWithIgnoreProcessEvent(cause)));
+        Assert.assertNotNull(throwsPce);
+        Assert.assertEquals(THROWS_IMMEDIATELY, throwsPce.getState());
+        Assert.assertSame(cause, throwsPce.getRespond());
+        Assert.assertTrue(throwsPce.isIgnoreProcessEvent());
+
+        final ProcessControlException nonePce = onEvent(decide(ProcessDecision.noneWithIgnoreProcessEvent()));
+        Assert.assertNotNull(nonePce);
+        Assert.assertEquals(NONE_IMMEDIATELY, nonePce.getState());
+        Assert.assertTrue(nonePce.isIgnoreProcessEvent());
+    }
+
+}
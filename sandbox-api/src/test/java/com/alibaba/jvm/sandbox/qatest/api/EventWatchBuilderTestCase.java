@@ -2,9 +2,12 @@ package com.alibaba.jvm.sandbox.qatest.api;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
 import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder;
+import com.alibaba.jvm.sandbox.api.listener.ext.ExtEventWatchCondition;
 import com.alibaba.jvm.sandbox.qatest.api.mock.MockForBuilderModuleEventWatcher;
 import com.alibaba.jvm.sandbox.qatest.api.util.ApiQaArrayUtils;
 import org.junit.Assert;
@@ -173,4 +176,67 @@ public class EventWatchBuilderTestCase {
 
     }
 
+    @Test
+    public void test$$EventWatchBuilder$$withCall$$filter() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withCall("java.sql.*", "execute*", "*")
+                .withCall("com.example.Client", "invoke", "(Ljava/lang/String;)*")
+                .onWatch(new AdviceListener());
+
+        Assert.assertEquals(8, mockForBuilderModuleEventWatcher.getEventTypeArray().length);
+        Assert.assertTrue(ApiQaArrayUtils.has(Event.Type.CALL_BEFORE, mockForBuilderModuleEventWatcher.getEventTypeArray()));
+        Assert.assertTrue(mockForBuilderModuleEventWatcher.getEventWatchCondition() instanceof ExtEventWatchCondition);
+
+        final CallFilter callFilter = ((ExtEventWatchCondition) mockForBuilderModuleEventWatcher.getEventWatchCondition()).getCallFilter();
+        Assert.assertTrue(callFilter.doCallFilter("java.sql.Statement", "executeQuery", "(Ljava/lang/String;)Ljava/sql/ResultSet;"));
+        Assert.assertFalse(callFilter.doCallFilter("java.sql.Statement", "close", "()V"));
+        Assert.assertTrue(callFilter.doCallFilter("com.example.Client", "invoke", "(Ljava/lang/String;)V"));
+        Assert.assertFalse(callFilter.doCallFilter("com.example.Client", "invoke", "(I)V"));
+        Assert.assertFalse(callFilter.doCallFilter("java.lang.String", "length", "()I"));
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$withCall$$all() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("toString")
+                .onWatching()
+                .withCall("java.sql.*", "*", "*")
+                .withCall()
+                .onWatch(new AdviceListener());
+
+        // 同时观察所有方法调用时不需要过滤
+        Assert.assertFalse(mockForBuilderModuleEventWatcher.getEventWatchCondition() instanceof ExtEventWatchCondition);
+    }
+
+    @Test
+    public void test$$EventWatchBuilder$$withGuard() {
+
+        final MockForBuilderModuleEventWatcher mockForBuilderModuleEventWatcher
+                = new MockForBuilderModuleEventWatcher();
+        new EventWatchBuilder(mockForBuilderModuleEventWatcher)
+                .onClass(String.class)
+                .onBehavior("substring")
+                .onWatching()
+                .withGuard("arg0 > 0")
+                .withGuard(Guard.argIsNotNull(1))
+                .onWatch(new AdviceListener());
+
+        Assert.assertTrue(mockForBuilderModuleEventWatcher.getEventWatchCondition() instanceof ExtEventWatchCondition);
+        final ExtEventWatchCondition condition = (ExtEventWatchCondition) mockForBuilderModuleEventWatcher.getEventWatchCondition();
+        Assert.assertNull(condition.getCallFilter());
+
+        // 多个守卫条件需要同时满足
+        Assert.assertEquals(Guard.parse("arg0 > 0 && arg1 != null"), condition.getGuard());
+    }
+
 }
@@ -0,0 +1,81 @@
+package com.alibaba.jvm.sandbox.qatest.api;
+
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GuardTestCase {
+
+    @Test
+    public void test$$Guard$$parse() {
+        final Guard guard = Guard.parse("arg0 == \"tenant-a\" && (arg1 > 10 || !(target instanceof com.foo.Impl)) && arg2 != null");
+        Assert.assertEquals(Guard.Kind.AND, guard.getKind());
+        Assert.assertEquals(3, guard.getChildren().length);
+
+        final Guard tenant = guard.getChildren()[0];
+        Assert.assertEquals(Guard.Kind.COMPARE, tenant.getKind());
+        Assert.assertEquals(0, tenant.getIndex());
+        Assert.assertEquals(Guard.Operator.EQ, tenant.getOperator());
+        Assert.assertEquals("tenant-a", tenant.getValue());
+
+        final Guard or = guard.getChildren()[1];
+        Assert.assertEquals(Guard.Kind.OR, or.getKind());
+        Assert.assertEquals(10, or.getChildren()[0].getValue());
+        Assert.assertEquals(Guard.Kind.NOT, or.getChildren()[1].getKind());
+        Assert.assertEquals("com.foo.Impl", or.getChildren()[1].getChildren()[0].getJavaClassName());
+
+        Assert.assertNull(guard.getChildren()[2].getValue());
+        Assert.assertEquals(Guard.Operator.NE, guard.getChildren()[2].getOperator());
+    }
+
+    @Test
+    public void test$$Guard$$literal() {
+        Assert.assertEquals(-3, Guard.parse("arg0 <= -3").getValue());
+        Assert.assertEquals(3000000000L, Guard.parse("arg0 < 3000000000").getValue());
+        Assert.assertEquals(3L, Guard.parse("arg0 < 3L").getValue());
+        Assert.assertEquals(1.5d, Guard.parse("arg0 >= 1.5").getValue());
+        Assert.assertEquals(1.5f, Guard.parse("arg0 >= 1.5f").getValue());
+        Assert.assertEquals(1e3d, Guard.parse("arg0 >= 1e3").getValue());
+        Assert.assertEquals('x', Guard.parse("arg0 == 'x'").getValue());
+        Assert.assertEquals(Boolean.TRUE, Guard.parse("arg0 == true").getValue());
+        Assert.assertEquals("a\"b", Guard.parse("arg0 == \"a\\\"b\"").getValue());
+    }
+
+    @Test
+    public void test$$Guard$$toString$$reparse() {
+        final Guard guard = Guard.or(
+                Guard.and(Guard.argEquals(0, "t\"1"), Guard.arg(1, Guard.Operator.GE, 10L)),
+                Guard.not(Guard.targetInstanceOf("com.foo.Impl")),
+                Guard.arg(2, Guard.Operator.LT, 0.5d),
+                Guard.argEquals(3, '\''),
+                Guard.argIsNull(4)
+        );
+        Assert.assertEquals(guard, Guard.parse(guard.toString()));
+        Assert.assertEquals(guard.toString(), Guard.parse(guard.toString()).toString());
+    }
+
+    @Test
+    public void test$$Guard$$illegal() {
+        for (final String expression : new String[]{
+                "",
+                "arg0",
+                "arg0 == ",
+                "argX == 1",
+                "arg0 > \"a\"",
+                "arg0 < null",
+                "arg0 == 1 &&",
+                "(arg0 == 1",
+                "arg0 == 1)",
+                "target instance com.foo.Impl",
+                "arg0 == \"unclosed"
+        }) {
+            try {
+                Guard.parse(expression);
+                Assert.fail(expression);
+            } catch (IllegalArgumentException cause) {
+                // expected
+            }
+        }
+    }
+
+}
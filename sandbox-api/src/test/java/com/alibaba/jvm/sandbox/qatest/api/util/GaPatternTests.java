@@ -0,0 +1,199 @@
+package com.alibaba.jvm.sandbox.qatest.api.util;
+
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.regex.Pattern.quote;
+
+public class GaPatternTests {
+
+    private static final String[] WILDCARDS = new String[]{
+            "*",
+            "**",
+            "java.lang.String",
+            "com.alibaba.*",
+            "*Service",
+            "*Impl*",
+            "com.*.service.*Impl",
+            "?oo",
+            "f\\?o",
+            "fool\\*ing",
+            "foo*ing",
+            "",
+            "\\"
+    };
+
+    private static final String[] REGEXES = new String[]{
+            ".*",
+            "^.*$",
+            "java\\.lang\\.String",
+            quote("java.lang.String"),
+            "^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$",
+            "^javax\\.annotation\\.Resource.*$",
+            ".*Service",
+            ".*Impl.*",
+            "com\\..*\\.service\\..*Impl",
+            "(?i)COM\\.ALIBABA\\..*",
+            "[a-z]+\\.[a-z]+\\..*",
+            ".*?Impl",
+            "",
+            "^",
+            "$"
+    };
+
+    private static List<String> corpus(final int size) {
+        final String[] packages = new String[]{
+                "java.lang.", "java.util.concurrent.", "com.alibaba.jvm.sandbox.api.",
+                "com.alibaba.jvm.sandbox.core.", "javax.annotation.", "org.springframework.beans.",
+                "com.example.order.service.", "com.example.user.dao."
+        };
+        final String[] suffixes = new String[]{
+                "", "Service", "ServiceImpl", "Impl", "Dao", "$Inner", "$$Lambda$1/123", "Resource"
+        };
+        final Random random = new Random(292);
+        final List<String> names = new ArrayList<>(size);
+        names.add("foo");
+        names.add("fooMatching");
+        names.add("fool*ing");
+        names.add("f?o");
+        names.add("");
+        names.add("java.lang.String");
+        names.add("line\nbreak.Service");
+        while (names.size() < size) {
+            names.add(packages[random.nextInt(packages.length)]
+                    + "Type" + random.nextInt(10000)
+                    + suffixes[random.nextInt(suffixes.length)]);
+        }
+        return names;
+    }
+
+    @Test
+    public void testWildcardMatching() {
+        Assert.assertFalse(GaPattern.compileWildcard("bar").matching(null));
+        Assert.assertFalse(GaPattern.compileWildcard(null).matching("foo"));
+        Assert.assertFalse(GaPattern.compileWildcard(null).matching(null));
+        Assert.assertFalse(GaPattern.compileWildcard("bar").matching("foo"));
+        Assert.assertFalse(GaPattern.compileWildcard("foo").matching("foobar"));
+        Assert.assertFalse(GaPattern.compileWildcard("*a").matching("foobar"));
+        Assert.assertFalse(GaPattern.compileWildcard("\\o").matching("foo"));
+        Assert.assertFalse(GaPattern.compileWildcard("\\*").matching("foo"));
+        Assert.assertFalse(GaPattern.compileWildcard("f\\?o").matching("foo"));
+        Assert.assertFalse(GaPattern.compileWildcard("fool\\*ing").matching("fooMatching"));
+
+        Assert.assertTrue(GaPattern.compileWildcard("*").matching("foo"));
+        Assert.assertTrue(GaPattern.compileWildcard("?oo").matching("foo"));
+        Assert.assertTrue(GaPattern.compileWildcard("**o").matching("foo"));
+        Assert.assertTrue(GaPattern.compileWildcard("f?o").matching("foo"));
+        Assert.assertTrue(GaPattern.compileWildcard("foo*").matching("fooMatching"));
+        Assert.assertTrue(GaPattern.compileWildcard("foo*ing").matching("fooMatching"));
+    }
+
+    @Test
+    public void testRegexMatching() {
+        Assert.assertFalse(GaPattern.compileRegex(".*").matching(null));
+        Assert.assertFalse(GaPattern.compileRegex(null).matching("foo"));
+        Assert.assertFalse(GaPattern.compileRegex(".*").matching("line\nbreak"));
+        Assert.assertTrue(GaPattern.compileRegex("^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$").matching("com.alibaba.jvm.sandbox.api.Module"));
+        Assert.assertFalse(GaPattern.compileRegex("^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$").matching("com.alibaba.jvm.sandbox.core.CoreModule"));
+        Assert.assertTrue(GaPattern.compileRegex(quote("java.lang.String")).matching("java.lang.String"));
+        Assert.assertFalse(GaPattern.compileRegex(quote("java.lang.String")).matching("javaXlangXString"));
+    }
+
+    @Test
+    public void testSameAsGaStringUtils() {
+        for (final String wildcard : WILDCARDS) {
+            final GaPattern pattern = GaPattern.compileWildcard(wildcard);
+            for (final String name : corpus(2000)) {
+                Assert.assertEquals(wildcard + " matching " + name,
+                        GaStringUtils.matching(name, wildcard),
+                        pattern.matching(name));
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsStringMatches() {
+        for (final String regex : REGEXES) {
+            final GaPattern pattern = GaPattern.compileRegex(regex);
+            for (final String name : corpus(2000)) {
+                Assert.assertEquals(regex + " matches " + name,
+                        name.matches(regex),
+                        pattern.matching(name));
+            }
+        }
+    }
+
+    @Test
+    public void testRequiredPrefix() {
+        Assert.assertEquals("com.alibaba.jvm.sandbox.api.", GaPattern.compileRegex("^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$").getRequiredPrefix());
+        Assert.assertEquals("java.lang.String", GaPattern.compileRegex("java\\.lang\\.String").getRequiredPrefix());
+        Assert.assertEquals("com.", GaPattern.compileRegex("com\\.[a-z]+\\..*").getRequiredPrefix());
+        Assert.assertEquals("a", GaPattern.compileRegex("ab*c").getRequiredPrefix());
+        Assert.assertEquals("", GaPattern.compileRegex("com\\.a|org\\.b").getRequiredPrefix());
+        Assert.assertEquals("", GaPattern.compileRegex("(?i)COM\\..*").getRequiredPrefix());
+        Assert.assertEquals("com.", GaPattern.compileWildcard("com.*.service.*Impl").getRequiredPrefix());
+        Assert.assertEquals("", GaPattern.compileWildcard("*Service").getRequiredPrefix());
+
+        // 匹配成功的字符串一定以前缀开头
+        for (final String regex : REGEXES) {
+            final GaPattern pattern = GaPattern.compileRegex(regex);
+            for (final String name : corpus(2000)) {
+                if (pattern.matching(name)) {
+                    Assert.assertTrue(regex + " matches " + name, name.startsWith(pattern.getRequiredPrefix()));
+                }
+            }
+        }
+        for (final String wildcard : WILDCARDS) {
+            final GaPattern pattern = GaPattern.compileWildcard(wildcard);
+            for (final String name : corpus(2000)) {
+                if (pattern.matching(name)) {
+                    Assert.assertTrue(wildcard + " matching " + name, name.startsWith(pattern.getRequiredPrefix()));
+                }
+            }
+        }
+    }
+
+    /*
+     * 50k个类名，每个模版分别用String#matches/GaStringUtils#matching和GaPattern匹配一轮，命中个数一致；
+     * 吞吐量对比见sandbox-benchmark中的GaPatternBenchmark
+     */
+    @Test
+    public void testSameMatchedCountOver50kNames() {
+        final List<String> names = corpus(50000);
+        for (final String regex : REGEXES) {
+            final GaPattern pattern = GaPattern.compileRegex(regex);
+            int expect = 0;
+            int actual = 0;
+            for (final String name : names) {
+                if (name.matches(regex)) {
+                    expect++;
+                }
+                if (pattern.matching(name)) {
+                    actual++;
+                }
+            }
+            Assert.assertEquals(regex, expect, actual);
+        }
+        for (final String wildcard : WILDCARDS) {
+            final GaPattern pattern = GaPattern.compileWildcard(wildcard);
+            int expect = 0;
+            int actual = 0;
+            for (final String name : names) {
+                if (GaStringUtils.matching(name, wildcard)) {
+                    expect++;
+                }
+                if (pattern.matching(name)) {
+                    actual++;
+                }
+            }
+            Assert.assertEquals(wildcard, expect, actual);
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceAdapterListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.qatest.benchmark.target.Calculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntBinaryOperator;
+
+import static com.alibaba.jvm.sandbox.qatest.benchmark.WovenMethodBenchmark.SIGN_CODE;
+import static com.alibaba.jvm.sandbox.qatest.benchmark.WovenMethodBenchmark.toEventTypes;
+
+/**
+ * {@link AdviceAdapterListener}的开销
+ * <p>
+ * 同样的织入代码分别派发给空的{@link EventListener}和包装了空{@link AdviceListener}的{@link AdviceAdapterListener}，
+ * 两者的差值即为Advice的构造、调用栈维护和回调分发的开销
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdviceAdapterListenerBenchmark {
+
+    @Param({"EVENT_LISTENER", "ADVICE_LISTENER"})
+    public String listener;
+
+    @Param({"AROUND", "LINE_AND_CALL"})
+    public String events;
+
+    private int listenerId;
+    private IntBinaryOperator calculator;
+    private int a = 1;
+    private int b = 2;
+
+    @Setup
+    public void setup() throws Exception {
+        final Event.Type[] eventTypes = toEventTypes(events);
+        final EventListener eventListener = "ADVICE_LISTENER".equals(listener)
+                ? new AdviceAdapterListener(new AdviceListener() {
+                    @Override
+                    protected void before(Advice advice) {
+
+                    }
+                })
+                : new BenchmarkSupport.EmptyEventListener();
+        listenerId = BenchmarkSupport.active(eventListener, eventTypes);
+        calculator = BenchmarkSupport.newInstance(
+                Calculator.class.getName(),
+                BenchmarkSupport.weave(BenchmarkSupport.toByteArray(Calculator.class), SIGN_CODE, listenerId, eventTypes)
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.frozen(listenerId);
+    }
+
+    @Benchmark
+    public int invoke() {
+        return calculator.applyAsInt(a, b);
+    }
+
+}
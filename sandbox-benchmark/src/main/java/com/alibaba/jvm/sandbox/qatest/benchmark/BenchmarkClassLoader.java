@@ -0,0 +1,42 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 基准测试的类加载器
+ * <p>
+ * 用于定义织入后的靶机类和合成类。类名以qatest开头，所以不会被当成sandbox自身的类加载器而跳过增强
+ * </p>
+ */
+public class BenchmarkClassLoader extends ClassLoader {
+
+    private final Map<String, Class<?>> definedClassMap = new HashMap<>();
+
+    public BenchmarkClassLoader(final ClassLoader parent) {
+        super(parent);
+    }
+
+    /**
+     * 定义类
+     *
+     * @param javaClassName 类名
+     * @param byteCodeArray 类字节码
+     * @return 定义的类
+     */
+    public synchronized Class<?> define(final String javaClassName, final byte[] byteCodeArray) {
+        final Class<?> clazz = defineClass(javaClassName, byteCodeArray, 0, byteCodeArray.length);
+        definedClassMap.put(javaClassName, clazz);
+        return clazz;
+    }
+
+    @Override
+    protected synchronized Class<?> loadClass(final String javaClassName, final boolean resolve) throws ClassNotFoundException {
+        final Class<?> clazz = definedClassMap.get(javaClassName);
+        if (null != clazz) {
+            return clazz;
+        }
+        return super.loadClass(javaClassName, resolve);
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试启动器
+ * <p>
+ * Spy位于{@code java.}开头的包中，只能由BootstrapClassLoader加载。
+ * 启动器从classpath中找到Spy所在的jar(或目录)，追加到JMH所fork出的JVM的{@code -Xbootclasspath/a}中，
+ * 其余参数和JMH的命令行参数一致
+ * </p>
+ * <p>
+ * sandbox-benchmark只在benchmark profile中参与构建，下面的{@code -P benchmark}不能省略
+ * </p>
+ * <pre>
+ * mvn -pl sandbox-benchmark -am -DskipTests -P benchmark verify -Djmh.args="WovenMethodBenchmark -f 1"
+ * </pre>
+ */
+public class BenchmarkLauncher {
+
+    private static final String SPY_CLASS_RESOURCE = "java/com/alibaba/jvm/sandbox/spy/Spy.class";
+
+    public static void main(String... args) throws Exception {
+        final CommandLineOptions cmdOptions = new CommandLineOptions(args);
+        final List<String> jvmArgsAppend = new ArrayList<>(cmdOptions.getJvmArgsAppend().orElse(new ArrayList<>()));
+        jvmArgsAppend.add("-Xbootclasspath/a:" + getSpyClassPath());
+        final Options options = new OptionsBuilder()
+                .parent(cmdOptions)
+                .jvmArgsAppend(jvmArgsAppend.toArray(new String[0]))
+                .build();
+        new Runner(options).run();
+    }
+
+    /*
+     * Spy所在的classpath：
+     * jar:file:/path/sandbox-spy.jar!/java/com/alibaba/jvm/sandbox/spy/Spy.class 或
+     * file:/path/classes/java/com/alibaba/jvm/sandbox/spy/Spy.class
+     */
+    private static String getSpyClassPath() throws Exception {
+        final URL url = BenchmarkLauncher.class.getClassLoader().getResource(SPY_CLASS_RESOURCE);
+        if (null == url) {
+            throw new IllegalStateException("sandbox-spy not found in classpath.");
+        }
+        final String path = URLDecoder.decode(url.getPath(), "UTF-8");
+        if ("jar".equals(url.getProtocol())) {
+            return new File(new URL(path.substring(0, path.indexOf("!/"))).getPath()).getAbsolutePath();
+        }
+        return new File(path.substring(0, path.length() - SPY_CLASS_RESOURCE.length())).getAbsolutePath();
+    }
+
+}
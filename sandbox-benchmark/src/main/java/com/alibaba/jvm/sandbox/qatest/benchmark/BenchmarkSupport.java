@@ -0,0 +1,155 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.core.util.SpyUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+
+/**
+ * 基准测试的公共方法
+ */
+public class BenchmarkSupport {
+
+    /**
+     * 基准测试使用的命名空间
+     */
+    public static final String NAMESPACE = "benchmark";
+
+    /**
+     * 织入Native方法时使用的前缀
+     */
+    public static final String NATIVE_PREFIX = "$$SANDBOX_BENCHMARK$";
+
+    static {
+        SpyUtils.init(NAMESPACE);
+    }
+
+    /**
+     * 不做任何处理的事件监听器
+     */
+    public static class EmptyEventListener implements EventListener {
+
+        @Override
+        public void onEvent(Event event) {
+
+        }
+
+    }
+
+    /**
+     * 激活事件监听器
+     *
+     * @param listener   事件监听器
+     * @param eventTypes 监听的事件类型
+     * @return 监听器ID
+     */
+    public static int active(final EventListener listener, final Event.Type... eventTypes) {
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        EventListenerHandler.getSingleton().active(listenerId, listener, eventTypes);
+        return listenerId;
+    }
+
+    /**
+     * 冻结事件监听器
+     *
+     * @param listenerId 监听器ID
+     */
+    public static void frozen(final int listenerId) {
+        EventListenerHandler.getSingleton().frozen(listenerId);
+    }
+
+    /**
+     * 获取类的字节码
+     *
+     * @param clazz 类
+     * @return 类字节码
+     * @throws IOException 读取失败
+     */
+    public static byte[] toByteArray(final Class<?> clazz) throws IOException {
+        try (final InputStream is = clazz.getClassLoader().getResourceAsStream(toInternalClassName(clazz.getName()) + ".class")) {
+            return IOUtils.toByteArray(is);
+        }
+    }
+
+    /**
+     * 对类的一个方法织入事件
+     *
+     * @param byteCodeArray 类字节码
+     * @param signCode      方法签名
+     * @param listenerId    监听器ID
+     * @param eventTypes    织入的事件类型
+     * @return 织入后的字节码
+     */
+    public static byte[] weave(final byte[] byteCodeArray,
+                               final String signCode,
+                               final int listenerId,
+                               final Event.Type... eventTypes) {
+        return new EventEnhancer(NATIVE_PREFIX).toByteCodeArray(
+                BenchmarkSupport.class.getClassLoader(),
+                byteCodeArray,
+                Collections.singleton(signCode),
+                NAMESPACE,
+                listenerId,
+                eventTypes
+        );
+    }
+
+    /**
+     * 在独立的类加载器中定义类并创建实例
+     *
+     * @param javaClassName 类名
+     * @param byteCodeArray 类字节码
+     * @param <T>           实例类型
+     * @return 类实例
+     * @throws Exception 定义或实例化失败
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(final String javaClassName, final byte[] byteCodeArray) throws Exception {
+        return (T) new BenchmarkClassLoader(BenchmarkSupport.class.getClassLoader())
+                .define(javaClassName, byteCodeArray)
+                .newInstance();
+    }
+
+    /**
+     * 读取类所在jar中的所有类字节码，作为基准测试的语料
+     *
+     * @param anchorClass jar中的任意一个类
+     * @return 类字节码集合
+     * @throws IOException 读取失败
+     */
+    public static List<byte[]> loadCorpus(final Class<?> anchorClass) throws IOException {
+        final File jarFile = new File(anchorClass.getProtectionDomain().getCodeSource().getLocation().getPath());
+        final List<byte[]> corpus = new ArrayList<>();
+        try (final JarFile jar = new JarFile(jarFile)) {
+            final Enumeration<JarEntry> entries = jar.entries();
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class")
+                        || entry.getName().startsWith("META-INF/")
+                        || entry.getName().endsWith("module-info.class")) {
+                    continue;
+                }
+                try (final InputStream is = jar.getInputStream(entry)) {
+                    corpus.add(IOUtils.toByteArray(is));
+                }
+            }
+        }
+        return corpus;
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExtFilterMatcher}的匹配吞吐量
+ * <p>
+ * 语料为ASM和commons-lang3中的所有类，每次调用依次匹配下一个类
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtFilterMatcherBenchmark {
+
+    /**
+     * NAME_REGEX：按类名和方法名正则匹配；
+     * SUB_CLASS：匹配ClassVisitor及其子类，需要检索父类结构
+     */
+    @Param({"NAME_REGEX", "SUB_CLASS"})
+    public String filter;
+
+    private ExtFilterMatcher matcher;
+    private ClassStructure[] classStructures;
+    private int index;
+
+    static List<byte[]> loadCorpus() throws Exception {
+        final List<byte[]> corpus = new ArrayList<>();
+        corpus.addAll(BenchmarkSupport.loadCorpus(ClassReader.class));
+        corpus.addAll(BenchmarkSupport.loadCorpus(StringUtils.class));
+        return corpus;
+    }
+
+    static ExtFilter toExtFilter(final String filter) {
+        if ("SUB_CLASS".equals(filter)) {
+            return ExtFilter.ExtFilterFactory.make(
+                    new NameRegexFilter("org\\.objectweb\\.asm\\.ClassVisitor", "visit.*"),
+                    true,
+                    false
+            );
+        }
+        return ExtFilter.ExtFilterFactory.make(
+                new NameRegexFilter("org\\.apache\\.commons\\.lang3\\..*Utils", "is.*")
+        );
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final ClassLoader loader = getClass().getClassLoader();
+        final List<byte[]> corpus = loadCorpus();
+        classStructures = new ClassStructure[corpus.size()];
+        for (int i = 0; i < classStructures.length; i++) {
+            classStructures[i] = ClassStructureFactory.createClassStructure(corpus.get(i), loader);
+        }
+        matcher = new ExtFilterMatcher(toExtFilter(filter));
+    }
+
+    @Benchmark
+    public MatchingResult matching() {
+        if (index >= classStructures.length) {
+            index = 0;
+        }
+        return matcher.matching(classStructures[index++]);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+import com.alibaba.jvm.sandbox.api.util.GaStringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link GaPattern}与逐次匹配(String#matches/GaStringUtils#matching)的吞吐量对比
+ * <p>
+ * 语料为随机生成的50k个类名，每次调用依次匹配下一个类名
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GaPatternBenchmark {
+
+    private static final int CORPUS_SIZE = 50000;
+
+    /**
+     * 正则表达式模版以"regex:"开头，其余为通配符模版
+     */
+    @Param({
+            "regex:^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$",
+            "regex:.*Impl.*",
+            "regex:com\\..*\\.service\\..*Impl",
+            "com.alibaba.*",
+            "*Service",
+            "com.*.service.*Impl"
+    })
+    public String template;
+
+    private boolean isRegex;
+    private String pattern;
+    private GaPattern gaPattern;
+    private String[] names;
+    private int index;
+
+    static String[] corpus(final int size) {
+        final String[] packages = new String[]{
+                "java.lang.", "java.util.concurrent.", "com.alibaba.jvm.sandbox.api.",
+                "com.alibaba.jvm.sandbox.core.", "javax.annotation.", "org.springframework.beans.",
+                "com.example.order.service.", "com.example.user.dao."
+        };
+        final String[] suffixes = new String[]{
+                "", "Service", "ServiceImpl", "Impl", "Dao", "$Inner", "$$Lambda$1/123", "Resource"
+        };
+        final Random random = new Random(292);
+        final String[] names = new String[size];
+        for (int i = 0; i < size; i++) {
+            names[i] = packages[random.nextInt(packages.length)]
+                    + "Type" + random.nextInt(10000)
+                    + suffixes[random.nextInt(suffixes.length)];
+        }
+        return names;
+    }
+
+    @Setup
+    public void setup() {
+        isRegex = template.startsWith("regex:");
+        pattern = isRegex ? template.substring("regex:".length()) : template;
+        gaPattern = isRegex ? GaPattern.compileRegex(pattern) : GaPattern.compileWildcard(pattern);
+        names = corpus(CORPUS_SIZE);
+    }
+
+    private String nextName() {
+        if (index >= names.length) {
+            index = 0;
+        }
+        return names[index++];
+    }
+
+    @Benchmark
+    public boolean matchingEachTime() {
+        final String name = nextName();
+        return isRegex
+                ? name.matches(pattern)
+                : GaStringUtils.matching(name, pattern);
+    }
+
+    @Benchmark
+    public boolean matchingPrecompiled() {
+        return gaPattern.matching(nextName());
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.com.alibaba.jvm.sandbox.spy.Spy;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.benchmark.BenchmarkSupport.NAMESPACE;
+
+/**
+ * {@link Spy}的派发开销
+ * <p>
+ * 绕过织入代码直接调用Spy，衡量每种事件从Spy经过EventListenerHandler到达空监听器的开销。
+ * BEFORE必须和RETURN/THROWS成对出现才能对齐调用栈，所以放在同一个基准中；
+ * LINE和CALL_*事件只在调用过程中才会派发，由{@link InProcess}在每轮迭代前打开一个调用过程
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpyDispatchBenchmark {
+
+    private static final String CLASS_NAME = "com.example.Target";
+    private static final String METHOD_NAME = "method";
+    private static final String METHOD_DESC = "(Ljava/lang/Object;)Ljava/lang/Object;";
+
+    private final Object target = new Object();
+    private final Object returnObject = new Object();
+    private final Throwable throwable = new RuntimeException();
+
+    private int listenerId;
+    private int classLoaderObjectId;
+
+    @Setup
+    public void setup() {
+        listenerId = BenchmarkSupport.active(new BenchmarkSupport.EmptyEventListener(), Event.Type.values());
+        classLoaderObjectId = ObjectIDs.instance.identity(getClass().getClassLoader());
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkSupport.frozen(listenerId);
+    }
+
+    /**
+     * 在每轮迭代中保持一个打开的调用过程
+     */
+    @State(Scope.Thread)
+    public static class InProcess {
+
+        private SpyDispatchBenchmark benchmark;
+
+        @Setup(Level.Iteration)
+        public void open(final SpyDispatchBenchmark benchmark) throws Throwable {
+            this.benchmark = benchmark;
+            benchmark.before();
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws Throwable {
+            Spy.spyMethodOnReturn(benchmark.returnObject, NAMESPACE, benchmark.listenerId);
+        }
+
+    }
+
+    private Spy.Ret before() throws Throwable {
+        return Spy.spyMethodOnBefore(
+                new Object[]{target},
+                NAMESPACE,
+                listenerId,
+                classLoaderObjectId,
+                CLASS_NAME,
+                METHOD_NAME,
+                METHOD_DESC,
+                target
+        );
+    }
+
+    @Benchmark
+    public Spy.Ret beforeAndReturn() throws Throwable {
+        before();
+        return Spy.spyMethodOnReturn(returnObject, NAMESPACE, listenerId);
+    }
+
+    @Benchmark
+    public Spy.Ret beforeAndThrows() throws Throwable {
+        before();
+        return Spy.spyMethodOnThrows(throwable, NAMESPACE, listenerId);
+    }
+
+    @Benchmark
+    public void line(final InProcess inProcess) throws Throwable {
+        Spy.spyMethodOnLine(10, NAMESPACE, listenerId);
+    }
+
+    @Benchmark
+    public void callBeforeAndReturn(final InProcess inProcess) throws Throwable {
+        Spy.spyMethodOnCallBefore(10, CLASS_NAME, METHOD_NAME, METHOD_DESC, NAMESPACE, listenerId);
+        Spy.spyMethodOnCallReturn(NAMESPACE, listenerId);
+    }
+
+    @Benchmark
+    public void callBeforeAndThrows(final InProcess inProcess) throws Throwable {
+        Spy.spyMethodOnCallBefore(10, CLASS_NAME, METHOD_NAME, METHOD_DESC, NAMESPACE, listenerId);
+        Spy.spyMethodOnCallThrows(RuntimeException.class.getName(), NAMESPACE, listenerId);
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import java.lang.instrument.ClassDefinition;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.instrument.Instrumentation;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.jar.JarFile;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+
+/**
+ * 只包含合成类的Instrumentation
+ * <p>
+ * {@link #getAllLoadedClasses()}只返回合成类；{@link #retransformClasses(Class[])}会让所有可重新形变的
+ * 形变器处理类的原始字节码，但不会真的重新定义类，这样watch()/delete()的检索和织入开销都能被测量到
+ * </p>
+ */
+public class SyntheticInstrumentation implements Instrumentation {
+
+    private final Map<Class<?>, byte[]> byteCodeMap = new IdentityHashMap<>();
+    private final List<ClassFileTransformer> transformers = new CopyOnWriteArrayList<>();
+    private final Class<?>[] loadedClasses;
+
+    public SyntheticInstrumentation(final Map<Class<?>, byte[]> byteCodeMap) {
+        this.byteCodeMap.putAll(byteCodeMap);
+        this.loadedClasses = byteCodeMap.keySet().toArray(new Class<?>[0]);
+    }
+
+    @Override
+    public void addTransformer(ClassFileTransformer transformer, boolean canRetransform) {
+        if (canRetransform) {
+            transformers.add(transformer);
+        }
+    }
+
+    @Override
+    public void addTransformer(ClassFileTransformer transformer) {
+
+    }
+
+    @Override
+    public boolean removeTransformer(ClassFileTransformer transformer) {
+        return transformers.remove(transformer);
+    }
+
+    @Override
+    public boolean isRetransformClassesSupported() {
+        return true;
+    }
+
+    @Override
+    public void retransformClasses(Class<?>... classes) {
+        for (final Class<?> clazz : classes) {
+            byte[] byteCodeArray = byteCodeMap.get(clazz);
+            for (final ClassFileTransformer transformer : transformers) {
+                try {
+                    final byte[] transformed = transformer.transform(
+                            clazz.getClassLoader(),
+                            toInternalClassName(clazz.getName()),
+                            clazz,
+                            clazz.getProtectionDomain(),
+                            byteCodeArray
+                    );
+                    if (null != transformed) {
+                        byteCodeArray = transformed;
+                    }
+                } catch (IllegalClassFormatException cause) {
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isRedefineClassesSupported() {
+        return false;
+    }
+
+    @Override
+    public void redefineClasses(ClassDefinition... definitions) {
+
+    }
+
+    @Override
+    public boolean isModifiableClass(Class<?> theClass) {
+        return byteCodeMap.containsKey(theClass);
+    }
+
+    @Override
+    public Class<?>[] getAllLoadedClasses() {
+        return loadedClasses.clone();
+    }
+
+    @Override
+    public Class<?>[] getInitiatedClasses(ClassLoader loader) {
+        return new Class<?>[0];
+    }
+
+    @Override
+    public long getObjectSize(Object objectToSize) {
+        return 0;
+    }
+
+    @Override
+    public void appendToBootstrapClassLoaderSearch(JarFile jarfile) {
+
+    }
+
+    @Override
+    public void appendToSystemClassLoaderSearch(JarFile jarfile) {
+
+    }
+
+    @Override
+    public boolean isNativeMethodPrefixSupported() {
+        return false;
+    }
+
+    @Override
+    public void setNativeMethodPrefix(ClassFileTransformer transformer, String prefix) {
+
+    }
+
+}
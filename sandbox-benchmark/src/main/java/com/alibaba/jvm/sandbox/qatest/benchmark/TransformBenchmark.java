@@ -0,0 +1,77 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.manager.impl.ModuleEventWatcherFactory;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import org.objectweb.asm.ClassReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.benchmark.BenchmarkSupport.NAMESPACE;
+
+/**
+ * SandboxClassFileTransformer#transform()的吞吐量
+ * <p>
+ * 语料和{@link ExtFilterMatcherBenchmark}相同，每次调用依次形变下一个类，
+ * 未命中的类只有匹配的开销，命中的类还包括织入的开销
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmark {
+
+    @Param({"NAME_REGEX", "SUB_CLASS"})
+    public String filter;
+
+    private ClassFileTransformer transformer;
+    private ClassLoader loader;
+    private String[] internalClassNames;
+    private byte[][] byteCodeArrays;
+    private int index;
+
+    @Setup
+    public void setup() throws Exception {
+        final List<byte[]> corpus = ExtFilterMatcherBenchmark.loadCorpus();
+        byteCodeArrays = corpus.toArray(new byte[0][]);
+        internalClassNames = new String[byteCodeArrays.length];
+        for (int i = 0; i < byteCodeArrays.length; i++) {
+            internalClassNames[i] = new ClassReader(byteCodeArrays[i]).getClassName();
+        }
+        loader = new BenchmarkClassLoader(getClass().getClassLoader());
+        transformer = ModuleEventWatcherFactory.newClassFileTransformer(
+                1,
+                "benchmark",
+                new ExtFilterMatcher(ExtFilterMatcherBenchmark.toExtFilter(filter)),
+                new BenchmarkSupport.EmptyEventListener(),
+                NAMESPACE,
+                Event.Type.BEFORE, Event.Type.RETURN, Event.Type.THROWS
+        );
+    }
+
+    @Benchmark
+    public byte[] transform() throws Exception {
+        if (index >= byteCodeArrays.length) {
+            index = 0;
+        }
+        final int current = index++;
+        return transformer.transform(loader, internalClassNames[current], null, null, byteCodeArrays[current]);
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.manager.impl.ModuleEventWatcherFactory;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.qatest.benchmark.BenchmarkSupport.NAMESPACE;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * watch()/delete()的耗时
+ * <p>
+ * JVM中已加载的类由{@link SyntheticInstrumentation}提供，全部是合成类，每个包100个类。
+ * 观察条件只命中类名以000结尾的类(千分之一)，所以耗时主要在已加载类的检索和匹配上
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WatchBenchmark {
+
+    private static final int CLASSES_PER_PACKAGE = 100;
+
+    private static final Filter FILTER = new NameRegexFilter("synthetic\\.p\\d+\\.Synthetic\\d*000", "call");
+
+    @State(Scope.Benchmark)
+    public static class Environment {
+
+        @Param({"10000", "50000"})
+        public int classes;
+
+        private ModuleEventWatcher watcher;
+
+        @Setup
+        public void setup() {
+            final BenchmarkClassLoader loader = new BenchmarkClassLoader(getClass().getClassLoader());
+            final Map<Class<?>, byte[]> byteCodeMap = new HashMap<>();
+            for (int index = 0; index < classes; index++) {
+                final String javaClassName = String.format("synthetic.p%d.Synthetic%d", index / CLASSES_PER_PACKAGE, index);
+                final byte[] byteCodeArray = toSyntheticClass(javaClassName);
+                byteCodeMap.put(loader.define(javaClassName, byteCodeArray), byteCodeArray);
+            }
+            watcher = ModuleEventWatcherFactory.newModuleEventWatcher(
+                    new SyntheticInstrumentation(byteCodeMap),
+                    new CoreModule("benchmark", null, null, null).markActivated(true),
+                    NAMESPACE,
+                    64
+            );
+        }
+
+        int watch() {
+            return watcher.watch(FILTER, new BenchmarkSupport.EmptyEventListener(), Event.Type.BEFORE, Event.Type.RETURN, Event.Type.THROWS);
+        }
+
+        void delete(final int watchId) {
+            watcher.delete(watchId);
+        }
+
+    }
+
+    /*
+     * public class ${javaClassName} {
+     *     public int call(int value) { return value + 1; }
+     * }
+     */
+    private static byte[] toSyntheticClass(final String javaClassName) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, javaClassName.replace('.', '/'), null, "java/lang/Object", null);
+
+        final MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        final MethodVisitor call = cw.visitMethod(ACC_PUBLIC, "call", "(I)I", null, null);
+        call.visitCode();
+        call.visitVarInsn(ILOAD, 1);
+        call.visitInsn(ICONST_1);
+        call.visitInsn(IADD);
+        call.visitInsn(IRETURN);
+        call.visitMaxs(0, 0);
+        call.visitEnd();
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /**
+     * 每次测量后删除观察
+     */
+    @State(Scope.Thread)
+    public static class Watched {
+
+        private int watchId;
+
+        @TearDown(Level.Invocation)
+        public void delete(final Environment environment) {
+            environment.delete(watchId);
+        }
+
+    }
+
+    /**
+     * 每次测量前创建观察
+     */
+    @State(Scope.Thread)
+    public static class ToDelete {
+
+        private int watchId;
+
+        @Setup(Level.Invocation)
+        public void watch(final Environment environment) {
+            watchId = environment.watch();
+        }
+
+    }
+
+    @Benchmark
+    public int watch(final Environment environment, final Watched watched) {
+        return watched.watchId = environment.watch();
+    }
+
+    @Benchmark
+    public void delete(final Environment environment, final ToDelete toDelete) {
+        environment.delete(toDelete.watchId);
+    }
+
+}
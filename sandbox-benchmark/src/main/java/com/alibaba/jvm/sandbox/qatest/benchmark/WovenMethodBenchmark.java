@@ -0,0 +1,80 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.qatest.benchmark.target.Calculator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntBinaryOperator;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 织入前后的方法调用开销
+ * <p>
+ * 0个监听器时调用的是原始类；多个监听器时和多次watch()一样，在上一次织入的结果上继续织入
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WovenMethodBenchmark {
+
+    static final String SIGN_CODE = Calculator.class.getName() + "#applyAsInt(int,int)";
+
+    @Param({"0", "1", "5"})
+    public int listeners;
+
+    @Param({"AROUND", "LINE_AND_CALL"})
+    public String events;
+
+    private int[] listenerIds;
+    private IntBinaryOperator calculator;
+    private int a = 1;
+    private int b = 2;
+
+    static Event.Type[] toEventTypes(final String events) {
+        return "AROUND".equals(events)
+                ? new Event.Type[]{BEFORE, RETURN, THROWS}
+                : new Event.Type[]{BEFORE, RETURN, THROWS, LINE, CALL_BEFORE, CALL_RETURN, CALL_THROWS};
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        final Event.Type[] eventTypes = toEventTypes(events);
+        byte[] byteCodeArray = BenchmarkSupport.toByteArray(Calculator.class);
+        listenerIds = new int[listeners];
+        for (int index = 0; index < listeners; index++) {
+            listenerIds[index] = BenchmarkSupport.active(new BenchmarkSupport.EmptyEventListener(), eventTypes);
+            byteCodeArray = BenchmarkSupport.weave(byteCodeArray, SIGN_CODE, listenerIds[index], eventTypes);
+        }
+        calculator = BenchmarkSupport.newInstance(Calculator.class.getName(), byteCodeArray);
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (final int listenerId : listenerIds) {
+            BenchmarkSupport.frozen(listenerId);
+        }
+    }
+
+    @Benchmark
+    public int invoke() {
+        return calculator.applyAsInt(a, b);
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.alibaba.jvm.sandbox.qatest.benchmark.target;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * 基准测试的靶机类
+ * <p>
+ * 织入后的类在独立的类加载器中定义，通过父加载器可见的{@link IntBinaryOperator}接口调用，避免反射的开销
+ * </p>
+ */
+public class Calculator implements IntBinaryOperator {
+
+    @Override
+    public int applyAsInt(int a, int b) {
+        final int r = add(a, b);
+        return r;
+    }
+
+    private int add(int a, int b) {
+        return a + b;
+    }
+
+}
@@ -51,6 +51,18 @@ public @interface Information {
      */
     boolean isActiveOnLoad() default true;
 
+    /**
+     * 是否延迟加载模块
+     * <p>
+     * 延迟加载的模块在沙箱加载时只根据本注解的信息完成注册，不会加载模块类、注入资源或通知生命周期；
+     * 直到模块第一次收到HTTP命令或者被{@code ModuleManager#active(String)}激活时才真正实例化。
+     * 适用于很少被使用的工具型模块，可以缩短沙箱启动的耗时和常驻的内存
+     * </p>
+     *
+     * @return 当值为TRUE时，模块延迟到第一次使用时才实例化，{@link #isActiveOnLoad()}在实例化时生效
+     */
+    boolean isLazy() default false;
+
     /**
      * 定义模块版本号
      *
@@ -198,4 +198,39 @@ public interface ConfigInfo {
      */
     String getVersion();
 
+    /**
+     * 就绪状态：模块加载中
+     *
+     * @since {@code sandbox-common-api:1.4.0}
+     */
+    String READINESS_LOADING = "LOADING";
+
+    /**
+     * 就绪状态：已就绪
+     *
+     * @since {@code sandbox-common-api:1.4.0}
+     */
+    String READINESS_READY = "READY";
+
+    /**
+     * 就绪状态：启动失败
+     * <p>
+     * 只会出现在{@code bootstrap=async}启动时的结果文件中，启动失败时沙箱不会对外提供服务
+     * </p>
+     *
+     * @since {@code sandbox-common-api:1.4.0}
+     */
+    String READINESS_FAILED = "FAILED";
+
+    /**
+     * 获取沙箱就绪状态
+     * <p>
+     * HTTP服务启动后模块仍在加载时为{@link #READINESS_LOADING}，所有模块加载完成后为{@link #READINESS_READY}
+     * </p>
+     *
+     * @return 沙箱就绪状态
+     * @since {@code sandbox-common-api:1.4.0}
+     */
+    String getReadiness();
+
 }
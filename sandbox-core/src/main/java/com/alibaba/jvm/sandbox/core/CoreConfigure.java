@@ -1,6 +1,7 @@
 package com.alibaba.jvm.sandbox.core;
 
 import com.alibaba.jvm.sandbox.api.Information;
+import com.alibaba.jvm.sandbox.api.resource.ConfigInfo;
 import com.alibaba.jvm.sandbox.core.util.FeatureCodec;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -41,6 +42,15 @@ public class CoreConfigure {
 
     private static final String KEY_UNSAFE_ENABLE = "unsafe.enable";
     private static final String KEY_NATIVE_SUPPORTED = "native.supported";
+    private static final String KEY_SCAN_PARALLELISM = "scan.parallelism";
+    private static final String KEY_RETRANSFORM_BATCH_SIZE = "retransform.batch.size";
+    private static final int DEFAULT_VAL_RETRANSFORM_BATCH_SIZE = 64;
+    private static final String KEY_MODULE_SHARED_LIB_PATH = "module.shared.lib";
+    private static final String KEY_MODULE_LOAD_PARALLELISM = "module.load.parallelism";
+    private static final int DEFAULT_VAL_MODULE_LOAD_PARALLELISM = 4;
+    private static final String KEY_WOVEN_CACHE_ENABLE = "woven.cache.enable";
+    private static final String KEY_WOVEN_CACHE_SIZE_MB = "woven.cache.size.mb";
+    private static final int DEFAULT_VAL_WOVEN_CACHE_SIZE_MB = 16;
 
     // 受保护key数组，在保护key范围之内，以用户传递的配置为准，系统配置不允许覆盖
     private static final String[] PROTECT_KEY_ARRAY = {KEY_NAMESPACE, KEY_SANDBOX_HOME, KEY_LAUNCH_MODE, KEY_SERVER_IP, KEY_SERVER_PORT, KEY_SERVER_CHARSET};
@@ -52,6 +62,9 @@ public class CoreConfigure {
 
     private final Map<String, String> featureMap = new LinkedHashMap<>();
 
+    // 就绪状态在启动过程中会被其他线程读取，所以不放在featureMap中
+    private volatile String readiness = ConfigInfo.READINESS_LOADING;
+
     private CoreConfigure(final String featureString,
                           final String propertiesFilePath) {
         final Map<String, String> featureMap = toFeatureMap(featureString);
@@ -291,6 +304,94 @@ public class CoreConfigure {
         return BooleanUtils.toBoolean(featureMap.get(KEY_UNSAFE_ENABLE));
     }
 
+    /**
+     * 获取已加载类扫描的并行度
+     * <p>
+     * 小于等于1时为串行扫描；大于1时在watch/delete检索已加载类时启用有界的ForkJoin线程池并行匹配，
+     * 实际并行度不会超过当前可用CPU数
+     * </p>
+     *
+     * @return scan.parallelism
+     */
+    public int getScanParallelism() {
+        return NumberUtils.toInt(featureMap.get(KEY_SCAN_PARALLELISM), 1);
+    }
+
+    /**
+     * 获取每批形变的类数量
+     * <p>
+     * 批量形变可以减少{@link java.lang.instrument.Instrumentation#retransformClasses(Class[])}的调用次数和安全点停顿，
+     * 小于等于1时退化为逐个类形变
+     * </p>
+     *
+     * @return retransform.batch.size
+     */
+    public int getReTransformBatchSize() {
+        return NumberUtils.toInt(featureMap.get(KEY_RETRANSFORM_BATCH_SIZE), DEFAULT_VAL_RETRANSFORM_BATCH_SIZE);
+    }
+
+    /**
+     * 获取模块共享库目录
+     * <p>
+     * 目录下的每个Jar文件都是一个共享库，模块Jar中与共享库完全相同的类只在共享库中加载一次，
+     * 版本不同时模块仍然使用自己打包的版本；不配置时不启用
+     * </p>
+     *
+     * @return module.shared.lib
+     */
+    public String getModuleSharedLibPath() {
+        final String path = featureMap.get(KEY_MODULE_SHARED_LIB_PATH);
+        return StringUtils.isBlank(path)
+                ? path
+                : replaceWithSysPropUserHome(new String[]{path})[0];
+    }
+
+    /**
+     * 获取模块jar文件预加载的并行度
+     * <p>
+     * 重置沙箱和强制刷新时，模块jar文件的复制、ModuleJarClassLoader的创建和SPI发现会并行进行，
+     * 小于等于1时逐个预加载，实际并行度不会超过模块jar文件数和当前可用CPU数
+     * </p>
+     *
+     * @return module.load.parallelism
+     */
+    public int getModuleLoadParallelism() {
+        return NumberUtils.toInt(featureMap.get(KEY_MODULE_LOAD_PARALLELISM), DEFAULT_VAL_MODULE_LOAD_PARALLELISM);
+    }
+
+    /**
+     * 是否启用增强字节码的内存缓存
+     *
+     * @return woven.cache.enable
+     */
+    public boolean isEnableWovenCache() {
+        return BooleanUtils.toBoolean(featureMap.get(KEY_WOVEN_CACHE_ENABLE));
+    }
+
+    /**
+     * 获取增强字节码内存缓存的容量
+     *
+     * @return woven.cache.size.mb，单位字节
+     */
+    public int getWovenCacheSize() {
+        final int sizeMb = NumberUtils.toInt(featureMap.get(KEY_WOVEN_CACHE_SIZE_MB), DEFAULT_VAL_WOVEN_CACHE_SIZE_MB);
+        return Math.max(1, Math.min(sizeMb, 256)) * 1024 * 1024;
+    }
+
+    /**
+     * 获取持久化观察的定义文件
+     * <p>
+     * 位于沙箱安装目录的watch目录下，不同命名空间使用不同的定义文件
+     * </p>
+     *
+     * @return 定义文件，未指定沙箱安装目录时返回null
+     */
+    public File getPersistentWatchFile() {
+        return StringUtils.isBlank(getJvmSandboxHome())
+                ? null
+                : new File(getJvmSandboxHome() + File.separator + "watch" + File.separator + "persistent-watch-" + getNamespace() + ".properties");
+    }
+
     /**
      * 获取沙箱安装目录
      *
@@ -366,4 +467,22 @@ public class CoreConfigure {
         return BooleanUtils.toBoolean(featureMap.get(KEY_NATIVE_SUPPORTED));
     }
 
+    /**
+     * 设置沙箱就绪状态
+     *
+     * @param readiness {@link ConfigInfo#READINESS_LOADING} | {@link ConfigInfo#READINESS_READY}
+     */
+    public void setReadiness(final String readiness) {
+        this.readiness = readiness;
+    }
+
+    /**
+     * 获取沙箱就绪状态
+     *
+     * @return {@link ConfigInfo#READINESS_LOADING} | {@link ConfigInfo#READINESS_READY}
+     */
+    public String getReadiness() {
+        return readiness;
+    }
+
 }
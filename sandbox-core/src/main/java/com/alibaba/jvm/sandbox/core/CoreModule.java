@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core;
 
+import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
 import com.alibaba.jvm.sandbox.core.manager.impl.SandboxClassFileTransformer;
@@ -15,6 +16,10 @@ import java.util.*;
  * <p>
  *     CoreModule是对{@link Module}的封装,它包含了模块的唯一标识符,归属Jar文件, 是否已加载...
  * </p>
+ * <p>
+ *     模块的加载、激活、冻结和卸载都在CoreModule对象上同步，不同模块的生命周期变更互不阻塞，
+ *     所以状态标记需要保证对未持有锁的读者可见
+ * </p>
  *
  * @author luanjia@taobao.com
  */
@@ -31,8 +36,14 @@ public class CoreModule {
     // 模块加载的ClassLoader
     private final ModuleJarClassLoader loader;
 
-    // 模块
-    private final Module module;
+    // 模块类名
+    private final String moduleClassName;
+
+    // 模块信息
+    private final Information information;
+
+    // 模块，延迟加载的模块在实例化之前为null
+    private volatile Module module;
 
     // 模块的类转换器。用于完成对匹配到的类和方法进行字节码增强
     private final Set<SandboxClassFileTransformer> sandboxClassFileTransformers = new LinkedHashSet<>();
@@ -41,10 +52,10 @@ public class CoreModule {
     private final List<ReleaseResource<?>> releaseResources = new ArrayList<>();
 
     // 是否已经激活
-    private boolean isActivated;
+    private volatile boolean isActivated;
 
     // 是否已被加载
-    private boolean isLoaded;
+    private volatile boolean isLoaded;
 
     /**
      * 模块业务对象
@@ -62,6 +73,29 @@ public class CoreModule {
         this.jarFile = jarFile;
         this.loader = loader;
         this.module = module;
+        this.moduleClassName = null == module ? null : module.getClass().getName();
+        this.information = null == module ? null : module.getClass().getAnnotation(Information.class);
+    }
+
+    /**
+     * 延迟加载的模块业务对象，模块需要在第一次使用时实例化
+     *
+     * @param uniqueId        模块ID
+     * @param jarFile         模块归属Jar文件
+     * @param loader          模块加载ClassLoader
+     * @param moduleClassName 模块类名
+     * @param information     模块信息
+     */
+    public CoreModule(final String uniqueId,
+                      final File jarFile,
+                      final ModuleJarClassLoader loader,
+                      final String moduleClassName,
+                      final Information information) {
+        this.uniqueId = uniqueId;
+        this.jarFile = jarFile;
+        this.loader = loader;
+        this.moduleClassName = moduleClassName;
+        this.information = information;
     }
 
     /**
@@ -135,12 +169,50 @@ public class CoreModule {
     /**
      * 获取模块实例
      *
-     * @return 模块实例
+     * @return 模块实例，延迟加载的模块在实例化之前返回null
      */
     public Module getModule() {
         return module;
     }
 
+    /**
+     * 判断模块是否已经实例化
+     *
+     * @return TRUE:已实例化;FALSE:延迟加载的模块尚未实例化
+     */
+    public boolean isInstantiated() {
+        return null != module;
+    }
+
+    /**
+     * 标记延迟加载的模块已经实例化
+     *
+     * @param module 模块实例
+     * @return this
+     */
+    public CoreModule markInstantiated(final Module module) {
+        this.module = module;
+        return this;
+    }
+
+    /**
+     * 获取模块类名
+     *
+     * @return 模块类名
+     */
+    public String getModuleClassName() {
+        return moduleClassName;
+    }
+
+    /**
+     * 获取模块信息
+     *
+     * @return 模块信息
+     */
+    public Information getInformation() {
+        return information;
+    }
+
     /**
      * 获取模块所创建的SandboxClassFileTransformer集合
      *
@@ -181,7 +253,7 @@ public class CoreModule {
         return String.format(
                 "module[id=%s;class=%s;]",
                 uniqueId,
-                module.getClass()
+                moduleClassName
         );
     }
 
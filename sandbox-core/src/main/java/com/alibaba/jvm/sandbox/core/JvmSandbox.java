@@ -1,9 +1,12 @@
 package com.alibaba.jvm.sandbox.core;
 
+import com.alibaba.jvm.sandbox.api.Information;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
 import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultProviderManager;
+import com.alibaba.jvm.sandbox.core.manager.impl.PersistentWatchRegistry;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.SpyUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -39,6 +42,21 @@ public class JvmSandbox {
      */
     private final CoreModuleManager coreModuleManager;
 
+    /**
+     * 已加载类数据源
+     */
+    private final DefaultCoreLoadedClassDataSource classDataSource;
+
+    /**
+     * 增强字节码缓存，为null时不启用
+     */
+    private final WovenByteCodeCache wovenByteCodeCache;
+
+    /**
+     * 持久化观察注册表
+     */
+    private final PersistentWatchRegistry persistentWatchRegistry;
+
     /**
      * 判断当前是否允许对 native 方法进行增强
      *
@@ -68,16 +86,39 @@ public class JvmSandbox {
         // 是否支持Native方法增强
         cfg.setNativeSupported(isNativeSupported(inst));
 
+        // 已加载类数据源，watch/delete时用于检索需要重新形变的类
+        this.classDataSource = new DefaultCoreLoadedClassDataSource(
+                inst,
+                cfg.isEnableUnsafe(),
+                cfg.isNativeSupported(),
+                cfg.getScanParallelism()
+        );
+
+        // 增强字节码缓存，重新形变时对同样的类施加同样的观察可以跳过织入
+        this.wovenByteCodeCache = cfg.isEnableWovenCache()
+                ? new WovenByteCodeCache(cfg.getWovenCacheSize())
+                : null;
+
+        // 持久化观察注册表，读取上次保存的持久化观察定义
+        this.persistentWatchRegistry = new PersistentWatchRegistry(cfg, inst, classDataSource, wovenByteCodeCache);
+
         // 创建模块管理器，它用于管理所有模块{@link Module}
         this.coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
                 cfg,
                 inst,
-                new DefaultCoreLoadedClassDataSource(inst, cfg.isEnableUnsafe(), cfg.isNativeSupported()),
-                new DefaultProviderManager(cfg)
+                classDataSource,
+                new DefaultProviderManager(cfg),
+                wovenByteCodeCache,
+                persistentWatchRegistry
         ));
 
         // 完成对Jvm Sandbox的初始化操作
         init();
+
+        // AGENT模式下此时应用还没有开始加载类，提前注册持久化观察，类在首次定义时就会被织入
+        if (cfg.getLaunchMode() == Information.Mode.AGENT) {
+            persistentWatchRegistry.preRegister();
+        }
     }
 
     private void init() {
@@ -117,6 +158,14 @@ public class JvmSandbox {
         // 卸载所有的模块
         coreModuleManager.unloadAll();
 
+        // 关闭已加载类索引和检索线程池
+        classDataSource.destroy();
+
+        // 关闭增强字节码缓存
+        if (null != wovenByteCodeCache) {
+            wovenByteCodeCache.close();
+        }
+
         // 清理Spy
         SpyUtils.clean(cfg.getNamespace());
 
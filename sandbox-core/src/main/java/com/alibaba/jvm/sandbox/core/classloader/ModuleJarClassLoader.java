@@ -2,7 +2,6 @@ package com.alibaba.jvm.sandbox.core.classloader;
 
 import com.alibaba.jvm.sandbox.api.annotation.Stealth;
 import com.alibaba.jvm.sandbox.api.spi.ModuleJarUnLoadSpi;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -16,6 +15,9 @@ import java.net.URLClassLoader;
 import java.security.AccessControlContext;
 import java.security.ProtectionDomain;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static com.alibaba.jvm.sandbox.api.util.GaStringUtils.getJavaClassName;
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.*;
@@ -30,8 +32,12 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final File moduleJarFile;
-    private final File tempModuleJarFile;
+    private final ModuleJarStaging.StagedJar stagedModuleJar;
     private final long checksumCRC32;
+    private boolean isStagedModuleJarReleased;
+
+    // 由当前ClassLoader定义的类，路由到其他ClassLoader加载的类不在其中
+    private final Set<String> definedJavaClassNames = ConcurrentHashMap.newKeySet();
 
 
     /**
@@ -41,26 +47,32 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
      */
     public ModuleJarClassLoader(final File moduleJarFile,
                                 final Routing... specialRouting) throws IOException {
-        this(moduleJarFile, copyToTempFile(moduleJarFile), specialRouting);
+        this(moduleJarFile, ModuleJarStaging.getSingleton().stage(moduleJarFile), null, specialRouting);
+    }
+
+    /**
+     * @param moduleJarFile            等待被加载的模块Jar文件
+     * @param sharedLibraryClassLoader 模块共享库ClassLoader，为null时不使用共享库
+     * @throws IOException
+     */
+    public ModuleJarClassLoader(final File moduleJarFile,
+                                final SharedLibraryClassLoader sharedLibraryClassLoader) throws IOException {
+        this(moduleJarFile, ModuleJarStaging.getSingleton().stage(moduleJarFile), sharedLibraryClassLoader);
     }
 
     private ModuleJarClassLoader(
             final File moduleJarFile,
-            final File tempModuleJarFile,
+            final ModuleJarStaging.StagedJar stagedModuleJar,
+            final SharedLibraryClassLoader sharedLibraryClassLoader,
             final Routing... specialRouting
     ) throws IOException {
         super(
-                new URL[]{new URL("file:" + tempModuleJarFile.getPath())},
-                assembleRouting(new Routing(
-                        ModuleJarClassLoader.class.getClassLoader(),
-                        "^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$",
-                        "^javax\\.servlet\\..*$",
-                        "^javax\\.annotation\\.Resource.*$"
-                ), specialRouting)
+                new URL[]{new URL("file:" + stagedModuleJar.getFile().getPath())},
+                assembleRouting(toSandboxApiRouting(), toSharedLibraryRouting(sharedLibraryClassLoader, stagedModuleJar), specialRouting)
         );
-        this.checksumCRC32 = FileUtils.checksumCRC32(moduleJarFile);
+        this.checksumCRC32 = stagedModuleJar.getChecksumCRC32();
         this.moduleJarFile = moduleJarFile;
-        this.tempModuleJarFile = tempModuleJarFile;
+        this.stagedModuleJar = stagedModuleJar;
 
         try {
             cleanProtectionDomainWhichCameFromModuleJarClassLoader();
@@ -71,32 +83,46 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
     }
 
     /**
-     * 复制要加载的Jar文件为临时文件，这样做的目的是为了规避Jar文件在加载和使用过程中被破坏
+     * 沙箱API路由：沙箱API、Servlet API等由沙箱的ClassLoader统一加载，模块和共享库看到的是同一份类
      *
-     * @param moduleJarFile 模块Jar文件
-     * @return 复制的临时文件
-     * @throws IOException 复制文件失败
+     * @return 沙箱API路由
      */
-    private static File copyToTempFile(final File moduleJarFile) throws IOException {
-        File tempFile = File.createTempFile("sandbox_module_jar_", ".jar");
-        tempFile.deleteOnExit();
-        FileUtils.copyFile(moduleJarFile, tempFile);
-        return tempFile;
+    static Routing toSandboxApiRouting() {
+        return new Routing(
+                ModuleJarClassLoader.class.getClassLoader(),
+                "^com\\.alibaba\\.jvm\\.sandbox\\.api\\..*$",
+                "^javax\\.servlet\\..*$",
+                "^javax\\.annotation\\.Resource.*$"
+        );
+    }
+
+    // 模块Jar中与共享库完全相同的类路由到共享库加载
+    private static Routing toSharedLibraryRouting(final SharedLibraryClassLoader sharedLibraryClassLoader,
+                                                  final ModuleJarStaging.StagedJar stagedModuleJar) {
+        return null == sharedLibraryClassLoader
+                ? null
+                : sharedLibraryClassLoader.toRouting(stagedModuleJar.getFile());
     }
 
     /**
      * 合并路由信息
      *
-     * @param selfRouting    自身路由表
-     * @param specialRouting 扩展路由表
+     * @param selfRouting          自身路由表
+     * @param sharedLibraryRouting 共享库路由表，可以为null
+     * @param specialRouting       扩展路由表
      * @return 合并完成路由信息
      */
-    private static Routing[] assembleRouting(final Routing selfRouting, final Routing... specialRouting) {
+    private static Routing[] assembleRouting(final Routing selfRouting,
+                                             final Routing sharedLibraryRouting,
+                                             final Routing... specialRouting) {
         final List<Routing> rs = new ArrayList<>();
         if (specialRouting != null && specialRouting.length > 0) {
             rs.addAll(Arrays.asList(specialRouting));
         }
         rs.add(selfRouting);
+        if (null != sharedLibraryRouting) {
+            rs.add(sharedLibraryRouting);
+        }
         return rs.toArray(new Routing[0]);
     }
 
@@ -150,7 +176,11 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
         }
     }
 
-    public void closeIfPossible() {
+    public synchronized void closeIfPossible() {
+        // 暂存文件已经释放说明已经关闭过，不再重复通知
+        if (isStagedModuleJarReleased) {
+            return;
+        }
         onJarUnLoadCompleted();
 
         // 关闭ClassLoader，释放资源
@@ -160,13 +190,61 @@ public class ModuleJarClassLoader extends RoutingURLClassLoader {
             logger.warn("close ModuleJarClassLoader[file={}] failed. JDK7+", moduleJarFile, cause);
         } finally {
 
-            // 在这里删除掉临时文件
-            FileUtils.deleteQuietly(tempModuleJarFile);
+            // 在这里释放暂存的模块Jar文件，由暂存区统一清理
+            if (!isStagedModuleJarReleased) {
+                isStagedModuleJarReleased = true;
+                // 暂存文件释放之前统计，关闭之后跟踪ClassLoader是否被回收
+                ModuleJarClassLoaderTracker.getSingleton().track(this, getDefinedClassCnt(), estimateMetaspaceBytes());
+                ModuleJarStaging.getSingleton().release(stagedModuleJar);
+            }
 
         }
 
     }
 
+    @Override
+    protected Class<?> findClass(final String javaClassName) throws ClassNotFoundException {
+        final Class<?> clazz = super.findClass(javaClassName);
+        definedJavaClassNames.add(javaClassName);
+        return clazz;
+    }
+
+    /**
+     * 获取当前ClassLoader定义的类个数
+     *
+     * @return 当前ClassLoader定义的类个数
+     */
+    public int getDefinedClassCnt() {
+        return definedJavaClassNames.size();
+    }
+
+    /**
+     * 估算当前ClassLoader定义的类占用的Metaspace
+     * <p>
+     * 类在Metaspace中的占用与类文件大小基本同一量级，这里直接累加暂存Jar文件中央目录记录的类文件大小，不需要解压
+     * </p>
+     *
+     * @return Metaspace占用字节数，暂存文件读取失败时返回-1
+     */
+    public long estimateMetaspaceBytes() {
+        if (definedJavaClassNames.isEmpty()) {
+            return 0L;
+        }
+        long metaspaceBytes = 0L;
+        try (final ZipFile zipFile = new ZipFile(stagedModuleJar.getFile())) {
+            for (final String javaClassName : definedJavaClassNames) {
+                final ZipEntry entry = zipFile.getEntry(javaClassName.replace('.', '/') + ".class");
+                if (null != entry && entry.getSize() > 0) {
+                    metaspaceBytes += entry.getSize();
+                }
+            }
+        } catch (IOException cause) {
+            logger.debug("estimate metaspace of {} failed.", this, cause);
+            return -1L;
+        }
+        return metaspaceBytes;
+    }
+
     @Override
     public String toString() {
         return String.format("ModuleJarClassLoader[crc32=%s;file=%s;]", checksumCRC32, moduleJarFile);
@@ -0,0 +1,136 @@
+package com.alibaba.jvm.sandbox.core.classloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 模块ClassLoader回收跟踪
+ * <p>
+ * {@link ModuleJarClassLoader#closeIfPossible()}之后用虚引用跟踪ClassLoader，虚引用入队说明ClassLoader连同它定义的类已经被回收。
+ * 一直没有入队的ClassLoader仍然被模块之外的地方引用，每次刷新都会在Metaspace中留下一份模块的类
+ * </p>
+ * <p>
+ * 不额外启动线程，每次跟踪和查询时顺带清理引用队列
+ * </p>
+ */
+public class ModuleJarClassLoaderTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModuleJarClassLoaderTracker.class);
+
+    // 主动GC后等待虚引用入队的时间
+    private static final long GC_WAIT_MILLIS = 200L;
+
+    private static final ModuleJarClassLoaderTracker singleton = new ModuleJarClassLoaderTracker();
+
+    public static ModuleJarClassLoaderTracker getSingleton() {
+        return singleton;
+    }
+
+    private final ReferenceQueue<ModuleJarClassLoader> queue = new ReferenceQueue<>();
+
+    // 已关闭但尚未回收的ClassLoader，虚引用本身需要保持可达才能入队
+    private final Set<ClosedLoaderReference> uncollected = ConcurrentHashMap.newKeySet();
+
+    // 已经确认回收的ClassLoader个数
+    private final AtomicLong collectedCnt = new AtomicLong();
+
+    /**
+     * 跟踪已经关闭的模块ClassLoader
+     *
+     * @param loader          已经关闭的模块ClassLoader
+     * @param definedClassCnt 关闭时ClassLoader定义的类个数
+     * @param metaspaceBytes  关闭时估算的Metaspace占用
+     */
+    void track(final ModuleJarClassLoader loader,
+               final int definedClassCnt,
+               final long metaspaceBytes) {
+        uncollected.add(new ClosedLoaderReference(loader, queue, definedClassCnt, metaspaceBytes));
+        drain(0);
+    }
+
+    /**
+     * 列出已经关闭但仍未被回收的模块ClassLoader
+     *
+     * @param isGcFirst 是否先触发一次GC
+     * @return 仍未被回收的模块ClassLoader描述
+     */
+    public List<String> listUncollected(final boolean isGcFirst) {
+        if (isGcFirst) {
+            System.gc();
+            drain(GC_WAIT_MILLIS);
+        } else {
+            drain(0);
+        }
+        final long now = System.currentTimeMillis();
+        final List<String> descriptions = new ArrayList<>();
+        for (final ClosedLoaderReference reference : uncollected) {
+            descriptions.add(String.format("%s closed=%ss ago;classes=%s;metaspace=%s;",
+                    reference.description,
+                    (now - reference.closedTimeMillis) / 1000,
+                    reference.definedClassCnt,
+                    reference.metaspaceBytes
+            ));
+        }
+        return descriptions;
+    }
+
+    /**
+     * 获取已经确认回收的模块ClassLoader个数
+     *
+     * @return 已经确认回收的模块ClassLoader个数
+     */
+    public long getCollectedCnt() {
+        drain(0);
+        return collectedCnt.get();
+    }
+
+    /*
+     * 清理引用队列，waitMillis大于0时等待引用入队，直到等待超时都没有新的引用入队为止
+     */
+    private void drain(final long waitMillis) {
+        try {
+            Reference<? extends ModuleJarClassLoader> reference;
+            while (null != (reference = waitMillis > 0 ? queue.remove(waitMillis) : queue.poll())) {
+                if (uncollected.remove(reference)) {
+                    collectedCnt.incrementAndGet();
+                    logger.info("{} collected.", ((ClosedLoaderReference) reference).description);
+                }
+                reference.clear();
+            }
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 已关闭ClassLoader的虚引用，只记录描述信息，不能持有ClassLoader本身
+     */
+    private static class ClosedLoaderReference extends PhantomReference<ModuleJarClassLoader> {
+
+        private final String description;
+        private final long closedTimeMillis = System.currentTimeMillis();
+        private final int definedClassCnt;
+        private final long metaspaceBytes;
+
+        ClosedLoaderReference(final ModuleJarClassLoader loader,
+                              final ReferenceQueue<ModuleJarClassLoader> queue,
+                              final int definedClassCnt,
+                              final long metaspaceBytes) {
+            super(loader, queue);
+            this.description = loader.toString();
+            this.definedClassCnt = definedClassCnt;
+            this.metaspaceBytes = metaspaceBytes;
+        }
+
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.alibaba.jvm.sandbox.core.classloader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/**
+ * 模块Jar文件暂存区
+ * <p>
+ * 模块Jar文件在加载前需要复制一份，以规避Jar文件在加载和使用过程中被破坏。
+ * 暂存区中的文件以内容的SHA-256命名，内容相同的模块Jar文件只会复制一次，重置沙箱和刷新模块时直接复用；
+ * CRC32不抗碰撞，只用于判断模块Jar文件是否变化，不用于命名暂存文件。
+ * 同时记录每个模块Jar文件的大小和修改时间，两者都没有变化时直接使用上次计算的摘要，不再读取文件
+ * </p>
+ * <p>
+ * 暂存文件按ModuleJarClassLoader引用计数，计数归零后并不立即删除，而是等到{@link #prune()}时再清理，
+ * 这样刷新时先卸载再加载的同一个Jar文件不需要重新复制
+ * </p>
+ */
+public class ModuleJarStaging {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModuleJarStaging.class);
+
+    private static final ModuleJarStaging singleton = new ModuleJarStaging();
+
+    public static ModuleJarStaging getSingleton() {
+        return singleton;
+    }
+
+    // 模块Jar文件路径 -> 上次计算摘要时的文件指纹
+    private final Map<String, Fingerprint> fingerprints = new ConcurrentHashMap<>();
+
+    // 暂存文件 -> 引用计数，需要在this上同步访问
+    private final Map<File, Integer> stagedRefCounts = new HashMap<>();
+
+    // 暂存目录，第一次暂存时才创建，JVM退出时删除
+    private File stagingDir;
+
+    /**
+     * 计算模块Jar文件的CRC32
+     * <p>
+     * 文件大小和修改时间都没有变化时直接返回上次计算的结果
+     * </p>
+     *
+     * @param moduleJarFile 模块Jar文件
+     * @return CRC32
+     * @throws IOException 读取文件失败
+     */
+    public long checksumCRC32(final File moduleJarFile) throws IOException {
+        final Fingerprint before = new Fingerprint(moduleJarFile);
+        final Fingerprint cached = fingerprints.get(moduleJarFile.getPath());
+        if (null != cached && cached.isSameFile(before)) {
+            return cached.checksumCRC32;
+        }
+        final CRC32 crc32 = new CRC32();
+        final MessageDigest sha256 = newSHA256Digest();
+        try (final DigestInputStream is = new DigestInputStream(
+                new CheckedInputStream(new FileInputStream(moduleJarFile), crc32), sha256)) {
+            IOUtils.copy(is, NullOutputStream.NULL_OUTPUT_STREAM);
+        }
+        cacheFingerprintIfNotChanged(moduleJarFile, before, crc32.getValue(), toHexString(sha256.digest()));
+        return crc32.getValue();
+    }
+
+    /**
+     * 暂存模块Jar文件
+     * <p>
+     * 文件指纹没有变化且暂存文件仍然存在时直接复用，否则一边复制一边计算CRC32和SHA-256，
+     * 复制完成后再按SHA-256命名，所以暂存文件的内容和名字总是一致的
+     * </p>
+     *
+     * @param moduleJarFile 模块Jar文件
+     * @return 暂存的模块Jar文件，不再使用时需要{@link #release(StagedJar)}
+     * @throws IOException 复制文件失败
+     */
+    public StagedJar stage(final File moduleJarFile) throws IOException {
+        final Fingerprint before = new Fingerprint(moduleJarFile);
+        final Fingerprint cached = fingerprints.get(moduleJarFile.getPath());
+        if (null != cached && cached.isSameFile(before)) {
+            final StagedJar stagedJar = acquireIfStaged(cached.checksumCRC32, cached.checksumSHA256);
+            if (null != stagedJar) {
+                logger.debug("module-jar not changed, reuse staged file. module-jar={};staged={};", moduleJarFile, stagedJar.getFile());
+                return stagedJar;
+            }
+        }
+
+        final File tempFile = File.createTempFile("sandbox_module_jar_", ".tmp", getStagingDir());
+        final CRC32 crc32 = new CRC32();
+        final MessageDigest sha256 = newSHA256Digest();
+        try (final DigestInputStream is = new DigestInputStream(
+                new CheckedInputStream(new FileInputStream(moduleJarFile), crc32), sha256);
+             final OutputStream os = new FileOutputStream(tempFile)) {
+            IOUtils.copy(is, os);
+        } catch (IOException cause) {
+            FileUtils.deleteQuietly(tempFile);
+            throw cause;
+        }
+
+        final long checksumCRC32 = crc32.getValue();
+        final String checksumSHA256 = toHexString(sha256.digest());
+        if (tempFile.length() == before.length) {
+            cacheFingerprintIfNotChanged(moduleJarFile, before, checksumCRC32, checksumSHA256);
+        }
+        return acquire(checksumCRC32, checksumSHA256, tempFile);
+    }
+
+    /**
+     * 释放暂存的模块Jar文件
+     *
+     * @param stagedJar 暂存的模块Jar文件
+     */
+    public synchronized void release(final StagedJar stagedJar) {
+        final Integer refCount = stagedRefCounts.get(stagedJar.getFile());
+        if (null != refCount && refCount > 0) {
+            stagedRefCounts.put(stagedJar.getFile(), refCount - 1);
+        }
+    }
+
+    /**
+     * 删除所有已经不再被引用的暂存文件
+     */
+    public synchronized void prune() {
+        final Iterator<Map.Entry<File, Integer>> it = stagedRefCounts.entrySet().iterator();
+        while (it.hasNext()) {
+            final Map.Entry<File, Integer> entry = it.next();
+            if (entry.getValue() <= 0) {
+                logger.debug("staged module-jar not referenced, will be deleted. staged={};", entry.getKey());
+                FileUtils.deleteQuietly(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    // 暂存文件的大小和修改时间与计算前一致时才记录指纹，避免把计算过程中被修改的文件记错
+    private void cacheFingerprintIfNotChanged(final File moduleJarFile,
+                                              final Fingerprint before,
+                                              final long checksumCRC32,
+                                              final String checksumSHA256) {
+        if (before.isSameFile(new Fingerprint(moduleJarFile))) {
+            fingerprints.put(
+                    moduleJarFile.getPath(),
+                    new Fingerprint(before.length, before.lastModified, checksumCRC32, checksumSHA256)
+            );
+        }
+    }
+
+    private synchronized StagedJar acquireIfStaged(final long checksumCRC32, final String checksumSHA256) {
+        final File stagedFile = toStagedFile(checksumSHA256);
+        if (!stagedFile.isFile()) {
+            return null;
+        }
+        retain(stagedFile);
+        return new StagedJar(stagedFile, checksumCRC32);
+    }
+
+    private synchronized StagedJar acquire(final long checksumCRC32,
+                                           final String checksumSHA256,
+                                           final File tempFile) throws IOException {
+        final File stagedFile = toStagedFile(checksumSHA256);
+        if (stagedFile.isFile()) {
+            FileUtils.deleteQuietly(tempFile);
+        } else {
+            try {
+                Files.move(tempFile.toPath(), stagedFile.toPath());
+            } catch (FileAlreadyExistsException cause) {
+                FileUtils.deleteQuietly(tempFile);
+            }
+            stagedFile.deleteOnExit();
+        }
+        retain(stagedFile);
+        return new StagedJar(stagedFile, checksumCRC32);
+    }
+
+    private void retain(final File stagedFile) {
+        final Integer refCount = stagedRefCounts.get(stagedFile);
+        stagedRefCounts.put(stagedFile, null == refCount ? 1 : refCount + 1);
+    }
+
+    private File toStagedFile(final String checksumSHA256) {
+        return new File(getStagingDir(), checksumSHA256 + ".jar");
+    }
+
+    private static MessageDigest newSHA256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException cause) {
+            throw new IllegalStateException("SHA-256 not supported.", cause);
+        }
+    }
+
+    private static String toHexString(final byte[] bytes) {
+        final StringBuilder hexSB = new StringBuilder(bytes.length * 2);
+        for (final byte b : bytes) {
+            hexSB.append(String.format("%02x", b & 0xff));
+        }
+        return hexSB.toString();
+    }
+
+    private synchronized File getStagingDir() {
+        if (null == stagingDir
+                || !stagingDir.isDirectory()) {
+            try {
+                stagingDir = Files.createTempDirectory("sandbox_module_staging_").toFile();
+            } catch (IOException cause) {
+                throw new IllegalStateException("create module-jar staging dir failed.", cause);
+            }
+            // 目录先于其中的文件注册，JVM退出时会后于文件被删除
+            stagingDir.deleteOnExit();
+            stagedRefCounts.clear();
+            logger.info("module-jar staging dir created, dir={};", stagingDir);
+        }
+        return stagingDir;
+    }
+
+    /**
+     * 文件指纹
+     */
+    private static class Fingerprint {
+
+        private final long length;
+        private final long lastModified;
+        private final long checksumCRC32;
+        private final String checksumSHA256;
+
+        Fingerprint(final File file) {
+            this(file.length(), file.lastModified(), 0, null);
+        }
+
+        Fingerprint(final long length,
+                    final long lastModified,
+                    final long checksumCRC32,
+                    final String checksumSHA256) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.checksumCRC32 = checksumCRC32;
+            this.checksumSHA256 = checksumSHA256;
+        }
+
+        boolean isSameFile(final Fingerprint fingerprint) {
+            return length == fingerprint.length
+                    && lastModified == fingerprint.lastModified
+                    && lastModified != 0L;
+        }
+
+    }
+
+    /**
+     * 暂存的模块Jar文件
+     */
+    public static class StagedJar {
+
+        private final File file;
+        private final long checksumCRC32;
+
+        StagedJar(final File file, final long checksumCRC32) {
+            this.file = file;
+            this.checksumCRC32 = checksumCRC32;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getChecksumCRC32() {
+            return checksumCRC32;
+        }
+
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.classloader;
 
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
 import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +11,12 @@ import java.net.URLClassLoader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Set;
 
 /**
  * 可路由的URLClassLoader
@@ -21,15 +27,30 @@ public class RoutingURLClassLoader extends URLClassLoader {
 
     private static final Logger logger = LoggerFactory.getLogger(RoutingURLClassLoader.class);
 
+    private static final Routing[] EMPTY_ROUTING_ARRAY = new Routing[0];
+
+    /**
+     * 路由决策缓存的容量上限
+     * <p>
+     * 类名来自调用方，可能是任意的字符串，缓存满了之后不再缓存新的决策，只是回退到查询路由表
+     * </p>
+     */
+    private static final int MAX_ROUTING_DECISION_CACHE_SIZE = 8192;
+
+    /**
+     * 预编译的路由表
+     */
+    private final RoutingTable routingTable;
+
     /**
-     * 路由规则
+     * 路由决策缓存，key: Java类名, value: 按顺序命中的路由规则，没有命中时为空数组
      */
-    private final Routing[] routingArray;
+    private final Map<String, Routing[]> routingDecisionCache = new ConcurrentHashMap<>();
 
     public RoutingURLClassLoader(final URL[] urls,
                                  final Routing... routingArray) {
         super(urls);
-        this.routingArray = routingArray;
+        this.routingTable = new RoutingTable(routingArray);
     }
 
     @Override
@@ -56,20 +77,15 @@ public class RoutingURLClassLoader extends URLClassLoader {
     @Override
     protected Class<?> loadClass(final String javaClassName, final boolean resolve) throws ClassNotFoundException {
         // 优先查询类加载路由表,如果命中路由规则,则优先从路由表中的ClassLoader完成类加载
-        if (ArrayUtils.isNotEmpty(routingArray)) {
-            for (final Routing routing : routingArray) {
-                if (!routing.isHit(javaClassName)) {
-                    continue;
-                }
-                final ClassLoader routingClassLoader = routing.classLoader;
-                try {
-                    // 如果命中路由规则,则优先通过路由表中的ClassLoader完成类加载
-                    return routingClassLoader.loadClass(javaClassName);
-                } catch (Exception cause) {
-                    // 如果在当前routingClassLoader中找不到应该优先加载的类(应该不可能，但不排除有就是故意命名成同名类)
-                    // 此时应该忽略异常，继续往下加载
-                    // ignore...
-                }
+        for (final Routing routing : route(javaClassName)) {
+            final ClassLoader routingClassLoader = routing.classLoader;
+            try {
+                // 如果命中路由规则,则优先通过路由表中的ClassLoader完成类加载
+                return routingClassLoader.loadClass(javaClassName);
+            } catch (Exception cause) {
+                // 如果在当前routingClassLoader中找不到应该优先加载的类(应该不可能，但不排除有就是故意命名成同名类)
+                // 此时应该忽略异常，继续往下加载
+                // ignore...
             }
         }
 
@@ -91,15 +107,166 @@ public class RoutingURLClassLoader extends URLClassLoader {
     }
 
 
+    /**
+     * 查询Java类名命中的路由规则
+     * <p>
+     * 路由规则在构造之后不再变化，同一个类名的决策总是相同的，所以命中和未命中的决策都可以缓存
+     * </p>
+     *
+     * @param javaClassName Java类名
+     * @return 按路由规则顺序排列的命中规则，没有命中时为空数组
+     */
+    private Routing[] route(final String javaClassName) {
+        if (routingTable.isEmpty()) {
+            return EMPTY_ROUTING_ARRAY;
+        }
+        final Routing[] cached = routingDecisionCache.get(javaClassName);
+        if (null != cached) {
+            return cached;
+        }
+        final Routing[] decision = routingTable.route(javaClassName);
+        if (routingDecisionCache.size() < MAX_ROUTING_DECISION_CACHE_SIZE) {
+            routingDecisionCache.put(javaClassName, decision);
+        }
+        return decision;
+    }
+
+    /**
+     * 预编译的路由表
+     * <p>
+     * 所有路由规则的匹配模版按{@link GaPattern#getRequiredPrefix()}放入一棵前缀树，
+     * 查询时沿着类名走一遍前缀树就能得到可能命中的模版，只有这些模版需要真正参与匹配，
+     * 不必再逐条匹配所有路由规则。命中结果仍然按照路由规则声明的顺序排列
+     * </p>
+     */
+    private static class RoutingTable {
+
+        private final Routing[] routingArray;
+        private final TrieNode root = new TrieNode();
+
+        RoutingTable(final Routing[] routingArray) {
+            this.routingArray = null == routingArray
+                    ? EMPTY_ROUTING_ARRAY
+                    : routingArray;
+            for (int index = 0; index < this.routingArray.length; index++) {
+                for (final GaPattern regexExpress : this.routingArray[index].regexExpresses) {
+                    root.put(regexExpress.getRequiredPrefix(), index, regexExpress);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return routingArray.length == 0;
+        }
+
+        Routing[] route(final String javaClassName) {
+            final boolean[] isHits = new boolean[routingArray.length];
+            int hitCnt = 0;
+
+            // 按类名精确匹配
+            for (int index = 0; index < routingArray.length; index++) {
+                if (routingArray[index].javaClassNames.contains(javaClassName)) {
+                    isHits[index] = true;
+                    hitCnt++;
+                }
+            }
+
+            // 沿着类名遍历前缀树，前缀吻合的模版才需要匹配
+            TrieNode node = root;
+            for (int offset = 0; null != node && hitCnt < routingArray.length; offset++) {
+                for (final RegexRule rule : node.rules) {
+                    if (!isHits[rule.routingIndex]
+                            && rule.regexExpress.matching(javaClassName)) {
+                        isHits[rule.routingIndex] = true;
+                        hitCnt++;
+                    }
+                }
+                node = offset < javaClassName.length()
+                        ? node.get(javaClassName.charAt(offset))
+                        : null;
+            }
+
+            if (hitCnt == 0) {
+                return EMPTY_ROUTING_ARRAY;
+            }
+            final Routing[] decision = new Routing[hitCnt];
+            for (int index = 0, position = 0; index < routingArray.length; index++) {
+                if (isHits[index]) {
+                    decision[position++] = routingArray[index];
+                }
+            }
+            return decision;
+        }
+
+    }
+
+    /**
+     * 前缀树节点，构造完成后只读
+     */
+    private static class TrieNode {
+
+        private char[] keys = new char[0];
+        private TrieNode[] children = new TrieNode[0];
+        private final List<RegexRule> rules = new ArrayList<>();
+
+        void put(final String prefix, final int routingIndex, final GaPattern regexExpress) {
+            TrieNode node = this;
+            for (int offset = 0; offset < prefix.length(); offset++) {
+                final char key = prefix.charAt(offset);
+                TrieNode child = node.get(key);
+                if (null == child) {
+                    child = new TrieNode();
+                    node.keys = Arrays.copyOf(node.keys, node.keys.length + 1);
+                    node.children = Arrays.copyOf(node.children, node.children.length + 1);
+                    node.keys[node.keys.length - 1] = key;
+                    node.children[node.children.length - 1] = child;
+                }
+                node = child;
+            }
+            node.rules.add(new RegexRule(routingIndex, regexExpress));
+        }
+
+        // 分支很少，线性查找比哈希表更省
+        TrieNode get(final char key) {
+            for (int index = 0; index < keys.length; index++) {
+                if (keys[index] == key) {
+                    return children[index];
+                }
+            }
+            return null;
+        }
+
+    }
+
+    /**
+     * 前缀树上挂载的匹配模版
+     */
+    private static class RegexRule {
+
+        private final int routingIndex;
+        private final GaPattern regexExpress;
+
+        RegexRule(final int routingIndex, final GaPattern regexExpress) {
+            this.routingIndex = routingIndex;
+            this.regexExpress = regexExpress;
+        }
+
+    }
+
     /**
      * 类加载路由匹配器
      */
     public static class Routing {
 
         /**
-         * 路由匹配规则表达式集合
+         * 路由匹配规则表达式集合(已预编译)
+         */
+        private final Collection<GaPattern/*REGEX*/> regexExpresses = new ArrayList<>();
+
+        /**
+         * 精确匹配的Java类名集合
          */
-        private final Collection<String/*REGEX*/> regexExpresses = new ArrayList<>();
+        private final Set<String> javaClassNames;
 
         /**
          * 类加载
@@ -117,31 +284,27 @@ public class RoutingURLClassLoader extends URLClassLoader {
          */
         public Routing(final ClassLoader classLoader, final String... regexExpressArray) {
             if (ArrayUtils.isNotEmpty(regexExpressArray)) {
-                regexExpresses.addAll(Arrays.asList(regexExpressArray));
+                for (final String regexExpress : regexExpressArray) {
+                    try {
+                        regexExpresses.add(GaPattern.compileRegex(regexExpress));
+                    } catch (Throwable cause) {
+                        logger.warn("compile routing regex-express={} failed, ignore this express.", regexExpress, cause);
+                    }
+                }
             }
             this.classLoader = classLoader;
+            this.javaClassNames = Collections.emptySet();
         }
 
         /**
-         * 当前参与匹配的Java类名是否命中路由匹配规则
-         * <p>
-         * 命中匹配规则的类,将会通过{@link RoutingURLClassLoader}完成对应的加载行为
-         * </p>
+         * 构造按类名精确匹配的类加载路由匹配器
          *
-         * @param javaClassName 参与匹配的Java类名
-         * @return true:命中;false:不命中;
+         * @param classLoader    目标ClassLoader
+         * @param javaClassNames 需要路由的Java类名集合
          */
-        private boolean isHit(final String javaClassName) {
-            for (final String regexExpress : regexExpresses) {
-                try {
-                    if (javaClassName.matches(regexExpress)) {
-                        return true;
-                    }
-                } catch (Throwable cause) {
-                    logger.warn("routing {} failed, regex-express={}.", javaClassName, regexExpress, cause);
-                }
-            }
-            return false;
+        public Routing(final ClassLoader classLoader, final Set<String> javaClassNames) {
+            this.classLoader = classLoader;
+            this.javaClassNames = javaClassNames;
         }
 
     }
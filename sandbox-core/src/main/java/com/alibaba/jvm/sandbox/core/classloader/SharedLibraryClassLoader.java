@@ -0,0 +1,422 @@
+package com.alibaba.jvm.sandbox.core.classloader;
+
+import com.alibaba.jvm.sandbox.api.annotation.Stealth;
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.apache.commons.io.FileUtils.convertFileCollectionToFileArray;
+import static org.apache.commons.io.FileUtils.listFiles;
+
+/**
+ * 模块共享库ClassLoader
+ * <p>
+ * 模块Jar通常是fat jar，各自打包了commons-lang3、guava等相同的三方库，每个{@link ModuleJarClassLoader}都会重复加载这些类。
+ * 共享库目录下的每个Jar文件被视为一个共享库，只在这里加载一次。一个共享库对某个模块要么整体共享，要么完全不共享，
+ * 只有同时满足以下条件时，共享库的所有类才会被路由到共享库加载，否则该模块仍然使用自己打包的版本：
+ * </p>
+ * <ul>
+ * <li>模块Jar包含了共享库的所有类，并且CRC32全部相同</li>
+ * <li>共享库引用到的其他共享库(依赖闭包)也都能被这个模块共享</li>
+ * <li>共享库的包在模块Jar中没有共享库之外的类，同一个包不会拆分到两个ClassLoader中</li>
+ * </ul>
+ * <p>
+ * 共享库和模块一样，沙箱API由沙箱的ClassLoader加载
+ * </p>
+ */
+@Stealth
+public class SharedLibraryClassLoader extends RoutingURLClassLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(SharedLibraryClassLoader.class);
+
+    // 常量池中的项类型
+    private static final int CONSTANT_CLASS_TAG = 7;
+    private static final int CONSTANT_NAME_AND_TYPE_TAG = 12;
+    private static final int CONSTANT_METHOD_TYPE_TAG = 16;
+
+    private final List<Library> libraries;
+    private final List<ModuleJarStaging.StagedJar> stagedLibraryJars;
+    private boolean isClosed;
+
+    private SharedLibraryClassLoader(final List<ModuleJarStaging.StagedJar> stagedLibraryJars,
+                                     final List<Library> libraries) throws IOException {
+        super(toURLs(stagedLibraryJars), ModuleJarClassLoader.toSandboxApiRouting());
+        this.stagedLibraryJars = stagedLibraryJars;
+        this.libraries = libraries;
+    }
+
+    private static URL[] toURLs(final List<ModuleJarStaging.StagedJar> stagedLibraryJars) throws IOException {
+        final URL[] urls = new URL[stagedLibraryJars.size()];
+        for (int index = 0; index < urls.length; index++) {
+            urls[index] = new URL("file:" + stagedLibraryJars.get(index).getFile().getPath());
+        }
+        return urls;
+    }
+
+    /**
+     * 加载共享库目录下的所有共享库
+     * <p>
+     * 共享库按文件名排序，多个共享库包含同名类时以排在前面的为准
+     * </p>
+     *
+     * @param sharedLibDir 共享库目录
+     * @return 模块共享库ClassLoader，目录下没有共享库时返回null
+     * @throws IOException 读取共享库失败
+     */
+    public static SharedLibraryClassLoader load(final File sharedLibDir) throws IOException {
+        final File[] libraryJarFiles = sharedLibDir.isDirectory()
+                ? convertFileCollectionToFileArray(listFiles(sharedLibDir, new String[]{"jar"}, false))
+                : new File[0];
+        if (libraryJarFiles.length == 0) {
+            logger.info("shared-lib={} has no library, ignored.", sharedLibDir);
+            return null;
+        }
+        Arrays.sort(libraryJarFiles);
+
+        final List<ModuleJarStaging.StagedJar> stagedLibraryJars = new ArrayList<>();
+        final List<Library> libraries = new ArrayList<>();
+        final Map<String, Library> libraryOfJavaClassNames = new HashMap<>();
+        final Map<Library, Set<String>> referencedJavaClassNamesOfLibraries = new HashMap<>();
+        try {
+            for (final File libraryJarFile : libraryJarFiles) {
+                final ModuleJarStaging.StagedJar stagedLibraryJar = ModuleJarStaging.getSingleton().stage(libraryJarFile);
+                stagedLibraryJars.add(stagedLibraryJar);
+
+                // 排在前面的共享库已经提供了的类，不会从这个共享库加载
+                final Map<String, Long> classCRC32s = indexClassCRC32(stagedLibraryJar.getFile());
+                classCRC32s.keySet().removeAll(libraryOfJavaClassNames.keySet());
+                final Library library = new Library(libraryJarFile.getName(), classCRC32s);
+                for (final String javaClassName : classCRC32s.keySet()) {
+                    libraryOfJavaClassNames.put(javaClassName, library);
+                }
+                libraries.add(library);
+
+                // 被去重的类也会出现在引用中，从而依赖到实际提供它的共享库
+                referencedJavaClassNamesOfLibraries.put(library, indexReferencedJavaClassNames(stagedLibraryJar.getFile()));
+            }
+            assembleDependencies(libraries, libraryOfJavaClassNames, referencedJavaClassNamesOfLibraries);
+            final SharedLibraryClassLoader sharedLibraryClassLoader = new SharedLibraryClassLoader(stagedLibraryJars, libraries);
+            logger.info("shared-lib={} loaded, libraries={};classes={};", sharedLibDir, libraries, libraryOfJavaClassNames.size());
+            return sharedLibraryClassLoader;
+        } catch (IOException cause) {
+            for (final ModuleJarStaging.StagedJar stagedLibraryJar : stagedLibraryJars) {
+                ModuleJarStaging.getSingleton().release(stagedLibraryJar);
+            }
+            throw cause;
+        }
+    }
+
+    /*
+     * 索引Jar文件中所有类的CRC32，CRC32直接取自Jar文件的中央目录，不需要解压
+     */
+    private static Map<String, Long> indexClassCRC32(final File jarFile) throws IOException {
+        final Map<String, Long> classCRC32s = new HashMap<>();
+        try (final ZipFile zipFile = new ZipFile(jarFile)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (entry.isDirectory()
+                        || !name.endsWith(".class")
+                        || name.startsWith("META-INF/")
+                        || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                classCRC32s.put(
+                        StringUtils.removeEnd(name, ".class").replace('/', '.'),
+                        entry.getCrc()
+                );
+            }
+        }
+        return classCRC32s;
+    }
+
+    /*
+     * 索引Jar文件中所有类引用到的类：常量池中的类、方法和字段描述符，以及声明的方法和字段的描述符
+     */
+    private static Set<String> indexReferencedJavaClassNames(final File jarFile) throws IOException {
+        final Set<String> referencedJavaClassNames = new HashSet<>();
+        try (final ZipFile zipFile = new ZipFile(jarFile)) {
+            final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                final String name = entry.getName();
+                if (entry.isDirectory()
+                        || !name.endsWith(".class")
+                        || name.startsWith("META-INF/")
+                        || name.endsWith("module-info.class")) {
+                    continue;
+                }
+                try (final InputStream is = zipFile.getInputStream(entry)) {
+                    collectReferencedJavaClassNames(new ClassReader(is), referencedJavaClassNames);
+                } catch (RuntimeException cause) {
+                    logger.debug("parse class={} in jar={} failed, ignore its references.", name, jarFile, cause);
+                }
+            }
+        }
+        return referencedJavaClassNames;
+    }
+
+    private static void collectReferencedJavaClassNames(final ClassReader cr, final Set<String> referencedJavaClassNames) {
+        final char[] buffer = new char[cr.getMaxStringLength()];
+        for (int index = 1; index < cr.getItemCount(); index++) {
+            final int offset = cr.getItem(index);
+            // long和double占用两个常量池位置，第二个位置的偏移为0
+            if (offset <= 0) {
+                continue;
+            }
+            switch (cr.readByte(offset - 1)) {
+                case CONSTANT_CLASS_TAG:
+                    collectType(Type.getObjectType(cr.readUTF8(offset, buffer)), referencedJavaClassNames);
+                    break;
+                case CONSTANT_NAME_AND_TYPE_TAG:
+                    collectDescriptor(cr.readUTF8(offset + 2, buffer), referencedJavaClassNames);
+                    break;
+                case CONSTANT_METHOD_TYPE_TAG:
+                    collectDescriptor(cr.readUTF8(offset, buffer), referencedJavaClassNames);
+                    break;
+                default:
+                    break;
+            }
+        }
+        cr.accept(new ClassVisitor(Opcodes.ASM9) {
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                collectDescriptor(descriptor, referencedJavaClassNames);
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                collectDescriptor(descriptor, referencedJavaClassNames);
+                return null;
+            }
+
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+    }
+
+    private static void collectDescriptor(final String descriptor, final Set<String> referencedJavaClassNames) {
+        final Type type = Type.getType(descriptor);
+        if (type.getSort() != Type.METHOD) {
+            collectType(type, referencedJavaClassNames);
+            return;
+        }
+        for (final Type argumentType : type.getArgumentTypes()) {
+            collectType(argumentType, referencedJavaClassNames);
+        }
+        collectType(type.getReturnType(), referencedJavaClassNames);
+    }
+
+    private static void collectType(final Type type, final Set<String> referencedJavaClassNames) {
+        final Type elementType = type.getSort() == Type.ARRAY ? type.getElementType() : type;
+        if (elementType.getSort() == Type.OBJECT) {
+            referencedJavaClassNames.add(elementType.getClassName());
+        }
+    }
+
+    /*
+     * 计算每个共享库的依赖闭包：引用到了哪个共享库提供的类，就依赖哪个共享库
+     */
+    private static void assembleDependencies(final List<Library> libraries,
+                                             final Map<String, Library> libraryOfJavaClassNames,
+                                             final Map<Library, Set<String>> referencedJavaClassNamesOfLibraries) {
+        final Map<Library, Set<Library>> dependenciesOfLibraries = new HashMap<>();
+        for (final Library library : libraries) {
+            final Set<Library> dependencies = new HashSet<>();
+            for (final String referencedJavaClassName : referencedJavaClassNamesOfLibraries.get(library)) {
+                final Library dependency = libraryOfJavaClassNames.get(referencedJavaClassName);
+                if (null != dependency && dependency != library) {
+                    dependencies.add(dependency);
+                }
+            }
+            dependenciesOfLibraries.put(library, dependencies);
+        }
+        for (final Library library : libraries) {
+            final Deque<Library> pending = new ArrayDeque<>(dependenciesOfLibraries.get(library));
+            while (!pending.isEmpty()) {
+                final Library dependency = pending.poll();
+                if (dependency != library && library.dependencyClosure.add(dependency)) {
+                    pending.addAll(dependenciesOfLibraries.get(dependency));
+                }
+            }
+        }
+    }
+
+    private static String getPackageName(final String javaClassName) {
+        final int index = javaClassName.lastIndexOf('.');
+        return index < 0 ? "" : javaClassName.substring(0, index);
+    }
+
+    /**
+     * 生成模块Jar的共享库路由
+     *
+     * @param moduleJarFile 模块Jar文件
+     * @return 共享库路由，没有可共享的类时返回null
+     */
+    Routing toRouting(final File moduleJarFile) {
+        final Map<String, Long> moduleClassCRC32s;
+        try {
+            moduleClassCRC32s = indexClassCRC32(moduleJarFile);
+        } catch (IOException cause) {
+            logger.warn("index module-jar={} failed, shared-lib will not be used.", moduleJarFile, cause);
+            return null;
+        }
+
+        // 模块Jar完整打包了同一版本的共享库
+        final Set<Library> sharedLibraries = new LinkedHashSet<>();
+        for (final Library library : libraries) {
+            if (isBundledEntirely(library, moduleClassCRC32s)) {
+                sharedLibraries.add(library);
+            } else if (!Collections.disjoint(library.classCRC32s.keySet(), moduleClassCRC32s.keySet())) {
+                logger.info("module-jar={} bundles a different or partial copy of shared library={}, use module-local copy.", moduleJarFile, library);
+            }
+        }
+
+        // 依赖闭包不完整或者会拆分包的共享库不能共享，排除一个共享库可能影响其他共享库，直到不再变化为止
+        final Map<String, Set<String>> moduleJavaClassNamesOfPackages = new HashMap<>();
+        for (final String javaClassName : moduleClassCRC32s.keySet()) {
+            moduleJavaClassNamesOfPackages.computeIfAbsent(getPackageName(javaClassName), k -> new HashSet<>()).add(javaClassName);
+        }
+        boolean isChanged;
+        do {
+            final Set<String> sharedJavaClassNames = new HashSet<>();
+            for (final Library library : sharedLibraries) {
+                sharedJavaClassNames.addAll(library.classCRC32s.keySet());
+            }
+            isChanged = false;
+            for (final Iterator<Library> it = sharedLibraries.iterator(); it.hasNext(); ) {
+                final Library library = it.next();
+                if (!sharedLibraries.containsAll(library.dependencyClosure)) {
+                    logger.info("module-jar={} can not share all dependencies of shared library={}, use module-local copy.", moduleJarFile, library);
+                    it.remove();
+                    isChanged = true;
+                } else if (isSplitPackage(library, moduleJavaClassNamesOfPackages, sharedJavaClassNames)) {
+                    logger.info("module-jar={} has other classes in the packages of shared library={}, use module-local copy.", moduleJarFile, library);
+                    it.remove();
+                    isChanged = true;
+                }
+            }
+        } while (isChanged);
+
+        final Set<String> sharedJavaClassNames = new HashSet<>();
+        for (final Library library : sharedLibraries) {
+            logger.info("module-jar={} shares library={}, classes={};", moduleJarFile, library, library.classCRC32s.size());
+            sharedJavaClassNames.addAll(library.classCRC32s.keySet());
+        }
+
+        return sharedJavaClassNames.isEmpty()
+                ? null
+                : new Routing(this, Collections.unmodifiableSet(sharedJavaClassNames));
+    }
+
+    // 模块Jar包含了共享库的所有类，并且CRC32全部相同
+    private static boolean isBundledEntirely(final Library library, final Map<String, Long> moduleClassCRC32s) {
+        if (library.classCRC32s.isEmpty()) {
+            return false;
+        }
+        for (final Map.Entry<String, Long> entry : library.classCRC32s.entrySet()) {
+            final Long moduleCRC32 = moduleClassCRC32s.get(entry.getKey());
+            if (null == moduleCRC32 || entry.getValue() < 0 || !entry.getValue().equals(moduleCRC32)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 共享库的包中还有不被共享的模块类
+    private static boolean isSplitPackage(final Library library,
+                                          final Map<String, Set<String>> moduleJavaClassNamesOfPackages,
+                                          final Set<String> sharedJavaClassNames) {
+        for (final String packageName : library.packageNames) {
+            final Set<String> moduleJavaClassNames = moduleJavaClassNamesOfPackages.get(packageName);
+            if (null != moduleJavaClassNames && !sharedJavaClassNames.containsAll(moduleJavaClassNames)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 关闭共享库ClassLoader，已经加载的类仍然可用
+     */
+    public synchronized void closeIfPossible() {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            ((Closeable) this).close();
+        } catch (Throwable cause) {
+            logger.warn("close SharedLibraryClassLoader failed.", cause);
+        } finally {
+            for (final ModuleJarStaging.StagedJar stagedLibraryJar : stagedLibraryJars) {
+                ModuleJarStaging.getSingleton().release(stagedLibraryJar);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SharedLibraryClassLoader[libraries=%s;]", libraries);
+    }
+
+    /**
+     * 共享库
+     */
+    private static class Library {
+
+        private final String name;
+
+        // 共享库提供的类 -> CRC32
+        private final Map<String, Long> classCRC32s;
+
+        // 共享库提供的类所在的包
+        private final Set<String> packageNames = new HashSet<>();
+
+        // 直接或间接依赖的其他共享库
+        private final Set<Library> dependencyClosure = new HashSet<>();
+
+        Library(final String name, final Map<String, Long> classCRC32s) {
+            this.name = name;
+            this.classCRC32s = classCRC32s;
+            for (final String javaClassName : classCRC32s.keySet()) {
+                packageNames.add(getPackageName(javaClassName));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.alibaba.jvm.sandbox.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+
+/**
+ * 增强选项
+ * <p>
+ * 观察时确定、织入时使用的可选项，从{@link com.alibaba.jvm.sandbox.core.manager.impl.SandboxClassFileTransformer}
+ * 经{@link EventEnhancer}一路传递到{@link com.alibaba.jvm.sandbox.core.enhance.weaver.asm.EventWeaver}，
+ * 新增选项时只需要在这里追加，不必修改整条织入链路上的构造函数
+ * </p>
+ */
+public class EnhanceOptions {
+
+    /**
+     * 默认选项：不启用缓存、不过滤方法调用、没有守卫条件、不计时、非覆盖模式
+     */
+    public static final EnhanceOptions DEFAULT = newBuilder().build();
+
+    /**
+     * 增强字节码缓存，为null时不启用
+     */
+    private final WovenByteCodeCache wovenByteCodeCache;
+
+    /**
+     * 方法调用过滤器，为null时观察所有方法调用
+     */
+    private final CallFilter callFilter;
+
+    /**
+     * 守卫条件，为null时所有调用都产生事件
+     */
+    private final Guard guard;
+
+    /**
+     * 是否开启计时，开启后RETURN/THROWS事件带上织入代码测量的方法耗时
+     */
+    private final boolean isTimingEnable;
+
+    /**
+     * 是否为覆盖模式，覆盖模式下只织入行覆盖探针
+     */
+    private final boolean isCoverageEnable;
+
+    private EnhanceOptions(final Builder builder) {
+        this.wovenByteCodeCache = builder.wovenByteCodeCache;
+        this.callFilter = builder.callFilter;
+        this.guard = builder.guard;
+        this.isTimingEnable = builder.isTimingEnable;
+        this.isCoverageEnable = builder.isCoverageEnable;
+    }
+
+    public WovenByteCodeCache getWovenByteCodeCache() {
+        return wovenByteCodeCache;
+    }
+
+    public CallFilter getCallFilter() {
+        return callFilter;
+    }
+
+    public Guard getGuard() {
+        return guard;
+    }
+
+    public boolean isTimingEnable() {
+        return isTimingEnable;
+    }
+
+    public boolean isCoverageEnable() {
+        return isCoverageEnable;
+    }
+
+    /**
+     * 构建增强选项
+     *
+     * @return 增强选项构建器
+     */
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * 增强选项构建器
+     */
+    public static class Builder {
+
+        private WovenByteCodeCache wovenByteCodeCache;
+        private CallFilter callFilter;
+        private Guard guard;
+        private boolean isTimingEnable;
+        private boolean isCoverageEnable;
+
+        private Builder() {
+        }
+
+        public Builder wovenByteCodeCache(final WovenByteCodeCache wovenByteCodeCache) {
+            this.wovenByteCodeCache = wovenByteCodeCache;
+            return this;
+        }
+
+        public Builder callFilter(final CallFilter callFilter) {
+            this.callFilter = callFilter;
+            return this;
+        }
+
+        public Builder guard(final Guard guard) {
+            this.guard = guard;
+            return this;
+        }
+
+        public Builder timingEnable(final boolean isTimingEnable) {
+            this.isTimingEnable = isTimingEnable;
+            return this;
+        }
+
+        public Builder coverageEnable(final boolean isCoverageEnable) {
+            this.isCoverageEnable = isCoverageEnable;
+            return this;
+        }
+
+        public EnhanceOptions build() {
+            return new EnhanceOptions(this);
+        }
+
+    }
+
+}
@@ -38,8 +38,28 @@ public class EventEnhancer implements Enhancer {
 
     private final String nativePrefix;
 
+    /**
+     * 增强选项
+     */
+    private final EnhanceOptions options;
+
+    /**
+     * 增强字节码缓存，为null时不启用
+     */
+    private final WovenByteCodeCache wovenByteCodeCache;
+
     public EventEnhancer(String nativePrefix) {
+        this(nativePrefix, EnhanceOptions.DEFAULT);
+    }
+
+    public EventEnhancer(String nativePrefix, EnhanceOptions options) {
         this.nativePrefix = nativePrefix;
+        this.options = options;
+        // 覆盖模式的探针ID在织入时才登记，命中缓存会跳过登记，所以覆盖模式不使用缓存；
+        // 方法调用过滤器是模块代码，无法纳入缓存KEY，所以带有方法调用过滤器时也不使用缓存
+        this.wovenByteCodeCache = options.isCoverageEnable() || null != options.getCallFilter()
+                ? null
+                : options.getWovenByteCodeCache();
     }
 
 
@@ -49,25 +69,43 @@ public class EventEnhancer implements Enhancer {
      * @param cr ClassReader
      * @return ClassWriter
      */
-    private ClassWriter createClassWriter(final ClassLoader targetClassLoader,
-                                          final ClassReader cr) {
-        return new ClassWriter(cr, COMPUTE_FRAMES | COMPUTE_MAXS) {
-
-            /*
-             * 注意，为了自动计算帧的大小，有时必须计算两个类共同的父类。
-             * 缺省情况下，ClassWriter将会在getCommonSuperClass方法中计算这些，通过在加载这两个类进入虚拟机时，使用反射API来计算。
-             * 但是，如果你将要生成的几个类相互之间引用，这将会带来问题，因为引用的类可能还不存在。
-             * 在这种情况下，你可以重写getCommonSuperClass方法来解决这个问题。
-             *
-             * 通过重写 getCommonSuperClass() 方法，更正获取ClassLoader的方式，改成使用指定ClassLoader的方式进行。
-             * 规避了原有代码采用Object.class.getClassLoader()的方式
-             */
-            @Override
-            protected String getCommonSuperClass(String type1, String type2) {
-                return AsmUtils.getCommonSuperClass(type1, type2, targetClassLoader);
-            }
+    private SandboxClassWriter createClassWriter(final ClassLoader targetClassLoader,
+                                                 final ClassReader cr) {
+        return new SandboxClassWriter(cr, targetClassLoader);
+    }
+
+    /**
+     * 沙箱使用的ClassWriter
+     * <p>
+     * 额外记录计算栈帧时是否查询过类的继承关系，查询过说明增强结果依赖于类加载器中其他类的继承结构
+     * </p>
+     */
+    private static class SandboxClassWriter extends ClassWriter {
+
+        private final ClassLoader targetClassLoader;
+        private boolean isCommonSuperClassComputed;
+
+        SandboxClassWriter(final ClassReader cr,
+                           final ClassLoader targetClassLoader) {
+            super(cr, COMPUTE_FRAMES | COMPUTE_MAXS);
+            this.targetClassLoader = targetClassLoader;
+        }
+
+        /*
+         * 注意，为了自动计算帧的大小，有时必须计算两个类共同的父类。
+         * 缺省情况下，ClassWriter将会在getCommonSuperClass方法中计算这些，通过在加载这两个类进入虚拟机时，使用反射API来计算。
+         * 但是，如果你将要生成的几个类相互之间引用，这将会带来问题，因为引用的类可能还不存在。
+         * 在这种情况下，你可以重写getCommonSuperClass方法来解决这个问题。
+         *
+         * 通过重写 getCommonSuperClass() 方法，更正获取ClassLoader的方式，改成使用指定ClassLoader的方式进行。
+         * 规避了原有代码采用Object.class.getClassLoader()的方式
+         */
+        @Override
+        protected String getCommonSuperClass(String type1, String type2) {
+            isCommonSuperClassComputed = true;
+            return AsmUtils.getCommonSuperClass(type1, type2, targetClassLoader);
+        }
 
-        };
     }
 
     /**
@@ -93,12 +131,24 @@ public class EventEnhancer implements Enhancer {
             final int listenerId,
             final Event.Type[] eventTypeArray
     ) {
-        // ClassReader、ClassWriter都是ASM提供的，用于完成对字节码的读取和写入操作
-        final ClassReader cr = new ClassReader(byteCodeArray);
-        final ClassWriter cw = createClassWriter(targetClassLoader, cr);
         // 获取目标类加载器的Object ID
         final int targetClassLoaderObjectID = ObjectIDs.instance.identity(targetClassLoader);
 
+        // 命中增强字节码缓存时直接返回，不再经过ASM织入；守卫条件是声明式的，规范化的表达式可以纳入缓存KEY
+        final byte[] cacheKey = null == wovenByteCodeCache
+                ? null
+                : wovenByteCodeCache.toKey(byteCodeArray, signCodes, namespace, listenerId, targetClassLoaderObjectID, eventTypeArray, nativePrefix, null == options.getGuard() ? null : options.getGuard().toString(), options.isTimingEnable());
+        if (null != cacheKey) {
+            final byte[] cachedByteCodeArray = wovenByteCodeCache.get(cacheKey);
+            if (null != cachedByteCodeArray) {
+                return cachedByteCodeArray;
+            }
+        }
+
+        // ClassReader、ClassWriter都是ASM提供的，用于完成对字节码的读取和写入操作
+        final ClassReader cr = new ClassReader(byteCodeArray);
+        final SandboxClassWriter cw = createClassWriter(targetClassLoader, cr);
+
         // 通过ASM对字节码进行增强，以便于在合适的位置进行插桩
         // EventWeaver: 事件编织器, 用于将事件监听器的逻辑插桩到
         cr.accept(
@@ -107,12 +157,20 @@ public class EventEnhancer implements Enhancer {
                         cr.getClassName(),
                         signCodes,
                         eventTypeArray,
-                        nativePrefix
+                        nativePrefix,
+                        options
                 ),
                 EXPAND_FRAMES
         );
+        final byte[] wovenByteCodeArray = cw.toByteArray();
+
+        // 栈帧依赖其他类的继承结构时不缓存：继承结构不在缓存KEY中，父类或接口变化后复用旧的StackMapTable会导致VerifyError
+        if (null != cacheKey && !cw.isCommonSuperClassComputed) {
+            wovenByteCodeCache.put(cacheKey, wovenByteCodeArray);
+        }
+
         // 返回增强后字节码 -> 如果我们开启了调试模式，那么还会将增强后的字节码写入到文件中
-        return dumpClassIfNecessary(cr.getClassName(), cw.toByteArray());
+        return dumpClassIfNecessary(cr.getClassName(), wovenByteCodeArray);
     }
 
 
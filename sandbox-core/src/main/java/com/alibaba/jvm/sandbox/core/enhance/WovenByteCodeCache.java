@@ -0,0 +1,208 @@
+package com.alibaba.jvm.sandbox.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 增强后字节码的内存缓存
+ * <p>
+ * 新增或删除观察时会重新形变已经增强过的类，此时其他仍然生效的观察要对同一份源字节码再织入一次，
+ * 这里把增强结果缓存在内存中，命中时直接返回增强后的字节码而不再经过ASM织入。
+ * </p>
+ * <p>
+ * 缓存KEY为以下内容的SHA-256摘要：源字节码、排序后的行为签名、命名空间、监听器ID、类加载器对象ID、事件类型以及native前缀。
+ * 监听器ID和类加载器对象ID会被织入到字节码中，只有它们相同时增强结果才能复用。
+ * 这两个ID在进程内分配，沙箱重启后会重新分配，落盘的增强结果重启后无法命中，所以缓存只存在于一次沙箱生命周期的内存中
+ * </p>
+ * <p>
+ * 计算栈帧时查询过其他类继承结构的增强结果不会被缓存，见{@link EventEnhancer}
+ * </p>
+ * <p>
+ * 缓存按增强后字节码的总大小限制容量，超出后按最近最少使用淘汰
+ * </p>
+ */
+public class WovenByteCodeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(WovenByteCodeCache.class);
+
+    private final int capacity;
+
+    // KEY -> 增强后的字节码
+    private final Cache<ByteBuffer, byte[]> cache;
+
+    /**
+     * 构造增强字节码缓存
+     *
+     * @param capacity 缓存容量(字节)
+     */
+    public WovenByteCodeCache(final int capacity) {
+        this.capacity = capacity;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(capacity)
+                .weigher(new Weigher<ByteBuffer, byte[]>() {
+                    @Override
+                    public int weigh(ByteBuffer key, byte[] wovenByteCodeArray) {
+                        return key.remaining() + wovenByteCodeArray.length;
+                    }
+                })
+                .build();
+        logger.info("woven bytecode cache created, capacity={};", capacity);
+    }
+
+    /**
+     * 计算缓存KEY
+     *
+     * @param byteCodeArray             源字节码数组
+     * @param signCodes                 需要被增强的行为签名
+     * @param namespace                 命名空间
+     * @param listenerId                监听器ID
+     * @param targetClassLoaderObjectID 目标类加载器的对象ID
+     * @param eventTypeArray            需要进行埋入的事件类型
+     * @param nativePrefix              native方法前缀
+     * @return 缓存KEY
+     */
+    public byte[] toKey(final byte[] byteCodeArray,
+                        final Set<String> signCodes,
+                        final String namespace,
+                        final int listenerId,
+                        final int targetClassLoaderObjectID,
+                        final Event.Type[] eventTypeArray,
+                        final String nativePrefix) {
+        return toKey(byteCodeArray, signCodes, namespace, listenerId, targetClassLoaderObjectID, eventTypeArray, nativePrefix, null);
+    }
+
+    /**
+     * 计算缓存KEY
+     *
+     * @param byteCodeArray             源字节码数组
+     * @param signCodes                 需要被增强的行为签名
+     * @param namespace                 命名空间
+     * @param listenerId                监听器ID
+     * @param targetClassLoaderObjectID 目标类加载器的对象ID
+     * @param eventTypeArray            需要进行埋入的事件类型
+     * @param nativePrefix              native方法前缀
+     * @param guardExpression           规范化的守卫表达式，没有守卫条件时为null
+     * @return 缓存KEY
+     */
+    public byte[] toKey(final byte[] byteCodeArray,
+                        final Set<String> signCodes,
+                        final String namespace,
+                        final int listenerId,
+                        final int targetClassLoaderObjectID,
+                        final Event.Type[] eventTypeArray,
+                        final String nativePrefix,
+                        final String guardExpression) {
+        return toKey(byteCodeArray, signCodes, namespace, listenerId, targetClassLoaderObjectID, eventTypeArray, nativePrefix, guardExpression, false);
+    }
+
+    /**
+     * 计算缓存KEY
+     *
+     * @param byteCodeArray             源字节码数组
+     * @param signCodes                 需要被增强的行为签名
+     * @param namespace                 命名空间
+     * @param listenerId                监听器ID
+     * @param targetClassLoaderObjectID 目标类加载器的对象ID
+     * @param eventTypeArray            需要进行埋入的事件类型
+     * @param nativePrefix              native方法前缀
+     * @param guardExpression           规范化的守卫表达式，没有守卫条件时为null
+     * @param isTimingEnable            是否开启计时
+     * @return 缓存KEY
+     */
+    public byte[] toKey(final byte[] byteCodeArray,
+                        final Set<String> signCodes,
+                        final String namespace,
+                        final int listenerId,
+                        final int targetClassLoaderObjectID,
+                        final Event.Type[] eventTypeArray,
+                        final String nativePrefix,
+                        final String guardExpression,
+                        final boolean isTimingEnable) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException cause) {
+            throw new IllegalStateException(cause);
+        }
+        digest.update(byteCodeArray);
+        for (final String signCode : new TreeSet<>(signCodes)) {
+            update(digest, signCode);
+        }
+        update(digest, namespace);
+        update(digest, String.valueOf(listenerId));
+        update(digest, String.valueOf(targetClassLoaderObjectID));
+        for (final Event.Type type : eventTypeArray) {
+            update(digest, type.name());
+        }
+        update(digest, nativePrefix);
+        if (null != guardExpression) {
+            update(digest, guardExpression);
+        }
+        if (isTimingEnable) {
+            update(digest, "timing");
+        }
+        return digest.digest();
+    }
+
+    // 每个字段后追加分隔符，避免相邻字段拼接出相同的内容
+    private static void update(final MessageDigest digest, final String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * 获取缓存的增强字节码
+     *
+     * @param key 缓存KEY
+     * @return 增强后的字节码，未命中返回null
+     */
+    public byte[] get(final byte[] key) {
+        return cache.getIfPresent(ByteBuffer.wrap(key));
+    }
+
+    /**
+     * 缓存增强字节码
+     * <p>
+     * 单条记录超过缓存容量时不缓存
+     * </p>
+     *
+     * @param key                缓存KEY
+     * @param wovenByteCodeArray 增强后的字节码
+     */
+    public void put(final byte[] key, final byte[] wovenByteCodeArray) {
+        if (key.length + wovenByteCodeArray.length > capacity) {
+            return;
+        }
+        cache.put(ByteBuffer.wrap(key.clone()), wovenByteCodeArray);
+    }
+
+    /**
+     * 获取已缓存的记录数
+     *
+     * @return 已缓存的记录数
+     */
+    public int size() {
+        cache.cleanUp();
+        return (int) cache.size();
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void close() {
+        cache.invalidateAll();
+        logger.info("woven bytecode cache closed.");
+    }
+
+}
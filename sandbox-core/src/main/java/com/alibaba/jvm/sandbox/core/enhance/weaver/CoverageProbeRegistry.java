@@ -0,0 +1,256 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver;
+
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+
+import java.util.*;
+
+/**
+ * 行覆盖探针注册表
+ * <p>
+ * 覆盖模式下每个被增强的方法对应一个{@code boolean[]}探针数组，数组下标为方法中行号出现的顺序。
+ * 被增强的方法在进入时通过探针ID获取一次探针数组，之后每执行到一行只做一次数组写入，不产生任何方法调用。
+ * </p>
+ * <p>
+ * 探针按{@code 监听器ID + 类加载器 + 行为签名}登记，同一个类被重新形变时沿用原来的探针ID，
+ * 行号表不变时探针数组也不变，已经采集到的覆盖不会因为其他观察引起的重新形变而丢失
+ * </p>
+ * <p>
+ * 监听器注销或类加载器被回收后探针槽位会被释放并复用。探针ID由槽位和槽位的代数组成，
+ * 复用槽位时代数加一，还未还原的旧代码拿着旧的探针ID取不到新方法的探针，只会写入{@code Spy}中的丢弃数组
+ * </p>
+ */
+public class CoverageProbeRegistry {
+
+    private final static CoverageProbeRegistry singleton = new CoverageProbeRegistry();
+
+    public static CoverageProbeRegistry getSingleton() {
+        return singleton;
+    }
+
+    // 探针ID的低位为槽位，高位为槽位的代数
+    private static final int SLOT_BITS = 20;
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    private static final int GENERATION_MASK = Integer.MAX_VALUE >>> SLOT_BITS;
+
+    // 槽位数达到该值时先回收类加载器已经被回收的探针
+    private static final int MIN_PURGE_THRESHOLD = 1024;
+
+    // 槽位 -> 探针，写时复制，读取时无锁
+    private volatile Probes[] probesArray = new Probes[0];
+
+    // 槽位 -> 代数
+    private int[] generations = new int[0];
+
+    // 已释放可复用的槽位
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    private int purgeThreshold = MIN_PURGE_THRESHOLD;
+
+    // 登记KEY -> 探针ID
+    private final Map<String, Integer> mappingOfProbesId = new HashMap<>();
+
+    private static String toKey(final int listenerId,
+                                final int targetClassLoaderObjectID,
+                                final String signCode) {
+        return listenerId + "@" + targetClassLoaderObjectID + "@" + signCode;
+    }
+
+    /**
+     * 为一个被增强的方法登记探针
+     * <p>
+     * 方法进入时就需要织入探针ID，此时还不知道方法中有多少行，行号表在方法织入完成后通过{@link #define(int, int[])}补充
+     * </p>
+     *
+     * @param listenerId                监听器ID
+     * @param targetClassLoaderObjectID 目标类加载器的对象ID
+     * @param signCode                  行为签名
+     * @return 探针ID
+     */
+    public synchronized int reserve(final int listenerId,
+                                    final int targetClassLoaderObjectID,
+                                    final String signCode) {
+        final String key = toKey(listenerId, targetClassLoaderObjectID, signCode);
+        final Integer probesId = mappingOfProbesId.get(key);
+        if (null != probesId) {
+            return probesId;
+        }
+        final int slot = allocateSlot();
+        final int newProbesId = generations[slot] << SLOT_BITS | slot;
+        final Probes[] newProbesArray = probesArray.clone();
+        newProbesArray[slot] = new Probes(newProbesId, key, listenerId, targetClassLoaderObjectID, signCode);
+        probesArray = newProbesArray;
+        mappingOfProbesId.put(key, newProbesId);
+        return newProbesId;
+    }
+
+    /*
+     * 优先复用已释放的槽位，没有可复用的槽位时扩容
+     */
+    private int allocateSlot() {
+        if (freeSlots.isEmpty() && probesArray.length >= purgeThreshold) {
+            purgeUnloaded();
+            purgeThreshold = Math.max(MIN_PURGE_THRESHOLD, 2 * (probesArray.length - freeSlots.size()));
+        }
+        final Integer freeSlot = freeSlots.poll();
+        if (null != freeSlot) {
+            generations[freeSlot] = (generations[freeSlot] + 1) & GENERATION_MASK;
+            return freeSlot;
+        }
+        final int slot = probesArray.length;
+        if (slot > SLOT_MASK) {
+            throw new IllegalStateException("coverage probes overflow, slots=" + slot);
+        }
+        probesArray = Arrays.copyOf(probesArray, slot + 1);
+        generations = Arrays.copyOf(generations, slot + 1);
+        return slot;
+    }
+
+    /*
+     * 释放类加载器已经被回收的探针，类加载器被回收说明方法所在的类已经卸载
+     */
+    private void purgeUnloaded() {
+        final Probes[] newProbesArray = probesArray.clone();
+        for (int slot = 0; slot < newProbesArray.length; slot++) {
+            final Probes probes = newProbesArray[slot];
+            if (null != probes
+                    && ObjectIDs.NULL_ID != probes.targetClassLoaderObjectID
+                    && null == ObjectIDs.instance.getObject(probes.targetClassLoaderObjectID)) {
+                release(newProbesArray, slot);
+            }
+        }
+        probesArray = newProbesArray;
+    }
+
+    private void release(final Probes[] newProbesArray, final int slot) {
+        mappingOfProbesId.remove(newProbesArray[slot].key);
+        newProbesArray[slot] = null;
+        freeSlots.add(slot);
+    }
+
+    // 根据探针ID找到探针，槽位已经被复用时返回null
+    private static Probes lookup(final Probes[] current, final int probesId) {
+        final int slot = probesId & SLOT_MASK;
+        final Probes probes = probesId >= 0 && slot < current.length ? current[slot] : null;
+        return null != probes && probes.probesId == probesId ? probes : null;
+    }
+
+    /**
+     * 补充方法的行号表
+     *
+     * @param probesId    探针ID
+     * @param lineNumbers 行号表，下标即探针数组的下标
+     */
+    public synchronized void define(final int probesId, final int[] lineNumbers) {
+        final Probes probes = lookup(probesArray, probesId);
+        if (null == probes || Arrays.equals(probes.lineNumbers, lineNumbers)) {
+            return;
+        }
+        probes.lineNumbers = lineNumbers;
+        probes.hits = new boolean[lineNumbers.length];
+    }
+
+    /**
+     * 获取探针数组
+     *
+     * @param probesId 探针ID
+     * @return 探针数组，探针不存在时返回null
+     */
+    public boolean[] getProbes(final int probesId) {
+        final Probes probes = lookup(probesArray, probesId);
+        return null == probes ? null : probes.hits;
+    }
+
+    /**
+     * 获取监听器的行覆盖
+     * <p>
+     * 重置时每个方法的探针数组被整体替换为新数组，读取的是替换下来的旧数组，读取和重置之间不会丢失或重复计入覆盖；
+     * 只有替换时正在执行、已经拿到旧数组的调用，其后续的行会被计入旧数组而不被这次读取看到
+     * </p>
+     *
+     * @param listenerId 监听器ID
+     * @param isReset    是否在读取的同时重置
+     * @return 行为签名 -> 已覆盖的行号(升序)，同一个类被多个类加载器加载时合并
+     */
+    public Map<String, int[]> dump(final int listenerId, final boolean isReset) {
+        final Map<String, Set<Integer>> coverage = new LinkedHashMap<>();
+        for (final Probes probes : probesArray) {
+            if (null == probes || probes.listenerId != listenerId) {
+                continue;
+            }
+            final Set<Integer> lines = coverage.computeIfAbsent(probes.signCode, k -> new TreeSet<>());
+            final int[] lineNumbers;
+            final boolean[] hits;
+            synchronized (this) {
+                lineNumbers = probes.lineNumbers;
+                hits = probes.hits;
+                if (isReset) {
+                    probes.hits = new boolean[lineNumbers.length];
+                }
+            }
+            for (int index = 0; index < hits.length; index++) {
+                if (hits[index]) {
+                    lines.add(lineNumbers[index]);
+                }
+            }
+        }
+        final Map<String, int[]> result = new LinkedHashMap<>();
+        for (final Map.Entry<String, Set<Integer>> entry : coverage.entrySet()) {
+            final int[] lines = new int[entry.getValue().size()];
+            int index = 0;
+            for (final int line : entry.getValue()) {
+                lines[index++] = line;
+            }
+            result.put(entry.getKey(), lines);
+        }
+        return result;
+    }
+
+    /**
+     * 注销监听器的所有探针
+     * <p>
+     * 注销后还未还原的方法获取到的是{@code Spy}中的丢弃数组，释放的槽位留给之后登记的探针复用
+     * </p>
+     *
+     * @param listenerId 监听器ID
+     */
+    public synchronized void remove(final int listenerId) {
+        final Probes[] newProbesArray = probesArray.clone();
+        for (int slot = 0; slot < newProbesArray.length; slot++) {
+            final Probes probes = newProbesArray[slot];
+            if (null != probes && probes.listenerId == listenerId) {
+                release(newProbesArray, slot);
+            }
+        }
+        probesArray = newProbesArray;
+    }
+
+    /*
+     * 一个方法的探针
+     */
+    private static class Probes {
+
+        private final int probesId;
+        private final String key;
+        private final int listenerId;
+        private final int targetClassLoaderObjectID;
+        private final String signCode;
+
+        // 行号表和探针数组总是成对替换
+        private volatile int[] lineNumbers = new int[0];
+        private volatile boolean[] hits = new boolean[0];
+
+        Probes(final int probesId,
+               final String key,
+               final int listenerId,
+               final int targetClassLoaderObjectID,
+               final String signCode) {
+            this.probesId = probesId;
+            this.key = key;
+            this.listenerId = listenerId;
+            this.targetClassLoaderObjectID = targetClassLoaderObjectID;
+            this.signCode = signCode;
+        }
+
+    }
+
+}
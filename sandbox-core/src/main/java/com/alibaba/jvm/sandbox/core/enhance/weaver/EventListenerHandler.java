@@ -1,6 +1,7 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver;
 
 import com.alibaba.jvm.sandbox.api.ProcessControlException;
+import com.alibaba.jvm.sandbox.api.ProcessDecision;
 import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.InvokeEvent;
@@ -9,13 +10,12 @@ import com.alibaba.jvm.sandbox.core.CoreModule;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.collection.CopyOnWriteIntMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.com.alibaba.jvm.sandbox.spy.Spy;
 import java.com.alibaba.jvm.sandbox.spy.SpyHandler;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.alibaba.jvm.sandbox.api.event.Event.Type.IMMEDIATELY_RETURN;
@@ -48,8 +48,11 @@ public class EventListenerHandler implements SpyHandler {
      * 在模块激活{@link DefaultCoreModuleManager#active(CoreModule)}时,
      * 会调用{@link #active}方法来构造EventListener对应的事件处理器EventProcessor，并将EventProcessor放入到此映射表中。
      * </p>
+     * <p>
+     * 每个事件都要查找一次，这里使用int为key的映射表，避免监听器ID装箱
+     * </p>
      */
-    private final Map<Integer/*LISTENER_ID*/, EventProcessor> mappingOfEventProcessor = new ConcurrentHashMap<>();
+    private final CopyOnWriteIntMap<EventProcessor> mappingOfEventProcessor = new CopyOnWriteIntMap<>();
 
     /**
      * EventListenerHandler单例对象
@@ -103,6 +106,16 @@ public class EventListenerHandler implements SpyHandler {
         // processor.clean();
     }
 
+    /**
+     * 判断事件监听器是否处于激活状态
+     *
+     * @param listenerId 事件监听器ID
+     * @return TRUE:已激活;FALSE:未激活
+     */
+    public boolean isActivated(final int listenerId) {
+        return null != mappingOfEventProcessor.get(listenerId);
+    }
+
     /**
      * 调用出发事件处理&调用执行流程控制
      *
@@ -126,78 +139,21 @@ public class EventListenerHandler implements SpyHandler {
         if (!contains(processor.eventTypes, event.type)) {
             return newInstanceForNone();
         }
+        // 通过返回值给出的流程控制决定，没有时为null
+        ProcessDecision decision = null;
         try {
             // 【核心】调用EventListener#onEvent来进行事件的处理
-            listener.onEvent(event);
+            // 实现了ControllableEventListener的监听器直接返回流程控制决定，不需要经过ProcessControlException
+            if (null != processor.controllableListener) {
+                decision = processor.controllableListener.onControllableEvent(event);
+            } else {
+                listener.onEvent(event);
+            }
         }
         catch (ProcessControlException pce) {
             // 如果在EventListener#onEvent的执行过程中，抛出了ProcessControlException，则代表需要变更代码的执行流程
-
-            final EventProcessor.Process process = processor.processRef.get(); // 获取当前的调用过程
-            final ProcessControlException.State state = pce.getState();  // 获取流程控制的状态
-
-            // 如果要求忽略后续处理所有事件，则需要在此处进行标记
-            if (pce.isIgnoreProcessEvent()) {
-                process.markIgnoreProcess();
-            }
-
-            // 根据流程控制状态来决定如何控制后续流程(是继续执行，还是立即返回，或是抛出异常)
-            switch (state) {
-                case RETURN_IMMEDIATELY: {  // 立即返回
-                    // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
-                        logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-return-event, isIgnored.",
-                                event.type,
-                                processId,
-                                invokeId,
-                                listenerId
-                        );
-                    } else {
-                        // 补偿立即返回事件，即回调EventListener#onEvent方法向其通知ImmediatelyReturnEvent<立即返回事件>
-                        compensateProcessControlEvent(pce, processor, process, event);
-                    }
-
-                    // 如果是在BEFORE中立即返回，则后续不会再有RETURN事件产生，这里需要主动对齐堆栈
-                    if (event.type == Event.Type.BEFORE) {
-                        process.popInvokeId();
-                    }
-
-                    // 让流程立即返回一个预定的对象
-                    return Spy.Ret.newInstanceForReturn(pce.getRespond());
-
-                }
-                case THROWS_IMMEDIATELY: {  // 立即抛出异常
-                    final Throwable throwable = (Throwable) pce.getRespond();
-                    // 如果已经禁止后续返回任何事件了，则不进行后续的操作
-                    if (pce.isIgnoreProcessEvent()) {
-                        logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-throws-event, isIgnored.",
-                                event.type,
-                                processId,
-                                invokeId,
-                                listenerId
-                        );
-                    } else {
-                        // 如果是在BEFORE中立即抛出，则后续不会再有THROWS事件产生，这里需要主动对齐堆栈
-                        if (event.type == Event.Type.BEFORE) {
-                            process.popInvokeId();
-                        }
-                        // 标记本次异常由ImmediatelyException产生，让下次异常事件处理直接忽略
-                        if (event.type != Event.Type.THROWS) {
-                            process.markExceptionFromImmediately();
-                        }
-
-                        // 补偿立即抛出事件(即：回调EventListener#onEvent方法向其通知ImmediatelyThrowsEvent<立即抛出事件>
-                        compensateProcessControlEvent(pce, processor, process, event);
-                    }
-                    // 让流程立即抛出异常
-                    return Spy.Ret.newInstanceForThrows(throwable);
-
-                }
-                case NONE_IMMEDIATELY:  // 什么都不操作，继续执行原有方法
-                default: {
-                    return newInstanceForNone();
-                }
-            }
+            return handleProcessControl(listenerId, processId, invokeId, event, processor,
+                    pce.getState(), pce.getRespond(), pce.isIgnoreProcessEvent());
         }
         // BEFORE处理异常,打日志,并通知下游不需要进行处理
         catch (Throwable throwable) {
@@ -216,13 +172,97 @@ public class EventListenerHandler implements SpyHandler {
                 );
             }
         }
+
+        // 按照返回的流程控制决定变更流程，和抛出ProcessControlException的处理方式完全一致
+        if (null != decision) {
+            return handleProcessControl(listenerId, processId, invokeId, event, processor,
+                    decision.getState(), decision.getRespond(), decision.isIgnoreProcessEvent());
+        }
+
         // 默认返回不进行任何流程变更，即：事件处理器不会对当前调用过程产生任何影响
         return newInstanceForNone();
     }
 
+    /*
+     * 变更代码的执行流程
+     */
+    private Spy.Ret handleProcessControl(final int listenerId,
+                                         final int processId,
+                                         final int invokeId,
+                                         final Event event,
+                                         final EventProcessor processor,
+                                         final ProcessControlException.State state,
+                                         final Object respond,
+                                         final boolean isIgnoreProcessEvent) {
+        final EventProcessor.Process process = processor.processRef.get(); // 获取当前的调用过程
+
+        // 如果要求忽略后续处理所有事件，则需要在此处进行标记
+        if (isIgnoreProcessEvent) {
+            process.markIgnoreProcess();
+        }
+
+        // 根据流程控制的状态来决定如何控制后续流程(是继续执行，还是立即返回，或是抛出异常)
+        switch (state) {
+            case RETURN_IMMEDIATELY: {  // 立即返回
+                // 如果已经禁止后续返回任何事件了，则不进行后续的操作
+                if (isIgnoreProcessEvent) {
+                    logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-return-event, isIgnored.",
+                            event.type,
+                            processId,
+                            invokeId,
+                            listenerId
+                    );
+                } else {
+                    // 补偿立即返回事件，即回调EventListener#onEvent方法向其通知ImmediatelyReturnEvent<立即返回事件>
+                    compensateProcessControlEvent(state, respond, processor, process, event);
+                }
+
+                // 如果是在BEFORE中立即返回，则后续不会再有RETURN事件产生，这里需要主动对齐堆栈
+                if (event.type == Event.Type.BEFORE) {
+                    process.popInvokeId();
+                }
+
+                // 让流程立即返回一个预定的对象
+                return Spy.Ret.newInstanceForReturn(respond);
+
+            }
+            case THROWS_IMMEDIATELY: {  // 立即抛出异常
+                final Throwable throwable = (Throwable) respond;
+                // 如果已经禁止后续返回任何事件了，则不进行后续的操作
+                if (isIgnoreProcessEvent) {
+                    logger.debug("on-event: event|{}|{}|{}|{}, ignore immediately-throws-event, isIgnored.",
+                            event.type,
+                            processId,
+                            invokeId,
+                            listenerId
+                    );
+                } else {
+                    // 如果是在BEFORE中立即抛出，则后续不会再有THROWS事件产生，这里需要主动对齐堆栈
+                    if (event.type == Event.Type.BEFORE) {
+                        process.popInvokeId();
+                    }
+                    // 标记本次异常由ImmediatelyException产生，让下次异常事件处理直接忽略
+                    if (event.type != Event.Type.THROWS) {
+                        process.markExceptionFromImmediately();
+                    }
+
+                    // 补偿立即抛出事件(即：回调EventListener#onEvent方法向其通知ImmediatelyThrowsEvent<立即抛出事件>
+                    compensateProcessControlEvent(state, respond, processor, process, event);
+                }
+                // 让流程立即抛出异常
+                return Spy.Ret.newInstanceForThrows(throwable);
+
+            }
+            case NONE_IMMEDIATELY:  // 什么都不操作，继续执行原有方法
+            default: {
+                return newInstanceForNone();
+            }
+        }
+    }
+
     // 补偿事件
     // 随着历史版本的演进，一些事件已经过期，但为了兼容API，需要在这里进行补偿
-    private void compensateProcessControlEvent(ProcessControlException pce, EventProcessor processor, EventProcessor.Process process, Event event) {
+    private void compensateProcessControlEvent(ProcessControlException.State state, Object respond, EventProcessor processor, EventProcessor.Process process, Event event) {
         // 核对是否需要补偿，如果目标监听器没监听过这类事件，则不需要进行补偿
         if (!(event instanceof InvokeEvent) || !contains(processor.eventTypes, event.type)) {
             return;
@@ -232,19 +272,19 @@ public class EventListenerHandler implements SpyHandler {
         final Event compensateEvent;
 
         // 补偿立即返回事件
-        if (pce.getState() == ProcessControlException.State.RETURN_IMMEDIATELY
+        if (state == ProcessControlException.State.RETURN_IMMEDIATELY
                 && contains(processor.eventTypes, IMMEDIATELY_RETURN)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, pce.getRespond());
+                    .makeImmediatelyReturnEvent(iEvent.processId, iEvent.invokeId, respond);
         }
 
         // 补偿立即抛出事件
-        else if (pce.getState() == ProcessControlException.State.THROWS_IMMEDIATELY
+        else if (state == ProcessControlException.State.THROWS_IMMEDIATELY
                 && contains(processor.eventTypes, IMMEDIATELY_THROWS)) {
             compensateEvent = process
                     .getEventFactory()
-                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) pce.getRespond());
+                    .makeImmediatelyThrowsEvent(iEvent.processId, iEvent.invokeId, (Throwable) respond);
         }
 
         // 异常情况不补偿
@@ -284,7 +324,9 @@ public class EventListenerHandler implements SpyHandler {
 
         // 在守护区内产生的事件不需要响应，直接返回RET_NONE即可
         if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing before-event", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is in protecting, ignore processing before-event", listenerId);
+            }
             return newInstanceForNone();
         }
 
@@ -293,7 +335,9 @@ public class EventListenerHandler implements SpyHandler {
 
         // 如果事件监听器尚未激活, 不做任何处理，直接返回RET_NONE即可
         if (null == processor) {
-            logger.debug("listener={} is not activated, ignore processing before-event.", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is not activated, ignore processing before-event.", listenerId);
+            }
             return newInstanceForNone();
         }
 
@@ -302,7 +346,9 @@ public class EventListenerHandler implements SpyHandler {
 
         // 当前调用过程所触发的事件是否需要被忽略，如果需要被忽略则立即返回
         if (process.isIgnoreProcess()) {
-            logger.debug("listener={} is marked ignore process!", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is marked ignore process!", listenerId);
+            }
             return newInstanceForNone();
         }
 
@@ -332,23 +378,26 @@ public class EventListenerHandler implements SpyHandler {
     }
 
     @Override
-    public Spy.Ret handleOnThrows(int listenerId, Throwable throwable) throws Throwable {
-        return handleOnEnd(listenerId, throwable, false);
+    public Spy.Ret handleOnThrows(int listenerId, Throwable throwable, long costNanoTime) throws Throwable {
+        return handleOnEnd(listenerId, throwable, costNanoTime, false);
     }
 
     @Override
-    public Spy.Ret handleOnReturn(int listenerId, Object object) throws Throwable {
-        return handleOnEnd(listenerId, object, true);
+    public Spy.Ret handleOnReturn(int listenerId, Object object, long costNanoTime) throws Throwable {
+        return handleOnEnd(listenerId, object, costNanoTime, true);
     }
 
 
     private Spy.Ret handleOnEnd(final int listenerId,
                                 final Object object,
+                                final long costNanoTime,
                                 final boolean isReturn) throws Throwable {
 
         // 在守护区内产生的事件不需要响应
         if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing {}-event", listenerId, isReturn ? "return" : "throws");
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is in protecting, ignore processing {}-event", listenerId, isReturn ? "return" : "throws");
+            }
             return newInstanceForNone();
         }
 
@@ -357,7 +406,9 @@ public class EventListenerHandler implements SpyHandler {
 
         // 如果事件监听器尚未激活, 不做任何处理，直接返回RET_NONE即可
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing return-event|throws-event.", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is not activated, ignore processing return-event|throws-event.", listenerId);
+            }
             return newInstanceForNone();
         }
         // 从ThreadLocal中获取对应的调用过程信息，如果不存在，则会创建一个新的调用过程信息
@@ -382,10 +433,12 @@ public class EventListenerHandler implements SpyHandler {
 
         // 继续异常处理
         final int processId = process.getProcessId();  // 调用过程id
+        // 调用过程结束出栈时会重置状态，所以要在出栈前取出是否需要忽略
+        final boolean isIgnoreProcess = process.isIgnoreProcess();
         final int invokeId = process.popInvokeId();  // 在这里需要出栈invokeId，因为当前invoke已经结束了，需要对齐执行栈
 
         // 如果需要忽略事件处理，那么就不进行处理，直接返回RET_NONE即可，放在stack.popInvokeId()后边是为了对齐执行栈
-        if (process.isIgnoreProcess()) {
+        if (isIgnoreProcess) {
             return newInstanceForNone();
         }
 
@@ -401,8 +454,8 @@ public class EventListenerHandler implements SpyHandler {
 
         // 构造ReturnEvent 或 ThrowsEvent，并调用EventListenerHandler#handlerEvent进行事件的处理
         final Event event = isReturn
-                ? process.getEventFactory().makeReturnEvent(processId, invokeId, object)
-                : process.getEventFactory().makeThrowsEvent(processId, invokeId, (Throwable) object);
+                ? process.getEventFactory().makeReturnEvent(processId, invokeId, object, costNanoTime)
+                : process.getEventFactory().makeThrowsEvent(processId, invokeId, (Throwable) object, costNanoTime);
         try {
             return handleEvent(listenerId, processId, invokeId, event, wrap);
         } finally {
@@ -416,14 +469,18 @@ public void handleOnCallBefore(int listenerId, int lineNumber, String owner, Str
 
     // 在守护区内产生的事件不需要响应
     if (SandboxProtector.instance.isInProtecting()) {
-        logger.debug("listener={} is in protecting, ignore processing call-before-event", listenerId);
+        if (logger.isDebugEnabled()) {
+            logger.debug("listener={} is in protecting, ignore processing call-before-event", listenerId);
+        }
         return;
     }
 
     // 根据事件监听器id来从mappingOfEventProcessor中获取到事件处理器
     final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
     if (null == processor) {
-        logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
+        if (logger.isDebugEnabled()) {
+            logger.debug("listener={} is not activated, ignore processing call-before-event.", listenerId);
+        }
         return;
     }
 
@@ -464,14 +521,18 @@ public void handleOnCallBefore(int listenerId, int lineNumber, String owner, Str
 
         // 在守护区内产生的事件不需要响应
         if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-return-event", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is in protecting, ignore processing call-return-event", listenerId);
+            }
             return;
         }
 
         // 根据事件监听器id来从mappingOfEventProcessor中获取到事件处理器
         final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
         if (null == processor) {
-            logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is not activated, ignore processing call-return-event.", listenerId);
+            }
             return;
         }
 
@@ -506,14 +567,18 @@ public void handleOnCallBefore(int listenerId, int lineNumber, String owner, Str
 
         // 在守护区内产生的事件不需要响应
         if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-throws-event", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is in protecting, ignore processing call-throws-event", listenerId);
+            }
             return;
         }
 
         // 根据事件监听器id来从mappingOfEventProcessor中获取到事件处理器
         final EventProcessor processor = mappingOfEventProcessor.get(listenerId);
         if (null == processor) {
-            logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is not activated, ignore processing call-throws-event.", listenerId);
+            }
             return;
         }
 
@@ -548,13 +613,17 @@ public void handleOnCallBefore(int listenerId, int lineNumber, String owner, Str
 
         // 在守护区内产生的事件不需要响应
         if (SandboxProtector.instance.isInProtecting()) {
-            logger.debug("listener={} is in protecting, ignore processing call-line-event", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is in protecting, ignore processing call-line-event", listenerId);
+            }
             return;
         }
 
         final EventProcessor wrap = mappingOfEventProcessor.get(listenerId);
         if (null == wrap) {
-            logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
+            if (logger.isDebugEnabled()) {
+                logger.debug("listener={} is not activated, ignore processing line-event.", listenerId);
+            }
             return;
         }
 
@@ -582,6 +651,12 @@ public void handleOnCallBefore(int listenerId, int lineNumber, String owner, Str
         }
     }
 
+    @Override
+    public boolean[] handleOnCoverage(int probesId) {
+        // 覆盖模式只记录探针，不产生事件，也不需要经过事件处理器
+        return CoverageProbeRegistry.getSingleton().getProbes(probesId);
+    }
+
     // ---- 自检查
     public void checkEventProcessor(final int... listenerIds) {
         for (int listenerId : listenerIds) {
@@ -1,12 +1,10 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.ControllableEventListener;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.core.enhance.annotation.Interrupted;
-import com.alibaba.jvm.sandbox.core.util.collection.GaStack;
-import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeGaStack;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.alibaba.jvm.sandbox.core.util.collection.ThreadUnsafeIntStack;
 
 import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptEventHandler;
 
@@ -15,8 +13,6 @@ import static com.alibaba.jvm.sandbox.core.util.SandboxReflectUtils.isInterruptE
  */
 class EventProcessor {
 
-    private final Logger logger = LoggerFactory.getLogger(getClass());
-
     /**
      * 事件监听器id
      */
@@ -27,6 +23,14 @@ class EventProcessor {
      */
     final EventListener listener;
 
+    /**
+     * 通过返回值控制流程的事件监听器，监听器没有实现{@link ControllableEventListener}时为null
+     * <p>
+     * 这里保留原始的监听器，{@link #listener}可能被包装成可中断的监听器
+     * </p>
+     */
+    final ControllableEventListener controllableListener;
+
     /**
      * 事件监听器可监听的事件类型
      */
@@ -37,6 +41,9 @@ class EventProcessor {
      * <p>
      * 它代表着一次调用过程，使用ThreadLocal来实现线程隔离
      * </p>
+     * <p>
+     * 调用过程结束时只重置状态，同一个线程的下一次调用过程继续复用，避免每次调用过程都重新创建
+     * </p>
      */
     final ThreadLocal<Process> processRef = ThreadLocal.withInitial(Process::new);
 
@@ -56,18 +63,25 @@ class EventProcessor {
         this.listener = isInterruptEventHandler(listener.getClass())
                 ? new InterruptedEventListenerImpl(listener)
                 : listener;
+        this.controllableListener = listener instanceof ControllableEventListener
+                ? (ControllableEventListener) listener
+                : null;
     }
 
     /**
      * 处理单元
+     * <p>
+     * 处理单元会一直留在线程的ThreadLocal中，所以这里是静态内部类，不持有事件处理器，
+     * 以免线程通过它持有监听器和模块的类加载器，也让事件处理器被回收后ThreadLocal中的条目能被正常清理
+     * </p>
      */
-    class Process {
+    static class Process {
 
         // 事件工厂
         private final SingleEventFactory eventFactory = new SingleEventFactory();
 
-        // 调用堆栈，用于存储每次调用的invokeId
-        private final GaStack<Integer> stack = new ThreadUnsafeGaStack<>();
+        // 调用堆栈，用于存储每次调用的invokeId，直接存储int避免装箱
+        private final ThreadUnsafeIntStack stack = new ThreadUnsafeIntStack();
 
         // 是否需要忽略整个调用过程
         private boolean isIgnoreProcess = false;
@@ -81,15 +95,11 @@ class EventProcessor {
          * @param invokeId 调用ID
          */
         void pushInvokeId(int invokeId) {
-            stack.push(invokeId);
-            if (logger.isDebugEnabled()) {
-                logger.debug("push process-stack, process-id={};invoke-id={};deep={};listener={};",
-                        stack.peekLast(),
-                        invokeId,
-                        stack.deep(),
-                        listenerId
-                );
+            // 新的调用过程开始，清理上一次调用过程遗留的状态
+            if (stack.isEmpty()) {
+                reset();
             }
+            stack.push(invokeId);
         }
 
         /**
@@ -98,26 +108,20 @@ class EventProcessor {
          * @return 调用ID
          */
         int popInvokeId() {
-            final int invokeId;
-            if (logger.isDebugEnabled()) {
-                final int processId = stack.peekLast();
-                invokeId = stack.pop();
-                logger.debug("pop process-stack, process-id={};invoke-id={};deep={};listener={};",
-                        processId,
-                        invokeId,
-                        stack.deep(),
-                        listenerId
-                );
-            } else {
-                invokeId = stack.pop();
-            }
+            final int invokeId = stack.pop();
+            // 调用过程结束，重置状态供下一次调用过程复用
             if (stack.isEmpty()) {
-                processRef.remove();
-                logger.debug("clean TLS: event-processor, listener={};", listenerId);
+                reset();
             }
             return invokeId;
         }
 
+        // 重置调用过程的状态
+        private void reset() {
+            isIgnoreProcess = false;
+            isExceptionFromImmediately = false;
+        }
+
         /**
          * 获取调用ID
          *
@@ -219,7 +223,7 @@ class EventProcessor {
         void check() {
 
             final EventProcessor.Process process = processRef.get();
-            final ThreadUnsafeGaStack<Integer> stack = (ThreadUnsafeGaStack<Integer>) process.stack;
+            final ThreadUnsafeIntStack stack = process.stack;
 
             if (!process.isEmptyStack()) {
                 throw new IllegalStateException(String.format("process-stack is not empty! listener=%s;\n%s",
@@ -228,37 +232,16 @@ class EventProcessor {
                 ));
             }
 
-            for (int index = 0; index < stack.getElementArray().length; index++) {
-                if (index <= stack.getCurrent()) {
-                    if (null == stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is null at index=[%d], listener=%s;\n%s",
-                                index,
-                                listenerId,
-                                toString(stack)
-                        ));
-                    }
-                } else {
-                    if (null != stack.getElementArray()[index]) {
-                        throw new IllegalStateException(String.format("process-stack element is not null at index=[%d], listener=%s;\n%s",
-                                index,
-                                listenerId,
-                                toString(stack)
-                        ));
-                    }
-                }
-            }
-
             if (process.isIgnoreProcess) {
                 throw new IllegalStateException("process isIgnoreProcess is not false!");
             }
 
-
         }
 
-        String toString(ThreadUnsafeGaStack<Integer> stack) {
-            final StringBuilder stackSB = new StringBuilder(String.format("stack[deep=%d;current=%d;]{\n", stack.deep(), stack.getCurrent()));
-            for (int index = 0; index < stack.getElementArray().length; index++) {
-                stackSB.append("\t[").append(index).append("] = ").append(stack.getElementArray()[index]).append("\n");
+        String toString(ThreadUnsafeIntStack stack) {
+            final StringBuilder stackSB = new StringBuilder(String.format("stack[deep=%d;]{\n", stack.deep()));
+            for (int index = 0; index < stack.deep(); index++) {
+                stackSB.append("\t[").append(index).append("] = ").append(stack.get(index)).append("\n");
             }
             stackSB.append("}");
             return stackSB.toString();
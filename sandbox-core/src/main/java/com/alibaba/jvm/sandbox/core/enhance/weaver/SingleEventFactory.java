@@ -27,7 +27,9 @@ class SingleEventFactory {
     private static final long targetFieldInBeforeEventOffset;
     private static final long argumentArrayFieldInBeforeEventOffset;
     private static final long objectFieldInReturnEventOffset;
+    private static final long costNanoTimeFieldInReturnEventOffset;
     private static final long throwableFieldInThrowsEventOffset;
+    private static final long costNanoTimeFieldInThrowsEventOffset;
     private static final long lineNumberFieldInLineEventOffset;
 
     private static final long lineNumberFieldInCallBeforeEventOffset;
@@ -48,7 +50,9 @@ class SingleEventFactory {
             targetFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("target"));
             argumentArrayFieldInBeforeEventOffset = unsafe.objectFieldOffset(BeforeEvent.class.getDeclaredField("argumentArray"));
             objectFieldInReturnEventOffset = unsafe.objectFieldOffset(ReturnEvent.class.getDeclaredField("object"));
+            costNanoTimeFieldInReturnEventOffset = unsafe.objectFieldOffset(ReturnEvent.class.getDeclaredField("costNanoTime"));
             throwableFieldInThrowsEventOffset = unsafe.objectFieldOffset(ThrowsEvent.class.getDeclaredField("throwable"));
+            costNanoTimeFieldInThrowsEventOffset = unsafe.objectFieldOffset(ThrowsEvent.class.getDeclaredField("costNanoTime"));
             lineNumberFieldInLineEventOffset = unsafe.objectFieldOffset(LineEvent.class.getDeclaredField("lineNumber"));
 
             lineNumberFieldInCallBeforeEventOffset = unsafe.objectFieldOffset(CallBeforeEvent.class.getDeclaredField("lineNumber"));
@@ -96,13 +100,15 @@ class SingleEventFactory {
 
     public ReturnEvent makeReturnEvent(final int processId,
                                        final int invokeId,
-                                       final Object returnObj) {
+                                       final Object returnObj,
+                                       final long costNanoTime) {
         if (null == returnEvent) {
             returnEvent = new ReturnEvent(ILLEGAL_PROCESS_ID, ILLEGAL_INVOKE_ID, null);
         }
         unsafe.putInt(returnEvent, processIdFieldInInvokeEventOffset, processId);
         unsafe.putInt(returnEvent, invokeIdFieldInInvokeEventOffset, invokeId);
         unsafe.putObject(returnEvent, objectFieldInReturnEventOffset, returnObj);
+        unsafe.putLong(returnEvent, costNanoTimeFieldInReturnEventOffset, costNanoTime);
         return returnEvent;
     }
 
@@ -123,13 +129,15 @@ class SingleEventFactory {
 
     public ThrowsEvent makeThrowsEvent(final int processId,
                                        final int invokeId,
-                                       final Throwable throwable) {
+                                       final Throwable throwable,
+                                       final long costNanoTime) {
         if (null == throwsEvent) {
             throwsEvent = new ThrowsEvent(ILLEGAL_PROCESS_ID, ILLEGAL_INVOKE_ID, null);
         }
         unsafe.putInt(throwsEvent, processIdFieldInInvokeEventOffset, processId);
         unsafe.putInt(throwsEvent, invokeIdFieldInInvokeEventOffset, invokeId);
         unsafe.putObject(throwsEvent, throwableFieldInThrowsEventOffset, throwable);
+        unsafe.putLong(throwsEvent, costNanoTimeFieldInThrowsEventOffset, costNanoTime);
         return throwsEvent;
     }
 
@@ -213,6 +221,8 @@ class SingleEventFactory {
                 unsafe.putObject(event, targetFieldInBeforeEventOffset, null);
                 // 将BeforeEvent的argumentArray字段置为null
                 unsafe.putObject(event, argumentArrayFieldInBeforeEventOffset, null);
+                // 事件工厂随调用过程留在线程中，不能继续持有目标类加载器
+                unsafe.putObject(event, javaClassLoaderFieldInBeforeEventOffset, null);
                 break;
             case IMMEDIATELY_THROWS:
             case THROWS:
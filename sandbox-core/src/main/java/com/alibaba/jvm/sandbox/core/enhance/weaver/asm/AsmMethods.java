@@ -52,6 +52,50 @@ public interface AsmMethods {
             Throwable.class, String.class, int.class
     );
 
+    /**
+     * asm method of {@link Spy#spyMethodOnBeforeStub(Object[], String, int, int, String, String, String, Object)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnBeforeStub = getAsmMethod(
+            Spy.class,
+            "spyMethodOnBeforeStub",
+            Object[].class, String.class, int.class, int.class, String.class, String.class, String.class, Object.class
+    );
+
+    /**
+     * asm method of {@link Spy#spyMethodOnReturnStub(Object, String, int)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnReturnStub = getAsmMethod(
+            Spy.class,
+            "spyMethodOnReturnStub",
+            Object.class, String.class, int.class
+    );
+
+    /**
+     * asm method of {@link Spy#spyMethodOnThrowsStub(Throwable, String, int)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnThrowsStub = getAsmMethod(
+            Spy.class,
+            "spyMethodOnThrowsStub",
+            Throwable.class, String.class, int.class
+    );
+
+    /**
+     * asm method of {@link Spy#spyMethodOnReturnStub(Object, long, String, int)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnReturnTimedStub = getAsmMethod(
+            Spy.class,
+            "spyMethodOnReturnStub",
+            Object.class, long.class, String.class, int.class
+    );
+
+    /**
+     * asm method of {@link Spy#spyMethodOnThrowsStub(Throwable, long, String, int)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnThrowsTimedStub = getAsmMethod(
+            Spy.class,
+            "spyMethodOnThrowsStub",
+            Throwable.class, long.class, String.class, int.class
+    );
 
     /**
      * asm method of {@link Spy#spyMethodOnLine(int, String, int)}
@@ -62,6 +106,15 @@ public interface AsmMethods {
             int.class, String.class, int.class
     );
 
+    /**
+     * asm method of {@link Spy#spyMethodOnCoverage(int, String)}
+     */
+    Method ASM_METHOD_Spy$spyMethodOnCoverage = getAsmMethod(
+            Spy.class,
+            "spyMethodOnCoverage",
+            int.class, String.class
+    );
+
     /**
      * asm method of {@link Spy#spyMethodOnCallBefore(int, String, String, String, String, int)}
      */
@@ -102,4 +155,12 @@ public interface AsmMethods {
             "getClass"
     );
 
+    /**
+     * asm method of {@link System#nanoTime()}
+     */
+    Method ASM_METHOD_System$nanoTime = getAsmMethod(
+            System.class,
+            "nanoTime"
+    );
+
 }
@@ -17,5 +17,7 @@ public interface AsmTypes {
     Type ASM_TYPE_SPY_RET = Type.getType(Spy.Ret.class);
     Type ASM_TYPE_THROWABLE = Type.getType(Throwable.class);
     Type ASM_TYPE_CLASS = Type.getType(Class.class);
+    Type ASM_TYPE_BOOLEAN_ARRAY = Type.getType(boolean[].class);
+    Type ASM_TYPE_SYSTEM = Type.getType(System.class);
 
 }
@@ -1,13 +1,20 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.CoverageProbeRegistry;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import org.objectweb.asm.*;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
@@ -70,6 +77,37 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
      */
     private final boolean isCallEnable;
 
+    /**
+     * 方法调用过滤器，为null时所有的方法调用都需要织入CALL系列事件
+     */
+    private final CallFilter callFilter;
+
+    /**
+     * 守卫条件，为null时所有调用都产生事件
+     */
+    private final Guard guard;
+
+    /**
+     * 目标类的类加载器，用于在织入时解析守卫条件中的类型
+     */
+    private final ClassLoader targetClassLoader;
+
+    /**
+     * 是否开启计时
+     * <p>
+     * 开启后在方法入口和出口织入{@link System#nanoTime()}，RETURN/THROWS事件中带上方法耗时
+     * </p>
+     */
+    private final boolean isTimingEnable;
+
+    /**
+     * 是否为覆盖模式
+     * <p>
+     * 覆盖模式下只织入行覆盖探针，不织入任何事件
+     * </p>
+     */
+    private final boolean isCoverageEnable;
+
     public EventWeaver(final int api,
                        final ClassVisitor cv,
                        final String namespace,
@@ -79,6 +117,19 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                        final Set<String/*BehaviorStructure#getSignCode()*/> signCodes,
                        final Event.Type[] eventTypeArray,
                        final String nativePrefix) {
+        this(api, cv, namespace, listenerId, targetClassLoaderObjectID, targetClassInternalName, signCodes, eventTypeArray, nativePrefix, EnhanceOptions.DEFAULT);
+    }
+
+    public EventWeaver(final int api,
+                       final ClassVisitor cv,
+                       final String namespace,
+                       final int listenerId,
+                       final int targetClassLoaderObjectID,
+                       final String targetClassInternalName,
+                       final Set<String/*BehaviorStructure#getSignCode()*/> signCodes,
+                       final Event.Type[] eventTypeArray,
+                       final String nativePrefix,
+                       final EnhanceOptions options) {
         super(api, cv);
         this.targetClassLoaderObjectID = targetClassLoaderObjectID;
         this.namespace = namespace;
@@ -93,6 +144,11 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
         this.hasCallReturn = contains(eventTypeArray, Event.Type.CALL_RETURN);
         this.hasCallThrows = contains(eventTypeArray, Event.Type.CALL_THROWS);
         this.isCallEnable = hasCallBefore || hasCallReturn || hasCallThrows;
+        this.callFilter = options.getCallFilter();
+        this.guard = options.getGuard();
+        this.targetClassLoader = null == guard ? null : ObjectIDs.instance.<ClassLoader>getObject(targetClassLoaderObjectID);
+        this.isTimingEnable = options.isTimingEnable();
+        this.isCoverageEnable = options.isCoverageEnable();
     }
 
     @Override
@@ -108,6 +164,15 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
             return mv;
         }
 
+        if (isCoverageEnable) {
+            // native方法没有行号，覆盖模式下无需重写
+            if (isNative(access)) {
+                return super.visitMethod(access, name, desc, signature, exceptions);
+            }
+            logger.info("rewrite method {} for listener[id={}];coverage;", signCode, listenerId);
+            return rewriteCoverageMethod(access, name, desc, signature, exceptions, signCode);
+        }
+
         logger.info("rewrite method {} for listener[id={}];event={};",
                 signCode,
                 listenerId,
@@ -208,9 +273,17 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 // 如果native方法名不是以nativePrefix开头，则代表需要进行增强
                 if (!name.startsWith(nativePrefix)) {
                     getCodeLock().lock(() -> {
+                        final Label skipBeforeLabel = new Label();
+                        final Label skipReturnLabel = new Label();
+                        final Label skipThrowsLabel = new Label();
+                        storeGuard(guard, targetClassLoader);
+                        initStartNanoTime(isTimingEnable);
                         mark(beginLabel);
+                        ifNotGuarded(skipBeforeLabel);
                         loadArgArray();
-                        dup();
+                        if (hasArguments()) {
+                            dup();
+                        }
                         push(namespace);
                         push(listenerId);
                         loadClassLoader();
@@ -219,11 +292,16 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         push(desc);
                         loadThisOrPushNullIfIsStatic();
                         // 插桩: 触发Before事件
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
-                        swap();
-                        storeArgArray();
-                        pop();
+                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBeforeStub);
+                        // 没有参数的方法不需要写回参数，省去这段字节码
+                        if (hasArguments()) {
+                            swap();
+                            storeArgArray();
+                            pop();
+                        }
                         processControl(desc, false);
+                        storeStartNanoTime();
+                        mark(skipBeforeLabel);
                         final String proxyMethodName = nativePrefix + name;
                         final ProxyMethod proxyMethod = new ProxyMethod(access, proxyMethodName, desc);
                         final String owner = toInternalClassName(targetJavaClassName);
@@ -238,24 +316,30 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                             mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, proxyMethod.getName(), proxyMethod.getDescriptor(), false);
                         }
                         proxyNativeAsmMethods.add(proxyMethod);
+                        ifNotGuarded(skipReturnLabel);
                         loadReturn(Type.getReturnType(desc));
+                        final boolean isTimed = loadCostNanoTime();
                         push(namespace);
                         push(listenerId);
                         // 插桩: 触发RETURN事件
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
+                        invokeStatic(ASM_TYPE_SPY, isTimed ? ASM_METHOD_Spy$spyMethodOnReturnTimedStub : ASM_METHOD_Spy$spyMethodOnReturnStub);
                         processControl(desc, true);
+                        mark(skipReturnLabel);
                         returnValue();
                         mark(endLabel);
                         mv.visitLabel(startCatchBlock);
                         visitTryCatchBlock(beginLabel, endLabel, startCatchBlock, ASM_TYPE_THROWABLE.getInternalName());
                         newLocal = newLocal(ASM_TYPE_THROWABLE);
                         storeLocal(newLocal);
+                        ifNotGuarded(skipThrowsLabel);
                         loadLocal(newLocal);
+                        final boolean isTimedThrows = loadCostNanoTime();
                         push(namespace);
                         push(listenerId);
                         // 插桩: 触发THROW事件
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
+                        invokeStatic(ASM_TYPE_SPY, isTimedThrows ? ASM_METHOD_Spy$spyMethodOnThrowsTimedStub : ASM_METHOD_Spy$spyMethodOnThrowsStub);
                         processControl(desc, false);
+                        mark(skipThrowsLabel);
                         loadLocal(newLocal);
                         throwException();
                         mv.visitLabel(endCatchBlock);
@@ -305,9 +389,16 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                  * 触发Before事件并执行流程变更逻辑
                  */
                 getCodeLock().lock(() -> {
+                    // 守卫条件在进入方法时计算一次，不成立时本次调用不产生任何事件
+                    final Label skipBeforeLabel = new Label();
+                    storeGuard(guard, targetClassLoader);
+                    initStartNanoTime(isTimingEnable);
                     mark(beginLabel);
+                    ifNotGuarded(skipBeforeLabel);
                     loadArgArray();
-                    dup();
+                    if (hasArguments()) {
+                        dup();
+                    }
                     push(namespace);
                     push(listenerId);
                     loadClassLoader();
@@ -315,14 +406,20 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     push(name);
                     push(desc);
                     loadThisOrPushNullIfIsStatic();
-                    // 【核心】插桩: 触发BEFORE事件，在进入方法前会插入：Spy.spyMethodOnBefore方法
-                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBefore);
-                    swap();
-                    storeArgArray();
-                    pop();
+                    // 【核心】插桩: 触发BEFORE事件，在进入方法前会插入：Spy.spyMethodOnBeforeStub方法
+                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnBeforeStub);
+                    // 没有参数的方法不需要写回参数，省去这段字节码
+                    if (hasArguments()) {
+                        swap();
+                        storeArgArray();
+                        pop();
+                    }
                     // 对方法进行流程控制, 因为我们在事件监听器中可能会改变方法的执行流程，
                     // 比如：直接抛出异常不进行原方法的调用、返回一个预定的对象不进行原方法的调用等，因此这里需要对方法的执行流程进行控制
                     processControl(desc, false);
+                    // 在BEFORE事件处理完成后开始计时
+                    storeStartNanoTime();
+                    mark(skipBeforeLabel);
                 });
                 // 标记方法体已进入
                 isMethodEnter = true;
@@ -378,12 +475,16 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                      * 触发Return事件并执行流程变更逻辑
                      */
                     getCodeLock().lock(() -> {
+                        final Label skipReturnLabel = new Label();
+                        ifNotGuarded(skipReturnLabel);
                         loadReturn(opcode);
+                        final boolean isTimed = loadCostNanoTime();
                         push(namespace);
                         push(listenerId);
-                        // 【核心】插桩: 触发RETURN事件，在方法返回前这里会插入：Spy.spyMethodOnReturn方法
-                        invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnReturn);
+                        // 【核心】插桩: 触发RETURN事件，在方法返回前这里会插入：Spy.spyMethodOnReturnStub方法
+                        invokeStatic(ASM_TYPE_SPY, isTimed ? ASM_METHOD_Spy$spyMethodOnReturnTimedStub : ASM_METHOD_Spy$spyMethodOnReturnStub);
                         processControl(desc, true);
+                        mark(skipReturnLabel);
                     });
                 }
             }
@@ -398,14 +499,18 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                  * 触发Throw事件并执行流程变更逻辑
                  */
                 getCodeLock().lock(() -> {
+                    final Label skipThrowsLabel = new Label();
                     newLocal = newLocal(ASM_TYPE_THROWABLE);
                     storeLocal(newLocal);
+                    ifNotGuarded(skipThrowsLabel);
                     loadLocal(newLocal);
+                    final boolean isTimed = loadCostNanoTime();
                     push(namespace);
                     push(listenerId);
-                    // 【核心】插桩: 触发THROWS事件，在方法抛出异常前这里会插入：Spy.spyMethodOnThrows方法
-                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnThrows);
+                    // 【核心】插桩: 触发THROWS事件，在方法抛出异常前这里会插入：Spy.spyMethodOnThrowsStub方法
+                    invokeStatic(ASM_TYPE_SPY, isTimed ? ASM_METHOD_Spy$spyMethodOnThrowsTimedStub : ASM_METHOD_Spy$spyMethodOnThrowsStub);
                     processControl(desc, false);
+                    mark(skipThrowsLabel);
                     loadLocal(newLocal);
                 });
 
@@ -422,11 +527,14 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (isMethodEnter && isLineEnable) {
                     // 如果需要对LINE事件进行通知，则进行插桩
                     getCodeLock().lock(() -> {
+                        final Label skipLineLabel = new Label();
+                        ifNotGuarded(skipLineLabel);
                         push(lineNumber);
                         push(namespace);
                         push(listenerId);
                         // 【核心】插桩: 触发LINE事件，在方法抛出异常前这里会插入：Spy.spyMethodOnLine方法
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnLine);
+                        mark(skipLineLabel);
                     });
                 }
                 super.visitLineNumber(lineNumber, label);
@@ -446,9 +554,17 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     return;
                 }
 
+                // 没有通过方法调用过滤器的调用不需要织入任何代码
+                if (null != callFilter && !callFilter.doCallFilter(toJavaClassName(owner), name, desc)) {
+                    super.visitMethodInsn(opcode, owner, name, desc, itf);
+                    return;
+                }
+
                 if (hasCallBefore) {
                     // 如果需要对CALL_BEFORE事件进行通知, 则进行插桩
                     getCodeLock().lock(() -> {
+                        final Label skipCallBeforeLabel = new Label();
+                        ifNotGuarded(skipCallBeforeLabel);
                         push(tracingCurrentLineNumber);
                         push(toJavaClassName(owner));
                         push(name);
@@ -457,6 +573,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                         push(listenerId);
                         // 【核心】插桩: 触发CALL_BEFORE事件，在方法抛出异常前这里会插入：Spy.spyMethodOnCallBefore方法
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallBefore);
+                        mark(skipCallBeforeLabel);
                     });
                 }
 
@@ -465,10 +582,13 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (!hasCallThrows) {
                     super.visitMethodInsn(opcode, owner, name, desc, itf);
                     getCodeLock().lock(() -> {
+                        final Label skipCallReturnLabel = new Label();
+                        ifNotGuarded(skipCallReturnLabel);
                         push(namespace);
                         push(listenerId);
                         // 【核心】插桩: 触发CALL_RETURN事件，在方法抛出异常前这里会插入：Spy.spyMethodOnCallReturn方法
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
+                        mark(skipCallReturnLabel);
                     });
                     return;
                 }
@@ -490,10 +610,13 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                 if (hasCallReturn) {
                     // 方法调用后通知
                     getCodeLock().lock(() -> {
+                        final Label skipCallReturnLabel = new Label();
+                        ifNotGuarded(skipCallReturnLabel);
                         push(namespace);
                         push(listenerId);
                         // 【核心】插桩: 触发CALL_RETURN事件，在方法返回前这里会插入：Spy.spyMethodOnCallReturn方法
                         invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallReturn);
+                        mark(skipCallReturnLabel);
                     });
                 }
                 goTo(tracingFinallyLabel);
@@ -504,6 +627,8 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
 
                 catchException(tracingBeginLabel, tracingEndLabel, ASM_TYPE_THROWABLE);
                 getCodeLock().lock(() -> {
+                    final Label skipCallThrowsLabel = new Label();
+                    ifNotGuarded(skipCallThrowsLabel);
                     dup();
                     invokeVirtual(ASM_TYPE_OBJECT, ASM_METHOD_Object$getClass);
                     invokeVirtual(ASM_TYPE_CLASS, ASM_METHOD_Class$getName);
@@ -511,6 +636,7 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
                     push(listenerId);
                     // 【核心】插桩: 触发CALL_RETURN事件，在方法抛出异常前这里会插入：Spy.spyMethodOnCallThrows方法
                     invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCallThrows);
+                    mark(skipCallThrowsLabel);
                 });
 
                 throwException();
@@ -544,6 +670,72 @@ public class EventWeaver extends ClassVisitor implements Opcodes, AsmTypes, AsmM
         };
     }
 
+    /**
+     * 对方法进行覆盖模式的重写
+     * <p>
+     * 方法进入时通过{@code Spy#spyMethodOnCoverage(int, String)}获取一次探针数组并存入局部变量，
+     * 之后每一行只织入一次数组写入：{@code probes[index] = true}，没有任何方法调用
+     * </p>
+     *
+     * @param access
+     * @param name
+     * @param desc
+     * @param signature
+     * @param exceptions
+     * @param signCode   行为签名
+     * @return
+     */
+    private MethodVisitor rewriteCoverageMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions, final String signCode) {
+        final MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+        final int probesId = CoverageProbeRegistry.getSingleton().reserve(listenerId, targetClassLoaderObjectID, signCode);
+        return new ReWriteAdapter(api, new JSRInlinerAdapter(mv, access, name, desc, signature, exceptions), access, name, desc) {
+
+            // 行号 -> 探针下标，按行号在方法中出现的顺序分配
+            private final Map<Integer, Integer> probeIndexes = new LinkedHashMap<>();
+            private int probesLocal = -1;
+
+            // 构造函数在super()和this()之前不能织入，理由同rewriteNormalMethod
+            private boolean isMethodEnter = false;
+
+            @Override
+            protected void onMethodEnter() {
+                getCodeLock().lock(() -> {
+                    push(probesId);
+                    push(namespace);
+                    invokeStatic(ASM_TYPE_SPY, ASM_METHOD_Spy$spyMethodOnCoverage);
+                    probesLocal = newLocal(ASM_TYPE_BOOLEAN_ARRAY);
+                    storeLocal(probesLocal);
+                });
+                isMethodEnter = true;
+            }
+
+            @Override
+            public void visitLineNumber(final int lineNumber, final Label label) {
+                if (isMethodEnter) {
+                    final int index = probeIndexes.computeIfAbsent(lineNumber, k -> probeIndexes.size());
+                    getCodeLock().lock(() -> {
+                        loadLocal(probesLocal);
+                        push(index);
+                        push(true);
+                        arrayStore(Type.BOOLEAN_TYPE);
+                    });
+                }
+                super.visitLineNumber(lineNumber, label);
+            }
+
+            @Override
+            public void visitEnd() {
+                final int[] lineNumbers = new int[probeIndexes.size()];
+                for (final Map.Entry<Integer, Integer> entry : probeIndexes.entrySet()) {
+                    lineNumbers[entry.getValue()] = entry.getKey();
+                }
+                CoverageProbeRegistry.getSingleton().define(probesId, lineNumbers);
+                super.visitEnd();
+            }
+
+        };
+    }
+
     /**
      * TryCatch块,用于ExceptionsTable重排序
      */
@@ -0,0 +1,338 @@
+package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
+
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+
+/**
+ * 守卫条件编译器
+ * <p>
+ * 将{@link Guard}编译成直接读取方法参数和this的字节码，执行结果为一个boolean压入栈顶。
+ * 编译时已知道参数的类型，无法比较的条件直接编译为常量，运行时不会有装箱和方法调用(String比较除外)
+ * </p>
+ */
+class GuardCompiler implements Opcodes {
+
+    private static final Type ASM_TYPE_STRING = Type.getType(String.class);
+    private static final Method ASM_METHOD_String$equals = Method.getMethod("boolean equals(Object)");
+
+    private final GeneratorAdapter ga;
+    private final Type[] argumentTypeArray;
+    private final boolean isStatic;
+    private final ClassLoader targetClassLoader;
+
+    GuardCompiler(final GeneratorAdapter ga,
+                  final Type[] argumentTypeArray,
+                  final boolean isStatic,
+                  final ClassLoader targetClassLoader) {
+        this.ga = ga;
+        this.argumentTypeArray = argumentTypeArray;
+        this.isStatic = isStatic;
+        this.targetClassLoader = targetClassLoader;
+    }
+
+    /**
+     * 计算守卫条件，结果压入栈顶
+     *
+     * @param guard 守卫条件
+     */
+    void load(final Guard guard) {
+        final Label falseLabel = new Label();
+        final Label endLabel = new Label();
+        jump(guard, falseLabel, false);
+        ga.push(true);
+        ga.goTo(endLabel);
+        ga.mark(falseLabel);
+        ga.push(false);
+        ga.mark(endLabel);
+    }
+
+    /*
+     * 守卫条件的结果为jumpWhen时跳转到label，否则顺序执行；执行前后栈保持不变
+     */
+    private void jump(final Guard guard, final Label label, final boolean jumpWhen) {
+        switch (guard.getKind()) {
+            case AND:
+                jumpCombine(guard.getChildren(), label, jumpWhen, false);
+                break;
+            case OR:
+                jumpCombine(guard.getChildren(), label, jumpWhen, true);
+                break;
+            case NOT:
+                jump(guard.getChildren()[0], label, !jumpWhen);
+                break;
+            case INSTANCE_OF:
+                jumpInstanceOf(guard.getJavaClassName(), label, jumpWhen);
+                break;
+            case COMPARE:
+            default:
+                jumpCompare(guard, label, jumpWhen);
+                break;
+        }
+    }
+
+    /*
+     * AND(isOr=false)和OR(isOr=true)短路求值：
+     * AND任意一个为false即为false，OR任意一个为true即为true
+     */
+    private void jumpCombine(final Guard[] children, final Label label, final boolean jumpWhen, final boolean isOr) {
+        if (jumpWhen == isOr) {
+            for (final Guard child : children) {
+                jump(child, label, jumpWhen);
+            }
+            return;
+        }
+        final Label skipLabel = new Label();
+        for (int index = 0; index < children.length - 1; index++) {
+            jump(children[index], skipLabel, isOr);
+        }
+        jump(children[children.length - 1], label, jumpWhen);
+        ga.mark(skipLabel);
+    }
+
+    private void jumpConstant(final boolean result, final Label label, final boolean jumpWhen) {
+        if (result == jumpWhen) {
+            ga.goTo(label);
+        }
+    }
+
+    /*
+     * 类型在织入时就确定能否被目标类的类加载器找到：找不到时INSTANCEOF会抛出LinkageError，直接编译为不成立的常量
+     */
+    private void jumpInstanceOf(final String javaClassName, final Label label, final boolean jumpWhen) {
+        final String internalClassName = toInternalClassName(javaClassName);
+        if (isStatic || !isResolvable(internalClassName)) {
+            jumpConstant(false, label, jumpWhen);
+            return;
+        }
+        ga.loadThis();
+        ga.instanceOf(Type.getObjectType(internalClassName));
+        ga.ifZCmp(jumpWhen ? GeneratorAdapter.NE : GeneratorAdapter.EQ, label);
+    }
+
+    /*
+     * 只查找类文件而不加载类，避免在形变过程中触发类加载；
+     * BootStrapClassLoader不能显式引用，使用系统类加载器最顶层的父加载器间接查找
+     */
+    private boolean isResolvable(final String internalClassName) {
+        ClassLoader loader = targetClassLoader;
+        if (null == loader) {
+            loader = ClassLoader.getSystemClassLoader();
+            while (null != loader && null != loader.getParent()) {
+                loader = loader.getParent();
+            }
+        }
+        return null != loader
+                && null != loader.getResource(internalClassName + ".class");
+    }
+
+    private void jumpCompare(final Guard guard, final Label label, final boolean jumpWhen) {
+        final int index = guard.getIndex();
+        if (index >= argumentTypeArray.length) {
+            jumpConstant(false, label, jumpWhen);
+            return;
+        }
+        final Type argumentType = argumentTypeArray[index];
+        final boolean isReference = argumentType.getSort() == Type.OBJECT || argumentType.getSort() == Type.ARRAY;
+        final boolean isEquals = guard.getOperator() == Guard.Operator.EQ;
+        final Object value = guard.getValue();
+
+        // 空值判断：基本类型永远不为null
+        if (null == value) {
+            if (!isReference) {
+                jumpConstant(!isEquals, label, jumpWhen);
+                return;
+            }
+            ga.loadArg(index);
+            if (isEquals == jumpWhen) {
+                ga.ifNull(label);
+            } else {
+                ga.ifNonNull(label);
+            }
+            return;
+        }
+
+        // 基本类型
+        if (!isReference) {
+            if (!isComparable(argumentType, guard)) {
+                jumpConstant(false, label, jumpWhen);
+                return;
+            }
+            ga.loadArg(index);
+            jumpPrimitiveCompare(argumentType, guard, label, jumpWhen);
+            return;
+        }
+
+        // 基本类型的包装类型：为null时比较不成立，否则拆箱后按基本类型比较
+        final Type primitiveType = toPrimitiveType(argumentType);
+        if (null != primitiveType) {
+            if (!isComparable(primitiveType, guard)) {
+                jumpConstant(false, label, jumpWhen);
+                return;
+            }
+            final Label nullLabel = new Label();
+            final Label endLabel = new Label();
+            ga.loadArg(index);
+            ga.dup();
+            ga.ifNull(nullLabel);
+            ga.unbox(primitiveType);
+            jumpPrimitiveCompare(primitiveType, guard, label, jumpWhen);
+            ga.goTo(endLabel);
+            ga.mark(nullLabel);
+            ga.pop();
+            jumpConstant(false, label, jumpWhen);
+            ga.mark(endLabel);
+            return;
+        }
+
+        // String：常量在前调用equals()，参数为null时也不会抛出异常
+        if (value instanceof String && argumentType.getSort() == Type.OBJECT) {
+            ga.push((String) value);
+            ga.loadArg(index);
+            ga.invokeVirtual(ASM_TYPE_STRING, ASM_METHOD_String$equals);
+            ga.ifZCmp(isEquals == jumpWhen ? GeneratorAdapter.NE : GeneratorAdapter.EQ, label);
+            return;
+        }
+
+        jumpConstant(false, label, jumpWhen);
+    }
+
+    /*
+     * 栈顶为基本类型的参数值，和常量比较后跳转
+     */
+    private void jumpPrimitiveCompare(final Type primitiveType, final Guard guard, final Label label, final boolean jumpWhen) {
+        final Object value = guard.getValue();
+        final Type compareType;
+        if (value instanceof Boolean) {
+            compareType = Type.INT_TYPE;
+            ga.push((Boolean) value);
+        } else {
+            final Number number = value instanceof Character
+                    ? Integer.valueOf((Character) value)
+                    : (Number) value;
+            compareType = toCompareType(primitiveType, number);
+            ga.cast(primitiveType, compareType);
+            if (compareType == Type.INT_TYPE) {
+                ga.push(number.intValue());
+            } else if (compareType == Type.LONG_TYPE) {
+                ga.push(number.longValue());
+            } else {
+                ga.push(number.doubleValue());
+            }
+        }
+
+        final int mode = toMode(guard.getOperator());
+        if (jumpWhen) {
+            ga.ifCmp(compareType, mode, label);
+            return;
+        }
+        if (compareType != Type.DOUBLE_TYPE) {
+            ga.ifCmp(compareType, toNegateMode(guard.getOperator()), label);
+            return;
+        }
+
+        // 浮点数比较不能直接取反，否则NaN会使取反后的比较成立
+        final Label skipLabel = new Label();
+        ga.ifCmp(compareType, mode, skipLabel);
+        ga.goTo(label);
+        ga.mark(skipLabel);
+    }
+
+    /*
+     * 比较时使用的类型，保证参数和常量都能无损转换
+     */
+    private static Type toCompareType(final Type primitiveType, final Number number) {
+        final boolean isIntegral = number instanceof Integer
+                || number instanceof Long
+                || number instanceof Short
+                || number instanceof Byte;
+        switch (primitiveType.getSort()) {
+            case Type.FLOAT:
+            case Type.DOUBLE:
+                return Type.DOUBLE_TYPE;
+            case Type.LONG:
+                return isIntegral ? Type.LONG_TYPE : Type.DOUBLE_TYPE;
+            default:
+                if (!isIntegral) {
+                    return Type.DOUBLE_TYPE;
+                }
+                return number.longValue() == number.intValue() ? Type.INT_TYPE : Type.LONG_TYPE;
+        }
+    }
+
+    private static boolean isComparable(final Type primitiveType, final Guard guard) {
+        final Object value = guard.getValue();
+        if (primitiveType.getSort() == Type.BOOLEAN) {
+            return value instanceof Boolean;
+        }
+        return value instanceof Number || value instanceof Character;
+    }
+
+    private static int toMode(final Guard.Operator operator) {
+        switch (operator) {
+            case NE:
+                return GeneratorAdapter.NE;
+            case LT:
+                return GeneratorAdapter.LT;
+            case LE:
+                return GeneratorAdapter.LE;
+            case GT:
+                return GeneratorAdapter.GT;
+            case GE:
+                return GeneratorAdapter.GE;
+            case EQ:
+            default:
+                return GeneratorAdapter.EQ;
+        }
+    }
+
+    private static int toNegateMode(final Guard.Operator operator) {
+        switch (operator) {
+            case NE:
+                return GeneratorAdapter.EQ;
+            case LT:
+                return GeneratorAdapter.GE;
+            case LE:
+                return GeneratorAdapter.GT;
+            case GT:
+                return GeneratorAdapter.LE;
+            case GE:
+                return GeneratorAdapter.LT;
+            case EQ:
+            default:
+                return GeneratorAdapter.NE;
+        }
+    }
+
+    private static Type toPrimitiveType(final Type type) {
+        if (type.getSort() != Type.OBJECT) {
+            return null;
+        }
+        switch (type.getInternalName()) {
+            case "java/lang/Boolean":
+                return Type.BOOLEAN_TYPE;
+            case "java/lang/Character":
+                return Type.CHAR_TYPE;
+            case "java/lang/Byte":
+                return Type.BYTE_TYPE;
+            case "java/lang/Short":
+                return Type.SHORT_TYPE;
+            case "java/lang/Integer":
+                return Type.INT_TYPE;
+            case "java/lang/Long":
+                return Type.LONG_TYPE;
+            case "java/lang/Float":
+                return Type.FLOAT_TYPE;
+            case "java/lang/Double":
+                return Type.DOUBLE_TYPE;
+            default:
+                return null;
+        }
+    }
+
+}
@@ -1,13 +1,12 @@
 package com.alibaba.jvm.sandbox.core.enhance.weaver.asm;
 
+import com.alibaba.jvm.sandbox.api.filter.Guard;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
 
-import java.com.alibaba.jvm.sandbox.spy.Spy;
-
 /**
  * 方法重写
  * ReWriteJavaMethod
@@ -17,6 +16,12 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
 
     private final Type[] argumentTypeArray;
 
+    // 守卫条件的结果所在的局部变量，没有守卫条件时为-1
+    private int guardLocal = -1;
+
+    // 方法开始时间所在的局部变量，没有开启计时时为-1
+    private int startNanoTimeLocal = -1;
+
     /**
      * Creates a new {@link AdviceAdapter}.
      *
@@ -32,6 +37,16 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         this.argumentTypeArray = Type.getArgumentTypes(desc);
     }
 
+    /**
+     * 装箱时使用包装类型的valueOf()，小数值直接命中包装类型的缓存，不需要每次都创建新的对象，织入的指令也更短
+     *
+     * @param type 需要装箱的类型
+     */
+    @Override
+    public void box(final Type type) {
+        valueOf(type);
+    }
+
     /**
      * 将NULL压入栈
      */
@@ -48,6 +63,15 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         return (methodAccess & ACC_STATIC) != 0;
     }
 
+    /**
+     * 是否有参数
+     *
+     * @return true:有参数 / false:无参数
+     */
+    final protected boolean hasArguments() {
+        return argumentTypeArray.length > 0;
+    }
+
     /**
      * 加载this/null
      */
@@ -72,6 +96,80 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         }
     }
 
+    /**
+     * 计算守卫条件并保存到局部变量
+     * <p>
+     * 只在方法进入时计算一次，之后所有事件的织入点都通过{@link #ifNotGuarded(Label)}读取这个结果
+     * </p>
+     *
+     * @param guard             守卫条件，为null时不织入任何代码
+     * @param targetClassLoader 目标类的类加载器，用于在织入时判断守卫条件中的类型能否被找到
+     */
+    final protected void storeGuard(Guard guard, ClassLoader targetClassLoader) {
+        if (null == guard) {
+            return;
+        }
+        new GuardCompiler(this, argumentTypeArray, isStaticMethod(), targetClassLoader).load(guard);
+        guardLocal = newLocal(Type.BOOLEAN_TYPE);
+        storeLocal(guardLocal);
+    }
+
+    /**
+     * 守卫条件不成立时跳转
+     *
+     * @param skipLabel 守卫条件不成立时跳转的位置
+     */
+    final protected void ifNotGuarded(Label skipLabel) {
+        if (guardLocal < 0) {
+            return;
+        }
+        loadLocal(guardLocal);
+        ifZCmp(EQ, skipLabel);
+    }
+
+    /**
+     * 声明方法开始时间的局部变量
+     * <p>
+     * 必须在异常处理块的范围之前赋初值，保证异常出口读取时变量已经初始化
+     * </p>
+     *
+     * @param isTimingEnable 是否开启计时，未开启时不织入任何代码
+     */
+    final protected void initStartNanoTime(boolean isTimingEnable) {
+        if (!isTimingEnable) {
+            return;
+        }
+        push(0L);
+        startNanoTimeLocal = newLocal(Type.LONG_TYPE);
+        storeLocal(startNanoTimeLocal);
+    }
+
+    /**
+     * 记录方法开始时间，在BEFORE事件处理完成后调用，耗时中不包含BEFORE事件的处理时间
+     */
+    final protected void storeStartNanoTime() {
+        if (startNanoTimeLocal < 0) {
+            return;
+        }
+        invokeStatic(ASM_TYPE_SYSTEM, ASM_METHOD_System$nanoTime);
+        storeLocal(startNanoTimeLocal);
+    }
+
+    /**
+     * 计算方法耗时并压入栈
+     *
+     * @return true:已压入耗时 / false:没有开启计时
+     */
+    final protected boolean loadCostNanoTime() {
+        if (startNanoTimeLocal < 0) {
+            return false;
+        }
+        invokeStatic(ASM_TYPE_SYSTEM, ASM_METHOD_System$nanoTime);
+        loadLocal(startNanoTimeLocal);
+        math(SUB, Type.LONG_TYPE);
+        return true;
+    }
+
     /**
      * 加载返回值
      * @param returnType 返回值类型
@@ -195,6 +293,10 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
 
     /**
      * 根据事件监听器的返回{@link java.com.alibaba.jvm.sandbox.spy.Spy.Ret}来进行方法流程控制
+     * <p>
+     * 配合{@code Spy#spyMethodOn*Stub}使用：立即抛出异常已经在Spy中完成，栈顶的Ret只有在需要立即返回时才不为null，
+     * 所以这里只需要织入一次判空和返回，让被增强的方法尽可能小，不至于超出JIT的内联阈值
+     * </p>
      *
      * @param desc            方法ASM描述
      * @param isPopRawRespond 是否需要弹出栈返回值
@@ -203,52 +305,21 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
      */
     final protected void processControl(String desc, boolean isPopRawRespond) {
         final Label finishLabel = new Label();
-        final Label returnLabel = new Label();
-        final Label throwsLabel = new Label();
         /*
          * {rawRespond} 表示 isPopRawRespond = true 时才会存在
          *
-         * [Ret, {rawRespond}]
-         */
-        dup();
-        /*
-         * [Ret, Ret, {rawRespond}]
-         */
-        visitFieldInsn(GETFIELD, ASM_TYPE_SPY_RET.getInternalName(), "state", ASM_TYPE_INT.getDescriptor());
-        /*
-         * [I, Ret, {rawRespond}]
+         * [Ret|null, {rawRespond}]
          */
         dup();
         /*
-         * [I,I, Ret, {rawRespond}]
-         */
-        push(Spy.Ret.RET_STATE_RETURN);
-        /*
-         * [I,I,I, Ret, {rawRespond}]
-         */
-        ifICmp(EQ, returnLabel);
-        /*
-         * [I, Ret, {rawRespond}]
-         */
-        push(Spy.Ret.RET_STATE_THROWS);
-        /*
-         * [I, I, Ret, {rawRespond}]
-         */
-        ifICmp(EQ, throwsLabel);
-        /*
-         * [Ret, {rawRespond}]
-         */
-        goTo(finishLabel);
-        mark(returnLabel);
-        /*
-         * [I, Ret, {rawRespond}]
+         * [Ret|null, Ret|null, {rawRespond}]
          */
-        pop();
-        Type type = Type.getReturnType(desc);
+        ifNull(finishLabel);
         /*
          * [Ret, {rawRespond}]
          * #fix issue #328
          */
+        final Type type = Type.getReturnType(desc);
         if (isPopRawRespond) {
             popRawRespond(type);
         }
@@ -262,33 +333,10 @@ public class ReWriteAdapter extends CodeLockAdapter implements Opcodes, AsmTypes
         unboxReturn(type);
         /*
          * [spyRespond] Return Exit
-         * [spyRespond]
-         */
-        mark(throwsLabel);
-        /*
-         * [Ret, {rawRespond}]
-         */
-        if (isPopRawRespond) {
-            popRawRespond(type);
-        }
-        /*
-         * [Ret]
-         */
-        visitFieldInsn(GETFIELD, ASM_TYPE_SPY_RET.getInternalName(), "respond", ASM_TYPE_OBJECT.getDescriptor());
-        /*
-         * [Object]
-         */
-        checkCast(ASM_TYPE_THROWABLE);
-        /*
-         * [Throwable]
-         */
-        throwException();
-        /*
-         * throw [Throwable] Exit
          */
         mark(finishLabel);
         /*
-         * [Ret, {raw respond}]
+         * [null, {raw respond}]
          */
         pop();
         /*
@@ -4,6 +4,8 @@ import com.alibaba.jvm.sandbox.api.resource.LoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * 内核使用的已加载类管理
@@ -23,4 +25,25 @@ public interface CoreLoadedClassDataSource extends LoadedClassDataSource {
      */
     List<Class<?>> findForReTransform(Matcher matcher);
 
+    /**
+     * 使用{@link Matcher}来完成类的检索，每命中一个类就立即回调一次
+     * <p>
+     * 与{@link #findForReTransform(Matcher)}不同，调用方无需等待全量检索结束就可以开始处理命中的类；
+     * 即使开启了并行检索，回调也总是发生在调用线程上
+     * </p>
+     *
+     * @param matcher  类匹配
+     * @param consumer 命中类的回调
+     * @return 命中的类总数
+     */
+    int findForReTransform(Matcher matcher, Consumer<Class<?>> consumer);
+
+    /**
+     * 根据类名检索已加载的类
+     *
+     * @param javaClassName 类名
+     * @return 同名的已加载类（不同ClassLoader可能加载同名类）
+     */
+    Set<Class<?>> findLoadedByName(String javaClassName);
+
 }
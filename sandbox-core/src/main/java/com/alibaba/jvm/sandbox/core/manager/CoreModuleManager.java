@@ -35,6 +35,19 @@ public interface CoreModuleManager {
      */
     void active(CoreModule coreModule) throws ModuleException;
 
+    /**
+     * 实例化延迟加载的模块
+     * <p>
+     * 完成模块的实例化、资源注入和加载通知，模块标记了加载时激活的同时激活模块；
+     * 模块已经实例化时直接返回
+     * </p>
+     *
+     * @param coreModule 模块业务对象
+     * @return 已经实例化的模块业务对象
+     * @throws ModuleException 实例化模块失败，此时模块会被卸载
+     */
+    CoreModule instantiate(CoreModule coreModule) throws ModuleException;
+
     /**
      * 冻结模块
      * 模块冻结时候将会失去所有事件的监听
@@ -0,0 +1,94 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
+
+import java.lang.ref.WeakReference;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+
+/**
+ * 被增强过的类集合
+ * <p>
+ * 记录一个{@link SandboxClassFileTransformer}实际改变过的类，删除观察时只需要还原这些类，而不必重新匹配所有已加载的类。
+ * 集合只持有类和类加载器的弱引用，不会阻止类卸载
+ * </p>
+ */
+class AffectClasses {
+
+    // 重新形变时增强的类
+    private final Set<Class<?>> affectClasses = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // 类加载时增强的类此时还没有Class对象，先记录类加载器和类名，等到需要时再检索
+    private final List<DefiningClass> definingClasses = new ArrayList<>();
+
+    /**
+     * 记录一个被增强的类
+     *
+     * @param loader              类加载器
+     * @param internalClassName   类名
+     * @param classBeingRedefined 重新形变时的类，类加载时为null
+     */
+    synchronized void affect(final ClassLoader loader,
+                             final String internalClassName,
+                             final Class<?> classBeingRedefined) {
+        if (null != classBeingRedefined) {
+            affectClasses.add(classBeingRedefined);
+        } else {
+            definingClasses.add(new DefiningClass(loader, toJavaClassName(internalClassName)));
+        }
+    }
+
+    /**
+     * 获取所有仍然存活的被增强类
+     *
+     * @param classDataSource 已加载类数据源，用于检索类加载时增强的类
+     * @return 被增强的类
+     */
+    synchronized List<Class<?>> resolve(final CoreLoadedClassDataSource classDataSource) {
+        final Iterator<DefiningClass> it = definingClasses.iterator();
+        while (it.hasNext()) {
+            final DefiningClass definingClass = it.next();
+            final ClassLoader loader = definingClass.getLoader();
+
+            // 类加载器已被回收，它加载的类也已经卸载了
+            if (null == loader && !definingClass.isBootstrap()) {
+                it.remove();
+                continue;
+            }
+            for (final Class<?> clazz : classDataSource.findLoadedByName(definingClass.javaClassName)) {
+                if (clazz.getClassLoader() == loader) {
+                    affectClasses.add(clazz);
+                    it.remove();
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(affectClasses);
+    }
+
+    /*
+     * 类加载时被增强的类
+     */
+    private static class DefiningClass {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final String javaClassName;
+
+        DefiningClass(final ClassLoader loader, final String javaClassName) {
+            // BootstrapClassLoader用null表示，不需要弱引用
+            this.loaderRef = null == loader ? null : new WeakReference<>(loader);
+            this.javaClassName = javaClassName;
+        }
+
+        ClassLoader getLoader() {
+            return null == loaderRef ? null : loaderRef.get();
+        }
+
+        boolean isBootstrap() {
+            return null == loaderRef;
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import java.lang.instrument.Instrumentation;
+import java.util.List;
+
+/**
+ * 批量类形变器
+ * <p>
+ * 每次调用{@link Instrumentation#retransformClasses(Class[])}都会引起一次JVMTI调用和安全点停顿，
+ * 这里将待形变的类按批次提交以减少调用次数。
+ * JVM对一次提交的类是原子处理的，任何一个类形变失败整批都不会生效，
+ * 所以当一个批次失败时对半拆分后分别重试，直到定位出失败的单个类
+ * </p>
+ */
+public class BatchReTransformer {
+
+    private final Instrumentation inst;
+    private final int batchSize;
+
+    /**
+     * 构造批量类形变器
+     *
+     * @param inst      Instrumentation
+     * @param batchSize 每批最多形变的类数量，小于等于1时逐个形变
+     */
+    public BatchReTransformer(final Instrumentation inst, final int batchSize) {
+        this.inst = inst;
+        this.batchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * 获取每批最多形变的类数量
+     *
+     * @return 每批最多形变的类数量
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * 形变类
+     *
+     * @param classes  待形变的类
+     * @param callback 逐个类的形变结果回调，回调顺序与待形变类的顺序一致
+     * @return 实际调用{@link Instrumentation#retransformClasses(Class[])}的次数
+     */
+    public int reTransform(final List<Class<?>> classes, final Callback callback) {
+        int times = 0;
+        for (int from = 0; from < classes.size(); from += batchSize) {
+            times += reTransform(classes, from, Math.min(from + batchSize, classes.size()), callback);
+        }
+        return times;
+    }
+
+    private int reTransform(final List<Class<?>> classes,
+                            final int from,
+                            final int to,
+                            final Callback callback) {
+        try {
+            inst.retransformClasses(classes.subList(from, to).toArray(new Class<?>[0]));
+        } catch (Throwable cause) {
+
+            // 已经是单个类了，那就是这个类形变失败
+            if (to - from == 1) {
+                callback.onFailed(classes.get(from), from + 1, cause);
+                return 1;
+            }
+
+            // 对半拆分后分别重试，以定位出形变失败的类
+            final int middle = (from + to) >>> 1;
+            return 1
+                    + reTransform(classes, from, middle, callback)
+                    + reTransform(classes, middle, to, callback);
+        }
+
+        for (int index = from; index < to; index++) {
+            callback.onSuccess(classes.get(index), index + 1);
+        }
+        return 1;
+    }
+
+    /**
+     * 逐个类的形变结果回调
+     */
+    public interface Callback {
+
+        /**
+         * 类形变成功
+         *
+         * @param clazz 形变成功的类
+         * @param index 在待形变类中的序号，从1开始
+         */
+        void onSuccess(Class<?> clazz, int index);
+
+        /**
+         * 类形变失败
+         *
+         * @param clazz 形变失败的类
+         * @param index 在待形变类中的序号，从1开始
+         * @param cause 失败原因
+         */
+        void onFailed(Class<?> clazz, int index, Throwable cause);
+
+    }
+
+}
@@ -142,4 +142,10 @@ class DefaultConfigInfo implements ConfigInfo {
             IOUtils.closeQuietly(is);
         }
     }
+
+    @Override
+    public String getReadiness() {
+        return cfg.getReadiness();
+    }
+
 }
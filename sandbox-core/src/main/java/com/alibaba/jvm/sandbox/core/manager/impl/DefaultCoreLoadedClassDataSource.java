@@ -5,7 +5,6 @@ import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
-import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
 import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
 import org.slf4j.Logger;
@@ -13,6 +12,12 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.SandboxClassUtils.isComeFromSandboxFamily;
@@ -27,6 +32,12 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
+    // 并行检索时单个扫描任务最多负责的已加载类数量，超过则继续拆分
+    private static final int SCAN_SPLIT_THRESHOLD = 512;
+
+    // 并行检索结束标记
+    private static final Object SCAN_FINISHED = new Object();
+
     /**
      * Instrumentation实例
      */
@@ -42,14 +53,41 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
      */
     private final boolean isNativeSupported;
 
+    /**
+     * 已加载类检索的并行度，小于等于1时串行检索
+     */
+    private final int scanParallelism;
+
+    /**
+     * 并行检索所使用的有界线程池，第一次并行检索时才创建
+     */
+    private volatile ForkJoinPool scanPool;
+
+    /**
+     * 已加载类索引，匹配器能缩小候选范围时不必全量匹配所有已加载的类
+     */
+    private final LoadedClassIndex loadedClassIndex;
+
     public DefaultCoreLoadedClassDataSource(
             final Instrumentation inst,
             final boolean isEnableUnsafe,
             final boolean isNativeSupported
+    ) {
+        this(inst, isEnableUnsafe, isNativeSupported, 1);
+    }
+
+    public DefaultCoreLoadedClassDataSource(
+            final Instrumentation inst,
+            final boolean isEnableUnsafe,
+            final boolean isNativeSupported,
+            final int scanParallelism
     ) {
         this.inst = inst;
         this.isEnableUnsafe = isEnableUnsafe;
         this.isNativeSupported = isNativeSupported;
+        this.scanParallelism = scanParallelism;
+        this.loadedClassIndex = new LoadedClassIndex(inst);
+        this.loadedClassIndex.open();
     }
 
     @Override
@@ -92,70 +130,260 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
      */
     @Override
     public List<Class<?>> findForReTransform(final Matcher matcher) {
-        return find(matcher, true);
+        final List<Class<?>> classes = new ArrayList<>();
+        find(matcher, true, classes::add);
+        return classes;
+    }
+
+    @Override
+    public int findForReTransform(final Matcher matcher, final Consumer<Class<?>> consumer) {
+        return find(matcher, true, consumer);
+    }
+
+    @Override
+    public Set<Class<?>> findLoadedByName(final String javaClassName) {
+        return loadedClassIndex.findByName(javaClassName);
     }
 
     /**
      * 根据匹配器查找当前JVM中所有满足匹配条件的类
+     * <p>
+     * 匹配器线程安全且已加载类足够多时交给扫描线程池并行匹配，否则在调用线程上串行匹配
+     * </p>
      *
-     * @param matcher
-     * @param isRemoveUnsupported
-     * @return
+     * @param matcher             匹配器
+     * @param isRemoveUnsupported 是否过滤掉不支持形变的类和行为
+     * @param consumer            命中类的回调，总是在调用线程上执行
+     * @return 命中的类总数
      */
-    private List<Class<?>> find(final Matcher matcher, final boolean isRemoveUnsupported) {
+    private int find(final Matcher matcher,
+                     final boolean isRemoveUnsupported,
+                     final Consumer<Class<?>> consumer) {
+        if (null == matcher) {
+            return 0;
+        }
+
+        // 优先从已加载类索引中检索候选类，无法缩小范围时
+        // 通过Instrumentation#getAllLoadedClasses()来获取到当前JVM中所有已加载的类，并进行迭代以找到满足匹配条件的类
+        final Set<Class<?>> candidates = matcher.findCandidates(loadedClassIndex);
+        final Class<?>[] loaded = null == candidates
+                ? inst.getAllLoadedClasses()
+                : candidates.toArray(new Class<?>[0]);
+        if (scanParallelism <= 1
+                || loaded.length < SCAN_SPLIT_THRESHOLD * 2
+                || !matcher.isThreadSafe()) {
+            return findInSerial(loaded, matcher, isRemoveUnsupported, consumer);
+        }
+        return findInParallel(loaded, matcher, isRemoveUnsupported, consumer);
+    }
+
+    private int findInSerial(final Class<?>[] loaded,
+                             final Matcher matcher,
+                             final boolean isRemoveUnsupported,
+                             final Consumer<Class<?>> consumer) {
         SandboxProtector.instance.enterProtecting();
         try {
+            int count = 0;
+            for (final Class<?> clazz : loaded) {
+                if (isMatched(clazz, matcher, isRemoveUnsupported)) {
+                    consumer.accept(clazz);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
 
-            final List<Class<?>> classes = new ArrayList<>();
-            if (null == matcher) {
-                return classes;
+    /*
+     * 并行检索：扫描线程负责匹配，命中的类通过队列交还给调用线程，
+     * 调用线程边等待边回调，无需等到全量匹配结束
+     */
+    private int findInParallel(final Class<?>[] loaded,
+                               final Matcher matcher,
+                               final boolean isRemoveUnsupported,
+                               final Consumer<Class<?>> consumer) {
+        final BlockingQueue<Object> matchedQueue = new LinkedBlockingQueue<>();
+        final ScanTask task = new ScanTask(loaded, 0, loaded.length, matcher, isRemoveUnsupported, matchedQueue);
+        getScanPool().execute(() -> {
+            try {
+                task.invoke();
+            } catch (Throwable cause) {
+                logger.warn("parallel scan loaded classes occur an exception, the result may be incomplete.", cause);
+            } finally {
+                matchedQueue.offer(SCAN_FINISHED);
             }
-            // 通过Instrumentation#getAllLoadedClasses()来获取到当前JVM中所有已加载的类，并进行迭代以找到满足匹配条件的类
-            final Iterator<Class<?>> itForLoaded = iteratorForLoadedClasses();
-            while (itForLoaded.hasNext()) {
-                final Class<?> clazz = itForLoaded.next();
-
-                // #242 的建议，过滤掉sandbox家族的类
-                if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
-                    continue;
-                }
+        });
 
-                // 过滤掉对于JVM认为不可修改的类
-                if (isRemoveUnsupported && !inst.isModifiableClass(clazz)) {
-                    // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
-                    continue;
-                }
-                try {
-                    if (isRemoveUnsupported) {
-                        Matcher andMatcher = new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
-                                .and(matcher);
-                        MatchingResult result = andMatcher.matching(ClassStructureFactory.createClassStructure(clazz));
-                        if (result.isMatched()) {
-                            classes.add(clazz);
-                        }
-                    } else {
-                        if (matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched()) {
-                            classes.add(clazz);
-                        }
-                    }
+        int count = 0;
+        try {
+            Object matched;
+            while ((matched = matchedQueue.take()) != SCAN_FINISHED) {
+                consumer.accept((Class<?>) matched);
+                count++;
+            }
+        } catch (InterruptedException cause) {
+            Thread.currentThread().interrupt();
+            task.isAborted = true;
+            logger.warn("parallel scan loaded classes was interrupted, matched {} classes so far.", count);
+        } catch (RuntimeException | Error cause) {
+            task.isAborted = true;
+            throw cause;
+        }
+        return count;
+    }
 
-                } catch (Throwable cause) {
-                    // 在这里可能会遇到非常坑爹的模块卸载错误
-                    // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
-                    // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
-                    // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
-                    // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
-                    logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
-                }
+    /*
+     * 判断单个已加载类是否满足匹配条件
+     */
+    private boolean isMatched(final Class<?> clazz,
+                              final Matcher matcher,
+                              final boolean isRemoveUnsupported) {
+
+        // #242 的建议，过滤掉sandbox家族的类
+        if (isComeFromSandboxFamily(toInternalClassName(clazz.getName()), clazz.getClassLoader())) {
+            return false;
+        }
+
+        // 过滤掉对于JVM认为不可修改的类
+        if (isRemoveUnsupported && !inst.isModifiableClass(clazz)) {
+            // logger.debug("remove from findForReTransform, because class:{} is unModifiable", clazz.getName());
+            return false;
+        }
+        try {
+            if (isRemoveUnsupported) {
+                final Matcher andMatcher = new UnsupportedMatcher(clazz.getClassLoader(), isEnableUnsafe, isNativeSupported)
+                        .and(matcher);
+                return andMatcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched();
+            } else {
+                return matcher.matching(ClassStructureFactory.createClassStructure(clazz)).isMatched();
             }
-            return classes;
+        } catch (Throwable cause) {
+            // 在这里可能会遇到非常坑爹的模块卸载错误
+            // 当一个URLClassLoader被动态关闭之后，但JVM已经加载的类并不知情（因为没有GC）
+            // 所以当尝试获取这个类更多详细信息的时候会引起关联类的ClassNotFoundException等未知的错误（取决于底层ClassLoader的实现）
+            // 这里没有办法穷举出所有的异常情况，所以catch Throwable来完成异常容灾处理
+            // 当解析类出现异常的时候，直接简单粗暴的认为根本没有这个类就好了
+            logger.debug("remove from findForReTransform, because loading class:{} occur an exception", clazz.getName(), cause);
+            return false;
+        }
+    }
 
-        } finally {
-            SandboxProtector.instance.exitProtecting();
+    // 获取扫描线程池，第一次并行检索时才创建
+    private ForkJoinPool getScanPool() {
+        if (null == scanPool) {
+            synchronized (this) {
+                if (null == scanPool) {
+                    final int parallelism = Math.min(scanParallelism, Runtime.getRuntime().availableProcessors());
+                    scanPool = new ForkJoinPool(Math.max(parallelism, 1), pool -> {
+                        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("sandbox-scan-worker-" + thread.getPoolIndex());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, null, false);
+                    logger.info("sandbox scan pool created, parallelism={};", scanPool.getParallelism());
+                }
+            }
         }
+        return scanPool;
+    }
 
+    /**
+     * 获取已加载类索引
+     *
+     * @return 已加载类索引
+     */
+    public LoadedClassIndex getLoadedClassIndex() {
+        return loadedClassIndex;
     }
 
+    /**
+     * 关闭已加载类索引和扫描线程池
+     */
+    public void destroy() {
+        loadedClassIndex.close();
+        synchronized (this) {
+            if (null != scanPool) {
+                scanPool.shutdownNow();
+                scanPool = null;
+            }
+        }
+    }
+
+    /**
+     * 已加载类区间的扫描任务
+     * <p>
+     * 区间足够大时一分为二，否则在当前扫描线程上逐个匹配；
+     * 扫描线程同样需要进入{@link SandboxProtector}，避免匹配过程中触发的事件再次进入沙箱
+     * </p>
+     */
+    private class ScanTask extends RecursiveAction {
+
+        private final Class<?>[] loaded;
+        private final int from;
+        private final int to;
+        private final Matcher matcher;
+        private final boolean isRemoveUnsupported;
+        private final BlockingQueue<Object> matchedQueue;
+
+        // 调用方放弃等待后，尚未开始的区间不再匹配
+        private volatile boolean isAborted;
+
+        private final ScanTask root;
+
+        ScanTask(final Class<?>[] loaded,
+                 final int from,
+                 final int to,
+                 final Matcher matcher,
+                 final boolean isRemoveUnsupported,
+                 final BlockingQueue<Object> matchedQueue) {
+            this(loaded, from, to, matcher, isRemoveUnsupported, matchedQueue, null);
+        }
+
+        private ScanTask(final Class<?>[] loaded,
+                         final int from,
+                         final int to,
+                         final Matcher matcher,
+                         final boolean isRemoveUnsupported,
+                         final BlockingQueue<Object> matchedQueue,
+                         final ScanTask root) {
+            this.loaded = loaded;
+            this.from = from;
+            this.to = to;
+            this.matcher = matcher;
+            this.isRemoveUnsupported = isRemoveUnsupported;
+            this.matchedQueue = matchedQueue;
+            this.root = null == root ? this : root;
+        }
+
+        @Override
+        protected void compute() {
+            if (root.isAborted) {
+                return;
+            }
+            if (to - from > SCAN_SPLIT_THRESHOLD) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(
+                        new ScanTask(loaded, from, middle, matcher, isRemoveUnsupported, matchedQueue, root),
+                        new ScanTask(loaded, middle, to, matcher, isRemoveUnsupported, matchedQueue, root)
+                );
+                return;
+            }
+            SandboxProtector.instance.enterProtecting();
+            try {
+                for (int index = from; index < to && !root.isAborted; index++) {
+                    final Class<?> clazz = loaded[index];
+                    if (isMatched(clazz, matcher, isRemoveUnsupported)) {
+                        matchedQueue.offer(clazz);
+                    }
+                }
+            } finally {
+                SandboxProtector.instance.exitProtecting();
+            }
+        }
+
+    }
 
     /**
      * 根据过滤器搜索出匹配的类集合
@@ -165,7 +393,9 @@ public class DefaultCoreLoadedClassDataSource implements CoreLoadedClassDataSour
      */
     @Override
     public Set<Class<?>> find(Filter filter) {
-        return new LinkedHashSet<>(find(new ExtFilterMatcher(make(filter)), false));
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        find(new ExtFilterMatcher(make(filter)), false, classes::add);
+        return classes;
     }
 
 }
@@ -8,6 +8,9 @@ import com.alibaba.jvm.sandbox.core.CoreConfigure;
 import com.alibaba.jvm.sandbox.core.CoreModule;
 import com.alibaba.jvm.sandbox.core.CoreModule.ReleaseResource;
 import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarStaging;
+import com.alibaba.jvm.sandbox.core.classloader.SharedLibraryClassLoader;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
@@ -27,6 +30,7 @@ import java.lang.instrument.Instrumentation;
 import java.lang.reflect.Field;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static com.alibaba.jvm.sandbox.api.ModuleException.ErrorCode.*;
 import static com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager.ModuleLifeCycleType.*;
@@ -57,6 +61,16 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
     private final ProviderManager providerManager;
 
+    /**
+     * 增强字节码缓存，为null时不启用
+     */
+    private final WovenByteCodeCache wovenByteCodeCache;
+
+    /**
+     * 持久化观察注册表，为null时持久化观察按普通观察处理
+     */
+    private final PersistentWatchRegistry persistentWatchRegistry;
+
     // 模块目录&文件集合
     private final File[] moduleLibDirArray;
 
@@ -68,6 +82,50 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      */
     private final Map<String, CoreModule> loadedModuleBOMap = new ConcurrentHashMap<>();
 
+    /**
+     * 刷新锁
+     * <p>
+     * 重置、刷新和卸载所有模块会批量变更模块注册表，彼此之间需要串行；
+     * 单个模块的加载、激活、冻结和卸载在该模块的{@link CoreModule}上同步，不同模块之间互不阻塞
+     * </p>
+     * <p>
+     * 锁的获取顺序总是：刷新锁 -> 模块锁 -> 模块注册表锁。
+     * 模块生命周期回调中已经持有模块锁，此时只能尝试获取刷新锁，获取不到时直接失败而不是等待
+     * </p>
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    /**
+     * 模块注册表锁
+     * <p>
+     * 只保护模块注册表的增删、ModuleJarClassLoader的引用检查和共享库ClassLoader，持有期间不回调模块，
+     * 获取顺序总是在模块锁之后
+     * </p>
+     */
+    private final Object registryLock = new Object();
+
+    /**
+     * 本次重置或刷新正在加载模块的ModuleJarClassLoader，需要在模块注册表锁上同步访问
+     * <p>
+     * 同一个模块Jar文件中的模块逐个加载，后面的模块注册之前，其他线程卸载前面已经注册的模块也不能关闭它们共用的ClassLoader；
+     * 加载结束后再统一关闭不再被引用的ClassLoader
+     * </p>
+     */
+    private final Set<ModuleJarClassLoader> loadingModuleJarClassLoaders = new HashSet<>();
+
+    /**
+     * 当前线程正在执行的模块生命周期回调层数，大于0时说明当前线程持有模块锁
+     */
+    private final ThreadLocal<Integer> lifeCycleDepth = ThreadLocal.withInitial(() -> 0);
+
+    /**
+     * 模块共享库ClassLoader
+     * <p>
+     * 未配置模块共享库目录时为null，卸载所有模块时关闭，下次加载模块时重新创建
+     * </p>
+     */
+    private SharedLibraryClassLoader sharedLibraryClassLoader;
+
     /**
      * 模块模块管理
      *
@@ -80,10 +138,48 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                                     final Instrumentation inst,
                                     final CoreLoadedClassDataSource classDataSource,
                                     final ProviderManager providerManager) {
+        this(cfg, inst, classDataSource, providerManager, null);
+    }
+
+    /**
+     * 模块模块管理
+     *
+     * @param cfg                模块核心配置
+     * @param inst               inst
+     * @param classDataSource    已加载类数据源
+     * @param providerManager    服务提供者管理器
+     * @param wovenByteCodeCache 增强字节码缓存，为null时不启用
+     */
+    public DefaultCoreModuleManager(final CoreConfigure cfg,
+                                    final Instrumentation inst,
+                                    final CoreLoadedClassDataSource classDataSource,
+                                    final ProviderManager providerManager,
+                                    final WovenByteCodeCache wovenByteCodeCache) {
+        this(cfg, inst, classDataSource, providerManager, wovenByteCodeCache, null);
+    }
+
+    /**
+     * 模块模块管理
+     *
+     * @param cfg                     模块核心配置
+     * @param inst                    inst
+     * @param classDataSource         已加载类数据源
+     * @param providerManager         服务提供者管理器
+     * @param wovenByteCodeCache      增强字节码缓存，为null时不启用
+     * @param persistentWatchRegistry 持久化观察注册表，为null时持久化观察按普通观察处理
+     */
+    public DefaultCoreModuleManager(final CoreConfigure cfg,
+                                    final Instrumentation inst,
+                                    final CoreLoadedClassDataSource classDataSource,
+                                    final ProviderManager providerManager,
+                                    final WovenByteCodeCache wovenByteCodeCache,
+                                    final PersistentWatchRegistry persistentWatchRegistry) {
         this.cfg = cfg;
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.providerManager = providerManager;
+        this.wovenByteCodeCache = wovenByteCodeCache;
+        this.persistentWatchRegistry = persistentWatchRegistry;
 
         // 初始化模块目录
         String systemModuleLibPath = cfg.getSystemModuleLibPath();  // 系统模块目录
@@ -102,43 +198,79 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      * @throws ModuleException
      */
     @Override
-    public synchronized void flush(final boolean isForce) throws ModuleException {
-        if (isForce) {
-            forceFlush();  // 强制刷新，先卸载再加载
-        } else {
-            softFlush();
+    public void flush(final boolean isForce) throws ModuleException {
+        lockFlush();
+        try {
+            if (isForce) {
+                forceFlush();  // 强制刷新，先卸载再加载
+            } else {
+                softFlush();
+            }
+        } finally {
+            flushLock.unlock();
         }
     }
 
+    /*
+     * 获取刷新锁
+     * 模块生命周期回调中已经持有模块锁，等待刷新锁会和正在刷新、等待这个模块锁的线程互相等待，只能尝试获取
+     */
+    private void lockFlush() {
+        if (lifeCycleDepth.get() > 0
+                && !flushLock.isHeldByCurrentThread()) {
+            if (!flushLock.tryLock()) {
+                throw new IllegalStateException("modules are flushing by other thread, can not flush in module lifecycle.");
+            }
+            return;
+        }
+        flushLock.lock();
+    }
+
     /**
      * 重置沙箱
      *
      * @return
      */
     @Override
-    public synchronized CoreModuleManager reset() {
-
-        logger.info("resetting all loaded modules:{}", loadedModuleBOMap.keySet());
-
-        // 1. 强制卸载所有模块
-        unloadAll();
-
-        // 2. 加载所有模块
-        for (final File moduleLibDir : moduleLibDirArray) {
-            // 用户模块加载目录，加载用户模块目录下的所有模块
-            // 对模块访问权限进行校验
-            if (moduleLibDir.exists() && moduleLibDir.canRead()) {
-                new ModuleLibLoader(moduleLibDir, cfg.getLaunchMode())
-                        .load(
-                                new InnerModuleJarLoadCallback(),
-                                new InnerModuleLoadCallback()
-                        );
-            } else {
-                logger.warn("module-lib not access, ignore flush load this lib. path={}", moduleLibDir);
+    public CoreModuleManager reset() {
+        lockFlush();
+        try {
+            logger.info("resetting all loaded modules:{}", loadedModuleBOMap.keySet());
+
+            // 1. 强制卸载所有模块
+            unloadAll();
+
+            // 2. 加载所有模块
+            try {
+                for (final File moduleLibDir : moduleLibDirArray) {
+                    // 用户模块加载目录，加载用户模块目录下的所有模块
+                    // 对模块访问权限进行校验
+                    if (moduleLibDir.exists() && moduleLibDir.canRead()) {
+                        new ModuleLibLoader(moduleLibDir, cfg.getLaunchMode(), cfg.getModuleLoadParallelism(), getSharedLibraryClassLoaderIfNecessary())
+                                .load(
+                                        new InnerModuleJarLoadCallback(),
+                                        new InnerModuleLoadCallback()
+                                );
+                    } else {
+                        logger.warn("module-lib not access, ignore flush load this lib. path={}", moduleLibDir);
+                    }
+                }
+            } finally {
+                closeLoadingModuleJarClassLoadersIfNecessary();
             }
-        }
 
-        return this;
+            // 3. 清理不再被引用的模块Jar暂存文件
+            ModuleJarStaging.getSingleton().prune();
+
+            // 4. 注销没有对应模块的提前注册的持久化观察
+            if (null != persistentWatchRegistry) {
+                persistentWatchRegistry.discardIfNotIn(loadedModuleBOMap.keySet());
+            }
+
+            return this;
+        } finally {
+            flushLock.unlock();
+        }
     }
 
 
@@ -153,143 +285,230 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      * @throws ModuleException 卸载模块失败
      */
     @Override
-    public synchronized CoreModule unload(
+    public CoreModule unload(
             final CoreModule coreModule,
             final boolean isIgnoreModuleException
     ) throws ModuleException {
+        synchronized (coreModule) {
+            if (!coreModule.isLoaded()) {
+                logger.debug("module already unLoaded. module={};", coreModule.getUniqueId());
+                return coreModule;
+            }
 
-        if (!coreModule.isLoaded()) {
-            logger.debug("module already unLoaded. module={};", coreModule.getUniqueId());
-            return coreModule;
-        }
+            logger.info("unloading module, module={};class={};",
+                    coreModule.getUniqueId(),
+                    coreModule.getModuleClassName()
+            );
 
-        logger.info("unloading module, module={};class={};",
-                coreModule.getUniqueId(),
-                coreModule.getModule().getClass().getName()
-        );
+            // 尝试冻结模块
+            frozen(coreModule, isIgnoreModuleException);
 
-        // 尝试冻结模块
-        frozen(coreModule, isIgnoreModuleException);
+            // 通知生命周期
+            try {
+                callAndFireModuleLifeCycle(coreModule, MODULE_UNLOAD);
+            } catch (ModuleException meCause) {
+                if (isIgnoreModuleException) {
+                    logger.warn("unload module occur error, ignored. module={};class={};code={};",
+                            meCause.getUniqueId(),
+                            coreModule.getModuleClassName(),
+                            meCause.getErrorCode(),
+                            meCause
+                    );
+                } else {
+                    throw meCause;
+                }
+            }
 
-        // 通知生命周期
-        try {
-            callAndFireModuleLifeCycle(coreModule, MODULE_UNLOAD);
-        } catch (ModuleException meCause) {
-            if (isIgnoreModuleException) {
-                logger.warn("unload module occur error, ignored. module={};class={};code={};",
-                        meCause.getUniqueId(),
-                        coreModule.getModule().getClass().getName(),
-                        meCause.getErrorCode(),
-                        meCause
-                );
-            } else {
-                throw meCause;
+            // 从模块注册表中删除该模块
+            synchronized (registryLock) {
+                loadedModuleBOMap.remove(coreModule.getUniqueId(), coreModule);
             }
-        }
 
-        // 从模块注册表中删除该模块
-        loadedModuleBOMap.remove(coreModule.getUniqueId());
+            // 标记模块为：已卸载
+            coreModule.markLoaded(false);
 
-        // 标记模块为：已卸载
-        coreModule.markLoaded(false);
+            // 释放所有可释放资源
+            coreModule.releaseAll();
 
-        // 释放所有可释放资源
-        coreModule.releaseAll();
+            // 模块已卸载，不会再接管提前注册的持久化观察
+            if (null != persistentWatchRegistry) {
+                persistentWatchRegistry.discard(coreModule.getUniqueId());
+            }
 
-        // 尝试关闭ClassLoader
-        closeModuleJarClassLoaderIfNecessary(coreModule.getLoader());
+            // 尝试关闭ClassLoader
+            closeModuleJarClassLoaderIfNecessary(coreModule.getLoader());
 
-        return coreModule;
+            return coreModule;
+        }
     }
 
     @Override
     public void unloadAll() {
+        lockFlush();
+        try {
+            logger.info("force unloading all loaded modules:{}", loadedModuleBOMap.keySet());
 
-        logger.info("force unloading all loaded modules:{}", loadedModuleBOMap.keySet());
-
-        // 强制卸载所有模块
-        for (final CoreModule coreModule : new ArrayList<>(loadedModuleBOMap.values())) {
-            try {
-                unload(coreModule, true);
-            } catch (ModuleException cause) {
-                // 强制卸载不可能出错，这里不对外继续抛出任何异常
-                logger.warn("force unloading module occur error! module={};", coreModule.getUniqueId(), cause);
+            // 强制卸载所有模块
+            for (final CoreModule coreModule : new ArrayList<>(loadedModuleBOMap.values())) {
+                try {
+                    unload(coreModule, true);
+                } catch (ModuleException cause) {
+                    // 强制卸载不可能出错，这里不对外继续抛出任何异常
+                    logger.warn("force unloading module occur error! module={};", coreModule.getUniqueId(), cause);
+                }
             }
-        }
 
+            // 所有模块都已卸载，共享库不再被引用
+            closeSharedLibraryClassLoaderIfNecessary();
+        } finally {
+            flushLock.unlock();
+        }
     }
 
     @Override
-    public synchronized void active(final CoreModule coreModule) throws ModuleException {
-
-        // 如果模块已经被激活，则直接幂等返回
-        if (coreModule.isActivated()) {
-            logger.debug("module already activated. module={};", coreModule.getUniqueId());
-            return;
-        }
+    public void active(final CoreModule coreModule) throws ModuleException {
+        synchronized (coreModule) {
+            // 如果模块已经被激活，则直接幂等返回
+            if (coreModule.isActivated()) {
+                logger.debug("module already activated. module={};", coreModule.getUniqueId());
+                return;
+            }
 
-        logger.info("active module, module={};class={};module-jar={};",
-                coreModule.getUniqueId(),
-                coreModule.getModule().getClass().getName(),
-                coreModule.getJarFile()
-        );
+            // 模块可能在等待模块锁期间已经被卸载
+            if (!coreModule.isLoaded()) {
+                throw new ModuleException(coreModule.getUniqueId(), MODULE_NOT_EXISTED);
+            }
 
-        // 通知模块生命周期：模块激活
-        callAndFireModuleLifeCycle(coreModule, MODULE_ACTIVE);
+            // 延迟加载的模块在第一次激活时实例化，标记了加载时激活的模块在实例化时就已经完成激活
+            if (!coreModule.isInstantiated()) {
+                instantiate(coreModule);
+                if (coreModule.isActivated()) {
+                    return;
+                }
+            }
 
-        // 激活所有监听器
-        for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
-            EventListenerHandler.getSingleton().active(
-                    sandboxClassFileTransformer.getListenerId(),
-                    sandboxClassFileTransformer.getEventListener(),
-                    sandboxClassFileTransformer.getEventTypeArray()
+            logger.info("active module, module={};class={};module-jar={};",
+                    coreModule.getUniqueId(),
+                    coreModule.getModuleClassName(),
+                    coreModule.getJarFile()
             );
-        }
 
-        // 标记模块为：已激活
-        coreModule.markActivated(true);
+            // 通知模块生命周期：模块激活
+            callAndFireModuleLifeCycle(coreModule, MODULE_ACTIVE);
+
+            // 激活所有监听器
+            for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
+                EventListenerHandler.getSingleton().active(
+                        sandboxClassFileTransformer.getListenerId(),
+                        sandboxClassFileTransformer.getEventListener(),
+                        sandboxClassFileTransformer.getEventTypeArray()
+                );
+            }
+
+            // 标记模块为：已激活
+            coreModule.markActivated(true);
+        }
     }
 
     @Override
-    public synchronized void frozen(final CoreModule coreModule,
-                                    final boolean isIgnoreModuleException) throws ModuleException {
+    public CoreModule instantiate(final CoreModule coreModule) throws ModuleException {
+        synchronized (coreModule) {
+            if (coreModule.isInstantiated()) {
+                return coreModule;
+            }
 
-        // 如果模块已经被冻结(尚未被激活)，则直接幂等返回
-        if (!coreModule.isActivated()) {
-            logger.debug("module already frozen. module={};", coreModule.getUniqueId());
-            return;
-        }
+            final String uniqueId = coreModule.getUniqueId();
+            if (!coreModule.isLoaded()) {
+                throw new ModuleException(uniqueId, MODULE_NOT_EXISTED);
+            }
 
-        logger.info("frozen module, module={};class={};module-jar={};",
-                coreModule.getUniqueId(),
-                coreModule.getModule().getClass().getName(),
-                coreModule.getJarFile()
-        );
+            logger.info("instantiating lazy module, module={};class={};module-jar={};",
+                    uniqueId,
+                    coreModule.getModuleClassName(),
+                    coreModule.getJarFile()
+            );
 
-        // 通知模块生命周期：模块冻结
-        try {
-            // 如果模块实现了ModuleLifecycle接口则进行生命周期通知
-            callAndFireModuleLifeCycle(coreModule, MODULE_FROZEN);
-        } catch (ModuleException meCause) {
-            if (isIgnoreModuleException) {
-                logger.warn("frozen module occur error, ignored. module={};class={};code={};",
-                        meCause.getUniqueId(),
-                        coreModule.getModule().getClass().getName(),
-                        meCause.getErrorCode(),
-                        meCause
-                );
-            } else {
+            final ModuleJarClassLoader moduleClassLoader = coreModule.getLoader();
+            final ClassLoader preTCL = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(moduleClassLoader);
+            try {
+
+                final Module module;
+                try {
+                    module = ModuleJarLoader.newModuleInstance(coreModule.getModuleClassName(), moduleClassLoader);
+                    // 需要经过ModuleLoadingChain的过滤
+                    providerManager.loading(uniqueId, module.getClass(), module, coreModule.getJarFile(), moduleClassLoader);
+                } catch (Throwable cause) {
+                    throw new ModuleException(uniqueId, MODULE_LOAD_ERROR, cause);
+                }
+                coreModule.markInstantiated(module);
+
+                // 为CoreModule中封装的Module注入@Resource资源
+                injectResourceOnLoadIfNecessary(coreModule);
+
+                // 通知模块生命周期：模块加载
+                callAndFireModuleLifeCycle(coreModule, MODULE_LOAD);
+
+                // 如果模块标记了加载时自动激活，则需要在加载完成之后激活模块
+                markActiveOnLoadIfNecessary(coreModule);
+
+                // 通知模块生命周期：模块加载完成
+                callAndFireModuleLifeCycle(coreModule, MODULE_LOAD_COMPLETED);
+
+            } catch (ModuleException meCause) {
+                // 和常规加载一样，实例化失败的模块不保留在模块列表中
+                logger.warn("instantiate lazy module failed, will be unloaded. module={};", uniqueId, meCause);
+                unload(coreModule, true);
                 throw meCause;
+            } finally {
+                Thread.currentThread().setContextClassLoader(preTCL);
             }
-        }
 
-        // 冻结该模块的事件监听器, 即：无法再监听任何事件，自然也无法执行额外的增强逻辑
-        for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
-            EventListenerHandler.getSingleton().frozen(sandboxClassFileTransformer.getListenerId());
+            return coreModule;
         }
+    }
+
+    @Override
+    public void frozen(final CoreModule coreModule,
+                       final boolean isIgnoreModuleException) throws ModuleException {
+        synchronized (coreModule) {
+            // 如果模块已经被冻结(尚未被激活)，则直接幂等返回
+            if (!coreModule.isActivated()) {
+                logger.debug("module already frozen. module={};", coreModule.getUniqueId());
+                return;
+            }
+
+            logger.info("frozen module, module={};class={};module-jar={};",
+                    coreModule.getUniqueId(),
+                    coreModule.getModuleClassName(),
+                    coreModule.getJarFile()
+            );
+
+            // 通知模块生命周期：模块冻结
+            try {
+                // 如果模块实现了ModuleLifecycle接口则进行生命周期通知
+                callAndFireModuleLifeCycle(coreModule, MODULE_FROZEN);
+            } catch (ModuleException meCause) {
+                if (isIgnoreModuleException) {
+                    logger.warn("frozen module occur error, ignored. module={};class={};code={};",
+                            meCause.getUniqueId(),
+                            coreModule.getModuleClassName(),
+                            meCause.getErrorCode(),
+                            meCause
+                    );
+                } else {
+                    throw meCause;
+                }
+            }
+
+            // 冻结该模块的事件监听器, 即：无法再监听任何事件，自然也无法执行额外的增强逻辑
+            for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
+                EventListenerHandler.getSingleton().frozen(sandboxClassFileTransformer.getListenerId());
+            }
 
-        // 标记模块为：已冻结
-        coreModule.markActivated(false);
+            // 标记模块为：已冻结
+            coreModule.markActivated(false);
+        }
     }
 
     @Override
@@ -331,7 +550,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
      * @param moduleClassLoader 负责加载模块的ClassLoader
      * @throws ModuleException 加载模块失败
      */
-    private synchronized void load(
+    private void load(
             final String uniqueId,
             final Module module,
             final File moduleJarFile,
@@ -352,30 +571,84 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         // 初始化模块信息
         final CoreModule coreModule = new CoreModule(uniqueId, moduleJarFile, moduleClassLoader, module);
 
-        // 为CoreModule中封装的Module注入@Resource资源
-        injectResourceOnLoadIfNecessary(coreModule);
+        // 模块注册之前其他线程还看不到它，这里持有模块锁是为了让注册之后的激活、卸载等待加载完成
+        synchronized (coreModule) {
+
+            // 为CoreModule中封装的Module注入@Resource资源
+            injectResourceOnLoadIfNecessary(coreModule);
+
+            // 通知模块生命周期：模块加载
+            callAndFireModuleLifeCycle(coreModule, MODULE_LOAD);
+
+            // 设置为已经加载
+            coreModule.markLoaded(true);
 
-        // 通知模块生命周期：模块加载
-        callAndFireModuleLifeCycle(coreModule, MODULE_LOAD);
+            // 如果模块标记了加载时自动激活，则需要在加载完成之后激活模块
+            markActiveOnLoadIfNecessary(coreModule);
 
-        // 设置为已经加载
-        coreModule.markLoaded(true);
+            // 注册到模块列表中
+            synchronized (registryLock) {
+                loadedModuleBOMap.put(uniqueId, coreModule);
+            }
 
-        // 如果模块标记了加载时自动激活，则需要在加载完成之后激活模块
-        markActiveOnLoadIfNecessary(coreModule);
+            // 通知模块生命周期：模块加载完成
+            callAndFireModuleLifeCycle(coreModule, MODULE_LOAD_COMPLETED);
 
-        // 注册到模块列表中
-        loadedModuleBOMap.put(uniqueId, coreModule);
+        }
 
-        // 通知模块生命周期：模块加载完成
-        callAndFireModuleLifeCycle(coreModule, MODULE_LOAD_COMPLETED);
+    }
 
+    /**
+     * 注册延迟加载的模块
+     * <p>模块注册后即为已加载状态，但直到{@link #instantiate(CoreModule)}之前都不会实例化，也不会被激活</p>
+     *
+     * @param uniqueId          模块ID
+     * @param moduleClassName   模块类名
+     * @param info              模块信息
+     * @param moduleJarFile     模块所在JAR文件
+     * @param moduleClassLoader 负责加载模块的ClassLoader
+     */
+    private void loadLazily(
+            final String uniqueId,
+            final String moduleClassName,
+            final Information info,
+            final File moduleJarFile,
+            final ModuleJarClassLoader moduleClassLoader
+    ) {
+
+        if (loadedModuleBOMap.containsKey(uniqueId)) {
+            logger.debug("module already loaded. module={};", uniqueId);
+            return;
+        }
+
+        logger.info("loading lazy module, module={};class={};module-jar={};",
+                uniqueId,
+                moduleClassName,
+                moduleJarFile
+        );
+
+        synchronized (registryLock) {
+            loadedModuleBOMap.put(
+                    uniqueId,
+                    new CoreModule(uniqueId, moduleJarFile, moduleClassLoader, moduleClassName, info).markLoaded(true)
+            );
+        }
     }
 
     /*
      * 通知模块生命周期
      */
     private void callAndFireModuleLifeCycle(final CoreModule coreModule, final ModuleLifeCycleType type) throws ModuleException {
+        // 回调期间当前线程持有模块锁
+        lifeCycleDepth.set(lifeCycleDepth.get() + 1);
+        try {
+            callModuleLifeCycle(coreModule, type);
+        } finally {
+            lifeCycleDepth.set(lifeCycleDepth.get() - 1);
+        }
+    }
+
+    private void callModuleLifeCycle(final CoreModule coreModule, final ModuleLifeCycleType type) throws ModuleException {
         // 如果模块实现了ModuleLifecycle接口则进行生命周期通知
         if (coreModule.getModule() instanceof ModuleLifecycle) {
             final ModuleLifecycle moduleLifecycle = (ModuleLifecycle) coreModule.getModule();
@@ -467,7 +740,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                             ModuleEventWatcher.class,
                             // ModuleEventWatcher的默认实现是 DefaultModuleEventWatcher
                             // 可以看到 DefaultModuleEventWatcher 的构造函数中会传入Instrumentation,这说明后期对业务代码进行增强都需要依赖到这个Watch对象
-                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace())
+                            new DefaultModuleEventWatcher(inst, classDataSource, coreModule, cfg.isEnableUnsafe(), cfg.getNamespace(), cfg.getReTransformBatchSize(), wovenByteCodeCache, persistentWatchRegistry)
                     );
                     // 构造ReleaseResource资源，即ModuleEventWatcher作为ReleaseResource是可释放的。在模块卸载时调用release方法释放资源
                     ReleaseResource<ModuleEventWatcher> releaseResource = new ReleaseResource<ModuleEventWatcher>(eventWatchProxy) {
@@ -563,7 +836,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                 else {
                     logger.warn("module inject @Resource ignored: field not found. module={};class={};type={};field={};",
                             coreModule.getUniqueId(),
-                            coreModule.getModule().getClass().getName(),
+                            coreModule.getModuleClassName(),
                             fieldType.getName(),
                             resourceField.getName()
                     );
@@ -577,7 +850,7 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
     private void markActiveOnLoadIfNecessary(final CoreModule coreModule) throws ModuleException {
         logger.info("active module when OnLoad, module={}", coreModule.getUniqueId());
-        final Information info = coreModule.getModule().getClass().getAnnotation(Information.class);
+        final Information info = coreModule.getInformation();
         if (info.isActiveOnLoad()) {
             active(coreModule);
         }
@@ -629,13 +902,16 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
                            final File moduleJarFile,
                            final ModuleJarClassLoader moduleClassLoader) throws Throwable {
 
+            // 模块回调onLoad之前就标记ClassLoader正在使用
+            markModuleJarClassLoaderLoading(moduleClassLoader);
+
             // 如果之前已经加载过了相同ID的模块，则放弃当前模块的加载
             if (loadedModuleBOMap.containsKey(uniqueId)) {
                 final CoreModule existedCoreModule = get(uniqueId);
                 logger.info("IMLCB: module already loaded, ignore load this module. expected:module={};class={};loader={}|existed:class={};loader={};",
                         uniqueId,
                         moduleClass, moduleClassLoader,
-                        existedCoreModule.getModule().getClass().getName(),
+                        existedCoreModule.getModuleClassName(),
                         existedCoreModule.getLoader()
                 );
                 return;
@@ -660,9 +936,71 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
             // 这里进行真正的模块加载
             load(uniqueId, module, moduleJarFile, moduleClassLoader);
         }
+
+        @Override
+        public void onLazyLoad(final String uniqueId,
+                               final String moduleClassName,
+                               final Information info,
+                               final File moduleJarFile,
+                               final ModuleJarClassLoader moduleClassLoader) {
+
+            markModuleJarClassLoaderLoading(moduleClassLoader);
+
+            // 如果之前已经加载过了相同ID的模块，则放弃当前模块的加载
+            if (loadedModuleBOMap.containsKey(uniqueId)) {
+                final CoreModule existedCoreModule = get(uniqueId);
+                logger.info("IMLCB: module already loaded, ignore load this lazy module. expected:module={};class={};loader={}|existed:class={};loader={};",
+                        uniqueId,
+                        moduleClassName, moduleClassLoader,
+                        existedCoreModule.getModuleClassName(),
+                        existedCoreModule.getLoader()
+                );
+                return;
+            }
+
+            // 延迟加载的模块在实例化时才经过ModuleLoadingChain的过滤
+            logger.info("IMLCB: found new lazy module, register without instantiation. module={};class={};loader={};",
+                    uniqueId,
+                    moduleClassName,
+                    moduleClassLoader
+            );
+
+            // 这里只注册模块，模块在第一次使用时实例化
+            loadLazily(uniqueId, moduleClassName, info, moduleJarFile, moduleClassLoader);
+        }
     }
 
 
+    /**
+     * 获取模块共享库ClassLoader，配置了模块共享库目录且尚未创建时进行创建
+     *
+     * @return 模块共享库ClassLoader，未配置或创建失败时返回null
+     */
+    private SharedLibraryClassLoader getSharedLibraryClassLoaderIfNecessary() {
+        synchronized (registryLock) {
+            final String sharedLibPath = cfg.getModuleSharedLibPath();
+            if (null == sharedLibraryClassLoader
+                    && StringUtils.isNotBlank(sharedLibPath)) {
+                try {
+                    sharedLibraryClassLoader = SharedLibraryClassLoader.load(new File(sharedLibPath));
+                } catch (Throwable cause) {
+                    logger.warn("loading module shared-lib occur error, modules will use their own libraries. shared-lib={};", sharedLibPath, cause);
+                }
+            }
+            return sharedLibraryClassLoader;
+        }
+    }
+
+    private void closeSharedLibraryClassLoaderIfNecessary() {
+        synchronized (registryLock) {
+            if (null != sharedLibraryClassLoader) {
+                logger.info("{} will be close: all module unloaded.", sharedLibraryClassLoader);
+                sharedLibraryClassLoader.closeIfPossible();
+                sharedLibraryClassLoader = null;
+            }
+        }
+    }
+
     /**
      * 关闭ModuleJarClassLoader
      * 如ModuleJarClassLoader所加载上来的所有模块都已经被卸载，则该ClassLoader需要主动进行关闭
@@ -676,15 +1014,16 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         }
 
         // 查找已经注册的模块中是否仍然还包含有ModuleJarClassLoader的引用
-        boolean hasRef = false;
-        for (final CoreModule coreModule : loadedModuleBOMap.values()) {
-            if (loader == coreModule.getLoader()) {
-                hasRef = true;
-                break;
+        synchronized (registryLock) {
+            if (loadingModuleJarClassLoaders.contains(loader)) {
+                logger.info("ModuleJarClassLoader={} is still loading modules, will be close after loading if necessary.", loader);
+                return;
+            }
+            for (final CoreModule coreModule : loadedModuleBOMap.values()) {
+                if (loader == coreModule.getLoader()) {
+                    return;
+                }
             }
-        }
-
-        if (!hasRef) {
             logger.info("ModuleJarClassLoader={} will be close: all module unloaded.", loader);
             ((ModuleJarClassLoader) loader).closeIfPossible();
         }
@@ -692,13 +1031,33 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
     }
 
 
-    private boolean isChecksumCRC32Existed(long checksumCRC32) {
+    private void markModuleJarClassLoaderLoading(final ModuleJarClassLoader moduleClassLoader) {
+        synchronized (registryLock) {
+            loadingModuleJarClassLoaders.add(moduleClassLoader);
+        }
+    }
+
+    /*
+     * 加载结束，关闭本次加载过程中所有模块都已卸载的ClassLoader
+     */
+    private void closeLoadingModuleJarClassLoadersIfNecessary() {
+        final List<ModuleJarClassLoader> loaders;
+        synchronized (registryLock) {
+            loaders = new ArrayList<>(loadingModuleJarClassLoaders);
+            loadingModuleJarClassLoaders.clear();
+        }
+        for (final ModuleJarClassLoader loader : loaders) {
+            closeModuleJarClassLoaderIfNecessary(loader);
+        }
+    }
+
+    // 已加载模块Jar文件的CRC32索引
+    private Set<Long> indexLoadedChecksumCRC32() {
+        final Set<Long> checksumCRC32s = new HashSet<>();
         for (final CoreModule coreModule : loadedModuleBOMap.values()) {
-            if (coreModule.getLoader().getChecksumCRC32() == checksumCRC32) {
-                return true;
-            }
+            checksumCRC32s.add(coreModule.getLoader().getChecksumCRC32());
         }
-        return false;
+        return checksumCRC32s;
     }
 
     /**
@@ -713,20 +1072,21 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         try {
             final ArrayList<File> appendJarFiles = new ArrayList<>();
             final ArrayList<CoreModule> removeCoreModules = new ArrayList<>();
-            final ArrayList<Long> checksumCRC32s = new ArrayList<>();
+            final Set<Long> checksumCRC32s = new HashSet<>();
+            final Set<Long> loadedChecksumCRC32s = indexLoadedChecksumCRC32();
 
-            // 1. 找出所有有变动的文件(add/remove)
+            // 1. 找出所有有变动的文件(add/remove)，文件大小和修改时间都没变时不会重新计算CRC32
             for (final File jarFile : cfg.getUserModuleLibFiles()) {
                 final long checksumCRC32;
                 try {
-                    checksumCRC32 = FileUtils.checksumCRC32(jarFile);
+                    checksumCRC32 = ModuleJarStaging.getSingleton().checksumCRC32(jarFile);
                 } catch (IOException cause) {
                     logger.warn("soft-flushing module: compute module-jar CRC32 occur error. module-jar={};", jarFile, cause);
                     continue;
                 }
                 checksumCRC32s.add(checksumCRC32);
                 // 如果CRC32已经在已加载的模块集合中存在，则说明这个文件没有变动，忽略
-                if (isChecksumCRC32Existed(checksumCRC32)) {
+                if (loadedChecksumCRC32s.contains(checksumCRC32)) {
                     logger.info("soft-flushing module: module-jar is not changed, ignored. module-jar={};CRC32={};", jarFile, checksumCRC32);
                     continue;
                 }
@@ -770,11 +1130,14 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
 
             // 4. 加载add
             for (final File jarFile : appendJarFiles) {
-                new ModuleLibLoader(jarFile, cfg.getLaunchMode())
+                new ModuleLibLoader(jarFile, cfg.getLaunchMode(), 1, getSharedLibraryClassLoaderIfNecessary())
                         .load(new InnerModuleJarLoadCallback(), new InnerModuleLoadCallback());
             }
         } catch (Throwable cause) {
             logger.warn("soft-flushing modules: occur error.", cause);
+        } finally {
+            closeLoadingModuleJarClassLoadersIfNecessary();
+            ModuleJarStaging.getSingleton().prune();
         }
 
     }
@@ -822,19 +1185,26 @@ public class DefaultCoreModuleManager implements CoreModuleManager {
         // 对模块访问权限进行校验
         // 用户模块目录
         final File[] userModuleLibFileArray = cfg.getUserModuleLibFiles();
-        for (final File userModuleLibDir : userModuleLibFileArray) {
-            if (userModuleLibDir.exists() && userModuleLibDir.canRead()) {
-                logger.info("force-flush modules: module-lib={}", userModuleLibDir);
-                // 加载一个jar文件下的所有模块Module
-                new ModuleLibLoader(userModuleLibDir, cfg.getLaunchMode()).load(
-                        new InnerModuleJarLoadCallback(),  // 当jar包未完成加载时的回调
-                        new InnerModuleLoadCallback()  // 当jar包下的某一个Module加载完成时的回调
-                );
-            } else {
-                logger.warn("force-flush modules: module-lib can not access, will be ignored. module-lib={}", userModuleLibDir);
+        try {
+            for (final File userModuleLibDir : userModuleLibFileArray) {
+                if (userModuleLibDir.exists() && userModuleLibDir.canRead()) {
+                    logger.info("force-flush modules: module-lib={}", userModuleLibDir);
+                    // 加载一个jar文件下的所有模块Module
+                    new ModuleLibLoader(userModuleLibDir, cfg.getLaunchMode(), cfg.getModuleLoadParallelism(), getSharedLibraryClassLoaderIfNecessary()).load(
+                            new InnerModuleJarLoadCallback(),  // 当jar包未完成加载时的回调
+                            new InnerModuleLoadCallback()  // 当jar包下的某一个Module加载完成时的回调
+                    );
+                } else {
+                    logger.warn("force-flush modules: module-lib can not access, will be ignored. module-lib={}", userModuleLibDir);
+                }
             }
+        } finally {
+            closeLoadingModuleJarClassLoadersIfNecessary();
         }
 
+        // 3. 清理不再被引用的模块Jar暂存文件
+        ModuleJarStaging.getSingleton().prune();
+
     }
 
     /**
@@ -2,28 +2,38 @@ package com.alibaba.jvm.sandbox.core.manager.impl;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.api.listener.ext.ExtEventWatchCondition;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.CoverageProbeRegistry;
 import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.util.Sequencer;
 import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
-import com.alibaba.jvm.sandbox.core.util.matcher.GroupMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
 import static com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher.toOrGroupMatcher;
+import static org.apache.commons.lang3.StringUtils.join;
 
 /**
  * 默认事件观察者实现
@@ -39,20 +49,42 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
     private final CoreModule coreModule;
     private final boolean isEnableUnsafe;
     private final String namespace;
+    private final BatchReTransformer batchReTransformer;
+    private final WovenByteCodeCache wovenByteCodeCache;
+    private final PersistentWatchRegistry persistentWatchRegistry;
 
     // 观察ID序列生成器
     private final Sequencer watchIdSequencer = new Sequencer();
 
+    // 持久化观察的观察ID -> 持久化观察名称
+    private final Map<Integer, String> persistentWatchKeys = new ConcurrentHashMap<>();
+
     DefaultModuleEventWatcher(final Instrumentation inst,
                               final CoreLoadedClassDataSource classDataSource,
                               final CoreModule coreModule,
                               final boolean isEnableUnsafe,
-                              final String namespace) {
+                              final String namespace,
+                              final int reTransformBatchSize,
+                              final WovenByteCodeCache wovenByteCodeCache) {
+        this(inst, classDataSource, coreModule, isEnableUnsafe, namespace, reTransformBatchSize, wovenByteCodeCache, null);
+    }
+
+    DefaultModuleEventWatcher(final Instrumentation inst,
+                              final CoreLoadedClassDataSource classDataSource,
+                              final CoreModule coreModule,
+                              final boolean isEnableUnsafe,
+                              final String namespace,
+                              final int reTransformBatchSize,
+                              final WovenByteCodeCache wovenByteCodeCache,
+                              final PersistentWatchRegistry persistentWatchRegistry) {
         this.inst = inst;
         this.classDataSource = classDataSource;
         this.coreModule = coreModule;
         this.isEnableUnsafe = isEnableUnsafe;
         this.namespace = namespace;
+        this.batchReTransformer = new BatchReTransformer(inst, reTransformBatchSize);
+        this.wovenByteCodeCache = wovenByteCodeCache;
+        this.persistentWatchRegistry = persistentWatchRegistry;
     }
 
 
@@ -82,12 +114,15 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
 
     /**
      * 对需要重新形变的类进行形变(增强)
+     * <p>
+     * 按批次提交形变以减少安全点停顿的次数，批次失败时会拆分重试，最终逐个类汇报形变结果
+     * </p>
      *
      * @param watchId                   观察ID
      * @param waitingReTransformClasses 需要重新形变的类集合
      * @param progress                  增强进度报告器
      */
-    private void reTransformClasses(int watchId,  List<Class<?>> waitingReTransformClasses, Progress progress) {
+    private void reTransformClasses(final int watchId, final List<Class<?>> waitingReTransformClasses, final Progress progress) {
         // 需要形变总数
         final int total = waitingReTransformClasses.size();
 
@@ -101,51 +136,101 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                     waitingReTransformClasses, coreModule.getUniqueId(), watchId);
         }
 
-        int index = 0;
-        for (final Class<?> waitingReTransformClass : waitingReTransformClasses) {
-            index++;
-            try {
+        // 通过Instrumentation#retransformClasses(Class...)方法对类进行重新形变
+        // 该方法会调用SandboxClassFileTransformer的transform方法来完成对类的增强操作
+        // 该方法会将类的字节码重新加载到JVM，以完成对类的增强操作
+        final int times = batchReTransformer.reTransform(waitingReTransformClasses, new BatchReTransformer.Callback() {
+
+            @Override
+            public void onSuccess(final Class<?> clazz, final int index) {
                 if (null != progress) {
                     try {
-                        // 汇报类形变成功, 虽然这里实际上还没有进行类的形变操作
-                        progress.progressOnSuccess(waitingReTransformClass, index);
+                        // 汇报类形变成功
+                        progress.progressOnSuccess(clazz, index);
                     } catch (Throwable cause) {
                         // 在进行进度汇报的过程中抛出异常,直接进行忽略,因为不影响形变的主体流程，仅仅只是一个汇报作用而已
                         logger.warn("watch={} in module={} on {} report progressOnSuccess occur exception at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                                watchId, coreModule.getUniqueId(), clazz,
                                 index - 1, total,
                                 cause
                         );
                     }
                 }
-                // 通过Instrumentation#retransformClasses(Class...)方法对类进行重新形变
-                // 该方法会调用SandboxClassFileTransformer的transform方法来完成对类的增强操作
-                // 该方法会将类的字节码重新加载到JVM，以完成对类的增强操作
-                inst.retransformClasses(waitingReTransformClass);
-                logger.info("watch={} in module={} single reTransform {} success, at index={};total={};",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
-                        index - 1, total
-                );
-            } catch (Throwable causeOfReTransform) {  // 在类的形变过程中发生异常
+            }
+
+            @Override
+            public void onFailed(final Class<?> clazz, final int index, final Throwable causeOfReTransform) {
+                // 在类的形变过程中发生异常
                 logger.warn("watch={} in module={} single reTransform {} failed, at index={};total={}. ignore this class.",
-                        watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                        watchId, coreModule.getUniqueId(), clazz,
                         index - 1, total,
                         causeOfReTransform
                 );
                 if (null != progress) {
                     try {
                         // 汇报类形变失败
-                        progress.progressOnFailed(waitingReTransformClass, index, causeOfReTransform);
+                        progress.progressOnFailed(clazz, index, causeOfReTransform);
                     } catch (Throwable cause) {
                         logger.warn("watch={} in module={} on {} report progressOnFailed occur exception, at index={};total={};",
-                                watchId, coreModule.getUniqueId(), waitingReTransformClass,
+                                watchId, coreModule.getUniqueId(), clazz,
                                 index - 1, total,
                                 cause
                         );
                     }
                 }
             }
+
+        });
+
+        logger.info("watch={} in module={} reTransform {} classes in {} times, batch-size={};",
+                watchId, coreModule.getUniqueId(), total, times, batchReTransformer.getBatchSize());
+    }
+
+    /**
+     * 检索并增强所有匹配的类
+     * <p>
+     * 没有进度汇报器时无需预先知道总数，检索到一批就形变一批，不必等待全量检索结束；
+     * 有进度汇报器时{@link Progress#begin(int)}需要预先告知总数，只能检索完毕后再形变
+     * </p>
+     *
+     * @param watchId  观察ID
+     * @param matcher  匹配器
+     * @param progress 增强进度报告器
+     */
+    private void findAndReTransformClasses(final int watchId,
+                                           final Matcher matcher,
+                                           final Progress progress) {
+        if (null == progress) {
+            final int batchSize = batchReTransformer.getBatchSize();
+            final List<Class<?>> waitingReTransformClasses = new ArrayList<>(batchSize);
+            final int total = classDataSource.findForReTransform(matcher, clazz -> {
+                waitingReTransformClasses.add(clazz);
+                if (waitingReTransformClasses.size() >= batchSize) {
+                    reTransformClasses(watchId, waitingReTransformClasses, null);
+                    waitingReTransformClasses.clear();
+                }
+            });
+            reTransformClasses(watchId, waitingReTransformClasses, null);
+            logger.info("watch={} in module={} found {} classes for watch(ing).",
+                    watchId,
+                    coreModule.getUniqueId(),
+                    total
+            );
+            return;
         }
+
+        final List<Class<?>> waitingReTransformClasses = classDataSource.findForReTransform(matcher);
+        logger.info("watch={} in module={} found {} classes for watch(ing).",
+                watchId,
+                coreModule.getUniqueId(),
+                waitingReTransformClasses.size()
+        );
+
+        // 增强进度通知启动
+        beginProgress(progress, waitingReTransformClasses.size());
+
+        // 应用JVM: 将当前所有等待形变的类进行形变操作
+        reTransformClasses(watchId, waitingReTransformClasses, progress);
     }
 
     @Override
@@ -178,7 +263,45 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                      final EventListener listener,
                      final Progress progress,
                      final Event.Type... eventType) {
-        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, eventType);
+        // 观察条件中可能携带方法调用过滤器、守卫条件和计时开关，需要做兼容性判断
+        final EnhanceOptions.Builder optionsBuilder = EnhanceOptions.newBuilder().wovenByteCodeCache(wovenByteCodeCache);
+        if (condition instanceof ExtEventWatchCondition) {
+            final ExtEventWatchCondition extCondition = (ExtEventWatchCondition) condition;
+            optionsBuilder
+                    .callFilter(extCondition.getCallFilter())
+                    .guard(extCondition.getGuard())
+                    .timingEnable(extCondition.isTimingEnable());
+        }
+        return watch(toOrGroupMatcher(condition.getOrFilterArray()), listener, progress, optionsBuilder.build(), eventType);
+    }
+
+    @Override
+    public int watchCoverage(final Filter filter,
+                             final Progress progress) {
+        // 覆盖模式不产生事件，这里的监听器只用来获得一个唯一的监听器ID来区分各个观察的探针
+        final EventListener listener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        return watch(
+                new ExtFilterMatcher(make(filter)),
+                listener,
+                progress,
+                EnhanceOptions.newBuilder().wovenByteCodeCache(wovenByteCodeCache).coverageEnable(true).build()
+        );
+    }
+
+    @Override
+    public Map<String, int[]> getCoverage(final int watchId,
+                                          final boolean isReset) {
+        for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
+            if (watchId == sandboxClassFileTransformer.getWatchId()
+                    && sandboxClassFileTransformer.isCoverageEnable()) {
+                return CoverageProbeRegistry.getSingleton().dump(sandboxClassFileTransformer.getListenerId(), isReset);
+            }
+        }
+        return Collections.emptyMap();
     }
 
 
@@ -196,9 +319,46 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                       final EventListener listener,
                       final Progress progress,
                       final Event.Type... eventType) {
+        return watch(matcher, listener, progress, EnhanceOptions.newBuilder().wovenByteCodeCache(wovenByteCodeCache).build(), eventType);
+    }
+
+    /**
+     * 观察事件
+     *
+     * @param matcher   事件匹配器
+     * @param listener  事件监听器
+     * @param progress  观察渲染进度报告
+     * @param options   增强选项
+     * @param eventType 观察事件类型
+     * @return 观察ID
+     */
+    private int watch(final Matcher matcher,
+                      final EventListener listener,
+                      final Progress progress,
+                      final EnhanceOptions options,
+                      final Event.Type... eventType) {
+        return watch(matcher, listener, progress, options, inst.isNativeMethodPrefixSupported(), eventType);
+    }
+
+    /**
+     * 观察事件
+     *
+     * @param matcher           事件匹配器
+     * @param listener          事件监听器
+     * @param progress          观察渲染进度报告
+     * @param options           增强选项
+     * @param isNativeSupported 是否增强native方法
+     * @param eventType         观察事件类型
+     * @return 观察ID
+     */
+    private int watch(final Matcher matcher,
+                      final EventListener listener,
+                      final Progress progress,
+                      final EnhanceOptions options,
+                      final boolean isNativeSupported,
+                      final Event.Type... eventType) {
         final int watchId = watchIdSequencer.next();
         final String uniqueId = coreModule.getUniqueId();
-        final boolean isNativeSupported = inst.isNativeMethodPrefixSupported();
 
         // 给对应的模块追加 ClassFileTransformer
         // SandboxClassFileTransformer: 类形变器，用于完成对类的增强操作
@@ -211,7 +371,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                         isEnableUnsafe,
                         eventType,
                         namespace,
-                        isNativeSupported
+                        isNativeSupported,
+                        options
                 );
 
         // 注册到CoreModule中
@@ -229,29 +390,18 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                     sandClassFileTransformer.getNativePrefix());
         }
 
-        // 通过Instrumentation#getAllLoadedClasses()方法获取当前JVM中所有已加载的类，
-        // 并通过Matcher匹配器来过滤得到当前JVM中所有符合条件的类，得到这些类之后就可以进行增强操作了
-        final List<Class<?>> waitingReTransformClasses = classDataSource.findForReTransform(matcher);
-        logger.info("watch={} in module={} found {} classes for watch(ing).",
-                watchId,
-                uniqueId,
-                waitingReTransformClasses.size()
-        );
-
         int cCnt = 0, mCnt = 0;
-
-        // 增强进度通知启动
-        beginProgress(progress, waitingReTransformClasses.size());
         try {
-            // 应用JVM: 将当前所有等待进行增强的类进行增强操作
-            reTransformClasses(watchId, waitingReTransformClasses, progress);
+            // 通过Instrumentation#getAllLoadedClasses()方法获取当前JVM中所有已加载的类，
+            // 并通过Matcher匹配器来过滤得到当前JVM中所有符合条件的类，将这些类进行增强操作
+            findAndReTransformClasses(watchId, matcher, progress);
             // 计数
             cCnt += sandClassFileTransformer.getAffectStatistic().cCnt();
             mCnt += sandClassFileTransformer.getAffectStatistic().mCnt();
 
 
-            // 激活增强类
-            if (coreModule.isActivated()) {
+            // 激活增强类，覆盖模式不产生事件，无需激活
+            if (coreModule.isActivated() && !options.isCoverageEnable()) {
                 final int listenerId = sandClassFileTransformer.getListenerId();
                 EventListenerHandler.getSingleton().active(listenerId, listener, eventType);
             }
@@ -263,10 +413,107 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         return watchId;
     }
 
+    @Override
+    public int watchPersistent(final String key,
+                               final NameRegexFilter filter,
+                               final EventListener listener,
+                               final Progress progress,
+                               final Event.Type... eventType) {
+        final PersistentWatchRegistry.Definition definition = new PersistentWatchRegistry.Definition(
+                coreModule.getUniqueId(),
+                key,
+                filter.getJavaNameRegex(),
+                filter.getJavaMethodRegex(),
+                eventType
+        );
+
+        // 提前注册的类形变器没有设置native方法前缀，持久化观察统一不增强native方法
+        final SandboxClassFileTransformer pending = null == persistentWatchRegistry
+                ? null
+                : persistentWatchRegistry.adopt(definition);
+        final int watchId;
+        if (null != pending) {
+            watchId = adopt(pending, listener, progress, eventType);
+        } else {
+            if (null != persistentWatchRegistry) {
+                persistentWatchRegistry.save(definition);
+            }
+            watchId = watch(
+                    definition.toMatcher(),
+                    listener,
+                    progress,
+                    EnhanceOptions.newBuilder().wovenByteCodeCache(wovenByteCodeCache).build(),
+                    false,
+                    eventType
+            );
+        }
+        persistentWatchKeys.put(watchId, key);
+        return watchId;
+    }
+
+    /**
+     * 接管提前注册的持久化观察
+     * <p>
+     * 提前注册之后定义的类已经织入，这里只需要重新形变提前注册之前就已经加载、且匹配的类
+     * </p>
+     *
+     * @param sandboxClassFileTransformer 提前注册的类形变器
+     * @param listener                    事件监听器
+     * @param progress                    观察渲染进度报告
+     * @param eventType                   观察事件类型
+     * @return 观察ID
+     */
+    private int adopt(final SandboxClassFileTransformer sandboxClassFileTransformer,
+                      final EventListener listener,
+                      final Progress progress,
+                      final Event.Type... eventType) {
+        final int watchId = watchIdSequencer.next();
+        sandboxClassFileTransformer.adopt(watchId, listener);
+        coreModule.getSandboxClassFileTransformers().add(sandboxClassFileTransformer);
+
+        int cCnt = 0, mCnt = 0;
+        try {
+            final Set<Class<?>> wovenClassSet = new HashSet<>(sandboxClassFileTransformer.getAffectClasses().resolve(classDataSource));
+            final List<Class<?>> waitingReTransformClasses = new ArrayList<>();
+            for (final Class<?> clazz : classDataSource.findForReTransform(sandboxClassFileTransformer.getMatcher())) {
+                if (!wovenClassSet.contains(clazz)) {
+                    waitingReTransformClasses.add(clazz);
+                }
+            }
+            logger.info("watch={} in module={} adopted pre-registered persistent watch, woven {} classes, found {} classes for watch(ing).",
+                    watchId,
+                    coreModule.getUniqueId(),
+                    wovenClassSet.size(),
+                    waitingReTransformClasses.size()
+            );
+
+            beginProgress(progress, waitingReTransformClasses.size());
+            reTransformClasses(watchId, waitingReTransformClasses, progress);
+            cCnt += sandboxClassFileTransformer.getAffectStatistic().cCnt();
+            mCnt += sandboxClassFileTransformer.getAffectStatistic().mCnt();
+
+            if (coreModule.isActivated()) {
+                EventListenerHandler.getSingleton().active(sandboxClassFileTransformer.getListenerId(), listener, eventType);
+            }
+        } finally {
+            finishProgress(progress, cCnt, mCnt);
+        }
+        return watchId;
+    }
+
     @Override
     public void delete(final int watcherId, final Progress progress) {
 
-        final Set<Matcher> waitingRemoveMatcherSet = new LinkedHashSet<>();
+        // 模块主动删除持久化观察时一并删除定义，模块卸载时保留，以便重启后提前织入
+        final String persistentWatchKey = persistentWatchKeys.remove(watcherId);
+        if (null != persistentWatchKey
+                && null != persistentWatchRegistry
+                && coreModule.isLoaded()) {
+            persistentWatchRegistry.remove(coreModule.getUniqueId(), persistentWatchKey);
+        }
+
+        // 被删除的SandboxClassFileTransformer实际增强过的类，只需要还原这些类
+        final Set<Class<?>> waitingReTransformClassSet = new LinkedHashSet<>();
 
         // 从当前模块中所持有的SandboxClassFileTransformer集合中找出待删除的SandboxClassFileTransformer
         // SandboxClassFileTransformer: 类形变器，用于完成对类的增强操作
@@ -279,6 +526,11 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                 // 冻结所有关联代码增强
                 EventListenerHandler.getSingleton().frozen(sandboxClassFileTransformer.getListenerId());
 
+                // 注销行覆盖探针
+                if (sandboxClassFileTransformer.isCoverageEnable()) {
+                    CoverageProbeRegistry.getSingleton().remove(sandboxClassFileTransformer.getListenerId());
+                }
+
                 // 在JVM中移除掉命中的ClassFileTransformer
                 inst.removeTransformer(sandboxClassFileTransformer);
 
@@ -286,8 +538,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
                 cCnt += sandboxClassFileTransformer.getAffectStatistic().cCnt();
                 mCnt += sandboxClassFileTransformer.getAffectStatistic().mCnt();
 
-                // 追加到待删除过滤器集合
-                waitingRemoveMatcherSet.add(sandboxClassFileTransformer.getMatcher());
+                // 追加到待还原类集合
+                waitingReTransformClassSet.addAll(sandboxClassFileTransformer.getAffectClasses().resolve(classDataSource));
 
                 // 清除掉该SandboxClassFileTransformer
                 cftIt.remove();
@@ -295,10 +547,8 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
             }
         }
 
-        // 查找需要删除后重新渲染的类集合 -> 需要对类进行还原
-        final List<Class<?>> waitingReTransformClasses = classDataSource.findForReTransform(
-                new GroupMatcher.Or(waitingRemoveMatcherSet.toArray(new Matcher[0]))
-        );
+        // 需要删除后重新渲染的类集合 -> 需要对类进行还原
+        final List<Class<?>> waitingReTransformClasses = new ArrayList<>(waitingReTransformClassSet);
         logger.info("watch={} in module={} found {} classes for delete.",
                 watcherId,
                 coreModule.getUniqueId(),
@@ -319,6 +569,55 @@ public class DefaultModuleEventWatcher implements ModuleEventWatcher {
         delete(watcherId, null);
     }
 
+    @Override
+    public boolean replaceListener(final int watchId,
+                                   final EventListener listener,
+                                   final Event.Type... eventType) {
+        final Event.Type[] eventTypes = null == eventType
+                ? new Event.Type[0]
+                : eventType;
+
+        // 与模块的激活、冻结互斥，避免激活时注册了替换前的监听器
+        synchronized (coreModule) {
+            final List<SandboxClassFileTransformer> replacingTransformers = new ArrayList<>();
+            for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
+                if (watchId != sandboxClassFileTransformer.getWatchId()) {
+                    continue;
+                }
+                if (sandboxClassFileTransformer.isCoverageEnable()
+                        || !sandboxClassFileTransformer.isWoven(eventTypes)) {
+                    logger.info("watch={} in module={} can not replace listener without re-transform, event={}",
+                            watchId,
+                            coreModule.getUniqueId(),
+                            join(eventTypes, ",")
+                    );
+                    return false;
+                }
+                replacingTransformers.add(sandboxClassFileTransformer);
+            }
+            if (replacingTransformers.isEmpty()) {
+                logger.debug("watch={} in module={} not found, ignore replace listener.", watchId, coreModule.getUniqueId());
+                return false;
+            }
+
+            for (final SandboxClassFileTransformer sandboxClassFileTransformer : replacingTransformers) {
+                sandboxClassFileTransformer.replace(listener, eventTypes);
+
+                // 直接覆盖监听器ID对应的事件处理器，已织入的代码不需要任何变化
+                if (coreModule.isActivated()) {
+                    EventListenerHandler.getSingleton().active(sandboxClassFileTransformer.getListenerId(), listener, eventTypes);
+                }
+            }
+            logger.info("watch={} in module={} replaced listener={}, event={}",
+                    watchId,
+                    coreModule.getUniqueId(),
+                    listener,
+                    join(eventTypes, ",")
+            );
+            return true;
+        }
+    }
+
     @Override
     public void watching(Filter filter, EventListener listener, WatchCallback watchCb, Event.Type... eventType) throws Throwable {
         watching(filter, listener, null, watchCb, null, eventType);
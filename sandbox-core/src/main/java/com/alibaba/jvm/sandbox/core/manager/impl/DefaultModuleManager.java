@@ -1,14 +1,20 @@
 package com.alibaba.jvm.sandbox.core.manager.impl;
 
+import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.ModuleException;
 import com.alibaba.jvm.sandbox.api.resource.ModuleManager;
 import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoaderTracker;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
 import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
  * 默认ModuleManager实现
@@ -54,11 +60,22 @@ public class DefaultModuleManager implements ModuleManager {
     public Collection<Module> list() {
         final Collection<Module> modules = new ArrayList<>();
         for (final CoreModule coreModule : coreModuleManager.list()) {
-            modules.add(coreModule.getModule());
+            if (coreModule.isInstantiated()) {
+                modules.add(coreModule.getModule());
+            }
         }
         return modules;
     }
 
+    @Override
+    public Collection<Information> listInformation() {
+        final Collection<Information> infos = new ArrayList<>();
+        for (final CoreModule coreModule : coreModuleManager.list()) {
+            infos.add(coreModule.getInformation());
+        }
+        return infos;
+    }
+
     @Override
     public Module get(String uniqueId) {
         final CoreModule coreModule = coreModuleManager.get(uniqueId);
@@ -92,4 +109,33 @@ public class DefaultModuleManager implements ModuleManager {
         return coreModuleManager.getThrowsExceptionIfNull(uniqueId).getJarFile();
     }
 
+    @Override
+    public Footprint getFootprint(String uniqueId) throws ModuleException {
+        final CoreModule coreModule = coreModuleManager.getThrowsExceptionIfNull(uniqueId);
+        final ModuleJarClassLoader loader = coreModule.getLoader();
+        return new Footprint(
+                loader.getDefinedClassCnt(),
+                loader.estimateMetaspaceBytes(),
+                coreModule.getSandboxClassFileTransformers().size(),
+                countActivatedListener(coreModule)
+        );
+    }
+
+    // 模块当前处于激活状态的事件监听器个数
+    private int countActivatedListener(final CoreModule coreModule) {
+        final Set<Integer> activatedListenerIds = new HashSet<>();
+        for (final SandboxClassFileTransformer sandboxClassFileTransformer : coreModule.getSandboxClassFileTransformers()) {
+            final int listenerId = sandboxClassFileTransformer.getListenerId();
+            if (EventListenerHandler.getSingleton().isActivated(listenerId)) {
+                activatedListenerIds.add(listenerId);
+            }
+        }
+        return activatedListenerIds.size();
+    }
+
+    @Override
+    public Collection<String> listUncollectedLoaders(boolean isGcFirst) {
+        return ModuleJarClassLoaderTracker.getSingleton().listUncollected(isGcFirst);
+    }
+
 }
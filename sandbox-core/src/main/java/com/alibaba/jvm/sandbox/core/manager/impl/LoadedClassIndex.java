@@ -0,0 +1,508 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.ref.WeakReference;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toJavaClassName;
+
+/**
+ * 已加载类索引
+ * <p>
+ * 维护类名、父类/接口到直接子类、注解到被标注类的反向索引，索引中只持有类的弱引用，不会阻止类卸载。
+ * 索引在第一次使用时根据{@link Instrumentation#getAllLoadedClasses()}建立，
+ * 之后由观察用的{@link ClassFileTransformer}记录新定义的类和它的ClassLoader，
+ * 在下一次检索时只从这些ClassLoader的{@link Instrumentation#getInitiatedClasses(ClassLoader)}中增量补齐；
+ * 两次检索之间定义的类过多时不再逐个记录，改为下一次检索时全量同步
+ * </p>
+ * <p>
+ * 索引只用于缩小候选范围，检索出的候选类仍需要经过完整的匹配
+ * </p>
+ */
+public class LoadedClassIndex {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // 新定义的类在多少次同步后仍未出现在已加载类中就放弃等待（例如定义失败的类或隐藏类）
+    private static final int MAX_PENDING_SYNC_TIMES = 3;
+
+    // 两次同步之间最多记录多少个新定义的类，超出后放弃增量补齐，下一次同步时全量同步
+    private static final int MAX_DEFINED_CLASS_CNT = 4096;
+
+    private final Instrumentation inst;
+
+    // 类名 -> 同名的类（不同ClassLoader可能加载同名类）
+    private final Map<String, WeakClassSet> classesByName = new HashMap<>();
+
+    // 父类/接口名 -> 直接继承或实现它的类
+    private final Map<String, WeakClassSet> directSubClassesBySuperName = new HashMap<>();
+
+    // 注解类型名 -> 直接标注了该注解的类，第一次按注解检索时才建立
+    private final Map<String, WeakClassSet> classesByAnnotationName = new HashMap<>();
+
+    // 无法解析注解的类，按注解检索时总是作为候选，交给完整的匹配判断
+    private final WeakClassSet annotationUnresolvedClasses = new WeakClassSet();
+
+    // 观察到的新定义类，等待下一次同步时补齐
+    private final Queue<DefinedClass> definedClasses = new ConcurrentLinkedQueue<>();
+
+    // 队列中新定义类的个数，超出上限后不再入队
+    private final AtomicInteger definedClassCnt = new AtomicInteger();
+
+    // 新定义的类超出上限，下一次同步时需要全量同步
+    private volatile boolean isFullSyncRequired = false;
+
+    // 已同步过但仍未出现在已加载类中的新定义类
+    private final List<DefinedClass> pendingDefinedClasses = new ArrayList<>();
+
+    // 上一次清理空索引项之后新增的类个数
+    private int addedSincePurge = 0;
+
+    private final ClassFileTransformer observer = new ClassFileTransformer() {
+        @Override
+        public byte[] transform(final ClassLoader loader,
+                                final String internalClassName,
+                                final Class<?> classBeingRedefined,
+                                final ProtectionDomain protectionDomain,
+                                final byte[] classfileBuffer) {
+            // 类定义时Class对象尚未生成，这里只记录类名和ClassLoader，不做任何解析
+            if (null == classBeingRedefined && null != internalClassName && !isFullSyncRequired) {
+                if (definedClassCnt.incrementAndGet() > MAX_DEFINED_CLASS_CNT) {
+                    isFullSyncRequired = true;
+                } else {
+                    definedClasses.offer(new DefinedClass(loader, internalClassName));
+                }
+            }
+            return null;
+        }
+    };
+
+    private boolean isSeeded = false;
+    private boolean isAnnotationIndexed = false;
+
+    public LoadedClassIndex(final Instrumentation inst) {
+        this.inst = inst;
+    }
+
+    /**
+     * 开始观察类定义并建立索引
+     */
+    public void open() {
+        inst.addTransformer(observer, false);
+        synchronized (this) {
+            sync();
+        }
+    }
+
+    /**
+     * 停止观察类定义并清空索引
+     */
+    public synchronized void close() {
+        inst.removeTransformer(observer);
+        classesByName.clear();
+        directSubClassesBySuperName.clear();
+        classesByAnnotationName.clear();
+        annotationUnresolvedClasses.clear();
+        definedClasses.clear();
+        definedClassCnt.set(0);
+        pendingDefinedClasses.clear();
+        isFullSyncRequired = false;
+        addedSincePurge = 0;
+        isSeeded = false;
+        isAnnotationIndexed = false;
+    }
+
+    /**
+     * 检索可能满足条件的候选类
+     *
+     * @param classNamePattern       类名匹配模版
+     * @param annotationTypePatterns 注解类型匹配模版，为null表示没有注解约束
+     * @param isIncludeSubClasses    是否包含子类
+     * @return 候选类集合
+     */
+    public synchronized Set<Class<?>> findCandidates(final GaPattern classNamePattern,
+                                                     final GaPattern[] annotationTypePatterns,
+                                                     final boolean isIncludeSubClasses) {
+        sync();
+
+        final Set<Class<?>> roots = new LinkedHashSet<>();
+        if (null != annotationTypePatterns) {
+            indexAnnotations();
+
+            // @Inherited的注解会被子类继承，所以标注类的子类也都算作候选
+            final Set<Class<?>> annotated = new LinkedHashSet<>();
+            for (final Map.Entry<String, WeakClassSet> entry : classesByAnnotationName.entrySet()) {
+                if (isAnyMatching(annotationTypePatterns, entry.getKey())) {
+                    entry.getValue().collectTo(annotated);
+                }
+            }
+            annotationUnresolvedClasses.collectTo(annotated);
+            for (final Class<?> clazz : withSubClasses(annotated)) {
+                if (classNamePattern.matching(clazz.getName())) {
+                    roots.add(clazz);
+                }
+            }
+        } else {
+            for (final Map.Entry<String, WeakClassSet> entry : classesByName.entrySet()) {
+                if (classNamePattern.matching(entry.getKey())) {
+                    entry.getValue().collectTo(roots);
+                }
+            }
+        }
+
+        return isIncludeSubClasses
+                ? withSubClasses(roots)
+                : roots;
+    }
+
+    /**
+     * 检索指定类名的所有类
+     *
+     * @param javaClassName 类名
+     * @return 同名类集合
+     */
+    public synchronized Set<Class<?>> findByName(final String javaClassName) {
+        sync();
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        final WeakClassSet classSet = classesByName.get(javaClassName);
+        if (null != classSet) {
+            classSet.collectTo(classes);
+        }
+        return classes;
+    }
+
+    /**
+     * 检索指定类的所有子类和实现类（不含自身）
+     *
+     * @param javaClassName 父类或接口名
+     * @return 子类集合
+     */
+    public synchronized Set<Class<?>> findSubClasses(final String javaClassName) {
+        sync();
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        collectSubClasses(javaClassName, classes, new HashSet<>());
+        return classes;
+    }
+
+    /**
+     * 检索直接标注了指定注解的类
+     * <p>
+     * 无法解析注解的类也会一并返回
+     * </p>
+     *
+     * @param annotationJavaClassName 注解类型名
+     * @return 标注类集合
+     */
+    public synchronized Set<Class<?>> findByAnnotation(final String annotationJavaClassName) {
+        sync();
+        indexAnnotations();
+        final Set<Class<?>> classes = new LinkedHashSet<>();
+        final WeakClassSet classSet = classesByAnnotationName.get(annotationJavaClassName);
+        if (null != classSet) {
+            classSet.collectTo(classes);
+        }
+        annotationUnresolvedClasses.collectTo(classes);
+        return classes;
+    }
+
+    private static boolean isAnyMatching(final GaPattern[] patterns, final String string) {
+        for (final GaPattern pattern : patterns) {
+            if (pattern.matching(string)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 自身及所有子类
+    private Set<Class<?>> withSubClasses(final Set<Class<?>> classes) {
+        final Set<Class<?>> found = new LinkedHashSet<>(classes);
+        final Set<String> visited = new HashSet<>();
+        for (final Class<?> clazz : classes) {
+            collectSubClasses(clazz.getName(), found, visited);
+        }
+        return found;
+    }
+
+    private void collectSubClasses(final String javaClassName,
+                                   final Set<Class<?>> found,
+                                   final Set<String> visited) {
+        final Deque<String> waiting = new ArrayDeque<>();
+        waiting.add(javaClassName);
+        while (!waiting.isEmpty()) {
+            final String name = waiting.poll();
+            if (!visited.add(name)) {
+                continue;
+            }
+            final WeakClassSet subClassSet = directSubClassesBySuperName.get(name);
+            if (null == subClassSet) {
+                continue;
+            }
+            final List<Class<?>> subClasses = new ArrayList<>();
+            subClassSet.collectTo(subClasses);
+            for (final Class<?> subClass : subClasses) {
+                found.add(subClass);
+                waiting.add(subClass.getName());
+            }
+        }
+    }
+
+    /*
+     * 同步索引：第一次使用时全量建立，之后只有观察到新定义的类才需要增量补齐
+     */
+    private void sync() {
+        if (isSeeded
+                && !isFullSyncRequired
+                && definedClasses.isEmpty()
+                && pendingDefinedClasses.isEmpty()) {
+            return;
+        }
+
+        SandboxProtector.instance.enterProtecting();
+        try {
+            final boolean isFullSync = !isSeeded || isFullSyncRequired;
+            final int added;
+            if (isFullSync) {
+                // 先复位再全量同步，同步过程中新定义的类会重新入队，留给下一次同步
+                isFullSyncRequired = false;
+                definedClasses.clear();
+                definedClassCnt.set(0);
+                pendingDefinedClasses.clear();
+                added = syncAll();
+            } else {
+                added = syncDefined();
+            }
+
+            // 已卸载的类弱引用被回收后，清理掉空的索引项，增量补齐时累计新增足够多的类才清理一次
+            addedSincePurge = isSeeded ? addedSincePurge + added : 0;
+            if (isSeeded && (isFullSync || addedSincePurge >= MAX_DEFINED_CLASS_CNT)) {
+                purge(classesByName);
+                purge(directSubClassesBySuperName);
+                purge(classesByAnnotationName);
+                annotationUnresolvedClasses.purge();
+                addedSincePurge = 0;
+            }
+
+            logger.debug("loaded class index synced, added={};names={};seeded={};", added, classesByName.size(), isSeeded);
+            isSeeded = true;
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
+
+    // 全量同步：已加载类数组里只需要判断是否已在索引中，只有新出现的类才会被解析
+    private int syncAll() {
+        int added = 0;
+        for (final Class<?> clazz : inst.getAllLoadedClasses()) {
+            if (indexIfAbsent(clazz)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    // 增量同步：只检索新定义类所在ClassLoader的类
+    private int syncDefined() {
+        DefinedClass definedClass;
+        while ((definedClass = definedClasses.poll()) != null) {
+            definedClassCnt.decrementAndGet();
+            pendingDefinedClasses.add(definedClass);
+        }
+
+        // ClassLoader -> 尚未补齐的类名，BootstrapClassLoader以null为键
+        final Map<ClassLoader, Set<String>> unresolvedJavaClassNamesByLoader = new IdentityHashMap<>();
+        final Iterator<DefinedClass> pendingIt = pendingDefinedClasses.iterator();
+        while (pendingIt.hasNext()) {
+            final DefinedClass pending = pendingIt.next();
+            final ClassLoader loader = pending.loaderRef.get();
+            if (null == loader && !pending.isBootstrap) {
+                pendingIt.remove();
+                continue;
+            }
+            Set<String> javaClassNames = unresolvedJavaClassNamesByLoader.get(loader);
+            if (null == javaClassNames) {
+                unresolvedJavaClassNamesByLoader.put(loader, javaClassNames = new HashSet<>());
+            }
+            javaClassNames.add(pending.javaClassName);
+        }
+
+        int added = 0;
+        for (final Map.Entry<ClassLoader, Set<String>> entry : unresolvedJavaClassNamesByLoader.entrySet()) {
+            final ClassLoader loader = entry.getKey();
+            for (final Class<?> clazz : inst.getInitiatedClasses(loader)) {
+                if (clazz.getClassLoader() == loader
+                        && entry.getValue().remove(clazz.getName())
+                        && indexIfAbsent(clazz)) {
+                    added++;
+                }
+            }
+        }
+
+        // 观察到定义但仍未出现的类，多等几次同步，避免定义尚未完成就被遗漏
+        final Iterator<DefinedClass> unresolvedIt = pendingDefinedClasses.iterator();
+        while (unresolvedIt.hasNext()) {
+            final DefinedClass pending = unresolvedIt.next();
+            final Set<String> unresolved = unresolvedJavaClassNamesByLoader.get(pending.loaderRef.get());
+            if (null == unresolved
+                    || !unresolved.contains(pending.javaClassName)
+                    || ++pending.syncTimes >= MAX_PENDING_SYNC_TIMES) {
+                unresolvedIt.remove();
+            }
+        }
+        return added;
+    }
+
+    private boolean indexIfAbsent(final Class<?> clazz) {
+        final WeakClassSet classSet = classesByName.get(clazz.getName());
+        if (null != classSet && classSet.contains(clazz)) {
+            return false;
+        }
+        index(clazz);
+        return true;
+    }
+
+    private void index(final Class<?> clazz) {
+        put(classesByName, clazz.getName(), clazz);
+        try {
+            final Class<?> superClass = clazz.getSuperclass();
+            if (null != superClass) {
+                put(directSubClassesBySuperName, superClass.getName(), clazz);
+            }
+            for (final Class<?> interfaceClass : clazz.getInterfaces()) {
+                put(directSubClassesBySuperName, interfaceClass.getName(), clazz);
+            }
+        } catch (Throwable cause) {
+            logger.debug("index class:{} hierarchy failed, ignore.", clazz.getName(), cause);
+        }
+        if (isAnnotationIndexed) {
+            indexAnnotation(clazz);
+        }
+    }
+
+    /*
+     * 解析注解的代价较高，只有第一次按注解检索时才对所有已加载类建立注解索引
+     */
+    private void indexAnnotations() {
+        if (isAnnotationIndexed) {
+            return;
+        }
+        SandboxProtector.instance.enterProtecting();
+        try {
+            final List<Class<?>> classes = new ArrayList<>();
+            for (final WeakClassSet classSet : classesByName.values()) {
+                classSet.collectTo(classes);
+            }
+            for (final Class<?> clazz : classes) {
+                indexAnnotation(clazz);
+            }
+            isAnnotationIndexed = true;
+        } finally {
+            SandboxProtector.instance.exitProtecting();
+        }
+    }
+
+    /*
+     * 注解类型名取自类结构中的注解描述符，与匹配时使用同一份缓存的类结构；
+     * 不通过反射获取注解，避免触发注解类加载，也不会遗漏无法解析的注解类型
+     */
+    private void indexAnnotation(final Class<?> clazz) {
+        try {
+            for (final String annotationJavaClassName : ClassStructureFactory.createClassStructure(clazz).getAnnotationTypeJavaClassNames()) {
+                put(classesByAnnotationName, annotationJavaClassName, clazz);
+            }
+        } catch (Throwable cause) {
+            logger.debug("index class:{} annotations failed, always as candidate.", clazz.getName(), cause);
+            annotationUnresolvedClasses.add(clazz);
+        }
+    }
+
+    private static void put(final Map<String, WeakClassSet> index, final String key, final Class<?> clazz) {
+        WeakClassSet classSet = index.get(key);
+        if (null == classSet) {
+            index.put(key, classSet = new WeakClassSet());
+        }
+        classSet.add(clazz);
+    }
+
+    private static void purge(final Map<String, WeakClassSet> index) {
+        index.values().removeIf(WeakClassSet::purge);
+    }
+
+    /**
+     * 观察到的新定义类，只弱引用它的ClassLoader
+     */
+    private static class DefinedClass {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final boolean isBootstrap;
+        private final String javaClassName;
+        private int syncTimes = 0;
+
+        DefinedClass(final ClassLoader loader, final String internalClassName) {
+            this.loaderRef = new WeakReference<>(loader);
+            this.isBootstrap = null == loader;
+            this.javaClassName = toJavaClassName(internalClassName);
+        }
+
+    }
+
+    /**
+     * 弱引用的类集合
+     * <p>
+     * 同名类、同一父类的直接子类通常很少，这里用列表代替WeakHashMap以减少每个索引项的内存开销
+     * </p>
+     */
+    private static class WeakClassSet {
+
+        private final List<WeakReference<Class<?>>> references = new ArrayList<>(1);
+
+        boolean contains(final Class<?> clazz) {
+            for (final WeakReference<Class<?>> reference : references) {
+                if (reference.get() == clazz) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(final Class<?> clazz) {
+            if (!contains(clazz)) {
+                references.add(new WeakReference<>(clazz));
+            }
+        }
+
+        void collectTo(final Collection<Class<?>> classes) {
+            final Iterator<WeakReference<Class<?>>> it = references.iterator();
+            while (it.hasNext()) {
+                final Class<?> clazz = it.next().get();
+                if (null == clazz) {
+                    it.remove();
+                } else {
+                    classes.add(clazz);
+                }
+            }
+        }
+
+        void clear() {
+            references.clear();
+        }
+
+        // 清理已被回收的引用，返回集合是否已空
+        boolean purge() {
+            references.removeIf(reference -> null == reference.get());
+            return references.isEmpty();
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
+import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+
+/**
+ * 模块事件观察者工厂
+ * <p>
+ * {@link DefaultModuleEventWatcher}和{@link SandboxClassFileTransformer}的构造函数只对包内可见，
+ * 不启动完整沙箱的场景(如sandbox-benchmark中的基准测试)通过这里创建它们：
+ * 不开启unsafe，不支持native方法增强，也不使用增强字节码缓存和持久化观察
+ * </p>
+ */
+public class ModuleEventWatcherFactory {
+
+    /**
+     * 创建类形变器
+     *
+     * @param watchId    观察ID
+     * @param uniqueId   模块ID
+     * @param matcher    匹配器
+     * @param listener   事件监听器
+     * @param namespace  命名空间
+     * @param eventTypes 事件类型
+     * @return 类形变器
+     */
+    public static ClassFileTransformer newClassFileTransformer(final int watchId,
+                                                               final String uniqueId,
+                                                               final Matcher matcher,
+                                                               final EventListener listener,
+                                                               final String namespace,
+                                                               final Event.Type... eventTypes) {
+        return new SandboxClassFileTransformer(
+                watchId,
+                uniqueId,
+                matcher,
+                listener,
+                false,
+                eventTypes,
+                namespace,
+                false,
+                EnhanceOptions.DEFAULT
+        );
+    }
+
+    /**
+     * 创建模块事件观察者
+     *
+     * @param inst                 Instrumentation
+     * @param coreModule           模块
+     * @param namespace            命名空间
+     * @param reTransformBatchSize 批量形变的大小
+     * @return 模块事件观察者
+     */
+    public static ModuleEventWatcher newModuleEventWatcher(final Instrumentation inst,
+                                                           final CoreModule coreModule,
+                                                           final String namespace,
+                                                           final int reTransformBatchSize) {
+        return new DefaultModuleEventWatcher(
+                inst,
+                new DefaultCoreLoadedClassDataSource(inst, false, false),
+                coreModule,
+                false,
+                namespace,
+                reTransformBatchSize,
+                null
+        );
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.Information;
+import com.alibaba.jvm.sandbox.api.Module;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.objectweb.asm.ClassReader.SKIP_CODE;
+import static org.objectweb.asm.ClassReader.SKIP_DEBUG;
+import static org.objectweb.asm.ClassReader.SKIP_FRAMES;
+import static org.objectweb.asm.Opcodes.ASM7;
+
+/**
+ * 模块元数据读取
+ * <p>
+ * 直接读取SPI配置文件和模块类的字节码，在不加载模块类的前提下得到模块的{@link Information}，
+ * 延迟加载的模块依靠它完成注册
+ * </p>
+ */
+class ModuleInformationReader {
+
+    private static final String MODULE_SPI_RESOURCE = "META-INF/services/" + Module.class.getName();
+
+    private static final String INFORMATION_DESC = Type.getDescriptor(Information.class);
+
+    /**
+     * 读取SPI配置文件中声明的模块类名
+     * <p>
+     * 与{@link java.util.ServiceLoader}的解析规则一致：忽略注释和空行，重复的类名只保留第一个
+     * </p>
+     *
+     * @param loader 模块ClassLoader
+     * @return 模块类名，保持声明顺序
+     * @throws IOException 读取SPI配置文件失败
+     */
+    static List<String> readModuleClassNames(final ClassLoader loader) throws IOException {
+        final Set<String> moduleClassNames = new LinkedHashSet<>();
+        final Enumeration<URL> resources = loader.getResources(MODULE_SPI_RESOURCE);
+        while (resources.hasMoreElements()) {
+            try (final InputStream is = resources.nextElement().openStream()) {
+                for (final String line : IOUtils.readLines(is, StandardCharsets.UTF_8)) {
+                    final String moduleClassName = StringUtils.substringBefore(line, "#").trim();
+                    if (!moduleClassName.isEmpty()) {
+                        moduleClassNames.add(moduleClassName);
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(moduleClassNames);
+    }
+
+    /**
+     * 从字节码中读取模块类上标注的{@link Information}
+     *
+     * @param loader          模块ClassLoader
+     * @param moduleClassName 模块类名
+     * @return 模块信息，模块类没有标注{@link Information}时返回null
+     * @throws IOException 模块类不存在或读取失败
+     */
+    static Information readInformation(final ClassLoader loader,
+                                       final String moduleClassName) throws IOException {
+        final String resourceName = moduleClassName.replace('.', '/') + ".class";
+        final byte[] byteCodeArray;
+        try (final InputStream is = loader.getResourceAsStream(resourceName)) {
+            if (null == is) {
+                throw new IOException("module class not found: " + moduleClassName);
+            }
+            byteCodeArray = IOUtils.toByteArray(is);
+        }
+
+        final Map<String, Object> values = new HashMap<>();
+        final boolean[] isAnnotated = new boolean[1];
+        new ClassReader(byteCodeArray).accept(new ClassVisitor(ASM7) {
+            @Override
+            public AnnotationVisitor visitAnnotation(final String desc, final boolean visible) {
+                if (!INFORMATION_DESC.equals(desc)) {
+                    return null;
+                }
+                isAnnotated[0] = true;
+                return new AnnotationVisitor(ASM7) {
+
+                    @Override
+                    public void visit(final String name, final Object value) {
+                        values.put(name, value);
+                    }
+
+                    @Override
+                    public AnnotationVisitor visitArray(final String name) {
+                        final List<Information.Mode> modes = new ArrayList<>();
+                        values.put(name, modes);
+                        return new AnnotationVisitor(ASM7) {
+                            @Override
+                            public void visitEnum(final String ignore, final String desc, final String value) {
+                                modes.add(Information.Mode.valueOf(value));
+                            }
+                        };
+                    }
+
+                };
+            }
+        }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+
+        if (!isAnnotated[0]) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        final List<Information.Mode> modes = (List<Information.Mode>) values.get("mode");
+        if (null != modes) {
+            values.put("mode", modes.toArray(new Information.Mode[0]));
+        }
+        return toInformation(values);
+    }
+
+    /*
+     * 用读取到的注解值构造Information，未读取到的值取注解声明的默认值
+     */
+    private static Information toInformation(final Map<String, Object> values) {
+        return (Information) Proxy.newProxyInstance(
+                Information.class.getClassLoader(),
+                new Class<?>[]{Information.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        final String name = method.getName();
+                        if ("annotationType".equals(name)) {
+                            return Information.class;
+                        }
+                        if ("hashCode".equals(name)) {
+                            return System.identityHashCode(proxy);
+                        }
+                        if ("equals".equals(name)) {
+                            return proxy == args[0];
+                        }
+                        if ("toString".equals(name)) {
+                            return "@" + Information.class.getName() + values;
+                        }
+                        final Object value = values.get(name);
+                        if (value instanceof Information.Mode[]) {
+                            return ((Information.Mode[]) value).clone();
+                        }
+                        return null == value
+                                ? method.getDefaultValue()
+                                : value;
+                    }
+                }
+        );
+    }
+
+}
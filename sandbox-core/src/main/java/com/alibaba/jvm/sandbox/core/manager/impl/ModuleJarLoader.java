@@ -3,6 +3,7 @@ package com.alibaba.jvm.sandbox.core.manager.impl;
 import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.SharedLibraryClassLoader;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -10,9 +11,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
-import java.util.ServiceLoader;
+import java.util.List;
 import java.util.Set;
 
 class ModuleJarLoader {
@@ -25,33 +26,55 @@ class ModuleJarLoader {
     // 沙箱加载模式
     private final Information.Mode mode;
 
+    // 模块共享库ClassLoader，为null时不使用共享库
+    private final SharedLibraryClassLoader sharedLibraryClassLoader;
+
+    // 预加载发现的模块，保持SPI的发现顺序
+    private final List<DiscoveredModule> discoveredModules = new ArrayList<>();
+
+    // 预加载创建的ModuleJarClassLoader
+    private ModuleJarClassLoader moduleJarClassLoader;
+
+    // 预加载发生的异常
+    private Throwable prepareCause;
+
+    private boolean isPrepared;
+
     ModuleJarLoader(final File moduleJarFile,
-                    final Information.Mode mode) {
+                    final Information.Mode mode,
+                    final SharedLibraryClassLoader sharedLibraryClassLoader) {
         this.moduleJarFile = moduleJarFile;
         this.mode = mode;
+        this.sharedLibraryClassLoader = sharedLibraryClassLoader;
     }
 
 
     /**
-     * 加载模块Jar文件中的模块实例
+     * 发现模块Jar文件中的模块
+     * <p>
+     * 先从字节码中读取模块的{@link Information}，延迟加载的模块只记录模块信息，不加载模块类；
+     * 其余模块完成实例化和{@link Information}校验。这里都不回调模块加载
+     * </p>
      *
      * @param moduleClassLoader 负责加载模块的ClassLoader，同一个jar包下的模块都使用该类加载器进行加载
-     * @param mCb               模块加载回调
-     * @return 是否成功完成加载
+     * @throws IOException 读取SPI配置文件失败
      */
-    private boolean loadingModules(
-            final ModuleJarClassLoader moduleClassLoader,
-            final ModuleLoadCallback mCb
-    ) {
-        final Set<String> loadedModuleUniqueIds = new LinkedHashSet<>();
-        // 通过SPI来获取该jar包下的所有Module
-        final ServiceLoader<Module> moduleServiceLoader = ServiceLoader.load(Module.class, moduleClassLoader);
-        final Iterator<Module> moduleIt = moduleServiceLoader.iterator();
-        while (moduleIt.hasNext()) {
+    private void discoverModules(final ModuleJarClassLoader moduleClassLoader) throws IOException {
+        // 通过SPI配置文件来获取该jar包下的所有Module
+        for (final String moduleClassName : ModuleInformationReader.readModuleClassNames(moduleClassLoader)) {
+
+            // 延迟加载的模块只需要模块信息
+            final Information lazyInfo = readLazyInformation(moduleClassLoader, moduleClassName);
+            if (null != lazyInfo) {
+                if (isMatchingInformation(moduleClassName, lazyInfo)) {
+                    discoveredModules.add(new DiscoveredModule(moduleClassName, lazyInfo, null));
+                }
+                continue;
+            }
 
             final Module module;
             try {
-                module = moduleIt.next();
+                module = newModuleInstance(moduleClassName, moduleClassLoader);
             } catch (Throwable cause) {
                 logger.warn("loading module instance failed: instance occur error, will be ignored. module-jar={}", moduleJarFile, cause);
                 continue;
@@ -69,38 +92,110 @@ class ModuleJarLoader {
             }
 
             final Information info = classOfModule.getAnnotation(Information.class);
-            final String uniqueId = info.id();
-
-            // 判断模块ID是否合法
-            if (StringUtils.isBlank(uniqueId)) {
-                logger.warn("loading module instance failed: @Information#id is missing, will be ignored. class={};module-jar={};",
-                        classOfModule,
-                        moduleJarFile
-                );
-                continue;
+            if (isMatchingInformation(moduleClassName, info)) {
+                discoveredModules.add(new DiscoveredModule(moduleClassName, info, module));
             }
 
-            // 判断模块要求的启动模式和容器的启动模式是否匹配
-            if (!ArrayUtils.contains(info.mode(), mode)) {
-                logger.warn("loading module instance failed: launch-mode is not match module required, will be ignored. module={};launch-mode={};required-mode={};class={};module-jar={};",
-                        uniqueId,
-                        mode,
-                        StringUtils.join(info.mode(), ","),
-                        classOfModule,
-                        moduleJarFile
-                );
-                continue;
-            }
+        }
+    }
+
+    /*
+     * 从字节码中读取延迟加载模块的模块信息，不是延迟加载的模块或读取失败时返回null，交由常规的实例化流程处理
+     */
+    private Information readLazyInformation(final ModuleJarClassLoader moduleClassLoader,
+                                            final String moduleClassName) {
+        try {
+            final Information info = ModuleInformationReader.readInformation(moduleClassLoader, moduleClassName);
+            return null != info && info.isLazy()
+                    ? info
+                    : null;
+        } catch (Throwable cause) {
+            logger.debug("read module information from byte-code failed, will be instantiated. class={};module-jar={};",
+                    moduleClassName,
+                    moduleJarFile,
+                    cause
+            );
+            return null;
+        }
+    }
+
+    /*
+     * 校验模块信息：模块ID必须存在，模块要求的启动模式必须和容器的启动模式匹配
+     */
+    private boolean isMatchingInformation(final String moduleClassName, final Information info) {
+        final String uniqueId = info.id();
+
+        // 判断模块ID是否合法
+        if (StringUtils.isBlank(uniqueId)) {
+            logger.warn("loading module instance failed: @Information#id is missing, will be ignored. class={};module-jar={};",
+                    moduleClassName,
+                    moduleJarFile
+            );
+            return false;
+        }
+
+        // 判断模块要求的启动模式和容器的启动模式是否匹配
+        if (!ArrayUtils.contains(info.mode(), mode)) {
+            logger.warn("loading module instance failed: launch-mode is not match module required, will be ignored. module={};launch-mode={};required-mode={};class={};module-jar={};",
+                    uniqueId,
+                    mode,
+                    StringUtils.join(info.mode(), ","),
+                    moduleClassName,
+                    moduleJarFile
+            );
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * 实例化模块，与{@link java.util.ServiceLoader}一样要求模块类实现{@link Module}并提供公开的无参构造函数
+     *
+     * @param moduleClassName   模块类名
+     * @param moduleClassLoader 负责加载模块的ClassLoader
+     * @return 模块实例
+     * @throws Exception 实例化失败
+     */
+    static Module newModuleInstance(final String moduleClassName,
+                                    final ClassLoader moduleClassLoader) throws Exception {
+        final Class<?> classOfModule = Class.forName(moduleClassName, false, moduleClassLoader);
+        if (!Module.class.isAssignableFrom(classOfModule)) {
+            throw new ClassCastException(String.format("%s not a subtype of %s", moduleClassName, Module.class.getName()));
+        }
+        return (Module) classOfModule.newInstance();
+    }
+
+    /**
+     * 按发现顺序回调模块加载
+     *
+     * @param moduleClassLoader 负责加载模块的ClassLoader
+     * @param mCb               模块加载回调
+     * @return 是否成功完成加载
+     */
+    private boolean loadingModules(
+            final ModuleJarClassLoader moduleClassLoader,
+            final ModuleLoadCallback mCb
+    ) {
+        final Set<String> loadedModuleUniqueIds = new LinkedHashSet<>();
+        for (final DiscoveredModule discovered : discoveredModules) {
+
+            final String uniqueId = discovered.info.id();
 
             try {
                 if (null != mCb) {
-                    // 回调模块生命周期方法
-                    mCb.onLoad(uniqueId, classOfModule, module, moduleJarFile, moduleClassLoader);
+                    if (null == discovered.module) {
+                        // 延迟加载的模块只回调模块信息
+                        mCb.onLazyLoad(uniqueId, discovered.moduleClassName, discovered.info, moduleJarFile, moduleClassLoader);
+                    } else {
+                        // 回调模块生命周期方法
+                        mCb.onLoad(uniqueId, discovered.module.getClass(), discovered.module, moduleJarFile, moduleClassLoader);
+                    }
                 }
             } catch (Throwable cause) {
                 logger.warn("loading module instance failed: MODULE-LOADER-PROVIDER denied, will be ignored. module={};class={};module-jar={};",
                         uniqueId,
-                        classOfModule,
+                        discovered.moduleClassName,
                         moduleJarFile,
                         cause
                 );
@@ -120,20 +215,58 @@ class ModuleJarLoader {
         return !loadedModuleUniqueIds.isEmpty();
     }
 
-
-    void load(final ModuleLoadCallback mCb) throws IOException {
-        boolean hasModuleLoadedSuccessFlag = false;
-        ModuleJarClassLoader moduleJarClassLoader = null;
+    /**
+     * 预加载模块Jar文件
+     * <p>
+     * 创建ModuleJarClassLoader并通过SPI发现模块，但不回调模块加载。
+     * 不同模块Jar文件的预加载互不依赖，可以在不同的线程上并行完成；预加载的异常会保留到{@link #load(ModuleLoadCallback)}时抛出
+     * </p>
+     */
+    void prepare() {
+        if (isPrepared) {
+            return;
+        }
+        isPrepared = true;
         logger.info("prepare loading module-jar={};", moduleJarFile);
         try {
             // 通过ModuleJarClassLoader加载模块Jar文件
-            moduleJarClassLoader = new ModuleJarClassLoader(moduleJarFile);
+            moduleJarClassLoader = new ModuleJarClassLoader(moduleJarFile, sharedLibraryClassLoader);
 
             final ClassLoader preTCL = Thread.currentThread().getContextClassLoader();
             Thread.currentThread().setContextClassLoader(moduleJarClassLoader);
 
             try {
-                // 加载模块Jar文件中的模块实例，同时完成回调
+                discoverModules(moduleJarClassLoader);
+            } finally {
+                Thread.currentThread().setContextClassLoader(preTCL);
+            }
+        } catch (Throwable cause) {
+            prepareCause = cause;
+        }
+    }
+
+    /**
+     * 加载模块Jar文件中的模块实例，同时完成回调
+     * <p>
+     * 尚未预加载时先在当前线程上完成预加载
+     * </p>
+     *
+     * @param mCb 模块加载回调
+     * @throws Throwable 预加载失败
+     */
+    void load(final ModuleLoadCallback mCb) throws Throwable {
+        prepare();
+        boolean hasModuleLoadedSuccessFlag = false;
+        try {
+            if (null != prepareCause) {
+                throw prepareCause;
+            }
+
+            final ClassLoader preTCL = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(moduleJarClassLoader);
+
+            try {
+                // 回调模块加载
                 hasModuleLoadedSuccessFlag = loadingModules(moduleJarClassLoader, mCb);
             } finally {
                 Thread.currentThread().setContextClassLoader(preTCL);
@@ -148,6 +281,10 @@ class ModuleJarLoader {
         }
     }
 
+    File getModuleJarFile() {
+        return moduleJarFile;
+    }
+
     /**
      * 模块加载回调
      */
@@ -169,6 +306,43 @@ class ModuleJarLoader {
                     File moduleJarFile,
                     ModuleJarClassLoader moduleClassLoader) throws Throwable;
 
+        /**
+         * 延迟加载模块的加载回调，此时模块类尚未加载，也没有模块实例
+         *
+         * @param uniqueId          模块ID
+         * @param moduleClassName   模块类名
+         * @param info              从字节码中读取的模块信息
+         * @param moduleJarFile     模块所在Jar文件
+         * @param moduleClassLoader 负责加载模块的ClassLoader
+         * @throws Throwable 加载回调异常
+         */
+        void onLazyLoad(String uniqueId,
+                        String moduleClassName,
+                        Information info,
+                        File moduleJarFile,
+                        ModuleJarClassLoader moduleClassLoader) throws Throwable;
+
+    }
+
+    /**
+     * 预加载发现的模块
+     */
+    private static class DiscoveredModule {
+
+        private final String moduleClassName;
+        private final Information info;
+
+        // 模块实例，延迟加载的模块为null
+        private final Module module;
+
+        DiscoveredModule(final String moduleClassName,
+                         final Information info,
+                         final Module module) {
+            this.moduleClassName = moduleClassName;
+            this.info = info;
+            this.module = module;
+        }
+
     }
 
 }
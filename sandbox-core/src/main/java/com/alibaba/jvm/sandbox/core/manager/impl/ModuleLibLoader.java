@@ -1,12 +1,21 @@
 package com.alibaba.jvm.sandbox.core.manager.impl;
 
 import com.alibaba.jvm.sandbox.api.Information;
+import com.alibaba.jvm.sandbox.core.classloader.SharedLibraryClassLoader;
+import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.commons.io.FileUtils.convertFileCollectionToFileArray;
 import static org.apache.commons.io.FileUtils.listFiles;
@@ -27,10 +36,28 @@ class ModuleLibLoader {
     // 沙箱加载模式
     private final Information.Mode mode;
 
+    // 模块jar文件预加载的并行度
+    private final int parallelism;
+
+    // 模块共享库ClassLoader，为null时不使用共享库
+    private final SharedLibraryClassLoader sharedLibraryClassLoader;
+
+    /**
+     * 模块目录加载器
+     *
+     * @param moduleLibDir             模块加载目录
+     * @param mode                     沙箱加载模式
+     * @param parallelism              模块jar文件预加载的并行度，小于等于1时逐个预加载
+     * @param sharedLibraryClassLoader 模块共享库ClassLoader，为null时不使用共享库
+     */
     ModuleLibLoader(final File moduleLibDir,
-                    final Information.Mode mode) {
+                    final Information.Mode mode,
+                    final int parallelism,
+                    final SharedLibraryClassLoader sharedLibraryClassLoader) {
         this.moduleLibDir = moduleLibDir;
         this.mode = mode;
+        this.parallelism = parallelism;
+        this.sharedLibraryClassLoader = sharedLibraryClassLoader;
     }
 
     /**
@@ -75,22 +102,98 @@ class ModuleLibLoader {
 
     /**
      * 加载Module
+     * <p>
+     * 模块jar文件的预加载(复制jar文件、创建ModuleJarClassLoader、SPI发现模块)可以并行完成，
+     * 模块jar文件加载回调和模块加载回调则始终在当前线程上按jar文件的排序逐个进行，保证模块的注册顺序是确定的；
+     * 任何一个jar文件加载失败都不会影响其他jar文件
+     * </p>
      *
      * @param mjCb 模块jar文件加载回调，当一个jar文件被加载时会回调该方法
      * @param mCb  模块加载回调, 当jar文件下具体的一个模块被加载时会回调该方法
      */
     void load(final ModuleJarLoadCallback mjCb, final ModuleJarLoader.ModuleLoadCallback mCb) {
-        // 开始逐条加载
+
+        // ModuleJarLoadCallback 加载回调 -> 一个模块jar包下可能有多个模块Module
+        final List<ModuleJarLoader> moduleJarLoaders = new ArrayList<>();
         for (final File moduleJarFile : listModuleJarFileInLib()) {
             try {
-                // ModuleJarLoadCallback 加载回调 -> 一个模块jar包下可能有多个模块Module
                 mjCb.onLoad(moduleJarFile);
-                // 正式加载jar文件下的模块，每加载一个模块都会回调ModuleLoadCallback
-                new ModuleJarLoader(moduleJarFile, mode).load(mCb);
+                moduleJarLoaders.add(new ModuleJarLoader(moduleJarFile, mode, sharedLibraryClassLoader));
             } catch (Throwable cause) {
                 logger.warn("loading module-jar occur error! module-jar={};", moduleJarFile, cause);
             }
         }
+
+        final ExecutorService prepareExecutor = newPrepareExecutorIfNecessary(moduleJarLoaders.size());
+        try {
+
+            // 并行预加载所有jar文件
+            final List<Future<?>> prepareFutures = new ArrayList<>();
+            if (null != prepareExecutor) {
+                for (final ModuleJarLoader moduleJarLoader : moduleJarLoaders) {
+                    prepareFutures.add(prepareExecutor.submit(() -> {
+                        SandboxProtector.instance.enterProtecting();
+                        try {
+                            moduleJarLoader.prepare();
+                        } finally {
+                            SandboxProtector.instance.exitProtecting();
+                        }
+                    }));
+                }
+            }
+
+            // 开始逐条加载，前面的jar文件完成回调时后面的jar文件仍然可以继续预加载
+            for (int index = 0; index < moduleJarLoaders.size(); index++) {
+                final ModuleJarLoader moduleJarLoader = moduleJarLoaders.get(index);
+                if (!prepareFutures.isEmpty()) {
+                    awaitUninterruptibly(prepareFutures.get(index));
+                }
+                try {
+                    // 正式加载jar文件下的模块，每加载一个模块都会回调ModuleLoadCallback
+                    moduleJarLoader.load(mCb);
+                } catch (Throwable cause) {
+                    logger.warn("loading module-jar occur error! module-jar={};", moduleJarLoader.getModuleJarFile(), cause);
+                }
+            }
+
+        } finally {
+            if (null != prepareExecutor) {
+                prepareExecutor.shutdown();
+            }
+        }
+    }
+
+    // 需要并行预加载时创建预加载线程池，线程数不超过jar文件数和当前可用CPU数
+    private ExecutorService newPrepareExecutorIfNecessary(final int moduleJarCount) {
+        final int threads = Math.min(Math.min(parallelism, moduleJarCount), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            return null;
+        }
+        logger.info("loading module-lib={} in parallel, threads={};", moduleLibDir, threads);
+        final AtomicInteger sequence = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "sandbox-module-loader-" + sequence.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // 等待预加载完成，预加载的异常已经保留在ModuleJarLoader中，这里不再处理
+    private static void awaitUninterruptibly(final Future<?> future) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (InterruptedException cause) {
+                isInterrupted = true;
+            } catch (ExecutionException cause) {
+                break;
+            }
+        }
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     /**
@@ -0,0 +1,462 @@
+package com.alibaba.jvm.sandbox.core.manager.impl;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.CoreConfigure;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.instrument.Instrumentation;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+
+/**
+ * 持久化观察注册表
+ * <p>
+ * 模块通过{@link DefaultModuleEventWatcher#watchPersistent}声明的观察条件保存在沙箱安装目录下的定义文件中。
+ * 沙箱以AGENT模式启动时，在应用加载类之前就按定义提前注册类形变器，此时还没有模块，织入的代码暂时没有监听器；
+ * 模块加载后用相同的条件再次观察时接管提前注册的类形变器，类在首次定义时就已经织入，不需要重新形变
+ * </p>
+ */
+public class PersistentWatchRegistry {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    private static final String SUFFIX_CLASS_REGEX = ".class-regex";
+    private static final String SUFFIX_METHOD_REGEX = ".method-regex";
+    private static final String SUFFIX_EVENT_TYPES = ".event-types";
+
+    private final CoreConfigure cfg;
+    private final Instrumentation inst;
+    private final CoreLoadedClassDataSource classDataSource;
+    private final WovenByteCodeCache wovenByteCodeCache;
+
+    // 定义文件，为null时只在内存中生效
+    private final File file;
+
+    // 模块ID/名称 -> 持久化观察定义，需要在this上同步访问
+    private final Map<String, Definition> definitions = new LinkedHashMap<>();
+
+    // 模块ID/名称 -> 提前注册且尚未被模块接管的类形变器，需要在this上同步访问
+    private final Map<String, SandboxClassFileTransformer> pendingTransformers = new LinkedHashMap<>();
+
+    /**
+     * 构造持久化观察注册表并读取定义文件
+     *
+     * @param cfg                沙箱配置
+     * @param inst               inst
+     * @param classDataSource    已加载类数据源
+     * @param wovenByteCodeCache 增强字节码缓存，为null时不启用
+     */
+    public PersistentWatchRegistry(final CoreConfigure cfg,
+                                   final Instrumentation inst,
+                                   final CoreLoadedClassDataSource classDataSource,
+                                   final WovenByteCodeCache wovenByteCodeCache) {
+        this.cfg = cfg;
+        this.inst = inst;
+        this.classDataSource = classDataSource;
+        this.wovenByteCodeCache = wovenByteCodeCache;
+        this.file = cfg.getPersistentWatchFile();
+        load();
+    }
+
+    /*
+     * 定义名称：模块ID长度:模块ID/持久化观察名称
+     * 模块ID和观察名称中都可能出现"/"，用模块ID的长度前缀来确定边界
+     */
+    private static String toName(final String uniqueId, final String key) {
+        return uniqueId.length() + ":" + uniqueId + "/" + key;
+    }
+
+    /*
+     * 从定义名称中解析出模块ID和持久化观察名称，格式不正确时返回null
+     */
+    private static String[] parseName(final String name) {
+        final int colonIndex = name.indexOf(':');
+        if (colonIndex <= 0 || !StringUtils.isNumeric(name.substring(0, colonIndex))) {
+            return null;
+        }
+        final int length;
+        try {
+            length = Integer.parseInt(name.substring(0, colonIndex));
+        } catch (NumberFormatException cause) {
+            return null;
+        }
+        final int slashIndex = colonIndex + 1 + length;
+        if (slashIndex >= name.length() || name.charAt(slashIndex) != '/') {
+            return null;
+        }
+        return new String[]{name.substring(colonIndex + 1, slashIndex), name.substring(slashIndex + 1)};
+    }
+
+    private static String toUniqueId(final String name) {
+        final String[] uniqueIdAndKey = parseName(name);
+        return null == uniqueIdAndKey ? null : uniqueIdAndKey[0];
+    }
+
+    /*
+     * 读取定义文件，无法解析的定义直接忽略
+     */
+    private void load() {
+        if (null == file || !file.isFile()) {
+            return;
+        }
+        final Properties properties = new Properties();
+        try (final InputStream is = new FileInputStream(file)) {
+            properties.load(is);
+        } catch (IOException cause) {
+            logger.warn("load persistent-watch file={} failed, ignored.", file, cause);
+            return;
+        }
+        for (final String propertyName : properties.stringPropertyNames()) {
+            if (!propertyName.endsWith(SUFFIX_CLASS_REGEX)) {
+                continue;
+            }
+            final String name = StringUtils.removeEnd(propertyName, SUFFIX_CLASS_REGEX);
+            final String[] uniqueIdAndKey = parseName(name);
+            if (null == uniqueIdAndKey) {
+                logger.warn("illegal persistent-watch={} in file={}, ignored.", name, file);
+                continue;
+            }
+            try {
+                definitions.put(name, new Definition(
+                        uniqueIdAndKey[0],
+                        uniqueIdAndKey[1],
+                        properties.getProperty(name + SUFFIX_CLASS_REGEX),
+                        properties.getProperty(name + SUFFIX_METHOD_REGEX),
+                        toEventTypeArray(properties.getProperty(name + SUFFIX_EVENT_TYPES))
+                ));
+            } catch (Throwable cause) {
+                logger.warn("parse persistent-watch={} in file={} failed, ignored.", name, file, cause);
+            }
+        }
+        logger.info("persistent-watch file={} loaded, watches={};", file, definitions.keySet());
+    }
+
+    /*
+     * 写入定义文件，先写临时文件再替换，避免中途失败留下残缺的定义文件
+     */
+    private void store() {
+        if (null == file) {
+            return;
+        }
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Definition> entry : definitions.entrySet()) {
+            final Definition definition = entry.getValue();
+            properties.setProperty(entry.getKey() + SUFFIX_CLASS_REGEX, definition.javaNameRegex);
+            properties.setProperty(entry.getKey() + SUFFIX_METHOD_REGEX, definition.javaMethodRegex);
+            properties.setProperty(entry.getKey() + SUFFIX_EVENT_TYPES, StringUtils.join(definition.eventTypeArray, ","));
+        }
+        try {
+            final File dir = file.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("create dir failed: " + dir);
+            }
+            final File tempFile = File.createTempFile("persistent-watch-", ".tmp", dir);
+            try (final OutputStream os = new FileOutputStream(tempFile)) {
+                properties.store(os, "persistent watches of jvm-sandbox, generated, do not edit.");
+            } catch (IOException cause) {
+                Files.deleteIfExists(tempFile.toPath());
+                throw cause;
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException cause) {
+            logger.warn("store persistent-watch file={} failed, will not take effect after restart.", file, cause);
+        }
+    }
+
+    private static Event.Type[] toEventTypeArray(final String eventTypes) {
+        final List<Event.Type> eventTypeList = new ArrayList<>();
+        for (final String eventType : StringUtils.split(StringUtils.defaultString(eventTypes), ',')) {
+            eventTypeList.add(Event.Type.valueOf(eventType.trim()));
+        }
+        return eventTypeList.toArray(new Event.Type[0]);
+    }
+
+    /**
+     * 按定义文件提前注册所有持久化观察的类形变器
+     * <p>
+     * 需要在应用加载类之前调用，提前注册的类形变器不会重新形变已经加载的类
+     * </p>
+     */
+    public synchronized void preRegister() {
+        for (final Map.Entry<String, Definition> entry : definitions.entrySet()) {
+            if (pendingTransformers.containsKey(entry.getKey())) {
+                continue;
+            }
+            final Definition definition = entry.getValue();
+            // 观察ID在被模块接管时才分配；不增强native方法，也就不需要设置native方法前缀
+            final SandboxClassFileTransformer sandboxClassFileTransformer = new SandboxClassFileTransformer(
+                    0,
+                    definition.uniqueId,
+                    definition.toMatcher(),
+                    new PendingEventListener(),
+                    cfg.isEnableUnsafe(),
+                    definition.eventTypeArray,
+                    cfg.getNamespace(),
+                    false,
+                    EnhanceOptions.newBuilder().wovenByteCodeCache(wovenByteCodeCache).build()
+            );
+            inst.addTransformer(sandboxClassFileTransformer, true);
+            pendingTransformers.put(entry.getKey(), sandboxClassFileTransformer);
+        }
+        logger.info("persistent-watch pre-registered, watches={};", pendingTransformers.keySet());
+    }
+
+    /**
+     * 保存持久化观察定义
+     *
+     * @param definition 持久化观察定义
+     */
+    synchronized void save(final Definition definition) {
+        final String name = toName(definition.uniqueId, definition.key);
+        if (definition.equals(definitions.get(name))) {
+            return;
+        }
+        definitions.put(name, definition);
+        store();
+    }
+
+    /**
+     * 删除持久化观察定义
+     *
+     * @param uniqueId 模块ID
+     * @param key      持久化观察名称
+     */
+    synchronized void remove(final String uniqueId, final String key) {
+        if (null != definitions.remove(toName(uniqueId, key))) {
+            store();
+        }
+    }
+
+    /**
+     * 接管提前注册的类形变器
+     * <p>
+     * 只有观察条件与提前注册时完全一致才能接管；条件不一致时注销提前注册的类形变器，并还原它增强过的类
+     * </p>
+     *
+     * @param definition 模块本次观察的定义
+     * @return 提前注册的类形变器，没有可接管的类形变器时返回null
+     */
+    SandboxClassFileTransformer adopt(final Definition definition) {
+        final String name = toName(definition.uniqueId, definition.key);
+        final Map<String, SandboxClassFileTransformer> discarded;
+        synchronized (this) {
+            final SandboxClassFileTransformer sandboxClassFileTransformer = pendingTransformers.get(name);
+            if (null == sandboxClassFileTransformer) {
+                return null;
+            }
+            final Definition pending = definitions.get(name);
+            if (null != pending && pending.isSameCondition(definition)) {
+                pendingTransformers.remove(name);
+                return sandboxClassFileTransformer;
+            }
+            logger.info("persistent-watch={} condition changed, pre-registered transformer will be discarded.", name);
+            discarded = unregister(Collections.singletonList(name));
+        }
+        restore(discarded);
+        return null;
+    }
+
+    /**
+     * 注销模块所有未被接管的提前注册的类形变器
+     * <p>
+     * 模块被卸载后不会再接管这些类形变器
+     * </p>
+     *
+     * @param uniqueId 模块ID
+     */
+    public void discard(final String uniqueId) {
+        final Map<String, SandboxClassFileTransformer> discarded;
+        synchronized (this) {
+            final List<String> names = new ArrayList<>();
+            for (final String name : pendingTransformers.keySet()) {
+                if (uniqueId.equals(toUniqueId(name))) {
+                    names.add(name);
+                }
+            }
+            discarded = unregister(names);
+        }
+        restore(discarded);
+    }
+
+    /**
+     * 注销不属于给定模块的所有提前注册的类形变器
+     * <p>
+     * 沙箱重置后仍未加载的模块不会再接管这些类形变器
+     * </p>
+     *
+     * @param uniqueIds 已加载的模块ID
+     */
+    public void discardIfNotIn(final Set<String> uniqueIds) {
+        final Map<String, SandboxClassFileTransformer> discarded;
+        synchronized (this) {
+            final List<String> names = new ArrayList<>();
+            for (final String name : pendingTransformers.keySet()) {
+                if (!uniqueIds.contains(toUniqueId(name))) {
+                    names.add(name);
+                }
+            }
+            discarded = unregister(names);
+        }
+        restore(discarded);
+    }
+
+    /*
+     * 注销提前注册的类形变器，需要在this上同步调用；
+     * 只从注册表和Instrumentation中摘除，还原增强过的类交给释放锁之后的restore()
+     */
+    private Map<String, SandboxClassFileTransformer> unregister(final Collection<String> names) {
+        final Map<String, SandboxClassFileTransformer> discarded = new LinkedHashMap<>();
+        for (final String name : names) {
+            final SandboxClassFileTransformer sandboxClassFileTransformer = pendingTransformers.remove(name);
+            if (null != sandboxClassFileTransformer) {
+                inst.removeTransformer(sandboxClassFileTransformer);
+                discarded.put(name, sandboxClassFileTransformer);
+            }
+        }
+        return discarded;
+    }
+
+    /*
+     * 重新渲染被注销的类形变器增强过的类，不能持有this上的锁：
+     * 重新渲染耗时较长，持有锁期间其他模块的持久化观察都会被阻塞
+     */
+    private void restore(final Map<String, SandboxClassFileTransformer> discarded) {
+        if (discarded.isEmpty()) {
+            return;
+        }
+        final List<Class<?>> waitingReTransformClasses = new ArrayList<>();
+        for (final SandboxClassFileTransformer sandboxClassFileTransformer : discarded.values()) {
+            waitingReTransformClasses.addAll(sandboxClassFileTransformer.getAffectClasses().resolve(classDataSource));
+        }
+        new BatchReTransformer(inst, cfg.getReTransformBatchSize()).reTransform(waitingReTransformClasses, new BatchReTransformer.Callback() {
+
+            @Override
+            public void onSuccess(final Class<?> clazz, final int index) {
+            }
+
+            @Override
+            public void onFailed(final Class<?> clazz, final int index, final Throwable cause) {
+                logger.warn("persistent-watch discard, reTransform {} failed. ignore this class.", clazz, cause);
+            }
+
+        });
+        logger.info("persistent-watch discarded, watches={};restored={} classes;", discarded.keySet(), waitingReTransformClasses.size());
+    }
+
+    /*
+     * 提前注册时的占位监听器，只用来获得一个唯一的监听器ID；
+     * 模块接管前不会激活，织入的代码不会产生事件
+     */
+    private static class PendingEventListener implements EventListener {
+
+        @Override
+        public void onEvent(final Event event) {
+        }
+
+    }
+
+    /**
+     * 持久化观察定义
+     */
+    static class Definition {
+
+        private final String uniqueId;
+        private final String key;
+        private final String javaNameRegex;
+        private final String javaMethodRegex;
+        private final Event.Type[] eventTypeArray;
+
+        Definition(final String uniqueId,
+                   final String key,
+                   final String javaNameRegex,
+                   final String javaMethodRegex,
+                   final Event.Type[] eventTypeArray) {
+            if (StringUtils.isBlank(uniqueId)
+                    || StringUtils.isBlank(key)
+                    || null == javaNameRegex
+                    || null == javaMethodRegex) {
+                throw new IllegalArgumentException("illegal persistent-watch: " + uniqueId + "/" + key);
+            }
+            this.uniqueId = uniqueId;
+            this.key = key;
+            this.javaNameRegex = javaNameRegex;
+            this.javaMethodRegex = javaMethodRegex;
+            this.eventTypeArray = eventTypeArray;
+        }
+
+        String getKey() {
+            return key;
+        }
+
+        Event.Type[] getEventTypeArray() {
+            return eventTypeArray;
+        }
+
+        Matcher toMatcher() {
+            return new ExtFilterMatcher(make(new NameRegexFilter(javaNameRegex, javaMethodRegex)));
+        }
+
+        private static Set<Event.Type> toEventTypeSet(final Event.Type[] eventTypeArray) {
+            final Set<Event.Type> eventTypeSet = EnumSet.noneOf(Event.Type.class);
+            eventTypeSet.addAll(Arrays.asList(eventTypeArray));
+            return eventTypeSet;
+        }
+
+        /**
+         * 是否为相同的观察条件，事件类型不区分顺序
+         *
+         * @param definition 另一个定义
+         * @return TRUE:相同;FALSE:不同
+         */
+        boolean isSameCondition(final Definition definition) {
+            return javaNameRegex.equals(definition.javaNameRegex)
+                    && javaMethodRegex.equals(definition.javaMethodRegex)
+                    && toEventTypeSet(eventTypeArray).equals(toEventTypeSet(definition.eventTypeArray));
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (!(object instanceof Definition)) {
+                return false;
+            }
+            final Definition definition = (Definition) object;
+            return uniqueId.equals(definition.uniqueId)
+                    && key.equals(definition.key)
+                    && isSameCondition(definition);
+        }
+
+        @Override
+        public int hashCode() {
+            return toName(uniqueId, key).hashCode();
+        }
+
+    }
+
+}
@@ -3,6 +3,7 @@ package com.alibaba.jvm.sandbox.core.manager.impl;
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.event.Event.Type;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
 import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
 import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxClassUtils;
@@ -11,6 +12,7 @@ import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.MatchingResult;
 import com.alibaba.jvm.sandbox.core.util.matcher.UnsupportedMatcher;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import org.apache.commons.lang3.ArrayUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,7 +40,10 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
      */
     public static final String SANDBOX_SPECIAL_PREFIX = "$$SANDBOX$";
 
-    private final int watchId;
+    /**
+     * 观察ID，提前注册的持久化观察在被模块接管时才分配
+     */
+    private volatile int watchId;
 
     private final String uniqueId;
 
@@ -51,9 +56,9 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     private final Matcher matcher;
 
     /**
-     * 事件监听器
+     * 事件监听器，提前注册的持久化观察在被模块接管时替换为模块的监听器
      */
-    private final EventListener eventListener;
+    private volatile EventListener eventListener;
 
     /**
      * 是否允许增强由BootstrapClassLoader加载的类
@@ -61,10 +66,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     private final boolean isEnableUnsafe;
 
     /**
-     * 当前事件监听器可监听的事件类型数组
+     * 织入时的事件类型数组，决定了织入点，观察期间不会变化
      */
     private final Event.Type[] eventTypeArray;
 
+    /**
+     * 当前事件监听器监听的事件类型数组，替换监听器时可以在已织入的范围内变化
+     */
+    private volatile Event.Type[] listeningEventTypeArray;
+
     private final String namespace;
 
     /**
@@ -77,6 +87,11 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
      */
     private final AffectStatistic affectStatistic = new AffectStatistic();
 
+    /**
+     * 被增强过的类，删除观察时只需要还原这些类
+     */
+    private final AffectClasses affectClasses = new AffectClasses();
+
     /**
      * 是否支持对native方法进行增强
      */
@@ -87,6 +102,11 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
      */
     private final String nativePrefix;
 
+    /**
+     * 增强选项
+     */
+    private final EnhanceOptions enhanceOptions;
+
     SandboxClassFileTransformer(final int watchId,
                                 final String uniqueId,
                                 final Matcher matcher,
@@ -94,17 +114,20 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
                                 final boolean isEnableUnsafe,
                                 final Type[] eventTypeArray,
                                 final String namespace,
-                                final boolean isNativeSupported) {
+                                final boolean isNativeSupported,
+                                final EnhanceOptions enhanceOptions) {
         this.watchId = watchId;
         this.uniqueId = uniqueId;
         this.matcher = matcher;
         this.eventListener = eventListener;
         this.isEnableUnsafe = isEnableUnsafe;
         this.eventTypeArray = eventTypeArray;
+        this.listeningEventTypeArray = eventTypeArray;
         this.namespace = namespace;
         this.listenerId = ObjectIDs.instance.identity(eventListener);
         this.isNativeSupported = isNativeSupported;
         this.nativePrefix = String.format("%s$%s$%s", SANDBOX_SPECIAL_PREFIX, namespace, watchId);
+        this.enhanceOptions = enhanceOptions;
     }
 
     /**
@@ -151,7 +174,7 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
             }
 
             // 【核心】开始正式增强
-            return _transform(result, loader, internalClassName, srcByteCodeArray);
+            return _transform(result, loader, internalClassName, classBeingRedefined, srcByteCodeArray);
         } catch (Throwable cause) {
             logger.warn("sandbox transform {} in loader={}; failed, module={} at watch={}, will ignore this transform.",
                     internalClassName,
@@ -186,16 +209,18 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     /**
      * 进行类增强
      *
-     * @param result            匹配结果
-     * @param loader            类加载器
-     * @param internalClassName 内部类名
-     * @param srcByteCodeArray  源字节码数组
+     * @param result              匹配结果
+     * @param loader              类加载器
+     * @param internalClassName   内部类名
+     * @param classBeingRedefined 重新形变时的类，类加载时为null
+     * @param srcByteCodeArray    源字节码数组
      * @return 增强后的字节码数组，如果没有变化则返回null
      */
     private byte[] _transform(
             final MatchingResult result,
             final ClassLoader loader,
             final String internalClassName,
+            final Class<?> classBeingRedefined,
             final byte[] srcByteCodeArray
     ) {
         // 通过 匹配结果MatchingResult 来获取匹配到的方法签名
@@ -204,7 +229,7 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         try {
             // 通过EventEnhancer#toByteCodeArray方法来进行类的增强，会基于ASM完成对字节码的增强
             // toByteCodeArray方法会返回一个新的字节码数组
-            final byte[] toByteCodeArray = new EventEnhancer(nativePrefix).toByteCodeArray(
+            final byte[] toByteCodeArray = new EventEnhancer(nativePrefix, enhanceOptions).toByteCodeArray(
                     loader,
                     srcByteCodeArray,
                     behaviorSignCodes,
@@ -220,6 +245,9 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
             // 统计本次增强的影响范围(即：统计增强了哪些方法，以及哪个类被增强了)
             affectStatistic.statisticAffect(loader, internalClassName, behaviorSignCodes);
 
+            // 记录被增强的类，删除观察时只需要还原这些类
+            affectClasses.affect(loader, internalClassName, classBeingRedefined);
+
             logger.info("transform {} finished, by module={} in loader={}", internalClassName, uniqueId, loader);
             return toByteCodeArray;
         } catch (Throwable cause) {
@@ -229,6 +257,62 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     }
 
 
+    /**
+     * 由模块接管提前注册的持久化观察
+     * <p>
+     * 已织入的代码中固化的是{@link #listenerId}，所以这里只需要替换观察ID和监听器，不需要重新形变
+     * </p>
+     *
+     * @param watchId       模块分配的观察ID
+     * @param eventListener 模块的事件监听器
+     */
+    void adopt(final int watchId, final EventListener eventListener) {
+        this.watchId = watchId;
+        this.eventListener = eventListener;
+    }
+
+    /**
+     * 替换事件监听器
+     * <p>
+     * 已织入的代码中固化的是{@link #listenerId}，替换监听器和监听的事件类型都不需要重新形变，
+     * 调用方需要先通过{@link #isWoven(Event.Type[])}确认新的事件类型已经织入
+     * </p>
+     *
+     * @param eventListener 新的事件监听器
+     * @param eventTypes    新的监听事件类型
+     */
+    void replace(final EventListener eventListener, final Event.Type[] eventTypes) {
+        this.eventListener = eventListener;
+        this.listeningEventTypeArray = eventTypes;
+    }
+
+    /**
+     * 判断事件类型是否都已经有织入点
+     * <p>
+     * BEFORE/RETURN/THROWS总是会织入，LINE和CALL_*只有在织入时声明过才有织入点
+     * </p>
+     *
+     * @param eventTypes 事件类型
+     * @return TRUE:都已织入;FALSE:需要新的织入点
+     */
+    boolean isWoven(final Event.Type[] eventTypes) {
+        for (final Event.Type eventType : eventTypes) {
+            switch (eventType) {
+                case LINE:
+                case CALL_BEFORE:
+                case CALL_RETURN:
+                case CALL_THROWS:
+                    if (!ArrayUtils.contains(eventTypeArray, eventType)) {
+                        return false;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return true;
+    }
+
     /**
      * 获取观察ID
      *
@@ -268,10 +352,19 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
     /**
      * 获取本次监听事件类型数组
      *
-     * @return 本次监听事件类型数组
+     * @return 本次监听事件类型数组，替换监听器后为新的监听事件类型
      */
     Event.Type[] getEventTypeArray() {
-        return eventTypeArray;
+        return listeningEventTypeArray;
+    }
+
+    /**
+     * 是否为覆盖模式
+     *
+     * @return TRUE:覆盖模式;FALSE:事件模式
+     */
+    boolean isCoverageEnable() {
+        return enhanceOptions.isCoverageEnable();
     }
 
     /**
@@ -283,6 +376,15 @@ public class SandboxClassFileTransformer implements ClassFileTransformer {
         return affectStatistic;
     }
 
+    /**
+     * 获取被增强过的类
+     *
+     * @return 被增强过的类
+     */
+    AffectClasses getAffectClasses() {
+        return affectClasses;
+    }
+
     /**
      * 获取本次增强的native方法前缀，
      * 根据JVM规范，每个ClassFileTransformer必须拥有自己的native方法前缀
@@ -49,6 +49,19 @@ public interface CoreServer {
      */
     void bind(CoreConfigure cfg, Instrumentation inst) throws IOException;
 
+    /**
+     * 绑定端口之前提前启动JvmSandbox
+     * <p>
+     *     只启动JvmSandbox(AGENT模式下会提前注册持久化观察)，不启动服务器也不加载模块，
+     *     之后的{@link #bind(CoreConfigure, Instrumentation)}沿用提前启动的JvmSandbox和配置
+     * </p>
+     *
+     * @param cfg  内核配置信息
+     * @param inst inst
+     * @throws IOException 启动失败
+     */
+    void prepare(CoreConfigure cfg, Instrumentation inst) throws IOException;
+
     /**
      * 销毁服务器
      */
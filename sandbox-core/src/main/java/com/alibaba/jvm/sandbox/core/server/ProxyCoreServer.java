@@ -39,6 +39,11 @@ public class ProxyCoreServer implements CoreServer {
         proxy.bind(cfg, inst);
     }
 
+    @Override
+    public void prepare(CoreConfigure cfg, Instrumentation inst) throws IOException {
+        proxy.prepare(cfg, inst);
+    }
+
     @Override
     public void destroy() {
         proxy.destroy();
@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.server.jetty;
 
+import com.alibaba.jvm.sandbox.api.resource.ConfigInfo;
 import com.alibaba.jvm.sandbox.core.CoreConfigure;
 import com.alibaba.jvm.sandbox.core.JvmSandbox;
 import com.alibaba.jvm.sandbox.core.server.CoreServer;
@@ -40,6 +41,10 @@ public class JettyCoreServer implements CoreServer {
     private CoreConfigure cfg;
     private JvmSandbox jvmSandbox;
 
+    // 提前启动、尚未被bind()沿用的JvmSandbox及其配置
+    private JvmSandbox preparedJvmSandbox;
+    private CoreConfigure preparedCfg;
+
     /**
      * 单例
      *
@@ -178,28 +183,35 @@ public class JettyCoreServer implements CoreServer {
      */
     @Override
     public synchronized void bind(final CoreConfigure cfg, final Instrumentation inst) throws IOException {
-        this.cfg = cfg;
+        // 已经提前启动过JvmSandbox时沿用提前启动时的配置
+        this.cfg = null != preparedJvmSandbox ? preparedCfg : cfg;
         try {
             initializer.initProcess(() -> {
-                LogbackUtils.init(
-                        cfg.getNamespace(),
-                        cfg.getCfgLibPath() + File.separator + "sandbox-logback.xml"
-                );
-                logger.info("initializing server. cfg={}", cfg);
-                // 【重要】启动JVM-SANDBOX
-                jvmSandbox = new JvmSandbox(cfg, inst);
+                if (null != preparedJvmSandbox) {
+                    logger.info("initializing server with prepared sandbox. cfg={}", this.cfg);
+                    jvmSandbox = preparedJvmSandbox;
+                    preparedJvmSandbox = null;
+                    preparedCfg = null;
+                } else {
+                    initLogback(this.cfg);
+                    logger.info("initializing server. cfg={}", this.cfg);
+                    // 【重要】启动JVM-SANDBOX
+                    jvmSandbox = new JvmSandbox(this.cfg, inst);
+                }
                 // 【重要】初始化HTTP服务器以对外提供Http服务
                 initHttpServer();
                 initJettyContextHandler();
                 httpServer.start();
             });
 
-            // 【重要】初始化加载所有的模块
+            // 【重要】初始化加载所有的模块，HTTP服务已经启动，加载完成之前就绪状态为LOADING
+            this.cfg.setReadiness(ConfigInfo.READINESS_LOADING);
             try {
                 jvmSandbox.getCoreModuleManager().reset();
             } catch (Throwable cause) {
                 logger.warn("reset occur error when initializing.", cause);
             }
+            this.cfg.setReadiness(ConfigInfo.READINESS_READY);
 
             final InetSocketAddress local = getLocal();
             logger.info("initialized server. actual bind to {}:{}",
@@ -219,8 +231,38 @@ public class JettyCoreServer implements CoreServer {
         logger.info("{} bind success.", this);
     }
 
+    private static void initLogback(final CoreConfigure cfg) {
+        LogbackUtils.init(
+                cfg.getNamespace(),
+                cfg.getCfgLibPath() + File.separator + "sandbox-logback.xml"
+        );
+    }
+
+    @Override
+    public synchronized void prepare(final CoreConfigure cfg, final Instrumentation inst) throws IOException {
+        if (isBind() || null != preparedJvmSandbox) {
+            return;
+        }
+        try {
+            initLogback(cfg);
+            logger.info("preparing sandbox. cfg={}", cfg);
+            preparedJvmSandbox = new JvmSandbox(cfg, inst);
+            preparedCfg = cfg;
+        } catch (Throwable cause) {
+            logger.warn("prepare sandbox failed.", cause);
+            throw new IOException("sandbox prepare failed.", cause);
+        }
+    }
+
+    // bootstrap=async时bind()在后台线程上执行，destroy()与prepare()、bind()互斥，避免关闭到一半启动的沙箱
     @Override
-    public void destroy() {
+    public synchronized void destroy() {
+
+        // 提前启动但还没有绑定的JvmSandbox
+        if (null != preparedJvmSandbox) {
+            preparedJvmSandbox.destroy();
+            preparedJvmSandbox = null;
+        }
 
         // 关闭JVM-SANDBOX
         /*
@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.server.jetty.servlet;
 
+import com.alibaba.jvm.sandbox.api.ModuleException;
 import com.alibaba.jvm.sandbox.api.annotation.Command;
 import com.alibaba.jvm.sandbox.api.http.Http;
 import com.alibaba.jvm.sandbox.core.CoreConfigure;
@@ -83,6 +84,15 @@ public class ModuleHttpServlet extends HttpServlet {
             return;
         }
 
+        // 延迟加载的模块在第一次收到请求时实例化
+        try {
+            coreModuleManager.instantiate(coreModule);
+        } catch (ModuleException me) {
+            logger.warn("path={} is matched module {}, but instantiate failed.", path, uniqueId, me);
+            resp.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            return;
+        }
+
         // 匹配该模块中用于处理该请求的方法
         final Method method = matchingModuleMethod(
                 path,
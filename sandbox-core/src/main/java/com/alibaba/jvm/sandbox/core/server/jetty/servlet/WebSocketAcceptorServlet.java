@@ -1,5 +1,6 @@
 package com.alibaba.jvm.sandbox.core.server.jetty.servlet;
 
+import com.alibaba.jvm.sandbox.api.ModuleException;
 import com.alibaba.jvm.sandbox.api.http.websocket.TextMessageListener;
 import com.alibaba.jvm.sandbox.api.http.websocket.WebSocketAcceptor;
 import com.alibaba.jvm.sandbox.api.http.websocket.WebSocketConnection;
@@ -59,6 +60,14 @@ public class WebSocketAcceptorServlet extends WebSocketServlet {
             return null;
         }
 
+        // 延迟加载的模块在第一次建立连接时实例化
+        try {
+            coreModuleManager.instantiate(coreModule);
+        } catch (ModuleException me) {
+            logger.warn("module[id={};] instantiate failed.", uniqueId, me);
+            return null;
+        }
+
         if (!(coreModule.getModule() instanceof WebSocketAcceptor)) {
             logger.warn("module[id={};class={};] is not implements WebSocketAcceptor.",
                     uniqueId, coreModule.getModule().getClass().getName());
@@ -1,8 +1,9 @@
 package com.alibaba.jvm.sandbox.core.util;
 
+import com.alibaba.jvm.sandbox.core.util.collection.CopyOnWriteIntMap;
+
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.HashMap;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -44,9 +45,10 @@ public class ObjectIDs {
 
 
     // --- ObjectID : Object 的映射关系维护 ----------------------------------------+
+    // 每次BEFORE事件都要通过对象ID查找类加载器，使用int为key的映射表避免装箱      //|
     private final ReferenceQueue<Object> rQueue = new ReferenceQueue<>(); //|
-    private final HashMap<Integer, IdentityWeakReference> identityObjectMapping //|
-            = new HashMap<>();                    //|
+    private final CopyOnWriteIntMap<IdentityWeakReference> identityObjectMapping //|
+            = new CopyOnWriteIntMap<>();          //|
     // ---------------------------------------------------------------------------+
 
 
@@ -170,9 +172,9 @@ public class ObjectIDs {
     private class IdentityWeakReference extends WeakReference<Object> {
 
         // 对应的对象ID
-        private final Integer objectID;
+        private final int objectID;
 
-        private IdentityWeakReference(final Integer objectID,
+        private IdentityWeakReference(final int objectID,
                                       final Object referent) {
             super(referent, rQueue);
             this.objectID = objectID;
@@ -23,7 +23,14 @@ public class SandboxProtector {
      */
     public static final SandboxProtector instance = new SandboxProtector();
 
-    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = ThreadLocal.withInitial(() -> new AtomicInteger(0));
+    /**
+     * 守护区域的引用计数，不在守护区域时为null
+     * <p>
+     * 每个事件都会判断是否处于守护区域，这里不能在判断时创建计数器再remove()，否则每次事件派发都会重建ThreadLocal的Entry；
+     * 离开守护区域时只清空引用，线程上保留的Entry没有值，不会持有任何对象
+     * </p>
+     */
+    private final ThreadLocal<AtomicInteger> isInProtectingThreadLocal = new ThreadLocal<>();
 
     /**
      * 进入守护区域
@@ -31,7 +38,11 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int enterProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().getAndIncrement();
+        AtomicInteger counter = isInProtectingThreadLocal.get();
+        if (null == counter) {
+            isInProtectingThreadLocal.set(counter = new AtomicInteger(0));
+        }
+        final int referenceCount = counter.getAndIncrement();
         if (logger.isDebugEnabled()) {
             logger.debug("thread:{} enter protect:{}", Thread.currentThread(), referenceCount);
         }
@@ -44,10 +55,11 @@ public class SandboxProtector {
      * @return 守护区域当前引用计数
      */
     public int exitProtecting() {
-        final int referenceCount = isInProtectingThreadLocal.get().decrementAndGet();
+        final AtomicInteger counter = isInProtectingThreadLocal.get();
+        final int referenceCount = null == counter ? -1 : counter.decrementAndGet();
         // assert referenceCount >= 0;
         if (referenceCount == 0) {
-            isInProtectingThreadLocal.remove();
+            isInProtectingThreadLocal.set(null);
             if (logger.isDebugEnabled()) {
                 logger.debug("thread:{} exit protect:{} with clean", Thread.currentThread(), referenceCount);
             }
@@ -68,11 +80,8 @@ public class SandboxProtector {
      */
     public boolean isInProtecting() {
         // fix for #384
-        final boolean res = isInProtectingThreadLocal.get().get() > 0;
-        if (!res) {
-            isInProtectingThreadLocal.remove();
-        }
-        return res;
+        final AtomicInteger counter = isInProtectingThreadLocal.get();
+        return null != counter && counter.get() > 0;
     }
 
     /**
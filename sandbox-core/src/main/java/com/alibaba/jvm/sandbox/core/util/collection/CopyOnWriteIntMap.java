@@ -0,0 +1,106 @@
+package com.alibaba.jvm.sandbox.core.util.collection;
+
+import java.util.Arrays;
+
+/**
+ * 以int为key的写时复制映射表
+ * <p>
+ * 适用于读多写少的场景：读取时对快照做二分查找，不需要加锁，也不会因为装箱key而产生对象；
+ * 写入时复制整个快照，写操作之间互斥
+ * </p>
+ *
+ * @param <V> 值类型
+ */
+public class CopyOnWriteIntMap<V> {
+
+    private static final int[] EMPTY_KEYS = new int[0];
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    // 有序的key数组，和values一一对应，两者总是一起替换
+    private volatile Snapshot snapshot = new Snapshot(EMPTY_KEYS, EMPTY_VALUES);
+
+    private static class Snapshot {
+
+        private final int[] keys;
+        private final Object[] values;
+
+        private Snapshot(final int[] keys, final Object[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+    }
+
+    /**
+     * 获取key对应的值
+     *
+     * @param key key
+     * @return 值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V get(final int key) {
+        final Snapshot current = snapshot;
+        final int index = Arrays.binarySearch(current.keys, key);
+        return index >= 0
+                ? (V) current.values[index]
+                : null;
+    }
+
+    /**
+     * 放入键值对
+     *
+     * @param key   key
+     * @param value 值
+     * @return 被替换的值，原来不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(final int key, final V value) {
+        final Snapshot current = snapshot;
+        final int index = Arrays.binarySearch(current.keys, key);
+        if (index >= 0) {
+            final Object[] values = current.values.clone();
+            values[index] = value;
+            snapshot = new Snapshot(current.keys, values);
+            return (V) current.values[index];
+        }
+
+        final int insert = -(index + 1);
+        final int length = current.keys.length;
+        final int[] keys = new int[length + 1];
+        final Object[] values = new Object[length + 1];
+        System.arraycopy(current.keys, 0, keys, 0, insert);
+        System.arraycopy(current.values, 0, values, 0, insert);
+        keys[insert] = key;
+        values[insert] = value;
+        System.arraycopy(current.keys, insert, keys, insert + 1, length - insert);
+        System.arraycopy(current.values, insert, values, insert + 1, length - insert);
+        snapshot = new Snapshot(keys, values);
+        return null;
+    }
+
+    /**
+     * 删除key对应的值
+     *
+     * @param key key
+     * @return 被删除的值，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(final int key) {
+        final Snapshot current = snapshot;
+        final int index = Arrays.binarySearch(current.keys, key);
+        if (index < 0) {
+            return null;
+        }
+
+        final int length = current.keys.length;
+        final int[] keys = new int[length - 1];
+        final Object[] values = new Object[length - 1];
+        System.arraycopy(current.keys, 0, keys, 0, index);
+        System.arraycopy(current.values, 0, values, 0, index);
+        System.arraycopy(current.keys, index + 1, keys, index, length - index - 1);
+        System.arraycopy(current.values, index + 1, values, index, length - index - 1);
+        snapshot = new Snapshot(keys, values);
+        return (V) current.values[index];
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.alibaba.jvm.sandbox.core.util.collection;
+
+import java.util.NoSuchElementException;
+
+import static java.lang.System.arraycopy;
+
+/**
+ * 线程不安全不固定栈深的int堆栈实现
+ * <p>
+ * 与{@link ThreadUnsafeGaStack}相同，但直接存储int，压栈时不需要装箱
+ * </p>
+ */
+public class ThreadUnsafeIntStack {
+
+    private final static int EMPTY_INDEX = -1;
+    private final static int DEFAULT_STACK_DEEP = 12;
+
+    private int[] elementArray;
+    private int current = EMPTY_INDEX;
+
+    public ThreadUnsafeIntStack() {
+        this(DEFAULT_STACK_DEEP);
+    }
+
+    public ThreadUnsafeIntStack(int stackSize) {
+        this.elementArray = new int[stackSize];
+    }
+
+    /**
+     * 自动扩容
+     * 当前堆栈最大深度不满足期望时会自动扩容(2倍扩容)
+     *
+     * @param expectDeep 期望堆栈深度
+     */
+    private void ensureCapacityInternal(int expectDeep) {
+        final int currentStackSize = elementArray.length;
+        if (elementArray.length <= expectDeep) {
+            final int[] newElementArray = new int[currentStackSize * 2];
+            arraycopy(elementArray, 0, newElementArray, 0, currentStackSize);
+            this.elementArray = newElementArray;
+        }
+    }
+
+    private void checkForPopOrPeek() {
+        // stack is empty
+        if (isEmpty()) {
+            throw new NoSuchElementException();
+        }
+    }
+
+    public int pop() {
+        checkForPopOrPeek();
+        return elementArray[current--];
+    }
+
+    public void push(int e) {
+        ensureCapacityInternal(current + 1);
+        elementArray[++current] = e;
+    }
+
+    public int peek() {
+        checkForPopOrPeek();
+        return elementArray[current];
+    }
+
+    public boolean isEmpty() {
+        return current == EMPTY_INDEX;
+    }
+
+    public boolean isLast() {
+        return current == 0;
+    }
+
+    public int peekLast() {
+        checkForPopOrPeek();
+        return elementArray[0];
+    }
+
+    public int deep() {
+        return current + 1;
+    }
+
+    /**
+     * 获取栈中指定位置的元素，栈底为0
+     *
+     * @param index 位置
+     * @return 元素
+     */
+    public int get(int index) {
+        if (index < 0 || index > current) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return elementArray[index];
+    }
+
+}
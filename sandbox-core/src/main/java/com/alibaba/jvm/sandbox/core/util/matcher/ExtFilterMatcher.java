@@ -1,11 +1,13 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
+import com.alibaba.jvm.sandbox.api.annotation.ThreadSafe;
 import com.alibaba.jvm.sandbox.api.filter.AccessFlags;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory;
 import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.*;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -15,6 +17,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static com.alibaba.jvm.sandbox.api.filter.AccessFlags.*;
 import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
@@ -99,6 +102,7 @@ public class ExtFilterMatcher implements Matcher {
         } catch (NoClassDefFoundError error) {
 
             // 根据 #203 ClassStructureImplByJDK会存在类加载异步的问题
+            // 已加载类的类结构优先由ASM实现，只有读取不到字节码资源时才会走到这里
             // 所以这里对JDK实现的ClassStructure抛出NoClassDefFoundError的时候做一个兼容
             // 转换为ASM实现然后进行match
             if (classStructure instanceof ClassStructureImplByJDK
@@ -107,7 +111,12 @@ public class ExtFilterMatcher implements Matcher {
                 InputStream is = null;
                 try {
                     is = classStructure.getClassLoader().getResourceAsStream(javaClassResourceName);
-                    _matching(ClassStructureFactory.createClassStructure(is, classStructure.getClassLoader()));
+                    final ClassStructure asmClassStructure = null == is
+                            ? null
+                            : ClassStructureFactory.createClassStructure(is, classStructure.getClassLoader());
+                    if (null != asmClassStructure) {
+                        return _matching(asmClassStructure);
+                    }
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -119,6 +128,38 @@ public class ExtFilterMatcher implements Matcher {
 
     }
 
+    /**
+     * 只有标记了{@link ThreadSafe}的过滤器才允许并发匹配，
+     * 包括通过{@link com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder}构建的过滤器，
+     * 其余用户自定义的过滤器一律视为非线程安全
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return extFilter instanceof ExtFilterImplByV140
+                ? ((ExtFilterImplByV140) extFilter).isThreadSafe()
+                : extFilter.getClass().isAnnotationPresent(ThreadSafe.class);
+    }
+
+    /**
+     * 只有通过{@link com.alibaba.jvm.sandbox.api.listener.ext.EventWatchBuilder}构建的过滤器才携带类名模版，
+     * 可以借助索引检索候选类
+     */
+    @Override
+    public Set<Class<?>> findCandidates(final LoadedClassIndex index) {
+        if (!(extFilter instanceof ExtFilterImplByV140)) {
+            return null;
+        }
+        final ExtFilterImplByV140 v140 = (ExtFilterImplByV140) extFilter;
+        if (null == v140.getClassNamePattern()) {
+            return null;
+        }
+        return index.findCandidates(
+                v140.getClassNamePattern(),
+                v140.isHasAnnotationTypes() ? v140.getAnnotationTypePatterns() : null,
+                v140.isIncludeSubClasses()
+        );
+    }
+
     private MatchingResult _matching(final ClassStructure classStructure) {
         final MatchingResult result = new MatchingResult();
         // 如果不开启加载Bootstrap的类，遇到就过滤掉
@@ -1,9 +1,11 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
 import java.util.LinkedHashSet;
+import java.util.Set;
 
 public abstract class GroupMatcher implements Matcher {
 
@@ -13,6 +15,19 @@ public abstract class GroupMatcher implements Matcher {
         this.matcherArray = matcherArray;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        if (null == matcherArray) {
+            return true;
+        }
+        for (final Matcher subMatcher : matcherArray) {
+            if (!subMatcher.isThreadSafe()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
     public static final class Or extends GroupMatcher {
 
@@ -32,6 +47,25 @@ public abstract class GroupMatcher implements Matcher {
             return result;
         }
 
+        /*
+         * 取所有子匹配器候选类的并集，只要有一个子匹配器无法缩小范围，整体就无法缩小范围
+         */
+        @Override
+        public Set<Class<?>> findCandidates(final LoadedClassIndex index) {
+            final Set<Class<?>> candidates = new LinkedHashSet<>();
+            if (null == matcherArray) {
+                return candidates;
+            }
+            for (final Matcher subMatcher : matcherArray) {
+                final Set<Class<?>> subCandidates = subMatcher.findCandidates(index);
+                if (null == subCandidates) {
+                    return null;
+                }
+                candidates.addAll(subCandidates);
+            }
+            return candidates;
+        }
+
     }
 
     public static final class And extends GroupMatcher {
@@ -69,6 +103,29 @@ public abstract class GroupMatcher implements Matcher {
             return result;
         }
 
+        /*
+         * 取能缩小范围的子匹配器候选类的交集，都无法缩小范围时返回null
+         */
+        @Override
+        public Set<Class<?>> findCandidates(final LoadedClassIndex index) {
+            if (null == matcherArray) {
+                return new LinkedHashSet<>();
+            }
+            Set<Class<?>> candidates = null;
+            for (final Matcher subMatcher : matcherArray) {
+                final Set<Class<?>> subCandidates = subMatcher.findCandidates(index);
+                if (null == subCandidates) {
+                    continue;
+                }
+                if (null == candidates) {
+                    candidates = new LinkedHashSet<>(subCandidates);
+                } else {
+                    candidates.retainAll(subCandidates);
+                }
+            }
+            return candidates;
+        }
+
     }
 
 }
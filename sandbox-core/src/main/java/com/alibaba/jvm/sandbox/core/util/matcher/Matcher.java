@@ -1,7 +1,10 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
+import java.util.Set;
+
 /**
  * 匹配器
  * <p>
@@ -20,4 +23,26 @@ public interface Matcher {
      */
     MatchingResult matching(ClassStructure classStructure);
 
+    /**
+     * 是否允许多个线程同时调用{@link #matching(ClassStructure)}
+     * <p>
+     * 用户自定义的Filter可能是有状态的（例如在doClassFilter()中记录当前类供doMethodFilter()使用），
+     * 这类匹配器只能串行匹配
+     * </p>
+     *
+     * @return TRUE | FALSE
+     */
+    boolean isThreadSafe();
+
+    /**
+     * 从已加载类索引中检索可能匹配的候选类
+     * <p>
+     * 候选类必须包含所有能通过{@link #matching(ClassStructure)}的类，但仍需要逐个完成匹配
+     * </p>
+     *
+     * @param index 已加载类索引
+     * @return 候选类集合，返回null表示无法借助索引缩小范围，需要全量匹配
+     */
+    Set<Class<?>> findCandidates(LoadedClassIndex index);
+
 }
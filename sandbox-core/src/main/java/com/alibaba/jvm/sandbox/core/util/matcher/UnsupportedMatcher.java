@@ -1,6 +1,7 @@
 package com.alibaba.jvm.sandbox.core.util.matcher;
 
 import com.alibaba.jvm.sandbox.api.annotation.Stealth;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
 import com.alibaba.jvm.sandbox.core.manager.impl.SandboxClassFileTransformer;
 import com.alibaba.jvm.sandbox.core.util.CoreStringUtils;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.Access;
@@ -8,6 +9,7 @@ import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
 
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -133,6 +135,16 @@ public class UnsupportedMatcher implements Matcher {
     }
 
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public Set<Class<?>> findCandidates(final LoadedClassIndex index) {
+        return null;
+    }
+
     /**
      * 构造AND关系的组匹配
      * <p>
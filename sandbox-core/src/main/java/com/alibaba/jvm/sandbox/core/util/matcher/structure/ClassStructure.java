@@ -89,6 +89,16 @@ public interface ClassStructure {
      */
     List<ClassStructure> getAnnotationTypeClassStructures();
 
+    /**
+     * 获取声明元注释的类型名集合
+     * <p>
+     * 只给出注解的类型名，不要求注解类型可以被解析或加载
+     * </p>
+     *
+     * @return 声明元注释的类型名集合
+     */
+    List<String> getAnnotationTypeJavaClassNames();
+
     /**
      * 获取家族元注释类型类结构集合
      * <p>
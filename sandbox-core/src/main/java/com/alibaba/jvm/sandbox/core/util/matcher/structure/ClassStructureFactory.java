@@ -1,11 +1,22 @@
 package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.io.IOUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
 
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static org.objectweb.asm.ClassReader.*;
+import static org.objectweb.asm.Opcodes.ASM7;
+
 /**
  * 类结构工厂类
  * <p>
@@ -18,16 +29,100 @@ public class ClassStructureFactory {
 
     private static final Logger logger = LoggerFactory.getLogger(ClassStructureFactory.class);
 
+    /**
+     * 已加载类的类结构缓存
+     * <p>
+     * 缓存由沙箱持有，以弱引用为键(按对象标识比较)，不会在业务类上挂任何沙箱的对象，沙箱重置后缓存随沙箱的ClassLoader一同回收；
+     * 缓存按段加锁，并行检索时各个线程不会争用同一把锁；
+     * 只缓存ASM实现的类结构，它只弱引用ClassLoader，不会反过来阻止业务类卸载；类结构本身用软引用持有，内存紧张时允许回收后重建
+     * </p>
+     */
+    private static final Cache<Class<?>, ClassStructure> loadedClassStructures = CacheBuilder.newBuilder()
+            .weakKeys()
+            .softValues()
+            .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+            .build();
+
     /**
      * 通过Class类来构造类结构
+     * <p>
+     * 优先读取类的字节码资源，用精简后的字节码构造ASM实现的类结构，避免反射解析方法签名时触发关联类加载(#203)；
+     * 读取不到字节码资源的类(动态生成、数组、基本类型等)才退化为JDK反射实现。
+     * 同一个类重复构造时直接复用缓存
+     * </p>
      *
      * @param clazz 目标Class类
-     * @return JDK实现的类结构
+     * @return 类结构
      */
     public static ClassStructure createClassStructure(final Class<?> clazz) {
+        final ClassStructure existClassStructure = loadedClassStructures.getIfPresent(clazz);
+        if (null != existClassStructure) {
+            return existClassStructure;
+        }
+        final ClassStructure classStructure = newClassStructureByAsm(clazz);
+        if (null != classStructure) {
+            loadedClassStructures.put(clazz, classStructure);
+            return classStructure;
+        }
+
+        // JDK实现的类结构直接持有Class，不能放进以Class为弱引用键的缓存；它本身很轻量，每次重新构造即可
         return new ClassStructureImplByJDK(clazz);
     }
 
+    // 构造ASM实现的类结构，读取不到或校验不通过时返回null
+    private static ClassStructure newClassStructureByAsm(final Class<?> clazz) {
+        if (!clazz.isArray() && !clazz.isPrimitive()) {
+            final byte[] classByteArray = getClassByteArray(clazz);
+            if (null != classByteArray) {
+                try {
+                    final ClassReader cr = new ClassReader(classByteArray);
+
+                    // 同名资源不一定就是这个类的字节码(例如由其他字节码工具生成后直接define的类)，需要校验
+                    if (toInternalClassName(clazz.getName()).equals(cr.getClassName())) {
+                        return new ClassStructureImplByAsm(compact(cr), clazz.getClassLoader());
+                    }
+                } catch (Throwable cause) {
+                    logger.debug("create class structure failed by using ASM, will use JDK instead. class={};", clazz.getName(), cause);
+                }
+            }
+        }
+        return null;
+    }
+
+    // 获取类的字节码资源，获取不到返回null
+    private static byte[] getClassByteArray(final Class<?> clazz) {
+        final String resourceName = "/" + toInternalClassName(clazz.getName()) + ".class";
+        InputStream is = null;
+        try {
+            is = clazz.getResourceAsStream(resourceName);
+            return null == is ? null : IOUtils.toByteArray(is);
+        } catch (Throwable cause) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+    }
+
+    /**
+     * 精简字节码
+     * <p>
+     * 类结构只关心类头、注解、内部类声明和方法签名，这里去掉方法体、调试信息和字段，以降低缓存的内存占用
+     * </p>
+     *
+     * @param cr 原始字节码
+     * @return 精简后的字节码
+     */
+    private static byte[] compact(final ClassReader cr) {
+        final ClassWriter cw = new ClassWriter(0);
+        cr.accept(new ClassVisitor(ASM7, cw) {
+            @Override
+            public FieldVisitor visitField(int access, String name, String descriptor, String signature, Object value) {
+                return null;
+            }
+        }, SKIP_CODE | SKIP_DEBUG | SKIP_FRAMES);
+        return cw.toByteArray();
+    }
+
     /**
      * 通过Class类字节流来构造类结构
      *
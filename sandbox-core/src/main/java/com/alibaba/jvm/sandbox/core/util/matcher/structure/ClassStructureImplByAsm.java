@@ -2,7 +2,6 @@ package com.alibaba.jvm.sandbox.core.util.matcher.structure;
 
 import com.alibaba.jvm.sandbox.api.util.LazyGet;
 import com.alibaba.jvm.sandbox.core.util.BitUtils;
-import com.alibaba.jvm.sandbox.core.util.collection.Pair;
 import com.alibaba.jvm.sandbox.core.util.matcher.structure.PrimitiveClassStructure.Primitive;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
@@ -14,6 +13,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ref.WeakReference;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -142,6 +142,11 @@ class EmptyClassStructure implements ClassStructure {
         return Collections.emptyList();
     }
 
+    @Override
+    public List<String> getAnnotationTypeJavaClassNames() {
+        return Collections.emptyList();
+    }
+
     @Override
     public Set<ClassStructure> getFamilyAnnotationTypeClassStructures() {
         return Collections.emptySet();
@@ -226,6 +231,9 @@ class ArrayClassStructure extends EmptyClassStructure {
 
 /**
  * 用ASM实现的类结构
+ * <p>
+ * 类结构会被长期缓存，这里只弱引用ClassLoader，不会因为缓存而阻止ClassLoader及其加载的类被回收
+ * </p>
  *
  * @author luanjia@taobao.com
  */
@@ -233,7 +241,8 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final ClassReader classReader;
-    private final ClassLoader loader;
+    private final WeakReference<ClassLoader> loaderRef;
+    private final boolean isBootstrap;
     private final Access access;
 
     ClassStructureImplByAsm(final InputStream classInputStream,
@@ -244,7 +253,8 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     ClassStructureImplByAsm(final byte[] classByteArray,
                             final ClassLoader loader) {
         this.classReader = new ClassReader(classByteArray);
-        this.loader = loader;
+        this.loaderRef = new WeakReference<>(loader);
+        this.isBootstrap = null == loader;
         this.access = fixAccess();
     }
 
@@ -268,7 +278,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
     }
 
     private boolean isBootstrapClassLoader() {
-        return null == loader;
+        return isBootstrap;
     }
 
     // 获取资源数据流
@@ -289,7 +299,9 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
                 // pass
             }
         } else {
-            ins = loader.getResourceAsStream(resourceName);
+            // ClassLoader已被回收，它的类也就不会再被用到
+            final ClassLoader loader = loaderRef.get();
+            ins = null == loader ? null : loader.getResourceAsStream(resourceName);
         }
         return ins;
     }
@@ -299,9 +311,50 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return internalClassName + ".class";
     }
 
-    private final static Cache<Pair, ClassStructure> classStructureCache
+    private final static Cache<ClassStructureKey, ClassStructure> classStructureCache
             = CacheBuilder.newBuilder().maximumSize(1024).build();
 
+    /**
+     * 类结构缓存的键：ClassLoader + 类名
+     * <p>
+     * 只弱引用ClassLoader，ClassLoader被回收后对应的键不会再被命中，随缓存淘汰
+     * </p>
+     */
+    private static class ClassStructureKey {
+
+        private final WeakReference<ClassLoader> loaderRef;
+        private final int loaderHashCode;
+        private final String javaClassName;
+
+        ClassStructureKey(final ClassLoader loader, final String javaClassName) {
+            this.loaderRef = new WeakReference<>(loader);
+            this.loaderHashCode = System.identityHashCode(loader);
+            this.javaClassName = javaClassName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ClassStructureKey)) {
+                return false;
+            }
+            final ClassStructureKey that = (ClassStructureKey) o;
+            final ClassLoader loader = loaderRef.get();
+            return loaderHashCode == that.loaderHashCode
+                    && javaClassName.equals(that.javaClassName)
+                    && loader == that.loaderRef.get()
+                    && (null != loader || 0 == loaderHashCode);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * loaderHashCode + javaClassName.hashCode();
+        }
+
+    }
+
     // 构造一个类结构实例
     private ClassStructure newInstance(final String javaClassName) {
 
@@ -321,8 +374,13 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             return new PrimitiveClassStructure(primitive);
         }
 
-        final Pair pair = new Pair(loader, javaClassName);
-        final ClassStructure existClassStructure = classStructureCache.getIfPresent(pair);
+        final ClassLoader loader = getClassLoader();
+        if (null == loader && !isBootstrap) {
+            return null;
+        }
+
+        final ClassStructureKey key = new ClassStructureKey(loader, javaClassName);
+        final ClassStructure existClassStructure = classStructureCache.getIfPresent(key);
         if (null != existClassStructure) {
             return existClassStructure;
         } else {
@@ -331,13 +389,13 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
             if (null != is) {
                 try {
                     final ClassStructure classStructure = new ClassStructureImplByAsm(is, loader);
-                    classStructureCache.put(pair, classStructure);
+                    classStructureCache.put(key, classStructure);
                     return classStructure;
                 } catch (Throwable cause) {
                     // ignore
                     logger.warn("new instance class structure by using ASM failed, will return null. class={};loader={};",
                             javaClassName, loader, cause);
-                    classStructureCache.put(pair, null);
+                    classStructureCache.put(key, null);
                 } finally {
                     IOUtils.closeQuietly(is);
                 }
@@ -375,7 +433,7 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
 
     @Override
     public ClassLoader getClassLoader() {
-        return loader;
+        return loaderRef.get();
     }
 
     private final LazyGet<ClassStructure> superClassStructureLazyGet
@@ -436,6 +494,32 @@ public class ClassStructureImplByAsm extends FamilyClassStructure {
         return annotationTypeClassStructuresLazyGet.get();
     }
 
+    // 直接读取注解描述符，注解类型的字节码找不到时也不会丢失
+    private final LazyGet<List<String>> annotationTypeJavaClassNamesLazyGet
+            = new LazyGet<List<String>>() {
+        @Override
+        protected List<String> initialValue() {
+            final List<String> annotationTypeJavaClassNames = new ArrayList<>();
+            accept(new ClassVisitor(ASM7) {
+
+                @Override
+                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                    if (visible) {
+                        annotationTypeJavaClassNames.add(Type.getType(desc).getClassName());
+                    }
+                    return super.visitAnnotation(desc, visible);
+                }
+
+            });
+            return Collections.unmodifiableList(annotationTypeJavaClassNames);
+        }
+    };
+
+    @Override
+    public List<String> getAnnotationTypeJavaClassNames() {
+        return annotationTypeJavaClassNamesLazyGet.get();
+    }
+
 
     private final LazyGet<List<BehaviorStructure>> behaviorStructuresLazyGet
             = new LazyGet<List<BehaviorStructure>>() {
@@ -196,6 +196,15 @@ public class ClassStructureImplByJDK extends FamilyClassStructure {
         return annotationTypeClassStructuresLazyGet.get();
     }
 
+    @Override
+    public List<String> getAnnotationTypeJavaClassNames() {
+        final List<String> annotationTypeJavaClassNames = new ArrayList<>();
+        for (final ClassStructure annotationTypeClassStructure : getAnnotationTypeClassStructures()) {
+            annotationTypeJavaClassNames.add(annotationTypeClassStructure.getJavaClassName());
+        }
+        return annotationTypeJavaClassNames;
+    }
+
     private BehaviorStructure newBehaviorStructure(final Method method) {
         return new BehaviorStructure(
                 new AccessImplByJDKBehavior(method),
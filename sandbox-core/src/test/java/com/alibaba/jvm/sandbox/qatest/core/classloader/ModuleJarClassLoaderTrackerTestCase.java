@@ -0,0 +1,78 @@
+package com.alibaba.jvm.sandbox.qatest.core.classloader;
+
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoaderTracker;
+import com.alibaba.jvm.sandbox.qatest.core.util.JarBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.io.File.createTempFile;
+import static org.objectweb.asm.Opcodes.*;
+
+public class ModuleJarClassLoaderTrackerTestCase {
+
+    private static final String MODULE_CLASS_NAME = "qatest.tracker.ModuleClass";
+
+    private static File buildingModuleJarFile() throws IOException {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, MODULE_CLASS_NAME.replace('.', '/'), null, "java/lang/Object", null);
+        cw.visitEnd();
+        return new JarBuilder(createTempFile("test-", ".jar"))
+                .putEntry(MODULE_CLASS_NAME.replace('.', '/') + ".class", cw.toByteArray())
+                .build();
+    }
+
+    private static boolean isUncollected(final File moduleJarFile, final boolean isGcFirst) {
+        for (final String loader : ModuleJarClassLoaderTracker.getSingleton().listUncollected(isGcFirst)) {
+            if (loader.contains(moduleJarFile.getPath())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 在单独的方法中加载和关闭，返回后不会再有栈上的引用
+    private static void loadingAndClose(final File moduleJarFile) throws Exception {
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(moduleJarFile);
+        Assert.assertEquals(0, moduleJarClassLoader.getDefinedClassCnt());
+
+        // 路由到父ClassLoader的类不计入
+        moduleJarClassLoader.loadClass("com.alibaba.jvm.sandbox.api.Module");
+        Assert.assertSame(moduleJarClassLoader, moduleJarClassLoader.loadClass(MODULE_CLASS_NAME).getClassLoader());
+        Assert.assertEquals(1, moduleJarClassLoader.getDefinedClassCnt());
+        Assert.assertTrue(moduleJarClassLoader.estimateMetaspaceBytes() > 0);
+
+        moduleJarClassLoader.closeIfPossible();
+    }
+
+    @Test
+    public void test$$closedLoader$$collected() throws Exception {
+        final File moduleJarFile = buildingModuleJarFile();
+        final long collectedCnt = ModuleJarClassLoaderTracker.getSingleton().getCollectedCnt();
+        loadingAndClose(moduleJarFile);
+        Assert.assertTrue(isUncollected(moduleJarFile, false));
+
+        for (int retry = 0; retry < 10 && isUncollected(moduleJarFile, true); retry++) {
+            Thread.sleep(100);
+        }
+        Assert.assertFalse(isUncollected(moduleJarFile, false));
+        Assert.assertTrue(ModuleJarClassLoaderTracker.getSingleton().getCollectedCnt() > collectedCnt);
+    }
+
+    @Test
+    public void test$$closedLoader$$stillReachable() throws Exception {
+        final File moduleJarFile = buildingModuleJarFile();
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(moduleJarFile);
+        final Class<?> leakedClass = moduleJarClassLoader.loadClass(MODULE_CLASS_NAME);
+        moduleJarClassLoader.closeIfPossible();
+
+        // 模块的类仍然被引用，ClassLoader不会被回收
+        Assert.assertTrue(isUncollected(moduleJarFile, true));
+        Assert.assertNotNull(leakedClass);
+    }
+
+}
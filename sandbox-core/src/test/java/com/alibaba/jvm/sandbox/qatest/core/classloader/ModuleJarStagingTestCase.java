@@ -0,0 +1,103 @@
+package com.alibaba.jvm.sandbox.qatest.core.classloader;
+
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarStaging;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarStaging.StagedJar;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.io.File.createTempFile;
+
+public class ModuleJarStagingTestCase {
+
+    private final ModuleJarStaging staging = ModuleJarStaging.getSingleton();
+
+    private static File writeModuleJarFile(final File file, final String content) throws IOException {
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+
+    @Test
+    public void test$$stage$$sameContentStagedOnce() throws IOException {
+        final File aModuleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "MODULE-JAR-CONTENT-A");
+        final File bModuleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "MODULE-JAR-CONTENT-A");
+
+        final StagedJar a1 = staging.stage(aModuleJarFile);
+        final StagedJar a2 = staging.stage(aModuleJarFile);
+        final StagedJar b = staging.stage(bModuleJarFile);
+
+        Assert.assertEquals(FileUtils.checksumCRC32(aModuleJarFile), a1.getChecksumCRC32());
+        Assert.assertEquals(a1.getFile(), a2.getFile());
+        Assert.assertEquals(a1.getFile(), b.getFile());
+        Assert.assertFalse(aModuleJarFile.equals(a1.getFile()));
+        Assert.assertEquals("MODULE-JAR-CONTENT-A", FileUtils.readFileToString(a1.getFile(), "UTF-8"));
+
+        // 仍然被引用时不会被清理
+        staging.release(a1);
+        staging.release(a2);
+        staging.prune();
+        Assert.assertTrue(a1.getFile().isFile());
+
+        staging.release(b);
+        staging.prune();
+        Assert.assertFalse(a1.getFile().exists());
+    }
+
+    @Test
+    public void test$$stage$$changedContentStagedAgain() throws IOException {
+        final File moduleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "MODULE-JAR-CONTENT-V1");
+        final StagedJar v1 = staging.stage(moduleJarFile);
+
+        writeModuleJarFile(moduleJarFile, "MODULE-JAR-CONTENT-V2-CHANGED");
+        final StagedJar v2 = staging.stage(moduleJarFile);
+
+        Assert.assertFalse(v1.getFile().equals(v2.getFile()));
+        Assert.assertTrue(v1.getChecksumCRC32() != v2.getChecksumCRC32());
+        Assert.assertEquals(FileUtils.checksumCRC32(moduleJarFile), v2.getChecksumCRC32());
+        Assert.assertEquals("MODULE-JAR-CONTENT-V1", FileUtils.readFileToString(v1.getFile(), "UTF-8"));
+
+        staging.release(v1);
+        staging.release(v2);
+        staging.prune();
+    }
+
+    @Test
+    public void test$$stage$$sameCRC32DifferentContent() throws IOException {
+        // "plumless"和"buckeroo"长度相同，CRC32也相同
+        final File aModuleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "plumless");
+        final File bModuleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "buckeroo");
+        Assert.assertEquals(FileUtils.checksumCRC32(aModuleJarFile), FileUtils.checksumCRC32(bModuleJarFile));
+
+        final StagedJar a = staging.stage(aModuleJarFile);
+        final StagedJar b = staging.stage(bModuleJarFile);
+        Assert.assertFalse(a.getFile().equals(b.getFile()));
+        Assert.assertEquals("plumless", FileUtils.readFileToString(a.getFile(), "UTF-8"));
+        Assert.assertEquals("buckeroo", FileUtils.readFileToString(b.getFile(), "UTF-8"));
+
+        staging.release(a);
+        staging.release(b);
+        staging.prune();
+    }
+
+    @Test
+    public void test$$checksumCRC32$$sizeAndLastModifiedShortCircuit() throws IOException {
+        final File moduleJarFile = writeModuleJarFile(createTempFile("test-", ".jar"), "MODULE-JAR-CONTENT-X");
+        Assert.assertTrue(moduleJarFile.setLastModified(1000000000000L));
+        final long checksumCRC32 = staging.checksumCRC32(moduleJarFile);
+        Assert.assertEquals(FileUtils.checksumCRC32(moduleJarFile), checksumCRC32);
+
+        // 大小和修改时间都没变，不会重新读取文件
+        writeModuleJarFile(moduleJarFile, "MODULE-JAR-CONTENT-Y");
+        Assert.assertTrue(moduleJarFile.setLastModified(1000000000000L));
+        Assert.assertEquals(checksumCRC32, staging.checksumCRC32(moduleJarFile));
+
+        // 修改时间变化后重新计算
+        Assert.assertTrue(moduleJarFile.setLastModified(1000000001000L));
+        Assert.assertEquals(FileUtils.checksumCRC32(moduleJarFile), staging.checksumCRC32(moduleJarFile));
+        Assert.assertTrue(checksumCRC32 != staging.checksumCRC32(moduleJarFile));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.alibaba.jvm.sandbox.qatest.core.classloader;
+
+import com.alibaba.jvm.sandbox.core.classloader.RoutingURLClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.RoutingURLClassLoader.Routing;
+import com.alibaba.jvm.sandbox.qatest.core.util.JarBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+
+import static java.io.File.createTempFile;
+import static org.objectweb.asm.Opcodes.*;
+
+public class RoutingURLClassLoaderTestCase {
+
+    private static final String PREFIX_CLASS_NAME = "qatest.routing.prefix.Target";
+    private static final String EXACT_CLASS_NAME = "qatest.routing.exact.Target";
+    private static final String ALTERNATION_CLASS_NAME = "qatest.routing.alt.Target";
+    private static final String FALLBACK_CLASS_NAME = "qatest.routing.fallback.Target";
+    private static final String SELF_CLASS_NAME = "qatest.routing.self.Target";
+
+    private static byte[] toClassByteArray(final String javaClassName) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, javaClassName.replace('.', '/'), null, "java/lang/Object", null);
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static URL buildingJar(final String... javaClassNames) throws IOException {
+        final JarBuilder jarBuilder = new JarBuilder(createTempFile("test-", ".jar"));
+        for (final String javaClassName : javaClassNames) {
+            jarBuilder.putEntry(javaClassName.replace('.', '/') + ".class", toClassByteArray(javaClassName));
+        }
+        return jarBuilder.build().toURI().toURL();
+    }
+
+    @Test
+    public void test$$routing$$sameDecisionAsDeclaredOrder() throws Exception {
+        final URLClassLoader emptyLoader = new URLClassLoader(new URL[0], null);
+        final URLClassLoader targetLoader = new URLClassLoader(new URL[]{
+                buildingJar(PREFIX_CLASS_NAME, EXACT_CLASS_NAME, ALTERNATION_CLASS_NAME, FALLBACK_CLASS_NAME)
+        }, null);
+        final RoutingURLClassLoader routingLoader = new RoutingURLClassLoader(
+                new URL[]{
+                        buildingJar(PREFIX_CLASS_NAME, EXACT_CLASS_NAME, ALTERNATION_CLASS_NAME, FALLBACK_CLASS_NAME, SELF_CLASS_NAME)
+                },
+                // 第一条路由规则命中但找不到类，继续尝试后面的路由规则
+                new Routing(emptyLoader, "^qatest\\.routing\\.fallback\\..*$"),
+                new Routing(targetLoader,
+                        "^qatest\\.routing\\.prefix\\..*$",
+                        "^qatest\\.routing\\.(alt|other)\\.Target$",
+                        "^qatest\\.routing\\.fallback\\.Tar.*"
+                ),
+                new Routing(targetLoader, Collections.singleton(EXACT_CLASS_NAME))
+        );
+        try {
+            // 重复加载走路由决策缓存，结果应该不变
+            for (int round = 0; round < 2; round++) {
+                Assert.assertSame(targetLoader, routingLoader.loadClass(PREFIX_CLASS_NAME).getClassLoader());
+                Assert.assertSame(targetLoader, routingLoader.loadClass(EXACT_CLASS_NAME).getClassLoader());
+                Assert.assertSame(targetLoader, routingLoader.loadClass(ALTERNATION_CLASS_NAME).getClassLoader());
+                Assert.assertSame(targetLoader, routingLoader.loadClass(FALLBACK_CLASS_NAME).getClassLoader());
+                Assert.assertSame(routingLoader, routingLoader.loadClass(SELF_CLASS_NAME).getClassLoader());
+            }
+        } finally {
+            routingLoader.close();
+            targetLoader.close();
+            emptyLoader.close();
+        }
+    }
+
+    @Test(expected = ClassNotFoundException.class)
+    public void test$$routing$$notFound() throws Exception {
+        final RoutingURLClassLoader routingLoader = new RoutingURLClassLoader(
+                new URL[]{buildingJar(SELF_CLASS_NAME)},
+                new Routing(new URLClassLoader(new URL[0], null), "^qatest\\..*$")
+        );
+        try {
+            routingLoader.loadClass("qatest.routing.NotExisted");
+        } finally {
+            routingLoader.close();
+        }
+    }
+
+}
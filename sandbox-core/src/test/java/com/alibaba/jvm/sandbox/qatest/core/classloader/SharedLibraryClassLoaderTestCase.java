@@ -0,0 +1,224 @@
+package com.alibaba.jvm.sandbox.qatest.core.classloader;
+
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.SharedLibraryClassLoader;
+import com.alibaba.jvm.sandbox.qatest.core.util.JarBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+
+import java.io.File;
+import java.io.IOException;
+
+import static java.io.File.createTempFile;
+import static org.objectweb.asm.Opcodes.*;
+
+public class SharedLibraryClassLoaderTestCase {
+
+    private static final String SHARED_CLASS_NAME = "qatest.shared.SharedLib";
+    private static final String SHARED_OTHER_CLASS_NAME = "qatest.shared.SharedOther";
+    private static final String SHARED_SAME_PACKAGE_CLASS_NAME = "qatest.shared.ModuleInSharedPackage";
+    private static final String DEPENDENT_CLASS_NAME = "qatest.dependent.DependentLib";
+    private static final String MODULE_CLASS_NAME = "qatest.module.ModuleOnly";
+
+    /*
+     * public class ${javaClassName} {
+     *     public static int version() { return ${version}; }
+     * }
+     */
+    private static byte[] toClassByteArray(final String javaClassName, final int version) {
+        return toClassByteArray(javaClassName, version, null);
+    }
+
+    /*
+     * 同上，referencedJavaClassName不为null时多一个该类型的静态字段，用于构造共享库之间的依赖
+     */
+    private static byte[] toClassByteArray(final String javaClassName, final int version, final String referencedJavaClassName) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, javaClassName.replace('.', '/'), null, "java/lang/Object", null);
+        if (null != referencedJavaClassName) {
+            cw.visitField(ACC_PUBLIC | ACC_STATIC, "ref", "L" + referencedJavaClassName.replace('.', '/') + ";", null, null).visitEnd();
+        }
+        final MethodVisitor mv = cw.visitMethod(ACC_PUBLIC | ACC_STATIC, "version", "()I", null, null);
+        mv.visitCode();
+        mv.visitIntInsn(SIPUSH, version);
+        mv.visitInsn(IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static File buildingJarFile(final File targetJarFile, final int sharedVersion, final boolean isWithModuleClass) throws IOException {
+        final JarBuilder jarBuilder = new JarBuilder(targetJarFile)
+                .putEntry(SHARED_CLASS_NAME.replace('.', '/') + ".class", toClassByteArray(SHARED_CLASS_NAME, sharedVersion));
+        if (isWithModuleClass) {
+            jarBuilder.putEntry(MODULE_CLASS_NAME.replace('.', '/') + ".class", toClassByteArray(MODULE_CLASS_NAME, 0));
+        }
+        return jarBuilder.build();
+    }
+
+    private static JarBuilder putClass(final JarBuilder jarBuilder, final String javaClassName, final int version, final String referencedJavaClassName) {
+        return jarBuilder.putEntry(javaClassName.replace('.', '/') + ".class", toClassByteArray(javaClassName, version, referencedJavaClassName));
+    }
+
+    private static File newSharedLibDir() throws IOException {
+        final File sharedLibDir = createTempFile("test-", "-shared-lib");
+        Assert.assertTrue(sharedLibDir.delete());
+        Assert.assertTrue(sharedLibDir.mkdirs());
+        return sharedLibDir;
+    }
+
+    private static SharedLibraryClassLoader buildingSharedLibraryClassLoader() throws IOException {
+        final File sharedLibDir = newSharedLibDir();
+        buildingJarFile(new File(sharedLibDir, "shared-lib-1.0.jar"), 100, false);
+        return SharedLibraryClassLoader.load(sharedLibDir);
+    }
+
+    @Test
+    public void test$$sameVersion$$loadedOnceInSharedLibrary() throws Exception {
+        final SharedLibraryClassLoader sharedLibraryClassLoader = buildingSharedLibraryClassLoader();
+        final ModuleJarClassLoader aModuleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 100, true),
+                sharedLibraryClassLoader
+        );
+        final ModuleJarClassLoader bModuleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 100, true),
+                sharedLibraryClassLoader
+        );
+        try {
+            final Class<?> aSharedClass = aModuleJarClassLoader.loadClass(SHARED_CLASS_NAME);
+            Assert.assertSame(sharedLibraryClassLoader, aSharedClass.getClassLoader());
+            Assert.assertSame(aSharedClass, bModuleJarClassLoader.loadClass(SHARED_CLASS_NAME));
+            Assert.assertEquals(100, aSharedClass.getMethod("version").invoke(null));
+
+            // 模块自己的类仍然由模块加载
+            Assert.assertSame(aModuleJarClassLoader, aModuleJarClassLoader.loadClass(MODULE_CLASS_NAME).getClassLoader());
+            Assert.assertSame(bModuleJarClassLoader, bModuleJarClassLoader.loadClass(MODULE_CLASS_NAME).getClassLoader());
+        } finally {
+            aModuleJarClassLoader.closeIfPossible();
+            bModuleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$conflictedVersion$$loadedInModule() throws Exception {
+        final SharedLibraryClassLoader sharedLibraryClassLoader = buildingSharedLibraryClassLoader();
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 200, true),
+                sharedLibraryClassLoader
+        );
+        try {
+            final Class<?> sharedClass = moduleJarClassLoader.loadClass(SHARED_CLASS_NAME);
+            Assert.assertSame(moduleJarClassLoader, sharedClass.getClassLoader());
+            Assert.assertEquals(200, sharedClass.getMethod("version").invoke(null));
+        } finally {
+            moduleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$withoutSharedLibrary$$loadedInModule() throws Exception {
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 100, true),
+                (SharedLibraryClassLoader) null
+        );
+        try {
+            Assert.assertSame(moduleJarClassLoader, moduleJarClassLoader.loadClass(SHARED_CLASS_NAME).getClassLoader());
+        } finally {
+            moduleJarClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$partialCopy$$loadedInModule() throws Exception {
+        final File sharedLibDir = newSharedLibDir();
+        final JarBuilder libraryJarBuilder = new JarBuilder(new File(sharedLibDir, "shared-lib-1.0.jar"));
+        putClass(libraryJarBuilder, SHARED_CLASS_NAME, 100, null);
+        putClass(libraryJarBuilder, SHARED_OTHER_CLASS_NAME, 100, null);
+        libraryJarBuilder.build();
+        final SharedLibraryClassLoader sharedLibraryClassLoader = SharedLibraryClassLoader.load(sharedLibDir);
+
+        // 模块只打包了共享库的一部分类，整个共享库都不共享
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 100, true),
+                sharedLibraryClassLoader
+        );
+        try {
+            Assert.assertSame(moduleJarClassLoader, moduleJarClassLoader.loadClass(SHARED_CLASS_NAME).getClassLoader());
+        } finally {
+            moduleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$splitPackage$$loadedInModule() throws Exception {
+        final SharedLibraryClassLoader sharedLibraryClassLoader = buildingSharedLibraryClassLoader();
+
+        // 模块在共享库的包中还有自己的类，共享会把同一个包拆分到两个ClassLoader中
+        final JarBuilder moduleJarBuilder = new JarBuilder(createTempFile("test-", ".jar"));
+        putClass(moduleJarBuilder, SHARED_CLASS_NAME, 100, null);
+        putClass(moduleJarBuilder, SHARED_SAME_PACKAGE_CLASS_NAME, 0, null);
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(moduleJarBuilder.build(), sharedLibraryClassLoader);
+        try {
+            Assert.assertSame(moduleJarClassLoader, moduleJarClassLoader.loadClass(SHARED_CLASS_NAME).getClassLoader());
+            Assert.assertSame(moduleJarClassLoader, moduleJarClassLoader.loadClass(SHARED_SAME_PACKAGE_CLASS_NAME).getClassLoader());
+        } finally {
+            moduleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$dependencyClosure$$allOrNothing() throws Exception {
+        final File sharedLibDir = newSharedLibDir();
+        putClass(new JarBuilder(new File(sharedLibDir, "a-dependent-1.0.jar")), DEPENDENT_CLASS_NAME, 100, SHARED_CLASS_NAME).build();
+        putClass(new JarBuilder(new File(sharedLibDir, "b-shared-lib-1.0.jar")), SHARED_CLASS_NAME, 100, null).build();
+        final SharedLibraryClassLoader sharedLibraryClassLoader = SharedLibraryClassLoader.load(sharedLibDir);
+
+        // 依赖的共享库版本冲突，依赖它的共享库也不能共享
+        final JarBuilder conflictedJarBuilder = new JarBuilder(createTempFile("test-", ".jar"));
+        putClass(conflictedJarBuilder, DEPENDENT_CLASS_NAME, 100, SHARED_CLASS_NAME);
+        putClass(conflictedJarBuilder, SHARED_CLASS_NAME, 200, null);
+        final ModuleJarClassLoader conflictedModuleJarClassLoader = new ModuleJarClassLoader(conflictedJarBuilder.build(), sharedLibraryClassLoader);
+
+        // 依赖闭包完整时一起共享
+        final JarBuilder sameJarBuilder = new JarBuilder(createTempFile("test-", ".jar"));
+        putClass(sameJarBuilder, DEPENDENT_CLASS_NAME, 100, SHARED_CLASS_NAME);
+        putClass(sameJarBuilder, SHARED_CLASS_NAME, 100, null);
+        final ModuleJarClassLoader sameModuleJarClassLoader = new ModuleJarClassLoader(sameJarBuilder.build(), sharedLibraryClassLoader);
+        try {
+            Assert.assertSame(conflictedModuleJarClassLoader, conflictedModuleJarClassLoader.loadClass(DEPENDENT_CLASS_NAME).getClassLoader());
+            Assert.assertSame(conflictedModuleJarClassLoader, conflictedModuleJarClassLoader.loadClass(SHARED_CLASS_NAME).getClassLoader());
+            Assert.assertSame(sharedLibraryClassLoader, sameModuleJarClassLoader.loadClass(DEPENDENT_CLASS_NAME).getClassLoader());
+            Assert.assertSame(sharedLibraryClassLoader, sameModuleJarClassLoader.loadClass(SHARED_CLASS_NAME).getClassLoader());
+        } finally {
+            conflictedModuleJarClassLoader.closeIfPossible();
+            sameModuleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+    @Test
+    public void test$$sandboxApi$$sameAsModule() throws Exception {
+        final SharedLibraryClassLoader sharedLibraryClassLoader = buildingSharedLibraryClassLoader();
+        final ModuleJarClassLoader moduleJarClassLoader = new ModuleJarClassLoader(
+                buildingJarFile(createTempFile("test-", ".jar"), 100, true),
+                sharedLibraryClassLoader
+        );
+        try {
+            Assert.assertSame(
+                    moduleJarClassLoader.loadClass("com.alibaba.jvm.sandbox.api.Module"),
+                    sharedLibraryClassLoader.loadClass("com.alibaba.jvm.sandbox.api.Module")
+            );
+        } finally {
+            moduleJarClassLoader.closeIfPossible();
+            sharedLibraryClassLoader.closeIfPossible();
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.listener.ext.Advice;
+import com.alibaba.jvm.sandbox.api.listener.ext.AdviceListener;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.CalculatorDriver;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.TestCase.SUM$EXCEPTION;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.CALCULATOR_CLASS_NAME;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.CALCULATOR_SUM_FILTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 事件派发的内存分配上限用例
+ * <p>
+ * 通过{@link com.sun.management.ThreadMXBean}统计织入后的{@link Calculator#sum(int...)}每次调用比原始类多分配的字节数，
+ * 超出上限时失败。{@link EventListener}的派发路径在稳态下不分配内存，
+ * 上限只容得下织入代码为BEFORE事件创建的参数数组，多出一个装箱对象或日志的可变参数数组就会失败
+ * </p>
+ * <p>
+ * 上限可通过系统属性调整：
+ * <ul>
+ * <li>{@code sandbox.qatest.allocation.event-listener.budget}：{@link EventListener}，默认{@value #DEFAULT_EVENT_LISTENER_BUDGET}字节</li>
+ * <li>{@code sandbox.qatest.allocation.advice-listener.budget}：{@link AdviceListener}，默认{@value #DEFAULT_ADVICE_LISTENER_BUDGET}字节</li>
+ * </ul>
+ * </p>
+ */
+public class AllocationCeilingTestCase {
+
+    // 唯一预期内的分配是BEFORE事件的参数数组(一个元素的Object[])，
+    // 64位压缩指针下为24字节，不开启压缩指针时为32字节
+    private static final long DEFAULT_EVENT_LISTENER_BUDGET = 32;
+
+    // 在EventListener的基础上，每次调用还会创建Advice、它的行为懒加载器、标记集合和调用栈节点，
+    // 以及每个调用过程的操作堆栈，实测约370~470字节
+    private static final long DEFAULT_ADVICE_LISTENER_BUDGET = 512;
+
+    private static final int WARMUP_TIMES = 50000;
+    private static final int MEASURE_TIMES = 100000;
+
+    private static final long EVENT_LISTENER_BUDGET
+            = Long.getLong("sandbox.qatest.allocation.event-listener.budget", DEFAULT_EVENT_LISTENER_BUDGET);
+    private static final long ADVICE_LISTENER_BUDGET
+            = Long.getLong("sandbox.qatest.allocation.advice-listener.budget", DEFAULT_ADVICE_LISTENER_BUDGET);
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+
+    // 原始类每次调用分配的字节数，作为基线
+    private static long normalBytes;
+    private static long throwsBytes;
+
+    @BeforeClass
+    public static void initThreadMXBean() throws Throwable {
+        final java.lang.management.ThreadMXBean mxBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(mxBean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) mxBean;
+        Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        final JvmHelper jvmHelper = JvmHelper.createJvm()
+                .defineClass(Calculator.class)
+                .defineClass(CalculatorDriver.class);
+        normalBytes = measure(jvmHelper, false);
+        throwsBytes = measure(jvmHelper, true);
+    }
+
+    private static long measure(final JvmHelper jvmHelper, final boolean isThrows) throws Throwable {
+        final Class<?> calculatorClass = jvmHelper.loadClass(CALCULATOR_CLASS_NAME);
+        final Object calculator = isThrows
+                ? calculatorClass.getConstructor(String.class).newInstance(SUM$EXCEPTION.name())
+                : calculatorClass.getConstructor().newInstance();
+        final Class<?> driverClass = jvmHelper.loadClass(CalculatorDriver.class.getName());
+        final Object driver = driverClass.newInstance();
+        final Method sum = driverClass.getMethod("sum", calculatorClass, int.class);
+
+        // 预热：让JIT完成编译，惰性创建的事件对象和线程上下文也在这里完成初始化
+        assertEquals(isThrows ? WARMUP_TIMES : 0, sum.invoke(driver, calculator, WARMUP_TIMES));
+
+        final long threadId = Thread.currentThread().getId();
+        final long begin = threadMXBean.getThreadAllocatedBytes(threadId);
+        final Object throwsCount = sum.invoke(driver, calculator, MEASURE_TIMES);
+        final long end = threadMXBean.getThreadAllocatedBytes(threadId);
+        assertEquals(isThrows ? MEASURE_TIMES : 0, throwsCount);
+        return (end - begin) / MEASURE_TIMES;
+    }
+
+    private static void assertBudget(final String scenario,
+                                     final JvmHelper jvmHelper,
+                                     final boolean isThrows,
+                                     final long budget) throws Throwable {
+        final long bytes = measure(jvmHelper, isThrows) - (isThrows ? throwsBytes : normalBytes);
+        assertTrue(
+                String.format("%s allocated %s bytes per invocation, over ceiling %s bytes.", scenario, bytes, budget),
+                bytes <= budget
+        );
+    }
+
+    private static final EventListener EMPTY_EVENT_LISTENER = new EventListener() {
+        @Override
+        public void onEvent(Event event) {
+
+        }
+    };
+
+    private static final AdviceListener EMPTY_ADVICE_LISTENER = new AdviceListener() {
+        @Override
+        protected void before(Advice advice) {
+
+        }
+    };
+
+    private static JvmHelper createEventListenerJvm(final Event.Type... eventTypes) throws Throwable {
+        return JvmHelper.createJvm()
+                .defineClass(Calculator.class, CALCULATOR_SUM_FILTER, EMPTY_EVENT_LISTENER, eventTypes)
+                .defineClass(CalculatorDriver.class);
+    }
+
+    private static void assertEventListener(final String scenario,
+                                            final boolean isThrows,
+                                            final Event.Type... eventTypes) throws Throwable {
+        assertBudget(scenario, createEventListenerJvm(eventTypes), isThrows, EVENT_LISTENER_BUDGET);
+    }
+
+    private static void assertAdviceListener(final String scenario,
+                                             final boolean isThrows,
+                                             final Event.Type... eventTypes) throws Throwable {
+        assertBudget(
+                scenario,
+                JvmHelper.createJvm()
+                        .defineClass(Calculator.class, new JvmHelper.Transformer(CALCULATOR_SUM_FILTER, EMPTY_ADVICE_LISTENER, eventTypes))
+                        .defineClass(CalculatorDriver.class),
+                isThrows,
+                ADVICE_LISTENER_BUDGET
+        );
+    }
+
+    @Test
+    public void eventListener$around() throws Throwable {
+        assertEventListener("EventListener[BEFORE,RETURN,THROWS]", false, BEFORE, RETURN, THROWS);
+        assertEventListener("EventListener[BEFORE,RETURN,THROWS]#throws", true, BEFORE, RETURN, THROWS);
+    }
+
+    @Test
+    public void eventListener$line() throws Throwable {
+        assertEventListener("EventListener[LINE]", false, BEFORE, RETURN, THROWS, LINE);
+    }
+
+    @Test
+    public void eventListener$call() throws Throwable {
+        assertEventListener("EventListener[CALL]", false, BEFORE, RETURN, THROWS, CALL_BEFORE, CALL_RETURN, CALL_THROWS);
+        assertEventListener("EventListener[CALL]#throws", true, BEFORE, RETURN, THROWS, CALL_BEFORE, CALL_RETURN, CALL_THROWS);
+    }
+
+    @Test
+    public void eventListener$unWatched() throws Throwable {
+        // 织入了但监听器不关心的事件类型，派发时直接返回
+        assertEventListener("EventListener[]", false, LINE);
+    }
+
+    @Test
+    public void eventListener$debug() throws Throwable {
+        // 派发路径上的日志开启DEBUG后也不能有可变参数数组和装箱
+        final org.slf4j.Logger logger = LoggerFactory.getLogger(EventListenerHandler.class.getPackage().getName());
+        Assume.assumeTrue(logger instanceof Logger);
+        final Logger weaverLogger = (Logger) logger;
+        final JvmHelper jvmHelper = createEventListenerJvm(BEFORE, RETURN, THROWS, LINE, CALL_BEFORE, CALL_RETURN, CALL_THROWS);
+        final Level level = weaverLogger.getLevel();
+        weaverLogger.setLevel(Level.DEBUG);
+        try {
+            assertTrue(LoggerFactory.getLogger(EventListenerHandler.class).isDebugEnabled());
+            assertBudget("EventListener[DEBUG]", jvmHelper, false, EVENT_LISTENER_BUDGET);
+            assertBudget("EventListener[DEBUG]#throws", jvmHelper, true, EVENT_LISTENER_BUDGET);
+        } finally {
+            weaverLogger.setLevel(level);
+        }
+    }
+
+    @Test
+    public void adviceListener$around() throws Throwable {
+        assertAdviceListener("AdviceListener[BEFORE,RETURN,THROWS]", false);
+        assertAdviceListener("AdviceListener[BEFORE,RETURN,THROWS]#throws", true);
+    }
+
+    @Test
+    public void adviceListener$lineAndCall() throws Throwable {
+        assertAdviceListener("AdviceListener[LINE,CALL]", false, LINE, CALL_BEFORE, CALL_RETURN, CALL_THROWS);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.CallBeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.CallFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.objectweb.asm.Opcodes.ASM7;
+
+public class CallFilterTestCase {
+
+    private static final Event.Type[] EVENT_TYPES = {BEFORE, RETURN, THROWS, CALL_BEFORE, CALL_RETURN, CALL_THROWS};
+
+    // 只观察对add()的调用
+    private static final CallFilter ADD_CALL_FILTER = new CallFilter() {
+        @Override
+        public boolean doCallFilter(String ownerJavaClassName, String methodName, String methodDesc) {
+            return Calculator.class.getName().equals(ownerJavaClassName)
+                    && "add".equals(methodName)
+                    && "(II)I".equals(methodDesc);
+        }
+    };
+
+    // 统计sum()中对Spy指定方法的调用次数
+    private static int countSpyInvokes(final byte[] byteCodeArray, final String spyMethodName) {
+        final int[] count = {0};
+        new ClassReader(byteCodeArray).accept(new ClassVisitor(ASM7) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (!"sum".equals(name)) {
+                    return null;
+                }
+                return new MethodVisitor(ASM7) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                        if (owner.endsWith("/Spy") && spyMethodName.equals(name)) {
+                            count[0]++;
+                        }
+                    }
+                };
+            }
+        }, 0);
+        return count[0];
+    }
+
+    private static byte[] weave(final int listenerId, final CallFilter callFilter) throws Exception {
+        return new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().callFilter(callFilter).build()).toByteCodeArray(
+                CallFilterTestCase.class.getClassLoader(),
+                toByteArray(Calculator.class),
+                Collections.singleton(Calculator.class.getName() + "#sum(int[])"),
+                "default",
+                listenerId,
+                EVENT_TYPES
+        );
+    }
+
+    @Test
+    public void test$$callFilter$$onlyMatchedCallsWoven() throws Exception {
+        // sum()中有两处方法调用：throwCalculatorException()和add()
+        final byte[] wovenAll = weave(1, null);
+        Assert.assertEquals(2, countSpyInvokes(wovenAll, "spyMethodOnCallBefore"));
+        Assert.assertEquals(2, countSpyInvokes(wovenAll, "spyMethodOnCallThrows"));
+
+        final byte[] wovenFiltered = weave(1, ADD_CALL_FILTER);
+        Assert.assertEquals(1, countSpyInvokes(wovenFiltered, "spyMethodOnCallBefore"));
+        Assert.assertEquals(1, countSpyInvokes(wovenFiltered, "spyMethodOnCallThrows"));
+        Assert.assertTrue(wovenFiltered.length < wovenAll.length);
+    }
+
+    @Test
+    public void test$$callFilter$$callEvents() throws Throwable {
+        final List<String> calls = new ArrayList<>();
+        final EventListener listener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+                if (event instanceof CallBeforeEvent) {
+                    calls.add(((CallBeforeEvent) event).name);
+                }
+            }
+        };
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        EventListenerHandler.getSingleton().active(listenerId, listener, EVENT_TYPES);
+        try {
+            final Class<?> calculatorClass = JvmHelper.createJvm()
+                    .defineClass(Calculator.class.getName(), weave(listenerId, ADD_CALL_FILTER))
+                    .loadClass(Calculator.class.getName());
+            final Object calculator = calculatorClass.newInstance();
+            Assert.assertEquals(6, calculatorClass.getMethod("sum", int[].class).invoke(calculator, (Object) new int[]{1, 2, 3}));
+            Assert.assertEquals(3, calls.size());
+            for (final String call : calls) {
+                Assert.assertEquals("add", call);
+            }
+        } finally {
+            EventListenerHandler.getSingleton().frozen(listenerId);
+        }
+    }
+
+}
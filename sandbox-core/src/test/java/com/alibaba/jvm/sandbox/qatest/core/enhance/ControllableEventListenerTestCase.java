@@ -0,0 +1,106 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.ProcessDecision;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.listener.ControllableEventListener;
+import com.alibaba.jvm.sandbox.core.enhance.annotation.Interrupted;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator.ERROR_EXCEPTION_MESSAGE;
+import static com.alibaba.jvm.sandbox.qatest.core.util.CalculatorHelper.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ControllableEventListenerTestCase {
+
+    /**
+     * 在指定事件上返回流程控制决定的监听器
+     */
+    @Interrupted
+    private static class DecisionEventListener implements ControllableEventListener {
+
+        private final Event.Type decideOn;
+        private final ProcessDecision decision;
+        private final List<String> tracing = new ArrayList<>();
+
+        private DecisionEventListener(final Event.Type decideOn, final ProcessDecision decision) {
+            this.decideOn = decideOn;
+            this.decision = decision;
+        }
+
+        @Override
+        public ProcessDecision onControllableEvent(Event event) {
+            tracing.add(event.type.name());
+            return event.type == decideOn ? decision : null;
+        }
+
+        // 只有补偿事件才会经过onEvent()
+        @Override
+        public void onEvent(Event event) throws Throwable {
+            tracing.add("onEvent");
+            ControllableEventListener.super.onEvent(event);
+        }
+
+        void assertTracing(final String... exceptTracing) {
+            EventListenerHandler.getSingleton().checkEventProcessor(ObjectIDs.instance.identity(this));
+            assertEquals(Arrays.asList(exceptTracing), tracing);
+        }
+
+    }
+
+    private static Class<?> defineCalculator(final DecisionEventListener listener,
+                                             final Event.Type... eventTypes) throws Throwable {
+        return JvmHelper
+                .createJvm()
+                .defineClass(Calculator.class, CALCULATOR_SUM_FILTER, listener, eventTypes)
+                .loadClass(CALCULATOR_CLASS_NAME);
+    }
+
+    @Test
+    public void cal$sum$before$returnImmediately() throws Throwable {
+        final DecisionEventListener listener = new DecisionEventListener(BEFORE, ProcessDecision.returnImmediately(100));
+        final Class<?> calculatorClass = defineCalculator(listener, BEFORE, RETURN, IMMEDIATELY_RETURN);
+        assertEquals(100, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertTracing("BEFORE", "onEvent", "IMMEDIATELY_RETURN");
+    }
+
+    @Test
+    public void cal$sum$return$throwsImmediately() throws Throwable {
+        final DecisionEventListener listener = new DecisionEventListener(RETURN, ProcessDecision.throwsImmediately(new RuntimeException(ERROR_EXCEPTION_MESSAGE)));
+        final Class<?> calculatorClass = defineCalculator(listener, BEFORE, RETURN, THROWS);
+        try {
+            sum(newInstance(calculatorClass), 10, 20);
+            fail();
+        } catch (RuntimeException cause) {
+            assertEquals(ERROR_EXCEPTION_MESSAGE, cause.getMessage());
+        }
+        // 立即抛出的异常不会再产生THROWS事件
+        listener.assertTracing("BEFORE", "RETURN");
+    }
+
+    @Test
+    public void cal$sum$before$noneWithIgnoreProcessEvent() throws Throwable {
+        final DecisionEventListener listener = new DecisionEventListener(BEFORE, ProcessDecision.noneWithIgnoreProcessEvent());
+        final Class<?> calculatorClass = defineCalculator(listener, BEFORE, RETURN);
+        assertEquals(30, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertTracing("BEFORE");
+    }
+
+    @Test
+    public void cal$sum$before$none() throws Throwable {
+        final DecisionEventListener listener = new DecisionEventListener(BEFORE, ProcessDecision.none());
+        final Class<?> calculatorClass = defineCalculator(listener, BEFORE, RETURN);
+        assertEquals(30, sum(newInstance(calculatorClass), 10, 20));
+        listener.assertTracing("BEFORE", "RETURN");
+    }
+
+}
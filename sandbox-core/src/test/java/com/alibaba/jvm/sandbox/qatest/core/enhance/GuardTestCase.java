@@ -0,0 +1,176 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.BeforeEvent;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.Guard;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.GuardTarget;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+public class GuardTestCase {
+
+    private static final Event.Type[] EVENT_TYPES = {BEFORE, RETURN, THROWS, LINE};
+
+    private final List<String> events = new ArrayList<>();
+    private final EventListener listener = new EventListener() {
+        @Override
+        public void onEvent(Event event) {
+            events.add(event instanceof BeforeEvent
+                    ? BEFORE + ":" + Arrays.asList(((BeforeEvent) event).argumentArray)
+                    : event.type.name());
+        }
+    };
+    private int listenerId;
+
+    @Before
+    public void before() {
+        listenerId = ObjectIDs.instance.identity(listener);
+        EventListenerHandler.getSingleton().active(listenerId, listener, EVENT_TYPES);
+    }
+
+    @After
+    public void after() {
+        EventListenerHandler.getSingleton().frozen(listenerId);
+    }
+
+    private Class<?> weave(final String guardExpression, final String... behaviors) throws Exception {
+        final HashSet<String> signCodes = new HashSet<>();
+        for (final String behavior : behaviors) {
+            signCodes.add(GuardTarget.class.getName() + "#" + behavior);
+        }
+        final byte[] woven = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().guard(Guard.parse(guardExpression)).build()).toByteCodeArray(
+                getClass().getClassLoader(),
+                toByteArray(GuardTarget.class),
+                signCodes,
+                "default",
+                listenerId,
+                EVENT_TYPES
+        );
+        return JvmHelper.createJvm()
+                .defineClass(GuardTarget.class.getName(), woven)
+                .defineClass(GuardTarget.Vip.class)
+                .loadClass(GuardTarget.class.getName());
+    }
+
+    // 只统计BEFORE事件
+    private List<String> befores() {
+        final List<String> befores = new ArrayList<>();
+        for (final String event : events) {
+            if (event.startsWith(BEFORE.name())) {
+                befores.add(event);
+            }
+        }
+        return befores;
+    }
+
+    @Test
+    public void test$$guard$$stringAndPrimitive() throws Exception {
+        final Class<?> targetClass = weave("arg0 == \"t1\" && arg1 >= 10", "charge(java.lang.String,int)");
+        final Method charge = targetClass.getMethod("charge", String.class, int.class);
+        final Object target = targetClass.newInstance();
+
+        Assert.assertEquals("t1:10", charge.invoke(target, "t1", 10));
+        Assert.assertEquals("t1:5", charge.invoke(target, "t1", 5));
+        Assert.assertEquals("t2:20", charge.invoke(target, "t2", 20));
+        Assert.assertEquals("null:10", charge.invoke(target, null, 10));
+
+        // 不满足守卫条件的调用连LINE和RETURN事件也不会产生
+        Assert.assertEquals(Arrays.asList("BEFORE:[t1, 10]"), befores());
+        Assert.assertEquals(1, events.stream().filter(RETURN.name()::equals).count());
+        Assert.assertTrue(events.contains(LINE.name()));
+        Assert.assertEquals(3, events.size());
+    }
+
+    @Test
+    public void test$$guard$$boxedAndDouble() throws Exception {
+        final Class<?> targetClass = weave("arg0 > 100 || arg1 < 0.0", "scale(java.lang.Long,double)");
+        final Method scale = targetClass.getMethod("scale", Long.class, double.class);
+        final Object target = targetClass.newInstance();
+
+        scale.invoke(target, null, 1.0);
+        scale.invoke(target, 200L, 1.0);
+        scale.invoke(target, 1L, -1.0);
+        scale.invoke(target, 1L, Double.NaN);
+        scale.invoke(target, 100L, 0.0);
+
+        Assert.assertEquals(Arrays.asList("BEFORE:[200, 1.0]", "BEFORE:[1, -1.0]"), befores());
+    }
+
+    @Test
+    public void test$$guard$$throws() throws Exception {
+        final Class<?> targetClass = weave("arg0 == -1", "check(int)");
+        final Method check = targetClass.getMethod("check", int.class);
+        final Object target = targetClass.newInstance();
+
+        for (final int code : new int[]{-1, -2}) {
+            try {
+                check.invoke(target, code);
+                Assert.fail();
+            } catch (InvocationTargetException cause) {
+                Assert.assertTrue(cause.getTargetException() instanceof IllegalStateException);
+            }
+        }
+        Assert.assertEquals(Arrays.asList("BEFORE:[-1]"), befores());
+        Assert.assertEquals(1, events.stream().filter(THROWS.name()::equals).count());
+    }
+
+    @Test
+    public void test$$guard$$instanceOf() throws Exception {
+        final Class<?> targetClass = weave(
+                "target instanceof " + GuardTarget.Vip.class.getName() + " || target instanceof com.example.NotExists",
+                "charge(java.lang.String,int)"
+        );
+        final Method charge = targetClass.getMethod("charge", String.class, int.class);
+        charge.invoke(targetClass.newInstance(), "normal", 1);
+        charge.invoke(targetClass.getClassLoader().loadClass(GuardTarget.Vip.class.getName()).newInstance(), "vip", 1);
+        Assert.assertEquals(Arrays.asList("BEFORE:[vip, 1]"), befores());
+    }
+
+    @Test
+    public void test$$guard$$unresolvableInstanceOf() throws Exception {
+        // 找不到的类型在织入时就编译为常量，字节码中不会引用它
+        final byte[] woven = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().guard(Guard.parse("target instanceof com.example.NotExists")).build()).toByteCodeArray(
+                getClass().getClassLoader(),
+                toByteArray(GuardTarget.class),
+                Collections.singleton(GuardTarget.class.getName() + "#charge(java.lang.String,int)"),
+                "default",
+                listenerId,
+                EVENT_TYPES
+        );
+        Assert.assertFalse(new String(woven, StandardCharsets.ISO_8859_1).contains("com/example/NotExists"));
+
+        final Class<?> targetClass = weave("target instanceof com.example.NotExists", "charge(java.lang.String,int)");
+        targetClass.getMethod("charge", String.class, int.class).invoke(targetClass.newInstance(), "normal", 1);
+        Assert.assertTrue(befores().isEmpty());
+    }
+
+    @Test
+    public void test$$guard$$static() throws Exception {
+        // 静态方法没有target；基本类型参数永远不为null
+        final Class<?> targetClass = weave("!(target instanceof java.lang.Object) && arg0 != null && !(arg3 == 1)", "twice(int)");
+        final Method twice = targetClass.getMethod("twice", int.class);
+        Assert.assertEquals(4, twice.invoke(null, 2));
+        Assert.assertEquals(Arrays.asList("BEFORE:[2]"), befores());
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.CoverageProbeRegistry;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.CoverageTarget;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+import static org.objectweb.asm.Opcodes.ASM7;
+
+public class LineCoverageTestCase {
+
+    private static final String SIGN_CODE = CoverageTarget.class.getName() + "#abs(int)";
+
+    // 读取abs(int)的行号表：[if, return -value, return value]
+    private static List<Integer> getLineNumbers(final byte[] byteCodeArray) {
+        final List<Integer> lineNumbers = new ArrayList<>();
+        new ClassReader(byteCodeArray).accept(new ClassVisitor(ASM7) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (!"abs".equals(name)) {
+                    return null;
+                }
+                return new MethodVisitor(ASM7) {
+                    @Override
+                    public void visitLineNumber(int line, Label start) {
+                        lineNumbers.add(line);
+                    }
+                };
+            }
+        }, 0);
+        return lineNumbers;
+    }
+
+    // 统计方法中对Spy的调用
+    private static List<String> getSpyInvokes(final byte[] byteCodeArray) {
+        final List<String> invokes = new ArrayList<>();
+        new ClassReader(byteCodeArray).accept(new ClassVisitor(ASM7) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                if (!"abs".equals(name)) {
+                    return null;
+                }
+                return new MethodVisitor(ASM7) {
+                    @Override
+                    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+                        if (owner.endsWith("/Spy")) {
+                            invokes.add(name);
+                        }
+                    }
+                };
+            }
+        }, 0);
+        return invokes;
+    }
+
+    @Test
+    public void test$$coverage$$probesAndReset() throws Throwable {
+        final byte[] srcByteCodeArray = toByteArray(CoverageTarget.class);
+        final List<Integer> lineNumbers = getLineNumbers(srcByteCodeArray);
+        Assert.assertEquals(3, lineNumbers.size());
+
+        final int listenerId = ObjectIDs.instance.identity(new Object());
+        final Set<String> signCodes = Collections.singleton(SIGN_CODE);
+        final byte[] wovenByteCodeArray = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().coverageEnable(true).build()).toByteCodeArray(
+                getClass().getClassLoader(),
+                srcByteCodeArray,
+                signCodes,
+                "default",
+                listenerId,
+                new Event.Type[0]
+        );
+
+        // 每次调用只获取一次探针数组，行上没有任何方法调用
+        Assert.assertEquals(Collections.singletonList("spyMethodOnCoverage"), getSpyInvokes(wovenByteCodeArray));
+
+        final Class<?> targetClass = JvmHelper.createJvm()
+                .defineClass(CoverageTarget.class.getName(), wovenByteCodeArray)
+                .loadClass(CoverageTarget.class.getName());
+        final Object target = targetClass.newInstance();
+        final CoverageProbeRegistry registry = CoverageProbeRegistry.getSingleton();
+        try {
+            Assert.assertEquals(1, targetClass.getMethod("abs", int.class).invoke(target, 1));
+            Map<String, int[]> coverage = registry.dump(listenerId, true);
+            Assert.assertArrayEquals(new int[]{lineNumbers.get(0), lineNumbers.get(2)}, coverage.get(SIGN_CODE));
+
+            // 读取时已经清空
+            Assert.assertArrayEquals(new int[0], registry.dump(listenerId, false).get(SIGN_CODE));
+
+            Assert.assertEquals(1, targetClass.getMethod("abs", int.class).invoke(target, -1));
+            coverage = registry.dump(listenerId, false);
+            Assert.assertArrayEquals(new int[]{lineNumbers.get(0), lineNumbers.get(1)}, coverage.get(SIGN_CODE));
+
+            // 同一个类重新织入时沿用原来的探针，已采集的覆盖不丢失
+            new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().coverageEnable(true).build()).toByteCodeArray(
+                    getClass().getClassLoader(),
+                    srcByteCodeArray,
+                    signCodes,
+                    "default",
+                    listenerId,
+                    new Event.Type[0]
+            );
+            Assert.assertArrayEquals(new int[]{lineNumbers.get(0), lineNumbers.get(1)}, registry.dump(listenerId, false).get(SIGN_CODE));
+        } finally {
+            registry.remove(listenerId);
+        }
+
+        // 探针注销后方法仍然可以正常执行
+        Assert.assertTrue(registry.dump(listenerId, false).isEmpty());
+        Assert.assertEquals(2, targetClass.getMethod("abs", int.class).invoke(target, -2));
+    }
+
+    @Test
+    public void test$$coverage$$reuseReleasedSlot() {
+        final CoverageProbeRegistry registry = CoverageProbeRegistry.getSingleton();
+        final int listenerId = ObjectIDs.instance.identity(new Object());
+        final int probesId = registry.reserve(listenerId, ObjectIDs.NULL_ID, SIGN_CODE);
+        registry.define(probesId, new int[]{1, 2});
+        Assert.assertNotNull(registry.getProbes(probesId));
+        registry.remove(listenerId);
+        Assert.assertNull(registry.getProbes(probesId));
+
+        // 释放的槽位被复用，旧探针ID取不到复用后的探针
+        final int otherListenerId = ObjectIDs.instance.identity(new Object());
+        final int otherProbesId = registry.reserve(otherListenerId, ObjectIDs.NULL_ID, SIGN_CODE);
+        try {
+            Assert.assertTrue(probesId != otherProbesId);
+            registry.define(otherProbesId, new int[]{1, 2});
+            Assert.assertNotNull(registry.getProbes(otherProbesId));
+            Assert.assertNull(registry.getProbes(probesId));
+        } finally {
+            registry.remove(otherListenerId);
+        }
+    }
+
+}
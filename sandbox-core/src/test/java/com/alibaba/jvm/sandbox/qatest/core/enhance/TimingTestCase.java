@@ -0,0 +1,100 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.event.ReturnEvent;
+import com.alibaba.jvm.sandbox.api.event.ThrowsEvent;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.TimingTarget;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+public class TimingTestCase {
+
+    private static final Event.Type[] EVENT_TYPES = {BEFORE, RETURN, THROWS};
+    private static final long SLEEP_MILLIS = 20;
+
+    private final List<Long> costs = new ArrayList<>();
+    private final EventListener listener = new EventListener() {
+        @Override
+        public void onEvent(Event event) throws Throwable {
+            if (event instanceof ReturnEvent) {
+                costs.add(((ReturnEvent) event).costNanoTime);
+            } else if (event instanceof ThrowsEvent) {
+                costs.add(((ThrowsEvent) event).costNanoTime);
+            } else {
+                // BEFORE事件的处理时间不计入方法耗时
+                Thread.sleep(SLEEP_MILLIS);
+            }
+        }
+    };
+    private int listenerId;
+
+    @Before
+    public void before() {
+        listenerId = ObjectIDs.instance.identity(listener);
+        EventListenerHandler.getSingleton().active(listenerId, listener, EVENT_TYPES);
+    }
+
+    @After
+    public void after() {
+        EventListenerHandler.getSingleton().frozen(listenerId);
+    }
+
+    private Class<?> weave(final boolean isTimingEnable) throws Exception {
+        final byte[] woven = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().timingEnable(isTimingEnable).build()).toByteCodeArray(
+                getClass().getClassLoader(),
+                toByteArray(TimingTarget.class),
+                Collections.singleton(TimingTarget.class.getName() + "#sleep(long)"),
+                "default",
+                listenerId,
+                EVENT_TYPES
+        );
+        return JvmHelper.createJvm()
+                .defineClass(TimingTarget.class.getName(), woven)
+                .loadClass(TimingTarget.class.getName());
+    }
+
+    @Test
+    public void test$$timing$$returnAndThrows() throws Exception {
+        final Class<?> targetClass = weave(true);
+        final Object target = targetClass.newInstance();
+
+        Assert.assertEquals(SLEEP_MILLIS, targetClass.getMethod("sleep", long.class).invoke(target, SLEEP_MILLIS));
+        try {
+            targetClass.getMethod("sleep", long.class).invoke(target, -SLEEP_MILLIS);
+            Assert.fail();
+        } catch (InvocationTargetException cause) {
+            Assert.assertTrue(cause.getTargetException() instanceof IllegalArgumentException);
+        }
+
+        Assert.assertEquals(2, costs.size());
+        final long sleepNanoTime = TimeUnit.MILLISECONDS.toNanos(SLEEP_MILLIS);
+        Assert.assertTrue(costs.get(0) >= sleepNanoTime);
+        Assert.assertTrue(costs.get(0) < 2 * sleepNanoTime + TimeUnit.SECONDS.toNanos(1));
+        Assert.assertTrue(costs.get(1) >= 0 && costs.get(1) < sleepNanoTime);
+    }
+
+    @Test
+    public void test$$timing$$disabled() throws Exception {
+        final Class<?> targetClass = weave(false);
+        targetClass.getMethod("sleep", long.class).invoke(targetClass.newInstance(), 1L);
+        Assert.assertEquals(Collections.singletonList(-1L), costs);
+    }
+
+}
@@ -0,0 +1,143 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.core.enhance.EnhanceOptions;
+import com.alibaba.jvm.sandbox.core.enhance.EventEnhancer;
+import com.alibaba.jvm.sandbox.core.enhance.WovenByteCodeCache;
+import com.alibaba.jvm.sandbox.qatest.core.enhance.target.Calculator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Set;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.BEFORE;
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.RETURN;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+public class WovenByteCodeCacheTestCase {
+
+    private static final Event.Type[] EVENT_TYPES = {BEFORE, RETURN};
+
+    private static byte[] toKey(final WovenByteCodeCache cache,
+                                final byte[] byteCodeArray,
+                                final int listenerId,
+                                final String... signCodes) {
+        return cache.toKey(
+                byteCodeArray,
+                new LinkedHashSet<>(Arrays.asList(signCodes)),
+                "default",
+                listenerId,
+                1,
+                EVENT_TYPES,
+                "$$SANDBOX$"
+        );
+    }
+
+    @Test
+    public void test$$cache$$hit() {
+        final WovenByteCodeCache cache = new WovenByteCodeCache(4096);
+        final byte[] src = {1, 2, 3};
+        final byte[] woven = {4, 5, 6, 7};
+
+        final byte[] key = toKey(cache, src, 10, "a#b()", "a#c()");
+        Assert.assertNull(cache.get(key));
+        cache.put(key, woven);
+        Assert.assertArrayEquals(woven, cache.get(key));
+        Assert.assertEquals(1, cache.size());
+
+        // 行为签名的顺序不影响KEY，监听器ID不同则KEY不同
+        Assert.assertArrayEquals(key, toKey(cache, src, 10, "a#c()", "a#b()"));
+        Assert.assertNull(cache.get(toKey(cache, src, 11, "a#b()", "a#c()")));
+
+        // 关闭后清空
+        cache.close();
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void test$$cache$$evictWhenFull() {
+        final WovenByteCodeCache cache = new WovenByteCodeCache(64 * 1024);
+        try {
+            final byte[] woven = new byte[1024];
+            final byte[] firstKey = toKey(cache, new byte[]{0}, 1);
+            cache.put(firstKey, woven);
+            for (int index = 1; index < 256; index++) {
+                cache.put(toKey(cache, new byte[]{(byte) index}, 1), woven);
+            }
+
+            // 按增强后字节码的总大小限制容量，最早的记录被淘汰
+            Assert.assertTrue(cache.size() < 64);
+            Assert.assertNull(cache.get(firstKey));
+
+            // 超过缓存容量的记录不缓存
+            final byte[] hugeKey = toKey(cache, new byte[]{0}, 2);
+            cache.put(hugeKey, new byte[128 * 1024]);
+            Assert.assertNull(cache.get(hugeKey));
+        } finally {
+            cache.close();
+        }
+    }
+
+    public static class HierarchyDependent {
+
+        // 两个分支的类型在合并点需要计算共同父类
+        public AbstractList<String> pick(final boolean isArray) {
+            final AbstractList<String> list = isArray ? new ArrayList<String>() : new LinkedList<String>();
+            list.add("pick");
+            return list;
+        }
+
+    }
+
+    @Test
+    public void test$$EventEnhancer$$skipHierarchyDependent() throws IOException {
+        final WovenByteCodeCache cache = new WovenByteCodeCache(1024 * 1024);
+        try {
+            final byte[] src = toByteArray(HierarchyDependent.class);
+            final Set<String> signCodes = Collections.singleton(HierarchyDependent.class.getName() + "#pick(boolean)");
+            final byte[] woven = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().wovenByteCodeCache(cache).build())
+                    .toByteCodeArray(getClass().getClassLoader(), src, signCodes, "default", 1, EVENT_TYPES);
+
+            // 栈帧依赖继承结构，不进入缓存
+            Assert.assertEquals(0, cache.size());
+            Assert.assertArrayEquals(
+                    woven,
+                    new EventEnhancer("$$SANDBOX$").toByteCodeArray(getClass().getClassLoader(), src, signCodes, "default", 1, EVENT_TYPES)
+            );
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void test$$EventEnhancer$$hitCache() throws IOException {
+        final WovenByteCodeCache cache = new WovenByteCodeCache(1024 * 1024);
+        try {
+            final byte[] src = toByteArray(Calculator.class);
+            final Set<String> signCodes = Collections.singleton(Calculator.class.getName() + "#sum(int[])");
+            final EventEnhancer enhancer = new EventEnhancer("$$SANDBOX$", EnhanceOptions.newBuilder().wovenByteCodeCache(cache).build());
+            final byte[] woven = enhancer.toByteCodeArray(getClass().getClassLoader(), src, signCodes, "default", 1, EVENT_TYPES);
+            Assert.assertEquals(1, cache.size());
+            Assert.assertArrayEquals(
+                    woven,
+                    enhancer.toByteCodeArray(getClass().getClassLoader(), src, signCodes, "default", 1, EVENT_TYPES)
+            );
+            Assert.assertArrayEquals(
+                    woven,
+                    new EventEnhancer("$$SANDBOX$").toByteCodeArray(getClass().getClassLoader(), src, signCodes, "default", 1, EVENT_TYPES)
+            );
+            Assert.assertEquals(1, cache.size());
+        } finally {
+            cache.close();
+        }
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.inlining;
+
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+
+import static com.alibaba.jvm.sandbox.api.event.Event.Type.*;
+
+/**
+ * 内联回归基准
+ * <p>
+ * 增强{@link InliningTarget}的所有方法后反复执行{@link InliningDriver#drive(int)}，
+ * 配合{@code -XX:+UnlockDiagnosticVMOptions -XX:+PrintInlining}运行即可观察增强后的方法能否被内联到调用方，
+ * 见{@link InliningRegressionTestCase}
+ * </p>
+ */
+public class InliningBenchmark {
+
+    private static final Logger logger = LoggerFactory.getLogger(InliningBenchmark.class);
+
+    public static final String INLINING_TARGET_CLASS_NAME = InliningTarget.class.getName();
+
+    /**
+     * 增强{@link InliningTarget}的所有方法
+     *
+     * @return 已定义增强后{@link InliningTarget}和{@link InliningDriver}的JVM
+     * @throws Throwable 增强失败
+     */
+    public static JvmHelper createWovenJvm() throws Throwable {
+        final EventListener listener = new EventListener() {
+            @Override
+            public void onEvent(Event event) {
+            }
+        };
+        return JvmHelper
+                .createJvm()
+                .defineClass(
+                        InliningTarget.class,
+                        new NameRegexFilter(INLINING_TARGET_CLASS_NAME.replace(".", "\\."), "^(?!<init>).*$"),
+                        listener,
+                        BEFORE, RETURN, THROWS
+                )
+                .defineClass(InliningDriver.class);
+    }
+
+    public static void main(String... args) throws Throwable {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        final Method drive = createWovenJvm()
+                .loadClass(InliningDriver.class.getName())
+                .getMethod("drive", int.class);
+
+        long sum = 0;
+        final long startNanos = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            sum += (Long) drive.invoke(null, 100000);
+        }
+        logger.info("inlining-benchmark: rounds={};cost={}ms;sum={};",
+                rounds, (System.nanoTime() - startNanos) / 1000000, sum);
+    }
+
+}
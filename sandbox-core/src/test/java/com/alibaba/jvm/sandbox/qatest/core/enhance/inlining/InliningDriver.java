@@ -0,0 +1,19 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.inlining;
+
+/**
+ * 内联回归的调用方，与增强后的{@link InliningTarget}定义在同一个ClassLoader中，
+ * 通过静态绑定的调用点观察JIT的内联决策
+ */
+public class InliningDriver {
+
+    public static long drive(final int times) {
+        final InliningTarget target = new InliningTarget();
+        long sum = 0;
+        for (int index = 0; index < times; index++) {
+            target.setValue(index);
+            sum += InliningTarget.add(target.getValue(), index);
+        }
+        return sum;
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.inlining;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.alibaba.jvm.sandbox.qatest.core.enhance.inlining.InliningBenchmark.INLINING_TARGET_CLASS_NAME;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+/**
+ * 内联回归测试
+ * <p>
+ * 检查增强后的热点小方法体没有超出预算，这一项直接读取增强后的字节码，结果是确定的。
+ * </p>
+ * <p>
+ * C2是否真的内联取决于JIT的编译时机，不适合放在默认的单元测试中，
+ * 需要时以{@code -Dsandbox.test.inlining=true}开启：在子进程中以{@code -XX:+PrintInlining}运行{@link InliningBenchmark}，
+ * 检查增强后的热点小方法仍然能被C2内联到调用方
+ * </p>
+ */
+public class InliningRegressionTestCase {
+
+    // 开启C2内联检查的系统属性
+    private static final String KEY_INLINING_TEST_ENABLE = "sandbox.test.inlining";
+
+    // 增强后的方法体字节数预算，超出预算说明织入的代码又膨胀了
+    private static final Map<String, Integer> WOVEN_BYTES_BUDGET = new LinkedHashMap<>();
+
+    static {
+        WOVEN_BYTES_BUDGET.put("getValue", 128);
+        WOVEN_BYTES_BUDGET.put("setValue", 128);
+        WOVEN_BYTES_BUDGET.put("add", 176);
+    }
+
+    // @ 27   com.foo.InliningTarget::getValue (115 bytes)   inline (hot)
+    private static final Pattern INLINING_PATTERN = Pattern.compile(
+            Pattern.quote(INLINING_TARGET_CLASS_NAME) + "::(\\w+) \\((\\d+) bytes\\)\\s+(.*)$"
+    );
+
+    // 获取Spy所在的BootClassPath
+    private static String getSpyBootClassPath() throws Exception {
+        final String resourceName = "java/com/alibaba/jvm/sandbox/spy/Spy.class";
+        final URL url = ClassLoader.getSystemResource(resourceName);
+        Assert.assertNotNull("Spy must be in boot classpath", url);
+        final String path = URLDecoder.decode(url.getPath(), "UTF-8");
+        if ("jar".equals(url.getProtocol())) {
+            return new File(new URL(StringUtils.substringBefore(path, "!/")).getPath()).getPath();
+        }
+        return new File(StringUtils.removeEnd(path, resourceName)).getPath();
+    }
+
+    private static List<String> runBenchmark() throws Exception {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        if (NumberUtils.toFloat(System.getProperty("java.specification.version"), 1.8f) >= 9f) {
+            command.add("--add-opens");
+            command.add("java.base/java.lang=ALL-UNNAMED");
+        }
+        command.add("-Xbootclasspath/a:" + getSpyBootClassPath());
+        command.add("-XX:+UnlockDiagnosticVMOptions");
+        command.add("-XX:+PrintInlining");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(InliningBenchmark.class.getName());
+        command.add("10");
+
+        final Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        final List<String> lines = IOUtils.readLines(process.getInputStream(), StandardCharsets.UTF_8);
+        Assert.assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        Assert.assertEquals(StringUtils.join(lines, "\n"), 0, process.exitValue());
+        return lines;
+    }
+
+    /*
+     * 读取每个方法Code属性中的code_length，与PrintInlining输出的方法字节数一致
+     */
+    private static Map<String, Integer> toCodeLengths(final byte[] byteCodeArray) {
+        final ClassReader cr = new ClassReader(byteCodeArray);
+        final char[] buffer = new char[cr.getMaxStringLength()];
+        int offset = cr.header + 6;
+
+        // interfaces
+        offset += 2 + 2 * cr.readUnsignedShort(offset);
+
+        // fields
+        int count = cr.readUnsignedShort(offset);
+        offset += 2;
+        while (count-- > 0) {
+            offset = skipAttributes(cr, offset + 6);
+        }
+
+        // methods
+        final Map<String, Integer> codeLengths = new HashMap<>();
+        count = cr.readUnsignedShort(offset);
+        offset += 2;
+        while (count-- > 0) {
+            final String name = cr.readUTF8(offset + 2, buffer);
+            int attributeCount = cr.readUnsignedShort(offset + 6);
+            offset += 8;
+            while (attributeCount-- > 0) {
+                if ("Code".equals(cr.readUTF8(offset, buffer))) {
+                    codeLengths.put(name, cr.readInt(offset + 10));
+                }
+                offset += 6 + cr.readInt(offset + 2);
+            }
+        }
+        return codeLengths;
+    }
+
+    // 跳过attributes_count及其后的所有属性
+    private static int skipAttributes(final ClassReader cr, int offset) {
+        int attributeCount = cr.readUnsignedShort(offset);
+        offset += 2;
+        while (attributeCount-- > 0) {
+            offset += 6 + cr.readInt(offset + 2);
+        }
+        return offset;
+    }
+
+    @Test
+    public void test$$wovenSmallMethods$$withinBudget() throws Throwable {
+        final Class<?> wovenClass = InliningBenchmark.createWovenJvm().loadClass(INLINING_TARGET_CLASS_NAME);
+        final Map<String, Integer> codeLengths = toCodeLengths(toByteArray(wovenClass));
+        final Map<String, Integer> originCodeLengths = toCodeLengths(toByteArray(InliningTarget.class));
+        for (final Map.Entry<String, Integer> entry : WOVEN_BYTES_BUDGET.entrySet()) {
+            final String method = entry.getKey();
+            final Integer wovenBytes = codeLengths.get(method);
+            Assert.assertNotNull("no code for " + method, wovenBytes);
+            Assert.assertTrue(method + " not woven", wovenBytes > originCodeLengths.get(method));
+            Assert.assertTrue(
+                    method + " woven " + wovenBytes + " bytes, over budget " + entry.getValue(),
+                    wovenBytes <= entry.getValue()
+            );
+        }
+    }
+
+    @Test
+    public void test$$wovenSmallMethods$$inlinedByC2() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean(KEY_INLINING_TEST_ENABLE));
+        final Map<String, Set<String>> decisions = new HashMap<>();
+        for (final String line : runBenchmark()) {
+            final Matcher matcher = INLINING_PATTERN.matcher(line.trim());
+            if (matcher.find()) {
+                decisions.computeIfAbsent(matcher.group(1), k -> new HashSet<>()).add(matcher.group(3).trim());
+            }
+        }
+
+        for (final Map.Entry<String, Integer> entry : WOVEN_BYTES_BUDGET.entrySet()) {
+            final String method = entry.getKey();
+            final Set<String> methodDecisions = decisions.get(method);
+            Assert.assertNotNull("no inlining decision for " + method, methodDecisions);
+            Assert.assertTrue(method + " not inlined by C2: " + methodDecisions, methodDecisions.contains("inline (hot)"));
+            Assert.assertFalse(method + " too big: " + methodDecisions, methodDecisions.contains("hot method too big"));
+        }
+    }
+
+}
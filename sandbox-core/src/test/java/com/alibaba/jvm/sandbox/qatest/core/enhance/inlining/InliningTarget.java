@@ -0,0 +1,22 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.inlining;
+
+/**
+ * 内联回归的增强目标：典型的热点小方法
+ */
+public class InliningTarget {
+
+    private int value;
+
+    public int getValue() {
+        return value;
+    }
+
+    public void setValue(int value) {
+        this.value = value;
+    }
+
+    public static int add(int a, int b) {
+        return a + b;
+    }
+
+}
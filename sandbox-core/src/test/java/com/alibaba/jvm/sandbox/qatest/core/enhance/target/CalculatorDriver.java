@@ -0,0 +1,32 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.target;
+
+/**
+ * 计算器驱动类
+ * <p>
+ * 和{@link Calculator}定义在同一个类加载器中，循环调用时不经过反射，避免反射本身的装箱和参数数组干扰内存分配的统计
+ * </p>
+ */
+public class CalculatorDriver {
+
+    private final int[] numArray = {1, 2, 3};
+
+    /**
+     * 循环调用{@link Calculator#sum(int...)}
+     *
+     * @param calculator 计算器
+     * @param times      调用次数
+     * @return 抛出异常的次数
+     */
+    public int sum(final Calculator calculator, final int times) {
+        int throwsCount = 0;
+        for (int index = 0; index < times; index++) {
+            try {
+                calculator.sum(numArray);
+            } catch (RuntimeException cause) {
+                throwsCount++;
+            }
+        }
+        return throwsCount;
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.target;
+
+/**
+ * 行覆盖靶机类
+ */
+public class CoverageTarget {
+
+    public int abs(final int value) {
+        if (value < 0) {
+            return -value;
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.target;
+
+/**
+ * 守卫条件靶机类
+ */
+public class GuardTarget {
+
+    public String charge(final String tenantId, final int amount) {
+        return tenantId + ":" + amount;
+    }
+
+    public double scale(final Long value, final double factor) {
+        return null == value ? 0 : value * factor;
+    }
+
+    public int check(final int code) {
+        if (code < 0) {
+            throw new IllegalStateException("code=" + code);
+        }
+        return code;
+    }
+
+    public static int twice(final int value) {
+        return value * 2;
+    }
+
+    /**
+     * 用于target instanceof判断的子类
+     */
+    public static class Vip extends GuardTarget {
+
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.alibaba.jvm.sandbox.qatest.core.enhance.target;
+
+/**
+ * 计时靶机类
+ */
+public class TimingTarget {
+
+    public long sleep(final long millis) throws InterruptedException {
+        if (millis < 0) {
+            throw new IllegalArgumentException("millis=" + millis);
+        }
+        Thread.sleep(millis);
+        return millis;
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.core.manager.impl.BatchReTransformer;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.instrument.UnmodifiableClassException;
+import java.util.*;
+
+public class BatchReTransformerTestCase {
+
+    /*
+     * 模拟JVM对一批类的原子形变：只要批次中有一个坏类，整批失败
+     */
+    static class MockAtomicReTransformInstrumentation extends EmptyInstrumentation {
+
+        final Set<Class<?>> badClasses = new HashSet<>();
+        final List<Integer> batchSizes = new ArrayList<>();
+        final List<Class<?>> reTransformed = new ArrayList<>();
+
+        MockAtomicReTransformInstrumentation(final Class<?>... badClasses) {
+            this.badClasses.addAll(Arrays.asList(badClasses));
+        }
+
+        @Override
+        public void retransformClasses(Class<?>... classes) throws UnmodifiableClassException {
+            batchSizes.add(classes.length);
+            for (final Class<?> clazz : classes) {
+                if (badClasses.contains(clazz)) {
+                    throw new UnmodifiableClassException(clazz.getName());
+                }
+            }
+            reTransformed.addAll(Arrays.asList(classes));
+        }
+
+    }
+
+    static class RecordingCallback implements BatchReTransformer.Callback {
+
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void onSuccess(Class<?> clazz, int index) {
+            records.add("S:" + index + ":" + clazz.getSimpleName());
+        }
+
+        @Override
+        public void onFailed(Class<?> clazz, int index, Throwable cause) {
+            records.add("F:" + index + ":" + clazz.getSimpleName());
+        }
+
+    }
+
+    private static final List<Class<?>> CLASSES = Arrays.asList(
+            String.class, Integer.class, Long.class, Short.class, Byte.class,
+            Double.class, Float.class, Character.class, Boolean.class, Object.class
+    );
+
+    @Test
+    public void test$$reTransform$$allSuccessInBatches() {
+        final MockAtomicReTransformInstrumentation inst = new MockAtomicReTransformInstrumentation();
+        final RecordingCallback callback = new RecordingCallback();
+        final int times = new BatchReTransformer(inst, 4).reTransform(CLASSES, callback);
+
+        Assert.assertEquals(3, times);
+        Assert.assertEquals(Arrays.asList(4, 4, 2), inst.batchSizes);
+        Assert.assertEquals(CLASSES, inst.reTransformed);
+        Assert.assertEquals(10, callback.records.size());
+        for (int index = 0; index < CLASSES.size(); index++) {
+            Assert.assertEquals("S:" + (index + 1) + ":" + CLASSES.get(index).getSimpleName(), callback.records.get(index));
+        }
+    }
+
+    @Test
+    public void test$$reTransform$$bisectFailedBatch() {
+        final MockAtomicReTransformInstrumentation inst = new MockAtomicReTransformInstrumentation(Short.class, Float.class);
+        final RecordingCallback callback = new RecordingCallback();
+        new BatchReTransformer(inst, 8).reTransform(CLASSES, callback);
+
+        // 坏类之外的类都形变成功，汇报顺序与待形变类的顺序一致
+        Assert.assertEquals(
+                Arrays.asList(
+                        "S:1:String", "S:2:Integer", "S:3:Long", "F:4:Short", "S:5:Byte",
+                        "S:6:Double", "F:7:Float", "S:8:Character", "S:9:Boolean", "S:10:Object"
+                ),
+                callback.records
+        );
+        Assert.assertEquals(8, inst.reTransformed.size());
+        Assert.assertFalse(inst.reTransformed.contains(Short.class));
+        Assert.assertFalse(inst.reTransformed.contains(Float.class));
+    }
+
+    @Test
+    public void test$$reTransform$$oneByOne() {
+        final MockAtomicReTransformInstrumentation inst = new MockAtomicReTransformInstrumentation(Long.class);
+        final RecordingCallback callback = new RecordingCallback();
+        final int times = new BatchReTransformer(inst, 0).reTransform(CLASSES, callback);
+
+        Assert.assertEquals(CLASSES.size(), times);
+        Assert.assertEquals("F:3:Long", callback.records.get(2));
+        Assert.assertEquals(9, inst.reTransformed.size());
+    }
+
+}
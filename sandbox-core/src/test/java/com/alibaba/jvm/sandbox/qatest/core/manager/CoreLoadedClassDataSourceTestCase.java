@@ -1,17 +1,26 @@
 package com.alibaba.jvm.sandbox.qatest.core.manager;
 
 import com.alibaba.jvm.sandbox.api.filter.ExtFilter;
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
+import com.alibaba.jvm.sandbox.api.filter.Filter;
 import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.core.manager.CoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.util.matcher.ExtFilterMatcher;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+
 class MockLoadedClassesOnlyInstrumentation extends EmptyInstrumentation {
 
     final Set<Class<?>> loadedClasses = new LinkedHashSet<>();
@@ -282,4 +291,101 @@ public class CoreLoadedClassDataSourceTestCase {
 
     }
 
+    /*
+     * 模拟大量已加载的JDK类，所有类都允许形变
+     */
+    static class MockManyLoadedClassesInstrumentation extends EmptyInstrumentation {
+
+        final Class<?>[] loadedClasses;
+
+        MockManyLoadedClassesInstrumentation(final int times, final Class<?>... classes) {
+            final List<Class<?>> loaded = new ArrayList<>();
+            for (int index = 0; index < times; index++) {
+                for (final Class<?> clazz : classes) {
+                    loaded.add(clazz);
+                }
+            }
+            this.loadedClasses = loaded.toArray(new Class<?>[0]);
+        }
+
+        @Override
+        public boolean isModifiableClass(Class<?> theClass) {
+            return true;
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            return loadedClasses;
+        }
+
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findForReTransformInParallel() {
+        final MockManyLoadedClassesInstrumentation manyLoadedClassesInstrumentation = new MockManyLoadedClassesInstrumentation(
+                500,
+                java.util.ArrayList.class, java.util.HashMap.class, java.util.LinkedList.class, java.util.TreeMap.class,
+                java.lang.StringBuilder.class, java.lang.Integer.class, java.io.File.class, java.net.URL.class
+        );
+
+        // 标记了ThreadSafe的过滤器允许并行匹配
+        final Matcher matcher = new ExtFilterMatcher(new ExtFilterImplByV140(
+                make(new NameRegexFilter("java\\.util\\..*", ".*"), false, true),
+                false, false, false, false, false
+        ));
+        Assert.assertTrue(matcher.isThreadSafe());
+
+        final DefaultCoreLoadedClassDataSource serial
+                = new DefaultCoreLoadedClassDataSource(manyLoadedClassesInstrumentation, true, true);
+        final DefaultCoreLoadedClassDataSource parallel
+                = new DefaultCoreLoadedClassDataSource(manyLoadedClassesInstrumentation, true, true, 4);
+        try {
+            final Thread caller = Thread.currentThread();
+            final Set<Thread> consumerThreads = new HashSet<>();
+            final List<Class<?>> foundInParallel = new ArrayList<>();
+            final int total = parallel.findForReTransform(matcher, clazz -> {
+                consumerThreads.add(Thread.currentThread());
+                foundInParallel.add(clazz);
+            });
+            final List<Class<?>> foundInSerial = serial.findForReTransform(matcher);
+
+            Assert.assertEquals(2000, foundInSerial.size());
+            Assert.assertEquals(foundInSerial.size(), total);
+            Assert.assertEquals(foundInSerial.size(), foundInParallel.size());
+            Assert.assertEquals(new HashSet<>(foundInSerial), new HashSet<>(foundInParallel));
+
+            // 命中的类总是在调用线程上回调
+            Assert.assertEquals(1, consumerThreads.size());
+            Assert.assertTrue(consumerThreads.contains(caller));
+        } finally {
+            parallel.destroy();
+        }
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$statefulFilterIsNotThreadSafe() {
+        final Filter statefulFilter = new Filter() {
+
+            private int count;
+
+            @Override
+            public boolean doClassFilter(int access, String javaClassName, String superClassTypeJavaClassName, String[] interfaceTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+                return ++count > 0;
+            }
+
+            @Override
+            public boolean doMethodFilter(int access, String javaMethodName, String[] parameterTypeJavaClassNameArray, String[] throwsTypeJavaClassNameArray, String[] annotationTypeJavaClassNameArray) {
+                return true;
+            }
+
+        };
+
+        // 没有标记ThreadSafe的过滤器，即使包装成ExtFilterImplByV140也不允许并行匹配
+        Assert.assertFalse(new ExtFilterMatcher(make(statefulFilter)).isThreadSafe());
+        Assert.assertFalse(new ExtFilterMatcher(new ExtFilterImplByV140(
+                make(statefulFilter), false, false, false, false, false
+        )).isThreadSafe());
+        Assert.assertTrue(new ExtFilterMatcher(make(new NameRegexFilter(".*", ".*"))).isThreadSafe());
+    }
+
 }
@@ -3,29 +3,59 @@ package com.alibaba.jvm.sandbox.qatest.core.manager;
 import com.alibaba.jvm.sandbox.api.Information;
 import com.alibaba.jvm.sandbox.api.Module;
 import com.alibaba.jvm.sandbox.api.ModuleException;
+import com.alibaba.jvm.sandbox.api.event.Event;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.listener.EventListener;
+import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 import com.alibaba.jvm.sandbox.core.CoreConfigure;
 import com.alibaba.jvm.sandbox.core.CoreModule;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoader;
+import com.alibaba.jvm.sandbox.core.classloader.ModuleJarClassLoaderTracker;
+import com.alibaba.jvm.sandbox.core.enhance.weaver.EventListenerHandler;
 import com.alibaba.jvm.sandbox.core.manager.CoreModuleManager;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreModuleManager;
+import com.alibaba.jvm.sandbox.core.manager.impl.PersistentWatchRegistry;
 import com.alibaba.jvm.sandbox.core.util.FeatureCodec;
+import com.alibaba.jvm.sandbox.core.util.ObjectIDs;
 import com.alibaba.jvm.sandbox.core.util.SandboxProtector;
+import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyCoreLoadedClassDataSource;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
 import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyProviderManager;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
 import com.alibaba.jvm.sandbox.qatest.core.util.SandboxModuleJarBuilder;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.reflect.MethodUtils;
 import org.junit.Assert;
 import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
 
+import javax.annotation.Resource;
 import java.io.File;
 import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static com.alibaba.jvm.sandbox.api.ModuleException.ErrorCode.MODULE_ACTIVE_ERROR;
+import static com.alibaba.jvm.sandbox.api.ModuleException.ErrorCode.MODULE_LOAD_ERROR;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
 import static com.alibaba.jvm.sandbox.qatest.core.manager.TracingLifeCycleModule.LifeCycleType.*;
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
 import static java.io.File.createTempFile;
 import static org.apache.commons.lang3.ArrayUtils.getLength;
 import static org.junit.Assert.assertEquals;
+import static org.objectweb.asm.Opcodes.*;
 
 public class CoreModuleManagerTestCase {
 
@@ -102,6 +132,264 @@ public class CoreModuleManagerTestCase {
 
     }
 
+    /**
+     * 模块类由ModuleJarClassLoader加载，静态变量不能和测试共享，所以放在不打包进模块Jar的类中
+     */
+    public static class BlockingLatches {
+        public static final CountDownLatch entered = new CountDownLatch(1);
+        public static final CountDownLatch released = new CountDownLatch(1);
+    }
+
+    @Information(id = "blocking-on-active", isActiveOnLoad = false)
+    public static class BlockingOnActiveModule extends TracingLifeCycleModule implements Module {
+        @Override
+        public void onActive() {
+            super.onActive();
+            BlockingLatches.entered.countDown();
+            try {
+                BlockingLatches.released.await();
+            } catch (InterruptedException cause) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public static class LoadingLatches {
+        public static final CountDownLatch entered = new CountDownLatch(1);
+        public static final CountDownLatch released = new CountDownLatch(1);
+    }
+
+    @Information(id = "blocking-on-load")
+    public static class BlockingOnLoadModule extends TracingLifeCycleModule implements Module {
+        @Override
+        public void onLoad() throws Throwable {
+            super.onLoad();
+            LoadingLatches.entered.countDown();
+            LoadingLatches.released.await();
+        }
+    }
+
+    @Information(id = "persistent-watch-module")
+    public static class PersistentWatchModule extends TracingLifeCycleModule implements Module {
+
+        @Resource
+        private ModuleEventWatcher moduleEventWatcher;
+
+        private int watchId;
+
+        @Override
+        public void loadCompleted() {
+            super.loadCompleted();
+            watchId = moduleEventWatcher.watchPersistent(
+                    "calculator",
+                    new NameRegexFilter(".*Calculator", "sum"),
+                    new EmptyEventListener(),
+                    null,
+                    Event.Type.BEFORE
+            );
+        }
+
+        public void deleteWatch() {
+            moduleEventWatcher.delete(watchId);
+        }
+
+    }
+
+    // 模块ID中带有"/"，持久化观察定义的名称不能按"/"切分
+    @Information(id = "persistent-watch/slash-module")
+    public static class SlashIdPersistentWatchModule extends PersistentWatchModule {
+    }
+
+    @Information(id = "replace-listener-module")
+    public static class ReplaceListenerModule extends TracingLifeCycleModule implements Module {
+
+        @Resource
+        private ModuleEventWatcher moduleEventWatcher;
+
+        private final RecordingEventListener listener = new RecordingEventListener();
+
+        private int watchId;
+
+        @Override
+        public void loadCompleted() {
+            super.loadCompleted();
+            watchId = moduleEventWatcher.watch(
+                    new NameRegexFilter(".*Calculator", "sum"),
+                    listener,
+                    Event.Type.BEFORE
+            );
+        }
+
+        public RecordingEventListener getListener() {
+            return listener;
+        }
+
+        public int getWatchId() {
+            return watchId;
+        }
+
+        public boolean replaceListener(final int watchId,
+                                       final RecordingEventListener listener,
+                                       final Event.Type[] eventTypes) {
+            return moduleEventWatcher.replaceListener(watchId, listener, eventTypes);
+        }
+
+    }
+
+    @Information(id = "affect-classes-module")
+    public static class AffectClassesModule extends TracingLifeCycleModule implements Module {
+
+        @Resource
+        private ModuleEventWatcher moduleEventWatcher;
+
+        private int watchId;
+
+        @Override
+        public void loadCompleted() {
+            super.loadCompleted();
+            watchId = moduleEventWatcher.watch(
+                    new NameRegexFilter("com\\.example\\.affect\\.AffectTarget.*", "sum"),
+                    new EmptyEventListener(),
+                    Event.Type.BEFORE
+            );
+        }
+
+        public void deleteWatch() {
+            moduleEventWatcher.delete(watchId);
+        }
+
+    }
+
+    public static class RecordingEventListener implements EventListener {
+
+        private final List<Event.Type> eventTypes = new ArrayList<Event.Type>();
+
+        @Override
+        public void onEvent(Event event) {
+            eventTypes.add(event.type);
+        }
+
+    }
+
+    public static class EmptyEventListener implements EventListener {
+
+        @Override
+        public void onEvent(Event event) {
+        }
+
+    }
+
+    /**
+     * 记录类形变器注册情况的Instrumentation
+     */
+    private static class RecordingTransformerInstrumentation extends EmptyInstrumentation {
+
+        final List<ClassFileTransformer> addedTransformers = new ArrayList<ClassFileTransformer>();
+        final List<ClassFileTransformer> removedTransformers = new ArrayList<ClassFileTransformer>();
+
+        @Override
+        public void addTransformer(ClassFileTransformer transformer, boolean canRetransform) {
+            addedTransformers.add(transformer);
+        }
+
+        @Override
+        public boolean removeTransformer(ClassFileTransformer transformer) {
+            removedTransformers.add(transformer);
+            return true;
+        }
+
+    }
+
+    /**
+     * 会把类交给已注册的类形变器形变，并记录重新形变过哪些类的Instrumentation
+     */
+    private static class ReTransformingInstrumentation extends RecordingTransformerInstrumentation {
+
+        private final List<Class<?>> loadedClasses = new ArrayList<Class<?>>();
+        private final List<Class<?>> reTransformedClasses = new ArrayList<Class<?>>();
+
+        ReTransformingInstrumentation(final Class<?>... classes) {
+            loadedClasses.addAll(Arrays.asList(classes));
+        }
+
+        // 模拟类的第一次定义：先经过类形变器，之后才出现在已加载类中
+        void define(final Class<?> clazz) throws Exception {
+            transform(clazz, null);
+            loadedClasses.add(clazz);
+        }
+
+        private void transform(final Class<?> clazz,
+                               final Class<?> classBeingRedefined) throws Exception {
+            final byte[] byteCodes = toByteArray(clazz);
+            for (final ClassFileTransformer transformer : new ArrayList<ClassFileTransformer>(addedTransformers)) {
+                if (!removedTransformers.contains(transformer)) {
+                    transformer.transform(clazz.getClassLoader(), toInternalClassName(clazz.getName()), classBeingRedefined, null, byteCodes);
+                }
+            }
+        }
+
+        @Override
+        public boolean isRetransformClassesSupported() {
+            return true;
+        }
+
+        @Override
+        public boolean isModifiableClass(Class<?> theClass) {
+            return true;
+        }
+
+        @Override
+        public void retransformClasses(Class<?>... classes) {
+            for (final Class<?> clazz : classes) {
+                reTransformedClasses.add(clazz);
+                try {
+                    transform(clazz, clazz);
+                } catch (Exception cause) {
+                    throw new RuntimeException(cause);
+                }
+            }
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            return loadedClasses.toArray(new Class[0]);
+        }
+
+        @Override
+        public Class[] getInitiatedClasses(ClassLoader loader) {
+            final List<Class<?>> initiatedClasses = new ArrayList<Class<?>>();
+            for (final Class<?> clazz : loadedClasses) {
+                if (clazz.getClassLoader() == loader) {
+                    initiatedClasses.add(clazz);
+                }
+            }
+            return initiatedClasses.toArray(new Class[0]);
+        }
+
+    }
+
+    /**
+     * 没有任何已加载类的数据源
+     */
+    private static class NoLoadedClassDataSource extends EmptyCoreLoadedClassDataSource {
+
+        @Override
+        public List<Class<?>> findForReTransform(Matcher matcher) {
+            return new ArrayList<Class<?>>();
+        }
+
+        @Override
+        public int findForReTransform(Matcher matcher, Consumer<Class<?>> consumer) {
+            return 0;
+        }
+
+        @Override
+        public Set<Class<?>> findLoadedByName(String javaClassName) {
+            return new HashSet<Class<?>>();
+        }
+
+    }
+
     private CoreConfigure buildingCoreConfigureWithUserModuleLib(final File... moduleJarFileArray) {
 
         final Set<String> moduleJarFilePathSet = new LinkedHashSet<String>();
@@ -357,6 +645,60 @@ public class CoreModuleManagerTestCase {
     }
 
 
+    @Test
+    public void test$$CoreModuleManager$$parallelLoading() throws IOException, ModuleException {
+
+        final File moduleLibDir = createTempFile("test-", "-lib");
+        Assert.assertTrue(moduleLibDir.delete());
+        Assert.assertTrue(moduleLibDir.mkdirs());
+
+        buildingModuleJarFileWithModuleClass(new File(moduleLibDir, "module-0.jar"), NormalModule.class);
+        buildingModuleJarFileWithModuleClass(new File(moduleLibDir, "module-1.jar"), AnotherNormalModule.class);
+        buildingModuleJarFileWithModuleClass(new File(moduleLibDir, "module-2.jar"), ModifyAnotherNormalModule.class);
+        FileUtils.writeStringToFile(new File(moduleLibDir, "module-3.jar"), "BROKEN-MODULE-JAR", "UTF-8");
+        buildingModuleJarFileWithModuleClass(new File(moduleLibDir, "module-4.jar"), BrokenOnLoadModule.class, NormalOnLazyActiveModule.class);
+
+        final Map<String, String> featureMap = new HashMap<String, String>();
+        featureMap.put("user_module", moduleLibDir.getPath());
+        featureMap.put("system_module", System.getProperty("user.home"));
+        featureMap.put("module.load.parallelism", "4");
+        final CoreModuleManager coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                CoreConfigure.toConfigure(new FeatureCodec(';', '=').toString(featureMap), null),
+                new EmptyInstrumentation(),
+                new EmptyCoreLoadedClassDataSource(),
+                new EmptyProviderManager()
+        ));
+
+        // 损坏的jar文件和加载失败的模块互不影响，同ID的模块总是按jar文件顺序由先出现的胜出
+        for (int index = 0; index < 5; index++) {
+            coreModuleManager.reset();
+            assertLoadedModule(
+                    coreModuleManager,
+                    "normal-module",
+                    "another-normal-module",
+                    "normal-no-lazy-active-module"
+            );
+            Assert.assertEquals(
+                    AnotherNormalModule.class.getName(),
+                    coreModuleManager.get("another-normal-module").getModule().getClass().getName()
+            );
+            assertTracingLifeCycle(
+                    coreModuleManager,
+                    "normal-no-lazy-active-module",
+                    LOAD, LOAD_COMPLETED
+            );
+        }
+
+        coreModuleManager.flush(true);
+        assertLoadedModule(
+                coreModuleManager,
+                "normal-module",
+                "another-normal-module",
+                "normal-no-lazy-active-module"
+        );
+
+    }
+
     @Test(expected = ModuleException.class)
     public void test$$CoreModuleManager$$getThrowsExceptionIfNull() throws IOException, ModuleException {
 
@@ -450,5 +792,402 @@ public class CoreModuleManagerTestCase {
 
     }
 
+    @Information(id = "lazy-module", isLazy = true)
+    public static class LazyModule extends TracingLifeCycleModule implements Module {
+
+    }
+
+    @Information(id = "lazy-broken-on-load", isLazy = true)
+    public static class LazyBrokenOnLoadModule extends TracingLifeCycleModule implements Module {
+        @Override
+        public void onLoad() throws Throwable {
+            super.onLoad();
+            throw new IllegalAccessException("BROKEN-ON-LOAD");
+        }
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$lazyLoading() throws IOException, ModuleException {
+
+        final CoreModuleManager coreModuleManager
+                = buildingCoreModuleManager(
+                buildingModuleJarFileWithModuleClass(
+                        createTempFile("test-", ".jar"),
+                        NormalModule.class,
+                        LazyModule.class,
+                        LazyBrokenOnLoadModule.class
+                )
+        );
+
+        // 延迟加载的模块只完成注册，没有实例化
+        assertLoadedModule(coreModuleManager, "normal-module", "lazy-module", "lazy-broken-on-load");
+        final CoreModule lazyCoreModule = coreModuleManager.getThrowsExceptionIfNull("lazy-module");
+        Assert.assertTrue(lazyCoreModule.isLoaded());
+        Assert.assertFalse(lazyCoreModule.isInstantiated());
+        Assert.assertFalse(lazyCoreModule.isActivated());
+        Assert.assertNull(lazyCoreModule.getModule());
+        assertEquals("lazy-module", lazyCoreModule.getInformation().id());
+        assertEquals(LazyModule.class.getName(), lazyCoreModule.getModuleClassName());
+
+        // 第一次激活时实例化
+        coreModuleManager.active(lazyCoreModule);
+        Assert.assertTrue(lazyCoreModule.isInstantiated());
+        Assert.assertTrue(lazyCoreModule.isActivated());
+        assertTracingLifeCycle(
+                coreModuleManager,
+                "lazy-module",
+                LOAD, ACTIVE, LOAD_COMPLETED
+        );
+
+        // 实例化失败的模块被卸载
+        try {
+            coreModuleManager.instantiate(coreModuleManager.getThrowsExceptionIfNull("lazy-broken-on-load"));
+            Assert.fail();
+        } catch (ModuleException me) {
+            assertEquals("lazy-broken-on-load", me.getUniqueId());
+            assertEquals(MODULE_LOAD_ERROR, me.getErrorCode());
+        }
+        assertLoadedModule(coreModuleManager, "normal-module", "lazy-module");
+
+        // 卸载尚未实例化的模块不需要通知生命周期
+        coreModuleManager.flush(true);
+        final CoreModule unloadedCoreModule = coreModuleManager.unload(coreModuleManager.get("lazy-module"), false);
+        Assert.assertFalse(unloadedCoreModule.isInstantiated());
+        Assert.assertFalse(unloadedCoreModule.isLoaded());
+        assertLoadedModule(coreModuleManager, "normal-module", "lazy-broken-on-load");
+
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$persistentWatch() throws Exception {
+        assertPersistentWatch(PersistentWatchModule.class, "persistent-watch-module");
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$persistentWatch$$slashInUniqueId() throws Exception {
+        assertPersistentWatch(SlashIdPersistentWatchModule.class, "persistent-watch/slash-module");
+    }
+
+    private void assertPersistentWatch(final Class<? extends Module> classOfModule,
+                                       final String uniqueId) throws Exception {
+
+        final File moduleJarFile = buildingModuleJarFileWithModuleClass(
+                createTempFile("test-", ".jar"),
+                classOfModule
+        );
+        final Map<String, String> featureMap = new HashMap<String, String>();
+        featureMap.put("user_module", moduleJarFile.getPath());
+        featureMap.put("system_module", System.getProperty("user.home"));
+        featureMap.put("sandbox_home", Files.createTempDirectory("sandbox-home-").toFile().getPath());
+        featureMap.put("mode", "agent");
+        final CoreConfigure cfg = CoreConfigure.toConfigure(new FeatureCodec(';', '=').toString(featureMap), null);
+
+        // 第一次观察：没有提前注册的类形变器，按普通观察注册，并保存观察定义
+        final RecordingTransformerInstrumentation firstInst = new RecordingTransformerInstrumentation();
+        final CoreModuleManager firstCoreModuleManager = buildingCoreModuleManager(cfg, firstInst);
+        assertEquals(1, firstInst.addedTransformers.size());
+        Assert.assertTrue(cfg.getPersistentWatchFile().isFile());
+
+        // 模块卸载时保留观察定义
+        firstCoreModuleManager.unloadAll();
+        assertEquals(1, firstInst.removedTransformers.size());
+        Assert.assertTrue(FileUtils.readFileToString(cfg.getPersistentWatchFile(), "UTF-8").contains(uniqueId + "/calculator"));
+
+        // 重启：按定义提前注册类形变器，模块再次观察时直接接管，不再注册新的类形变器
+        final RecordingTransformerInstrumentation secondInst = new RecordingTransformerInstrumentation();
+        final PersistentWatchRegistry persistentWatchRegistry = new PersistentWatchRegistry(cfg, secondInst, new NoLoadedClassDataSource(), null);
+        persistentWatchRegistry.preRegister();
+        assertEquals(1, secondInst.addedTransformers.size());
+        final CoreModuleManager secondCoreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                cfg,
+                secondInst,
+                new NoLoadedClassDataSource(),
+                new EmptyProviderManager(),
+                null,
+                persistentWatchRegistry
+        )).reset();
+        assertEquals(1, secondInst.addedTransformers.size());
+        Assert.assertTrue(secondInst.removedTransformers.isEmpty());
+
+        // 定义文件中的模块ID原样解析：模块已加载时保留它的类形变器，卸载时注销
+        final RecordingTransformerInstrumentation thirdInst = new RecordingTransformerInstrumentation();
+        final PersistentWatchRegistry thirdPersistentWatchRegistry = new PersistentWatchRegistry(cfg, thirdInst, new NoLoadedClassDataSource(), null);
+        thirdPersistentWatchRegistry.preRegister();
+        assertEquals(1, thirdInst.addedTransformers.size());
+        thirdPersistentWatchRegistry.discardIfNotIn(Collections.singleton(uniqueId));
+        Assert.assertTrue(thirdInst.removedTransformers.isEmpty());
+        thirdPersistentWatchRegistry.discard(uniqueId);
+        assertEquals(thirdInst.addedTransformers, thirdInst.removedTransformers);
+
+        // 模块主动删除观察时一并删除观察定义
+        // 模块类由ModuleJarClassLoader加载，不能直接强转
+        MethodUtils.invokeMethod(secondCoreModuleManager.get(uniqueId).getModule(), "deleteWatch");
+        assertEquals(secondInst.addedTransformers, secondInst.removedTransformers);
+        Assert.assertFalse(FileUtils.readFileToString(cfg.getPersistentWatchFile(), "UTF-8").contains(uniqueId + "/calculator"));
+
+    }
+
+    private CoreModuleManager buildingCoreModuleManager(final CoreConfigure cfg,
+                                                        final RecordingTransformerInstrumentation inst) throws ModuleException {
+        return SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                cfg,
+                inst,
+                new NoLoadedClassDataSource(),
+                new EmptyProviderManager(),
+                null,
+                new PersistentWatchRegistry(cfg, inst, new NoLoadedClassDataSource(), null)
+        )).reset();
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$perModuleLock() throws Exception {
+
+        final CoreModuleManager coreModuleManager
+                = buildingCoreModuleManager(
+                buildingModuleJarFileWithModuleClass(
+                        createTempFile("test-", ".jar"),
+                        NormalModule.class,
+                        BlockingOnActiveModule.class
+                )
+        );
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // 一个模块阻塞在激活中
+            final Future<?> blocking = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    coreModuleManager.active(coreModuleManager.getThrowsExceptionIfNull("blocking-on-active"));
+                    return null;
+                }
+            });
+            Assert.assertTrue(BlockingLatches.entered.await(10, TimeUnit.SECONDS));
+
+            // 其他模块的冻结、激活和卸载不受影响
+            executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    final CoreModule coreModule = coreModuleManager.getThrowsExceptionIfNull("normal-module");
+                    coreModuleManager.frozen(coreModule, false);
+                    coreModuleManager.active(coreModule);
+                    coreModuleManager.unload(coreModule, false);
+                    return null;
+                }
+            }).get(10, TimeUnit.SECONDS);
+            assertLoadedModule(coreModuleManager, "blocking-on-active");
+
+            BlockingLatches.released.countDown();
+            blocking.get(10, TimeUnit.SECONDS);
+            Assert.assertTrue(coreModuleManager.get("blocking-on-active").isActivated());
+        } finally {
+            BlockingLatches.released.countDown();
+            executor.shutdownNow();
+        }
+
+    }
+
+    private static boolean isClosed(final ModuleJarClassLoader moduleJarClassLoader) {
+        return ModuleJarClassLoaderTracker.getSingleton().listUncollected(false).stream()
+                .anyMatch(description -> description.startsWith(moduleJarClassLoader.toString()));
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$unloadDuringFlush() throws Exception {
+
+        final CoreModuleManager coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                buildingCoreConfigureWithUserModuleLib(buildingModuleJarFileWithModuleClass(
+                        createTempFile("test-", ".jar"),
+                        NormalModule.class,
+                        BlockingOnLoadModule.class
+                )),
+                new EmptyInstrumentation(),
+                new EmptyCoreLoadedClassDataSource(),
+                new EmptyProviderManager()
+        ));
+
+        final ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            // 重置时同一个模块Jar文件中的第二个模块阻塞在加载中
+            final Future<?> resetting = executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    coreModuleManager.reset();
+                    return null;
+                }
+            });
+            Assert.assertTrue(LoadingLatches.entered.await(10, TimeUnit.SECONDS));
+
+            // 卸载已经注册的第一个模块，不等待刷新，也不能关闭第二个模块正在使用的ClassLoader
+            final CoreModule normalCoreModule = coreModuleManager.getThrowsExceptionIfNull("normal-module");
+            executor.submit(new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    coreModuleManager.unload(normalCoreModule, false);
+                    return null;
+                }
+            }).get(10, TimeUnit.SECONDS);
+            final ModuleJarClassLoader moduleJarClassLoader = normalCoreModule.getLoader();
+            Assert.assertFalse(isClosed(moduleJarClassLoader));
+
+            LoadingLatches.released.countDown();
+            resetting.get(10, TimeUnit.SECONDS);
+            assertLoadedModule(coreModuleManager, "blocking-on-load");
+            Assert.assertSame(moduleJarClassLoader, coreModuleManager.get("blocking-on-load").getLoader());
+            Assert.assertFalse(isClosed(moduleJarClassLoader));
+
+            // 所有模块都卸载之后ClassLoader才关闭
+            coreModuleManager.unloadAll();
+            Assert.assertTrue(isClosed(moduleJarClassLoader));
+        } finally {
+            LoadingLatches.released.countDown();
+            executor.shutdownNow();
+        }
+
+    }
+
+    // 模拟被观察方法的一次调用
+    private static void invokeWovenMethod(final int listenerId) throws Throwable {
+        EventListenerHandler.getSingleton().handleOnBefore(listenerId, ObjectIDs.NULL_ID, new Object[0], "Calculator", "sum", "()I", null);
+        EventListenerHandler.getSingleton().handleOnReturn(listenerId, 0, 0L);
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$replaceListener() throws Throwable {
+
+        final RecordingTransformerInstrumentation inst = new RecordingTransformerInstrumentation();
+        final CoreModuleManager coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                buildingCoreConfigureWithUserModuleLib(buildingModuleJarFileWithModuleClass(
+                        createTempFile("test-", ".jar"),
+                        ReplaceListenerModule.class
+                )),
+                inst,
+                new NoLoadedClassDataSource(),
+                new EmptyProviderManager()
+        )).reset();
+        assertEquals(1, inst.addedTransformers.size());
+
+        // 模块类由ModuleJarClassLoader加载，不能直接强转
+        final Module module = coreModuleManager.get("replace-listener-module").getModule();
+        final int watchId = (Integer) MethodUtils.invokeMethod(module, "getWatchId");
+        final RecordingEventListener listener = (RecordingEventListener) MethodUtils.invokeMethod(module, "getListener");
+        final int listenerId = ObjectIDs.instance.identity(listener);
+        invokeWovenMethod(listenerId);
+        assertEquals(Collections.singletonList(Event.Type.BEFORE), listener.eventTypes);
+
+        // 替换监听器和事件类型，不会注册或删除类形变器
+        final RecordingEventListener replacedListener = new RecordingEventListener();
+        Assert.assertTrue((Boolean) MethodUtils.invokeMethod(module, "replaceListener",
+                new Object[]{watchId, replacedListener, new Event.Type[]{Event.Type.BEFORE, Event.Type.RETURN}}));
+        invokeWovenMethod(listenerId);
+        assertEquals(Collections.singletonList(Event.Type.BEFORE), listener.eventTypes);
+        assertEquals(Arrays.asList(Event.Type.BEFORE, Event.Type.RETURN), replacedListener.eventTypes);
+        assertEquals(1, inst.addedTransformers.size());
+        Assert.assertTrue(inst.removedTransformers.isEmpty());
+
+        // 需要新织入点的事件类型和不存在的观察都不能直接替换
+        Assert.assertFalse((Boolean) MethodUtils.invokeMethod(module, "replaceListener",
+                new Object[]{watchId, new RecordingEventListener(), new Event.Type[]{Event.Type.LINE}}));
+        Assert.assertFalse((Boolean) MethodUtils.invokeMethod(module, "replaceListener",
+                new Object[]{watchId + 1, new RecordingEventListener(), new Event.Type[]{Event.Type.BEFORE}}));
+
+        // 冻结后重新激活，仍然是替换后的监听器
+        final CoreModule coreModule = coreModuleManager.getThrowsExceptionIfNull("replace-listener-module");
+        coreModuleManager.frozen(coreModule, false);
+        coreModuleManager.active(coreModule);
+        invokeWovenMethod(listenerId);
+        assertEquals(4, replacedListener.eventTypes.size());
+
+        coreModuleManager.unloadAll();
+
+    }
+
+    /*
+     * 生成一个类，可以带有sum方法；沙箱不增强com.alibaba.jvm.sandbox开头的类，所以被观察的类需要另外生成
+     */
+    private static byte[] toClassByteArray(final String javaClassName,
+                                           final boolean isWithSum) {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, toInternalClassName(javaClassName), null, "java/lang/Object", null);
+        final MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        if (!isWithSum) {
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+        final MethodVisitor sum = cw.visitMethod(ACC_PUBLIC, "sum", "(II)I", null, null);
+        sum.visitCode();
+        sum.visitVarInsn(ILOAD, 1);
+        sum.visitVarInsn(ILOAD, 2);
+        sum.visitInsn(IADD);
+        sum.visitInsn(IRETURN);
+        sum.visitMaxs(0, 0);
+        sum.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static Class<?> defineClass(final JvmHelper jvmHelper,
+                                        final String javaClassName,
+                                        final boolean isWithSum) throws Exception {
+        return jvmHelper
+                .defineClass(javaClassName, toClassByteArray(javaClassName, isWithSum))
+                .loadClass(javaClassName);
+    }
+
+    @Test
+    public void test$$CoreModuleManager$$deleteOnlyAffectClasses() throws Throwable {
+
+        final JvmHelper jvmHelper = new JvmHelper("test");
+        final Class<?> loadedClass = defineClass(jvmHelper, "com.example.affect.AffectTargetLoaded", true);
+        final Class<?> definedClass = defineClass(jvmHelper, "com.example.affect.AffectTargetDefined", true);
+        final ReTransformingInstrumentation inst = new ReTransformingInstrumentation(
+                loadedClass,
+                defineClass(jvmHelper, "com.example.affect.AffectUnrelated", true)
+        );
+
+        // 已加载类索引会注册一个观察类定义的类形变器
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, false);
+        final int observerCnt = inst.addedTransformers.size();
+        final CoreModuleManager coreModuleManager = SandboxProtector.instance.protectProxy(CoreModuleManager.class, new DefaultCoreModuleManager(
+                buildingCoreConfigureWithUserModuleLib(buildingModuleJarFileWithModuleClass(
+                        createTempFile("test-", ".jar"),
+                        AffectClassesModule.class
+                )),
+                inst,
+                classDataSource,
+                new EmptyProviderManager()
+        )).reset();
+
+        // 观察时只有已加载且匹配的类被重新形变
+        assertEquals(observerCnt + 1, inst.addedTransformers.size());
+        assertEquals(Collections.<Class<?>>singletonList(loadedClass), inst.reTransformedClasses);
+
+        // 其他ClassLoader中的同名类没有可匹配的方法，不会被增强
+        inst.define(defineClass(new JvmHelper("test"), definedClass.getName(), false));
+        assertEquals(1, classDataSource.findLoadedByName(definedClass.getName()).size());
+
+        // 观察之后第一次定义的类在类加载时被增强，此时只记录了类名和ClassLoader
+        inst.define(definedClass);
+        assertEquals(2, classDataSource.findLoadedByName(definedClass.getName()).size());
+
+        // 删除观察时恰好还原被增强过的类，类加载时增强的类按类名和ClassLoader找回
+        inst.reTransformedClasses.clear();
+        MethodUtils.invokeMethod(coreModuleManager.get("affect-classes-module").getModule(), "deleteWatch");
+        assertEquals(inst.addedTransformers.subList(observerCnt, inst.addedTransformers.size()), inst.removedTransformers);
+        assertEquals(2, inst.reTransformedClasses.size());
+        assertEquals(
+                new HashSet<Class<?>>(Arrays.asList(loadedClass, definedClass)),
+                new HashSet<Class<?>>(inst.reTransformedClasses)
+        );
+
+        coreModuleManager.unloadAll();
+        classDataSource.destroy();
+
+    }
 
 }
@@ -0,0 +1,305 @@
+package com.alibaba.jvm.sandbox.qatest.core.manager;
+
+import com.alibaba.jvm.sandbox.api.filter.ExtFilterImplByV140;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
+import com.alibaba.jvm.sandbox.api.util.GaPattern;
+import com.alibaba.jvm.sandbox.core.manager.impl.DefaultCoreLoadedClassDataSource;
+import com.alibaba.jvm.sandbox.core.manager.impl.LoadedClassIndex;
+import com.alibaba.jvm.sandbox.qatest.core.mock.EmptyInstrumentation;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.IllegalClassFormatException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.*;
+
+import static com.alibaba.jvm.sandbox.api.filter.ExtFilter.ExtFilterFactory.make;
+import static com.alibaba.jvm.sandbox.core.util.SandboxStringUtils.toInternalClassName;
+import static org.objectweb.asm.Opcodes.*;
+
+public class LoadedClassIndexTestCase {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Marked {
+    }
+
+    public interface Animal {
+    }
+
+    public static class Dog implements Animal {
+    }
+
+    @Marked
+    public static class Puppy extends Dog {
+    }
+
+    public static class LittlePuppy extends Puppy {
+    }
+
+    public static class Cat implements Animal {
+    }
+
+    /*
+     * 可以动态追加已加载类，并能触发已注册的观察者
+     */
+    static class MockObservableInstrumentation extends EmptyInstrumentation {
+
+        final List<Class<?>> loadedClasses = new ArrayList<>();
+        final List<ClassFileTransformer> transformers = new ArrayList<>();
+        int getAllLoadedClassesTimes = 0;
+
+        MockObservableInstrumentation(final Class<?>... classes) {
+            loadedClasses.addAll(Arrays.asList(classes));
+        }
+
+        void define(final Class<?> clazz) throws IllegalClassFormatException {
+            notifyDefine(clazz);
+            loadedClasses.add(clazz);
+        }
+
+        void notifyDefine(final Class<?> clazz) throws IllegalClassFormatException {
+            for (final ClassFileTransformer transformer : transformers) {
+                transformer.transform(clazz.getClassLoader(), toInternalClassName(clazz.getName()), null, null, new byte[0]);
+            }
+        }
+
+        @Override
+        public void addTransformer(ClassFileTransformer transformer, boolean canRetransform) {
+            transformers.add(transformer);
+        }
+
+        @Override
+        public boolean removeTransformer(ClassFileTransformer transformer) {
+            return transformers.remove(transformer);
+        }
+
+        @Override
+        public Class[] getAllLoadedClasses() {
+            getAllLoadedClassesTimes++;
+            return loadedClasses.toArray(new Class<?>[0]);
+        }
+
+        @Override
+        public Class[] getInitiatedClasses(ClassLoader loader) {
+            final List<Class<?>> initiatedClasses = new ArrayList<>();
+            for (final Class<?> clazz : loadedClasses) {
+                if (clazz.getClassLoader() == loader) {
+                    initiatedClasses.add(clazz);
+                }
+            }
+            return initiatedClasses.toArray(new Class<?>[0]);
+        }
+
+    }
+
+    private static Set<Class<?>> asSet(final Class<?>... classes) {
+        return new HashSet<>(Arrays.asList(classes));
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$seed() {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class, Puppy.class, Cat.class, String.class
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            Assert.assertEquals(1, inst.transformers.size());
+            Assert.assertEquals(asSet(Dog.class), index.findByName(Dog.class.getName()));
+            Assert.assertEquals(asSet(Dog.class, Puppy.class, Cat.class), index.findSubClasses(Animal.class.getName()));
+            Assert.assertEquals(asSet(Puppy.class), index.findSubClasses(Dog.class.getName()));
+            Assert.assertEquals(asSet(Puppy.class), index.findByAnnotation(Marked.class.getName()));
+            Assert.assertTrue(index.findByName("not.exist.Clazz").isEmpty());
+        } finally {
+            index.close();
+        }
+        Assert.assertTrue(inst.transformers.isEmpty());
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$incremental() throws IllegalClassFormatException {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class, Puppy.class
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            Assert.assertEquals(asSet(Puppy.class), index.findByAnnotation(Marked.class.getName()));
+
+            // 观察到类定义后，下一次检索即可命中
+            inst.define(LittlePuppy.class);
+            Assert.assertEquals(asSet(Puppy.class, LittlePuppy.class), index.findSubClasses(Dog.class.getName()));
+
+            // 类定义尚未完成时的检索不会遗漏该类
+            inst.notifyDefine(Cat.class);
+            Assert.assertTrue(index.findByName(Cat.class.getName()).isEmpty());
+            inst.loadedClasses.add(Cat.class);
+            Assert.assertEquals(asSet(Cat.class), index.findByName(Cat.class.getName()));
+            Assert.assertEquals(asSet(Dog.class, Puppy.class, LittlePuppy.class, Cat.class), index.findSubClasses(Animal.class.getName()));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$incrementalWithoutFullScan() throws IllegalClassFormatException {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            Assert.assertEquals(1, inst.getAllLoadedClassesTimes);
+
+            // 新定义的类只从它的ClassLoader中补齐，不再遍历所有已加载类
+            inst.define(Puppy.class);
+            inst.define(String.class);
+            Assert.assertEquals(asSet(Puppy.class), index.findSubClasses(Dog.class.getName()));
+            Assert.assertEquals(asSet(String.class), index.findByName(String.class.getName()));
+            Assert.assertEquals(1, inst.getAllLoadedClassesTimes);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$fullSyncWhenTooManyDefined() throws IllegalClassFormatException {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            // 两次检索之间定义的类过多时不再逐个记录，下一次检索时全量同步
+            for (int times = 0; times < 10000; times++) {
+                inst.notifyDefine(Cat.class);
+            }
+            inst.loadedClasses.add(Cat.class);
+            Assert.assertEquals(asSet(Dog.class, Cat.class), index.findSubClasses(Animal.class.getName()));
+            Assert.assertEquals(2, inst.getAllLoadedClassesTimes);
+
+            // 全量同步后恢复增量补齐
+            inst.define(Puppy.class);
+            Assert.assertEquals(asSet(Puppy.class), index.findSubClasses(Dog.class.getName()));
+            Assert.assertEquals(2, inst.getAllLoadedClassesTimes);
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$findCandidates() {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class, Puppy.class, LittlePuppy.class, Cat.class, String.class
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            Assert.assertEquals(
+                    asSet(Dog.class),
+                    index.findCandidates(GaPattern.compileWildcard("*$Dog"), null, false)
+            );
+            Assert.assertEquals(
+                    asSet(Dog.class, Puppy.class, LittlePuppy.class),
+                    index.findCandidates(GaPattern.compileWildcard("*$Dog"), null, true)
+            );
+            Assert.assertEquals(
+                    asSet(Puppy.class, LittlePuppy.class),
+                    index.findCandidates(
+                            GaPattern.compileWildcard("*"),
+                            new GaPattern[]{GaPattern.compileWildcard("*$Marked")},
+                            false
+                    )
+            );
+            Assert.assertTrue(index.findCandidates(
+                    GaPattern.compileWildcard("*$Cat"),
+                    new GaPattern[]{GaPattern.compileWildcard("*$Marked")},
+                    true
+            ).isEmpty());
+        } finally {
+            index.close();
+        }
+    }
+
+    /*
+     * 生成一个标注了不存在的注解类型的类
+     */
+    private static byte[] toAnnotatedByteArray(final String javaClassName,
+                                               final String annotationJavaClassName) {
+        final ClassWriter cw = new ClassWriter(0);
+        cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, toInternalClassName(javaClassName), null, "java/lang/Object", null);
+        cw.visitAnnotation("L" + toInternalClassName(annotationJavaClassName) + ";", true).visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    @Test
+    public void test$$LoadedClassIndex$$annotationTypeNotPresent() throws ClassNotFoundException, InvocationTargetException, IllegalAccessException {
+        final String javaClassName = "com.alibaba.jvm.sandbox.qatest.core.manager.NotPresentAnnotated";
+        final String annotationJavaClassName = "com.alibaba.jvm.sandbox.qatest.core.manager.NotPresentAnnotation";
+        final Class<?> annotatedClass = new JvmHelper("test")
+                .defineClass(javaClassName, toAnnotatedByteArray(javaClassName, annotationJavaClassName))
+                .loadClass(javaClassName);
+
+        // 反射会悄悄跳过无法解析的注解类型
+        Assert.assertEquals(0, annotatedClass.getDeclaredAnnotations().length);
+
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Dog.class, Puppy.class, annotatedClass
+        );
+        final LoadedClassIndex index = new LoadedClassIndex(inst);
+        index.open();
+        try {
+            Assert.assertEquals(asSet(annotatedClass), index.findByAnnotation(annotationJavaClassName));
+            Assert.assertEquals(asSet(Puppy.class), index.findByAnnotation(Marked.class.getName()));
+            Assert.assertEquals(
+                    asSet(annotatedClass),
+                    index.findCandidates(
+                            GaPattern.compileWildcard("*"),
+                            new GaPattern[]{GaPattern.compileWildcard("*.NotPresentAnnotation")},
+                            false
+                    )
+            );
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void test$$CoreLoadedClassDataSource$$findByIndexSameAsFullScan() {
+        final MockObservableInstrumentation inst = new MockObservableInstrumentation(
+                Animal.class, Dog.class, Puppy.class, LittlePuppy.class, Cat.class, String.class, Integer.class
+        );
+        final DefaultCoreLoadedClassDataSource classDataSource = new DefaultCoreLoadedClassDataSource(inst, false, true);
+        try {
+            final String regex = "com\\.alibaba\\.jvm\\.sandbox\\.qatest\\.core\\.manager\\.LoadedClassIndexTestCase\\$Dog";
+            final NameRegexFilter filter = new NameRegexFilter(regex, ".*");
+            for (final boolean isIncludeSubClasses : new boolean[]{false, true}) {
+
+                // 不携带类名模版时全量匹配
+                final Set<Class<?>> byFullScan = classDataSource.find(new ExtFilterImplByV140(
+                        make(filter, isIncludeSubClasses, false),
+                        false, false, false, false, false
+                ));
+
+                // 携带类名模版时借助索引检索候选类
+                final Set<Class<?>> byIndex = classDataSource.find(new ExtFilterImplByV140(
+                        make(filter, isIncludeSubClasses, false),
+                        false, false, false, false, false,
+                        GaPattern.compileRegex(regex), null
+                ));
+
+                Assert.assertFalse(byFullScan.isEmpty());
+                Assert.assertEquals(byFullScan, byIndex);
+            }
+        } finally {
+            classDataSource.destroy();
+        }
+    }
+
+}
@@ -7,6 +7,7 @@ import com.alibaba.jvm.sandbox.core.util.matcher.Matcher;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class EmptyCoreLoadedClassDataSource implements CoreLoadedClassDataSource {
     @Override
@@ -14,6 +15,16 @@ public class EmptyCoreLoadedClassDataSource implements CoreLoadedClassDataSource
         return null;
     }
 
+    @Override
+    public int findForReTransform(Matcher matcher, Consumer<Class<?>> consumer) {
+        return 0;
+    }
+
+    @Override
+    public Set<Class<?>> findLoadedByName(String javaClassName) {
+        return null;
+    }
+
     @Override
     public Set<Class<?>> list() {
         return null;
@@ -2,10 +2,14 @@ package com.alibaba.jvm.sandbox.qatest.core.mock;
 
 import com.alibaba.jvm.sandbox.api.event.Event;
 import com.alibaba.jvm.sandbox.api.filter.Filter;
+import com.alibaba.jvm.sandbox.api.filter.NameRegexFilter;
 import com.alibaba.jvm.sandbox.api.listener.EventListener;
 import com.alibaba.jvm.sandbox.api.listener.ext.EventWatchCondition;
 import com.alibaba.jvm.sandbox.api.resource.ModuleEventWatcher;
 
+import java.util.Collections;
+import java.util.Map;
+
 public class EmptyModuleEventWatcher implements ModuleEventWatcher {
 
     @Override
@@ -33,6 +37,11 @@ public class EmptyModuleEventWatcher implements ModuleEventWatcher {
 
     }
 
+    @Override
+    public boolean replaceListener(int watchId, EventListener listener, Event.Type... eventType) {
+        return false;
+    }
+
     @Override
     public void watching(Filter filter, EventListener listener, Progress wProgress, WatchCallback watchCb, Progress dProgress, Event.Type... eventType) throws Throwable {
 
@@ -42,4 +51,19 @@ public class EmptyModuleEventWatcher implements ModuleEventWatcher {
     public void watching(Filter filter, EventListener listener, WatchCallback watchCb, Event.Type... eventType) throws Throwable {
 
     }
+
+    @Override
+    public int watchCoverage(Filter filter, Progress progress) {
+        return 0;
+    }
+
+    @Override
+    public Map<String, int[]> getCoverage(int watchId, boolean isReset) {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public int watchPersistent(String key, NameRegexFilter filter, EventListener listener, Progress progress, Event.Type... eventType) {
+        return 0;
+    }
 }
@@ -0,0 +1,34 @@
+package com.alibaba.jvm.sandbox.qatest.core.util;
+
+import com.alibaba.jvm.sandbox.core.util.collection.CopyOnWriteIntMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CopyOnWriteIntMapTestCase {
+
+    @Test
+    public void test$putGetRemove() {
+        final CopyOnWriteIntMap<String> map = new CopyOnWriteIntMap<>();
+        Assert.assertNull(map.get(1));
+        Assert.assertNull(map.remove(1));
+
+        for (final int key : new int[]{5, 1, 3, Integer.MAX_VALUE, -1}) {
+            Assert.assertNull(map.put(key, "v" + key));
+        }
+        for (final int key : new int[]{5, 1, 3, Integer.MAX_VALUE, -1}) {
+            Assert.assertEquals("v" + key, map.get(key));
+        }
+        Assert.assertNull(map.get(2));
+
+        Assert.assertEquals("v3", map.put(3, "new3"));
+        Assert.assertEquals("new3", map.get(3));
+
+        Assert.assertEquals("v1", map.remove(1));
+        Assert.assertNull(map.get(1));
+        Assert.assertEquals("v5", map.get(5));
+        Assert.assertEquals("v-1", map.get(-1));
+        Assert.assertEquals("v" + Integer.MAX_VALUE, map.remove(Integer.MAX_VALUE));
+        Assert.assertNull(map.get(Integer.MAX_VALUE));
+    }
+
+}
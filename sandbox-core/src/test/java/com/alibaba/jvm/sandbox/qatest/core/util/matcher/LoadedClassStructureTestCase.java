@@ -0,0 +1,98 @@
+package com.alibaba.jvm.sandbox.qatest.core.util.matcher;
+
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.BehaviorStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructure;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureFactory;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureImplByAsm;
+import com.alibaba.jvm.sandbox.core.util.matcher.structure.ClassStructureImplByJDK;
+import com.alibaba.jvm.sandbox.qatest.core.util.JvmHelper;
+import com.alibaba.jvm.sandbox.qatest.core.util.matcher.target.ChildClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static com.alibaba.jvm.sandbox.qatest.core.util.QaClassUtils.toByteArray;
+
+public class LoadedClassStructureTestCase {
+
+    private static Set<String> toSignCodes(final ClassStructure classStructure) {
+        final Set<String> signCodes = new TreeSet<>();
+        for (final BehaviorStructure behaviorStructure : classStructure.getBehaviorStructures()) {
+            signCodes.add(behaviorStructure.getSignCode());
+        }
+        return signCodes;
+    }
+
+    private static Set<String> toJavaClassNames(final Set<ClassStructure> classStructures) {
+        final Set<String> javaClassNames = new TreeSet<>();
+        for (final ClassStructure classStructure : classStructures) {
+            javaClassNames.add(classStructure.getJavaClassName());
+        }
+        return javaClassNames;
+    }
+
+    @Test
+    public void test$$createClassStructure$$cached() {
+        final ClassStructure classStructure = ClassStructureFactory.createClassStructure(ChildClass.class);
+        Assert.assertTrue(classStructure instanceof ClassStructureImplByAsm);
+        Assert.assertSame(classStructure, ClassStructureFactory.createClassStructure(ChildClass.class));
+    }
+
+    @Test
+    public void test$$createClassStructure$$sameAsByteArray() throws IOException {
+        final ClassStructure byClass = ClassStructureFactory.createClassStructure(ChildClass.class);
+        final ClassStructure byByteArray = ClassStructureFactory.createClassStructure(toByteArray(ChildClass.class), ChildClass.class.getClassLoader());
+
+        Assert.assertEquals(byByteArray.getJavaClassName(), byClass.getJavaClassName());
+        Assert.assertEquals(byByteArray.getAccess().isPublic(), byClass.getAccess().isPublic());
+        Assert.assertEquals(toSignCodes(byByteArray), toSignCodes(byClass));
+        Assert.assertEquals(
+                toJavaClassNames(byByteArray.getFamilyTypeClassStructures()),
+                toJavaClassNames(byClass.getFamilyTypeClassStructures())
+        );
+        Assert.assertEquals(
+                toJavaClassNames(byByteArray.getFamilyAnnotationTypeClassStructures()),
+                toJavaClassNames(byClass.getFamilyAnnotationTypeClassStructures())
+        );
+    }
+
+    @Test
+    public void test$$createClassStructure$$fallbackToJDK() {
+
+        // 动态生成的类读取不到字节码资源
+        final Supplier<String> lambda = () -> "lambda";
+        Assert.assertTrue(ClassStructureFactory.createClassStructure(lambda.getClass()) instanceof ClassStructureImplByJDK);
+        Assert.assertTrue(ClassStructureFactory.createClassStructure(int[].class) instanceof ClassStructureImplByJDK);
+    }
+
+    private static WeakReference<ClassLoader> createClassStructureInPrivateClassLoader(final ClassStructure[] classStructureRef) throws Exception {
+        final Class<?> clazz = new JvmHelper("test")
+                .defineClass(ChildClass.class)
+                .loadClass(ChildClass.class.getName());
+        Assert.assertNotSame(ChildClass.class, clazz);
+        classStructureRef[0] = ClassStructureFactory.createClassStructure(clazz);
+        Assert.assertTrue(classStructureRef[0] instanceof ClassStructureImplByAsm);
+        Assert.assertSame(clazz.getClassLoader(), classStructureRef[0].getClassLoader());
+        return new WeakReference<>(clazz.getClassLoader());
+    }
+
+    @Test
+    public void test$$createClassStructure$$notHoldingClassLoader() throws Exception {
+
+        // 即使类结构仍被持有，也不会阻止ClassLoader及其加载的类被回收
+        final ClassStructure[] classStructureRef = new ClassStructure[1];
+        final WeakReference<ClassLoader> loaderRef = createClassStructureInPrivateClassLoader(classStructureRef);
+        for (int times = 0; times < 50 && null != loaderRef.get(); times++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        Assert.assertNull(loaderRef.get());
+        Assert.assertEquals(ChildClass.class.getName(), classStructureRef[0].getJavaClassName());
+    }
+
+}
@@ -53,9 +53,7 @@ public class ModuleMgrModule implements Module {
     public void list(final PrintWriter writer) throws IOException {
 
         int total = 0;
-        for (final Module module : moduleManager.list()) {
-
-            final Information info = module.getClass().getAnnotation(Information.class);
+        for (final Information info : moduleManager.listInformation()) {
 
             try {
                 final boolean isActivated = moduleManager.isActivated(info.id());
@@ -79,8 +77,8 @@ public class ModuleMgrModule implements Module {
                 );
 
             } catch (ModuleException me) {
-                logger.warn("get module info occur error when list modules, module[id={};class={};], error={}, ignore this module.",
-                        me.getUniqueId(), module.getClass(), me.getErrorCode(), me);
+                logger.warn("get module info occur error when list modules, module[id={};], error={}, ignore this module.",
+                        me.getUniqueId(), me.getErrorCode(), me);
             }
 
         }
@@ -104,7 +102,7 @@ public class ModuleMgrModule implements Module {
 
         // 进行模块的刷新, 由传入的参数来决定是否需要强制刷新
         moduleManager.flush(isForce);
-        output(writer, "module flush finished, total=%s;", moduleManager.list().size());
+        output(writer, "module flush finished, total=%s;", moduleManager.listInformation().size());
     }
 
     /**
@@ -116,7 +114,7 @@ public class ModuleMgrModule implements Module {
     @Command("reset")
     public void reset(final PrintWriter writer) throws ModuleException {
         moduleManager.reset();
-        output(writer, "module reset finished, total=%s;", moduleManager.list().size());
+        output(writer, "module reset finished, total=%s;", moduleManager.listInformation().size());
     }
 
     // @Http("/unload")
@@ -125,9 +123,8 @@ public class ModuleMgrModule implements Module {
                        final PrintWriter writer) {
         int total = 0;
         final String idsStringPattern = getParamWithDefault(param, "ids", EMPTY);
-        Collection<Module> modules = search(idsStringPattern);
-        for (final Module module : modules) {
-            final Information info = module.getClass().getAnnotation(Information.class);
+        Collection<Information> infos = search(idsStringPattern);
+        for (final Information info : infos) {
             try {
                 moduleManager.unload(info.id());
                 total++;
@@ -143,8 +140,7 @@ public class ModuleMgrModule implements Module {
     public void active(final Map<String, String> param, final PrintWriter writer) throws ModuleException {
         int total = 0;
         final String idsStringPattern = getParamWithDefault(param, "ids", EMPTY);
-        for (final Module module : search(idsStringPattern)) {
-            final Information info = module.getClass().getAnnotation(Information.class);
+        for (final Information info : search(idsStringPattern)) {
             final boolean isActivated = moduleManager.isActivated(info.id());
             if (!isActivated) {
                 try {
@@ -166,8 +162,7 @@ public class ModuleMgrModule implements Module {
                        final PrintWriter writer) throws ModuleException {
         int total = 0;
         final String idsStringPattern = getParamWithDefault(param, "ids", EMPTY);
-        for (final Module module : search(idsStringPattern)) {
-            final Information info = module.getClass().getAnnotation(Information.class);
+        for (final Information info : search(idsStringPattern)) {
             final boolean isActivated = moduleManager.isActivated(info.id());
             if (isActivated) {
                 try {
@@ -195,17 +190,19 @@ public class ModuleMgrModule implements Module {
             return;
         }
 
-        final Module module = moduleManager.get(uniqueId);
-        if (null == module) {
+        final Information info = getInformation(uniqueId);
+        if (null == info) {
             writer.println(String.format("module[id=%s] is not existed.", uniqueId));
             return;
         }
 
-        final Information info = module.getClass().getAnnotation(Information.class);
+        // 延迟加载的模块在实例化之前没有模块实例，查看详情不会触发实例化
+        final Module module = moduleManager.get(uniqueId);
         final boolean isActivated = moduleManager.isActivated(info.id());
         final int cCnt = moduleManager.cCnt(info.id());
         final int mCnt = moduleManager.mCnt(info.id());
         final File jarFile = moduleManager.getJarFile(info.id());
+        final ModuleManager.Footprint footprint = moduleManager.getFootprint(info.id());
         String sb = "" +
                 "      ID : " + info.id() + "\n" +
                 " VERSION : " + info.version() + "\n" +
@@ -213,16 +210,40 @@ public class ModuleMgrModule implements Module {
                 "JAR_FILE : " + jarFile.getPath() + "\n" +
                 "   STATE : " + (isActivated ? "ACTIVE" : "FROZEN") + "\n" +
                 "    MODE : " + ArrayUtils.toString(info.mode()) + "\n" +
-                "   CLASS : " + module.getClass().getName() + "\n" +
-                "  LOADER : " + module.getClass().getClassLoader() + "\n" +
+                "    LAZY : " + (info.isLazy() ? (null == module ? "NOT_INSTANTIATED" : "INSTANTIATED") : "FALSE") + "\n" +
+                "   CLASS : " + (null == module ? "-" : module.getClass().getName()) + "\n" +
+                "  LOADER : " + (null == module ? "-" : module.getClass().getClassLoader()) + "\n" +
                 "    cCnt : " + cCnt + "\n" +
                 "    mCnt : " + mCnt + "\n" +
-                "COMMANDS : " + joinString(getCommandsByModuleClz(module.getClass()));
+                " CLASSES : " + footprint.getDefinedClassCnt() + "\n" +
+                "    META : " + footprint.getMetaspaceBytes() + " bytes(estimated)\n" +
+                "WATCHERS : " + footprint.getTransformerCnt() + "\n" +
+                "LISTENER : " + footprint.getListenerCnt() + "\n" +
+                "COMMANDS : " + joinString(getCommandsByModuleClz(null == module ? null : module.getClass()));
 
         output(writer, sb);
 
     }
 
+    /**
+     * 列出已经卸载但仍未被回收的模块ClassLoader
+     * <p>
+     * 参数gc=true时先触发一次GC，避免把只是还没来得及回收的ClassLoader当成泄漏
+     * </p>
+     *
+     * @param param  参数集合
+     * @param writer 输出流
+     */
+    @Command("leak")
+    public void leak(final Map<String, String> param,
+                     final PrintWriter writer) {
+        final boolean isGcFirst = BooleanUtils.toBoolean(getParamWithDefault(param, "gc", EMPTY));
+        final Collection<String> loaders = moduleManager.listUncollectedLoaders(isGcFirst);
+        for (final String loader : loaders) {
+            output(writer, "%s", loader);
+        }
+        output(writer, "total=%s", loaders.size());
+    }
 
     // 获取参数值
     private String getParamWithDefault(final Map<String, String> param, final String name, final String defaultValue) {
@@ -233,16 +254,25 @@ public class ModuleMgrModule implements Module {
     }
 
     // 搜索模块
-    private Collection<Module> search(final String idsStringPattern) {
-        final Collection<Module> foundModules = new ArrayList<>();
-        for (Module module : moduleManager.list()) {
-            final Information moduleInfo = module.getClass().getAnnotation(Information.class);
+    private Collection<Information> search(final String idsStringPattern) {
+        final Collection<Information> foundInfos = new ArrayList<>();
+        for (Information moduleInfo : moduleManager.listInformation()) {
             if (!matching(moduleInfo.id(), idsStringPattern)) {
                 continue;
             }
-            foundModules.add(module);
+            foundInfos.add(moduleInfo);
+        }
+        return foundInfos;
+    }
+
+    // 获取模块信息
+    private Information getInformation(final String uniqueId) {
+        for (Information moduleInfo : moduleManager.listInformation()) {
+            if (StringUtils.equals(moduleInfo.id(), uniqueId)) {
+                return moduleInfo;
+            }
         }
-        return foundModules;
+        return null;
     }
 
     // 输出信息到客户端
@@ -33,6 +33,7 @@ public class SandboxInfoModule implements Module {
                 "                    NAMESPACE : " + configInfo.getNamespace() + "\n" +
                         "                      VERSION : " + configInfo.getVersion() + "\n" +
                         "                         MODE : " + configInfo.getMode() + "\n" +
+                        "                    READINESS : " + configInfo.getReadiness() + "\n" +
                         "                  SERVER_ADDR : " + configInfo.getServerAddress().getHostName() + "\n" +
                         "                  SERVER_PORT : " + configInfo.getServerAddress().getPort() + "\n" +
                         "               SERVER_CHARSET : " + configInfo.getServerCharset().toUpperCase() + "\n" +
@@ -35,6 +35,9 @@ public class Spy {
 
     private static final SelfCallBarrier selfCallBarrier = new SelfCallBarrier();
 
+    // 未开启计时时的方法耗时
+    private static final long NO_COST_NANO_TIME = -1L;
+
     /**
      * 判断间谍类是否已经完成初始化
      *
@@ -154,6 +157,39 @@ public class Spy {
         }
     }
 
+    /**
+     * 获取行覆盖探针数组，被增强的方法每次调用只获取一次，之后每执行到一行只需写一次数组，不再产生方法调用
+     * <p>
+     * 命名空间未初始化或探针已经被注销时返回一个公共的丢弃数组，保证被增强的方法不会因为写探针而出错。
+     * 方法的行数不会超过方法字节码的长度，所以丢弃数组按方法字节码的最大长度分配
+     * </p>
+     *
+     * @param probesId  探针ID
+     * @param namespace 命名空间
+     * @return 行覆盖探针数组
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static boolean[] spyMethodOnCoverage(final int probesId,
+                                                final String namespace) throws Throwable {
+        try {
+            final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
+            if (null != spyHandler) {
+                final boolean[] probes = spyHandler.handleOnCoverage(probesId);
+                if (null != probes) {
+                    return probes;
+                }
+            }
+        } catch (Throwable cause) {
+            handleException(cause);
+        }
+        return CoverageSinkHolder.SINK;
+    }
+
+    // 丢弃数组只在需要时才分配
+    private static class CoverageSinkHolder {
+        private static final boolean[] SINK = new boolean[65536];
+    }
+
     /**
      * 在方法调用前会回调此方法
      *
@@ -180,7 +216,7 @@ public class Spy {
         if (selfCallBarrier.isEnter(thread)) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
+        selfCallBarrier.enter(thread);
         try {
             // 获取对于的SpyHandler(具体实现为EventListenerHandler)
             final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
@@ -201,51 +237,211 @@ public class Spy {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(thread);
         }
     }
 
     public static Ret spyMethodOnReturn(final Object object,
                                         final String namespace,
                                         final int listenerId) throws Throwable {
+        return spyMethodOnReturn(object, NO_COST_NANO_TIME, namespace, listenerId);
+    }
+
+    /**
+     * 在方法返回前会回调此方法，同时带上织入代码在方法中测量的耗时
+     *
+     * @param object       返回值
+     * @param costNanoTime 方法耗时(纳秒)
+     * @param namespace    命名空间
+     * @param listenerId   监听器ID
+     * @return Spy流程控制结果
+     * @throws Throwable 处理失败
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnReturn(final Object object,
+                                        final long costNanoTime,
+                                        final String namespace,
+                                        final int listenerId) throws Throwable {
         final Thread thread = Thread.currentThread();
         if (selfCallBarrier.isEnter(thread)) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
+        selfCallBarrier.enter(thread);
         try {
             final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
-            return spyHandler.handleOnReturn(listenerId, object);
+            return spyHandler.handleOnReturn(listenerId, object, costNanoTime);
         } catch (Throwable cause) {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(thread);
         }
     }
 
     public static Ret spyMethodOnThrows(final Throwable throwable,
                                         final String namespace,
                                         final int listenerId) throws Throwable {
+        return spyMethodOnThrows(throwable, NO_COST_NANO_TIME, namespace, listenerId);
+    }
+
+    /**
+     * 在方法抛出异常前会回调此方法，同时带上织入代码在方法中测量的耗时
+     *
+     * @param throwable    抛出的异常
+     * @param costNanoTime 方法耗时(纳秒)
+     * @param namespace    命名空间
+     * @param listenerId   监听器ID
+     * @return Spy流程控制结果
+     * @throws Throwable 处理失败
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnThrows(final Throwable throwable,
+                                        final long costNanoTime,
+                                        final String namespace,
+                                        final int listenerId) throws Throwable {
         final Thread thread = Thread.currentThread();
         if (selfCallBarrier.isEnter(thread)) {
             return Ret.RET_NONE;
         }
-        final SelfCallBarrier.Node node = selfCallBarrier.enter(thread);
+        selfCallBarrier.enter(thread);
         try {
             final SpyHandler spyHandler = namespaceSpyHandlerMap.get(namespace);
             if (null == spyHandler) {
                 return Ret.RET_NONE;
             }
-            return spyHandler.handleOnThrows(listenerId, throwable);
+            return spyHandler.handleOnThrows(listenerId, throwable, costNanoTime);
         } catch (Throwable cause) {
             handleException(cause);
             return Ret.RET_NONE;
         } finally {
-            selfCallBarrier.exit(thread, node);
+            selfCallBarrier.exit(thread);
+        }
+    }
+
+    /**
+     * 在方法调用前会回调此方法，流程控制在方法外完成
+     * <p>
+     * 与{@link #spyMethodOnBefore(Object[], String, int, int, String, String, String, Object)}相同，
+     * 但只有需要立即返回时才返回{@link Ret}，需要立即抛出异常时直接在这里抛出，其余情况返回null。
+     * 这样被增强的方法中只需要织入一次判空，而不是完整的流程控制分支，以免方法体膨胀到无法被JIT内联
+     * </p>
+     *
+     * @param argumentArray             参数数组
+     * @param namespace                 命名空间
+     * @param listenerId                监听器ID
+     * @param targetClassLoaderObjectID 目标类加载器ID
+     * @param javaClassName             类名
+     * @param javaMethodName            方法名
+     * @param javaMethodDesc            方法描述
+     * @param target                    目标对象
+     * @return 需要立即返回时返回{@link Ret}，否则返回null
+     * @throws Throwable 需要立即抛出的异常
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnBeforeStub(final Object[] argumentArray,
+                                            final String namespace,
+                                            final int listenerId,
+                                            final int targetClassLoaderObjectID,
+                                            final String javaClassName,
+                                            final String javaMethodName,
+                                            final String javaMethodDesc,
+                                            final Object target) throws Throwable {
+        return processControl(spyMethodOnBefore(
+                argumentArray,
+                namespace,
+                listenerId,
+                targetClassLoaderObjectID,
+                javaClassName,
+                javaMethodName,
+                javaMethodDesc,
+                target
+        ));
+    }
+
+    /**
+     * 在方法返回前会回调此方法，流程控制在方法外完成
+     *
+     * @param object     返回值
+     * @param namespace  命名空间
+     * @param listenerId 监听器ID
+     * @return 需要立即返回时返回{@link Ret}，否则返回null
+     * @throws Throwable 需要立即抛出的异常
+     * @see #spyMethodOnBeforeStub(Object[], String, int, int, String, String, String, Object)
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnReturnStub(final Object object,
+                                            final String namespace,
+                                            final int listenerId) throws Throwable {
+        return processControl(spyMethodOnReturn(object, namespace, listenerId));
+    }
+
+    /**
+     * 在方法抛出异常前会回调此方法，流程控制在方法外完成
+     *
+     * @param throwable  抛出的异常
+     * @param namespace  命名空间
+     * @param listenerId 监听器ID
+     * @return 需要立即返回时返回{@link Ret}，否则返回null
+     * @throws Throwable 需要立即抛出的异常
+     * @see #spyMethodOnBeforeStub(Object[], String, int, int, String, String, String, Object)
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnThrowsStub(final Throwable throwable,
+                                            final String namespace,
+                                            final int listenerId) throws Throwable {
+        return processControl(spyMethodOnThrows(throwable, namespace, listenerId));
+    }
+
+    /**
+     * 在方法返回前会回调此方法，流程控制在方法外完成，同时带上方法耗时
+     *
+     * @param object       返回值
+     * @param costNanoTime 方法耗时(纳秒)
+     * @param namespace    命名空间
+     * @param listenerId   监听器ID
+     * @return 需要立即返回时返回{@link Ret}，否则返回null
+     * @throws Throwable 需要立即抛出的异常
+     * @see #spyMethodOnReturnStub(Object, String, int)
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnReturnStub(final Object object,
+                                            final long costNanoTime,
+                                            final String namespace,
+                                            final int listenerId) throws Throwable {
+        return processControl(spyMethodOnReturn(object, costNanoTime, namespace, listenerId));
+    }
+
+    /**
+     * 在方法抛出异常前会回调此方法，流程控制在方法外完成，同时带上方法耗时
+     *
+     * @param throwable    抛出的异常
+     * @param costNanoTime 方法耗时(纳秒)
+     * @param namespace    命名空间
+     * @param listenerId   监听器ID
+     * @return 需要立即返回时返回{@link Ret}，否则返回null
+     * @throws Throwable 需要立即抛出的异常
+     * @see #spyMethodOnThrowsStub(Throwable, String, int)
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    public static Ret spyMethodOnThrowsStub(final Throwable throwable,
+                                            final long costNanoTime,
+                                            final String namespace,
+                                            final int listenerId) throws Throwable {
+        return processControl(spyMethodOnThrows(throwable, costNanoTime, namespace, listenerId));
+    }
+
+    // 立即抛出异常的流程在这里完成，只有立即返回需要交给被增强的方法
+    private static Ret processControl(final Ret ret) throws Throwable {
+        switch (ret.state) {
+            case Ret.RET_STATE_RETURN:
+                return ret;
+            case Ret.RET_STATE_THROWS:
+                throw (Throwable) ret.respond;
+            default:
+                return null;
         }
     }
 
@@ -294,6 +490,10 @@ public class Spy {
 
     /**
      * 本地线程
+     * <p>
+     * 按线程哈希分桶记录当前正在Spy中的线程，线程离开Spy时只清空所在的槽位，
+     * 槽位不够时才扩容，进出Spy不需要再为每次调用分配节点
+     * </p>
      */
     public static class SelfCallBarrier {
 
@@ -301,55 +501,20 @@ public class Spy {
             cleanAndInit();
         }
 
-
-        public static class Node {
-            private final Thread thread;
-            private final ReentrantLock lock;
-            private Node pre;
-            private Node next;
-
-            Node(final Thread thread) {
-                this(thread, null);
-            }
-
-            Node(final Thread thread, final ReentrantLock lock) {
-                this.thread = thread;
-                this.lock = lock;
-            }
-
-        }
-
-        // 删除节点
-        void delete(final Node node) {
-            node.pre.next = node.next;
-            if (null != node.next) {
-                node.next.pre = node.pre;
-            }
-            // help gc
-            node.pre = (node.next = null);
-        }
-
-        // 插入节点
-        void insert(final Node top, final Node node) {
-            if (null != top.next) {
-                top.next.pre = node;
-            }
-            node.next = top.next;
-            node.pre = top;
-            top.next = node;
+        static class Bucket {
+            private final ReentrantLock lock = new ReentrantLock();
+            private Thread[] threads = new Thread[BUCKET_INIT_SIZE];
         }
 
         static final int THREAD_LOCAL_ARRAY_LENGTH = 512;
 
-        final Node[] nodeArray = new Node[THREAD_LOCAL_ARRAY_LENGTH];
+        static final int BUCKET_INIT_SIZE = 2;
 
-        Node createTopNode() {
-            return new Node(null, new ReentrantLock());
-        }
+        final Bucket[] bucketArray = new Bucket[THREAD_LOCAL_ARRAY_LENGTH];
 
         void cleanAndInit() {
             for (int i = 0; i < THREAD_LOCAL_ARRAY_LENGTH; i++) {
-                nodeArray[i] = createTopNode();
+                bucketArray[i] = new Bucket();
             }
         }
 
@@ -359,47 +524,64 @@ public class Spy {
                     : val;
         }
 
+        Bucket bucketOf(Thread thread) {
+            return bucketArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+        }
+
         /**
          * @param thread
          * @return
          */
         boolean isEnter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            Node node = top;
+            final Bucket bucket = bucketOf(thread);
             try {
                 // spin for lock
-                while (!top.lock.tryLock()) ;
-                while (null != node.next) {
-                    node = node.next;
-                    if (thread == node.thread) {
+                while (!bucket.lock.tryLock()) ;
+                for (final Thread entered : bucket.threads) {
+                    if (thread == entered) {
                         return true;
                     }
                 }
                 return false;
             } finally {
-                top.lock.unlock();
+                bucket.lock.unlock();
             }
         }
 
-        Node enter(Thread thread) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
-            final Node node = new Node(thread);
+        void enter(Thread thread) {
+            final Bucket bucket = bucketOf(thread);
             try {
-                while (!top.lock.tryLock()) ;
-                insert(top, node);
+                while (!bucket.lock.tryLock()) ;
+                final Thread[] threads = bucket.threads;
+                for (int index = 0; index < threads.length; index++) {
+                    if (null == threads[index]) {
+                        threads[index] = thread;
+                        return;
+                    }
+                }
+                // 槽位已满，2倍扩容
+                final Thread[] newThreads = new Thread[threads.length * 2];
+                System.arraycopy(threads, 0, newThreads, 0, threads.length);
+                newThreads[threads.length] = thread;
+                bucket.threads = newThreads;
             } finally {
-                top.lock.unlock();
+                bucket.lock.unlock();
             }
-            return node;
         }
 
-        void exit(Thread thread, Node node) {
-            final Node top = nodeArray[abs(thread.hashCode()) % THREAD_LOCAL_ARRAY_LENGTH];
+        void exit(Thread thread) {
+            final Bucket bucket = bucketOf(thread);
             try {
-                while (!top.lock.tryLock()) ;
-                delete(node);
+                while (!bucket.lock.tryLock()) ;
+                final Thread[] threads = bucket.threads;
+                for (int index = 0; index < threads.length; index++) {
+                    if (thread == threads[index]) {
+                        threads[index] = null;
+                        return;
+                    }
+                }
             } finally {
-                top.lock.unlock();
+                bucket.lock.unlock();
             }
         }
 
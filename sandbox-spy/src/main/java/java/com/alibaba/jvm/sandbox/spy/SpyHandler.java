@@ -68,21 +68,33 @@ public interface SpyHandler {
     /**
      * 处理方法调用:异常返回
      *
-     * @param listenerId 事件监听器ID
-     * @param throwable  异常返回的异常实例
+     * @param listenerId   事件监听器ID
+     * @param throwable    异常返回的异常实例
+     * @param costNanoTime 方法耗时(纳秒)，未开启计时时为-1
      * @return Spy流程控制结果
      * @throws Throwable 处理{方法调用:异常返回}失败
      */
-    Spy.Ret handleOnThrows(int listenerId, Throwable throwable) throws Throwable;
+    Spy.Ret handleOnThrows(int listenerId, Throwable throwable, long costNanoTime) throws Throwable;
 
     /**
      * 处理方法调用:正常返回
      *
-     * @param listenerId 事件监听器ID
-     * @param object     正常返回的对象实例
+     * @param listenerId   事件监听器ID
+     * @param object       正常返回的对象实例
+     * @param costNanoTime 方法耗时(纳秒)，未开启计时时为-1
      * @return Spy流程控制结果
      * @throws Throwable 处理{方法调用:正常返回}失败
      */
-    Spy.Ret handleOnReturn(int listenerId, Object object) throws Throwable;
+    Spy.Ret handleOnReturn(int listenerId, Object object, long costNanoTime) throws Throwable;
+
+    /**
+     * 获取行覆盖探针数组
+     * <p>COVERAGE</p>
+     *
+     * @param probesId 探针ID
+     * @return 行覆盖探针数组，探针不存在时返回null
+     * @since {@code sandbox-spy:1.4.0}
+     */
+    boolean[] handleOnCoverage(int probesId);
 
-}
\ No newline at end of file
+}